@@ -0,0 +1,147 @@
+package se.samuelandersson.rocketleague;
+
+import java.util.Arrays;
+
+/**
+ * A {@link HistoryStorage} keeping every field in a primitive array of its own on the Java heap.
+ *
+ * @author Samuel Andersson
+ */
+class ArrayStorage extends HistoryStorage
+{
+  private final long[] times;
+  private final byte[] playLists;
+  private final int[] deltaPoints;
+  private final int[] ranksPreGame;
+  private final float[] skillMeans;
+  private final float[] skillSigmas;
+
+  ArrayStorage(final int capacity)
+  {
+    this(new long[capacity], new byte[capacity], new int[capacity], new int[capacity], new float[capacity],
+         new float[capacity]);
+  }
+
+  private ArrayStorage(final long[] times, final byte[] playLists, final int[] deltaPoints, final int[] ranksPreGame,
+                       final float[] skillMeans, final float[] skillSigmas)
+  {
+    this.times = times;
+    this.playLists = playLists;
+    this.deltaPoints = deltaPoints;
+    this.ranksPreGame = ranksPreGame;
+    this.skillMeans = skillMeans;
+    this.skillSigmas = skillSigmas;
+  }
+
+  @Override
+  int capacity()
+  {
+    return times.length;
+  }
+
+  @Override
+  long getEpochSecond(final int index)
+  {
+    return times[index];
+  }
+
+  @Override
+  int getPlayList(final int index)
+  {
+    return playLists[index];
+  }
+
+  @Override
+  int getDeltaPoints(final int index)
+  {
+    return deltaPoints[index];
+  }
+
+  @Override
+  int getRankPreGame(final int index)
+  {
+    return ranksPreGame[index];
+  }
+
+  @Override
+  float getSkillMean(final int index)
+  {
+    return skillMeans[index];
+  }
+
+  @Override
+  float getSkillSigma(final int index)
+  {
+    return skillSigmas[index];
+  }
+
+  @Override
+  long getKey(final int index)
+  {
+    return MatchResult.key(times[index], playLists[index]);
+  }
+
+  @Override
+  void copy(final int index, final HistoryStorage source, final int sourceIndex)
+  {
+    if (!(source instanceof ArrayStorage))
+    {
+      super.copy(index, source, sourceIndex);
+      return;
+    }
+
+    ArrayStorage other = (ArrayStorage) source;
+    times[index] = other.times[sourceIndex];
+    playLists[index] = other.playLists[sourceIndex];
+    deltaPoints[index] = other.deltaPoints[sourceIndex];
+    ranksPreGame[index] = other.ranksPreGame[sourceIndex];
+    skillMeans[index] = other.skillMeans[sourceIndex];
+    skillSigmas[index] = other.skillSigmas[sourceIndex];
+  }
+
+  @Override
+  void set(final int index, final long epochSecond, final int playList, final int deltaPoints,
+           final int rankPreGame, final float skillMean, final float skillSigma)
+  {
+    times[index] = epochSecond;
+    playLists[index] = (byte) playList;
+    this.deltaPoints[index] = deltaPoints;
+    ranksPreGame[index] = rankPreGame;
+    skillMeans[index] = skillMean;
+    skillSigmas[index] = skillSigma;
+  }
+
+  @Override
+  void move(final int from, final int to, final int count)
+  {
+    System.arraycopy(times, from, times, to, count);
+    System.arraycopy(playLists, from, playLists, to, count);
+    System.arraycopy(deltaPoints, from, deltaPoints, to, count);
+    System.arraycopy(ranksPreGame, from, ranksPreGame, to, count);
+    System.arraycopy(skillMeans, from, skillMeans, to, count);
+    System.arraycopy(skillSigmas, from, skillSigmas, to, count);
+  }
+
+  @Override
+  HistoryStorage resize(final int capacity, final int size)
+  {
+    return new ArrayStorage(Arrays.copyOf(times, capacity),
+                            Arrays.copyOf(playLists, capacity),
+                            Arrays.copyOf(deltaPoints, capacity),
+                            Arrays.copyOf(ranksPreGame, capacity),
+                            Arrays.copyOf(skillMeans, capacity),
+                            Arrays.copyOf(skillSigmas, capacity));
+  }
+
+  @Override
+  HistoryStorage create(final int capacity)
+  {
+    return new ArrayStorage(capacity);
+  }
+
+  @Override
+  boolean isOffHeap()
+  {
+    return false;
+  }
+}
@@ -0,0 +1,102 @@
+package se.samuelandersson.rocketleague;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The storage behind a {@link MatchHistory}. A storage has a fixed capacity of results, every one of them addressed by
+ * its index. Growing a storage means creating a larger one, see {@link #resize(int, int)}.
+ *
+ * @author Samuel Andersson
+ */
+abstract class HistoryStorage
+{
+  /**
+   * Returns the number of results this storage has room for.
+   */
+  abstract int capacity();
+
+  abstract long getEpochSecond(int index);
+
+  abstract int getPlayList(int index);
+
+  abstract int getDeltaPoints(int index);
+
+  abstract int getRankPreGame(int index);
+
+  abstract float getSkillMean(int index);
+
+  abstract float getSkillSigma(int index);
+
+  /**
+   * Returns the key of the result at the provided index, see {@link MatchResult#key(long, int)}.
+   */
+  long getKey(final int index)
+  {
+    return MatchResult.key(getEpochSecond(index), getPlayList(index));
+  }
+
+  abstract void set(int index, long epochSecond, int playList, int deltaPoints, int rankPreGame, float skillMean,
+                    float skillSigma);
+
+  /**
+   * Moves {@code count} results from {@code from} to {@code to}. The ranges may overlap.
+   */
+  abstract void move(int from, int to, int count);
+
+  /**
+   * Returns a storage of the same kind with room for {@code capacity} results, holding the first {@code size} results
+   * of this storage.
+   */
+  abstract HistoryStorage resize(int capacity, int size);
+
+  /**
+   * Returns a new, empty storage of the same kind with room for {@code capacity} results.
+   */
+  abstract HistoryStorage create(int capacity);
+
+  /**
+   * Returns true if the results are kept outside of the Java heap.
+   */
+  abstract boolean isOffHeap();
+
+  /**
+   * Returns true if this storage can not be changed, in which case it has to be copied by {@link #resize(int, int)}
+   * before being changed.
+   */
+  boolean isReadOnly()
+  {
+    return false;
+  }
+
+  /**
+   * Writes the results from {@code from} to {@code to} as records at the position of the provided buffer, laid out as
+   * described by {@link MappedStorage}.
+   */
+  void write(final int from, final int to, final ByteBuffer out)
+  {
+    for (int i = from; i < to; i++)
+    {
+      MappedStorage.putRecord(out,
+                              getEpochSecond(i),
+                              getPlayList(i),
+                              getDeltaPoints(i),
+                              getRankPreGame(i),
+                              getSkillMean(i),
+                              getSkillSigma(i));
+    }
+  }
+
+  /**
+   * Copies the result at {@code sourceIndex} in the source to {@code index} in this storage.
+   */
+  void copy(final int index, final HistoryStorage source, final int sourceIndex)
+  {
+    set(index,
+        source.getEpochSecond(sourceIndex),
+        source.getPlayList(sourceIndex),
+        source.getDeltaPoints(sourceIndex),
+        source.getRankPreGame(sourceIndex),
+        source.getSkillMean(sourceIndex),
+        source.getSkillSigma(sourceIndex));
+  }
+}
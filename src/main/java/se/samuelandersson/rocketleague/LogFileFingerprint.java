@@ -0,0 +1,90 @@
+package se.samuelandersson.rocketleague;
+
+/**
+ * Identifies the content of a log file regardless of its name. Rocket League renames its log files on every launch, so
+ * {@code Launch.log} becomes {@code Launch_2.log}, which in turn becomes {@code Launch_3.log} and so on. A fingerprint
+ * consists of the log start of the file, its size and a checksum of its beginning, which is enough for a scan to
+ * recognize a file it has already parsed under another name.
+ *
+ * @author Samuel Andersson
+ */
+public class LogFileFingerprint
+{
+  private long logStart;
+  private long size;
+  private long prefixChecksum;
+
+  /**
+   * Creates a new LogFileFingerprint.
+   *
+   * @param logStart the log start of the file, in milliseconds since the epoch.
+   * @param size the size of the file, in bytes.
+   * @param prefixChecksum the checksum of the beginning of the file.
+   */
+  public LogFileFingerprint(final long logStart, final long size, final long prefixChecksum)
+  {
+    this.logStart = logStart;
+    this.size = size;
+    this.prefixChecksum = prefixChecksum;
+  }
+
+  /**
+   * Returns the log start of the file, in milliseconds since the epoch.
+   *
+   * @return the log start of the file, in milliseconds since the epoch.
+   */
+  public long getLogStart()
+  {
+    return logStart;
+  }
+
+  /**
+   * Returns the size of the file, in bytes.
+   *
+   * @return the size of the file, in bytes.
+   */
+  public long getSize()
+  {
+    return size;
+  }
+
+  /**
+   * Returns the checksum of the beginning of the file.
+   *
+   * @return the checksum of the beginning of the file.
+   */
+  public long getPrefixChecksum()
+  {
+    return prefixChecksum;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + (int) (logStart ^ (logStart >>> 32));
+    result = prime * result + (int) (size ^ (size >>> 32));
+    result = prime * result + (int) (prefixChecksum ^ (prefixChecksum >>> 32));
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    LogFileFingerprint other = (LogFileFingerprint) obj;
+    if (logStart != other.logStart) return false;
+    if (size != other.size) return false;
+    if (prefixChecksum != other.prefixChecksum) return false;
+    return true;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("logStart=%s, size=%s, prefixChecksum=%s", logStart, size, prefixChecksum);
+  }
+}
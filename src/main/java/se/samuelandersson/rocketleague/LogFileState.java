@@ -0,0 +1,90 @@
+package se.samuelandersson.rocketleague;
+
+/**
+ * Describes how far a log file has been parsed, so that a later scan can continue where the previous one ended instead
+ * of parsing the whole file again. Besides the offset it holds the log start of the file, since every match result in
+ * the file is timed relative to it, and a checksum of the beginning of the file. If the checksum no longer matches, the
+ * file has been replaced and has to be parsed from the beginning.
+ *
+ * @author Samuel Andersson
+ */
+public class LogFileState
+{
+  private long offset;
+  private long logStart;
+  private long prefixChecksum;
+
+  /**
+   * Creates a new LogFileState.
+   *
+   * @param offset the offset of the first byte that has not been parsed.
+   * @param logStart the log start of the file, in milliseconds since the epoch.
+   * @param prefixChecksum the checksum of the beginning of the file.
+   */
+  public LogFileState(final long offset, final long logStart, final long prefixChecksum)
+  {
+    this.offset = offset;
+    this.logStart = logStart;
+    this.prefixChecksum = prefixChecksum;
+  }
+
+  /**
+   * Returns the offset of the first byte that has not been parsed. This is always the start of a line.
+   *
+   * @return the offset of the first byte that has not been parsed.
+   */
+  public long getOffset()
+  {
+    return offset;
+  }
+
+  /**
+   * Returns the log start of the file, in milliseconds since the epoch.
+   *
+   * @return the log start of the file, in milliseconds since the epoch.
+   */
+  public long getLogStart()
+  {
+    return logStart;
+  }
+
+  /**
+   * Returns the checksum of the beginning of the file.
+   *
+   * @return the checksum of the beginning of the file.
+   */
+  public long getPrefixChecksum()
+  {
+    return prefixChecksum;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + (int) (offset ^ (offset >>> 32));
+    result = prime * result + (int) (logStart ^ (logStart >>> 32));
+    result = prime * result + (int) (prefixChecksum ^ (prefixChecksum >>> 32));
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    LogFileState other = (LogFileState) obj;
+    if (offset != other.offset) return false;
+    if (logStart != other.logStart) return false;
+    if (prefixChecksum != other.prefixChecksum) return false;
+    return true;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("offset=%s, logStart=%s, prefixChecksum=%s", offset, logStart, prefixChecksum);
+  }
+}
@@ -0,0 +1,222 @@
+package se.samuelandersson.rocketleague;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link HistoryStorage} keeping the results outside of the Java heap, as fixed-width records in a memory-mapped
+ * temporary file. The file is deleted as soon as it has been mapped, so it never outlives the process. A mapped file is
+ * used rather than a direct buffer, since direct buffers are by default limited to the size of the heap.
+ * <p>
+ * A record is laid out as
+ *
+ * <pre>
+ *  0: epoch second   (long)
+ *  8: delta points   (int)
+ * 12: rank pre game  (int)
+ * 16: skill mean     (float)
+ * 20: skill sigma    (float)
+ * 24: playlist       (byte)
+ * </pre>
+ *
+ * @author Samuel Andersson
+ */
+class MappedStorage extends HistoryStorage
+{
+  static final int RECORD_SIZE = 25;
+
+  private static final int TIME = 0;
+  private static final int DELTA = 8;
+  private static final int RANK = 12;
+  private static final int MU = 16;
+  private static final int SIGMA = 20;
+  private static final int PLAYLIST = 24;
+
+  /** The largest number of records that fit in a single mapping. */
+  static final int MAX_CAPACITY = Integer.MAX_VALUE / RECORD_SIZE;
+
+  /** Size of the chunks that records are moved in. */
+  private static final int MOVE_CHUNK = 64 * 1024;
+
+  private final ByteBuffer buffer;
+  private final int capacity;
+
+  MappedStorage(final int capacity)
+  {
+    if (capacity > MAX_CAPACITY)
+    {
+      throw new IllegalArgumentException(String.format("capacity must be at most %s: %s", MAX_CAPACITY, capacity));
+    }
+
+    this.capacity = capacity;
+    this.buffer = map((long) capacity * RECORD_SIZE);
+  }
+
+  /**
+   * Creates a storage of the records from the position to the limit of the provided buffer. The storage writes to the
+   * buffer, unless it is read-only.
+   */
+  MappedStorage(final ByteBuffer records)
+  {
+    this.buffer = records.slice();
+    this.capacity = buffer.capacity() / RECORD_SIZE;
+  }
+
+  private static ByteBuffer map(final long size)
+  {
+    try
+    {
+      Path file = Files.createTempFile("ranktracker-history", null);
+      try (FileChannel channel = FileChannel.open(file,
+                                                  StandardOpenOption.READ,
+                                                  StandardOpenOption.WRITE,
+                                                  StandardOpenOption.DELETE_ON_CLOSE))
+      {
+        return channel.map(MapMode.READ_WRITE, 0, size);
+      }
+    }
+    catch (IOException e)
+    {
+      throw new UncheckedIOException("Could not map storage for match history.", e);
+    }
+  }
+
+  @Override
+  int capacity()
+  {
+    return capacity;
+  }
+
+  @Override
+  long getEpochSecond(final int index)
+  {
+    return buffer.getLong(index * RECORD_SIZE + TIME);
+  }
+
+  @Override
+  int getPlayList(final int index)
+  {
+    return buffer.get(index * RECORD_SIZE + PLAYLIST);
+  }
+
+  @Override
+  int getDeltaPoints(final int index)
+  {
+    return buffer.getInt(index * RECORD_SIZE + DELTA);
+  }
+
+  @Override
+  int getRankPreGame(final int index)
+  {
+    return buffer.getInt(index * RECORD_SIZE + RANK);
+  }
+
+  @Override
+  float getSkillMean(final int index)
+  {
+    return buffer.getFloat(index * RECORD_SIZE + MU);
+  }
+
+  @Override
+  float getSkillSigma(final int index)
+  {
+    return buffer.getFloat(index * RECORD_SIZE + SIGMA);
+  }
+
+  @Override
+  void set(final int index, final long epochSecond, final int playList, final int deltaPoints,
+           final int rankPreGame, final float skillMean, final float skillSigma)
+  {
+    final int offset = index * RECORD_SIZE;
+    buffer.putLong(offset + TIME, epochSecond);
+    buffer.putInt(offset + DELTA, deltaPoints);
+    buffer.putInt(offset + RANK, rankPreGame);
+    buffer.putFloat(offset + MU, skillMean);
+    buffer.putFloat(offset + SIGMA, skillSigma);
+    buffer.put(offset + PLAYLIST, (byte) playList);
+  }
+
+  @Override
+  void move(final int from, final int to, final int count)
+  {
+    final int length = count * RECORD_SIZE;
+    final int source = from * RECORD_SIZE;
+    final int target = to * RECORD_SIZE;
+    byte[] chunk = new byte[Math.min(length, MOVE_CHUNK)];
+
+    // Copy from the end when moving forward, so that no byte is overwritten before it has been copied
+    int done = 0;
+    while (done < length)
+    {
+      int size = Math.min(chunk.length, length - done);
+      int offset = target > source ? length - done - size : done;
+      ByteBuffer src = buffer.duplicate();
+      src.position(source + offset);
+      src.get(chunk, 0, size);
+      ByteBuffer dst = buffer.duplicate();
+      dst.position(target + offset);
+      dst.put(chunk, 0, size);
+      done += size;
+    }
+  }
+
+  @Override
+  void write(final int from, final int to, final ByteBuffer out)
+  {
+    ByteBuffer src = buffer.duplicate();
+    src.position(from * RECORD_SIZE);
+    src.limit(to * RECORD_SIZE);
+    out.put(src);
+  }
+
+  /**
+   * Puts a record at the position of the provided buffer.
+   */
+  static void putRecord(final ByteBuffer out, final long epochSecond, final int playList, final int deltaPoints,
+                        final int rankPreGame, final float skillMean, final float skillSigma)
+  {
+    out.putLong(epochSecond);
+    out.putInt(deltaPoints);
+    out.putInt(rankPreGame);
+    out.putFloat(skillMean);
+    out.putFloat(skillSigma);
+    out.put((byte) playList);
+  }
+
+  @Override
+  HistoryStorage resize(final int capacity, final int size)
+  {
+    MappedStorage resized = new MappedStorage(capacity);
+    ByteBuffer src = buffer.duplicate();
+    src.position(0);
+    src.limit(Math.min(size, capacity) * RECORD_SIZE);
+    ByteBuffer dst = resized.buffer.duplicate();
+    dst.position(0);
+    dst.put(src);
+    return resized;
+  }
+
+  @Override
+  HistoryStorage create(final int capacity)
+  {
+    return new MappedStorage(capacity);
+  }
+
+  @Override
+  boolean isReadOnly()
+  {
+    return buffer.isReadOnly();
+  }
+
+  @Override
+  boolean isOffHeap()
+  {
+    return true;
+  }
+}
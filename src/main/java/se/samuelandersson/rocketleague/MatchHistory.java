@@ -0,0 +1,811 @@
+package se.samuelandersson.rocketleague;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * A MatchHistory holds match results sorted by time, like a {@link SortedSet} of {@link MatchResult}s would, but keeps
+ * every field in an array of its own instead of keeping one object per match. A {@link MatchResult} is only created
+ * when one is asked for, see {@link #get(int)}.
+ * <p>
+ * Just like in a SortedSet, there is at most one result per time and playlist, and results at the same time are sorted
+ * by playlist, see {@link MatchResult#getKey()}. When a result is added at a time that is already present in its
+ * playlist, the result that was there first is kept, unless the result is put using {@link #put(MatchResult)} or
+ * {@link #putAll(MatchHistory)}.
+ * <p>
+ * The results are kept on the Java heap, unless the history was created by {@link #offHeap()}, in which case they are
+ * kept as fixed-width records in a memory-mapped file. An off-heap history can hold millions of results while the heap
+ * stays small, but no more than fit in a single mapping; adding a result to a full one throws an
+ * IllegalStateException.
+ *
+ * @author Samuel Andersson
+ */
+public class MatchHistory implements Iterable<MatchResult>
+{
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** The number of bytes of a result written by {@link #writeRecords(int, ByteBuffer)}. */
+  public static final int RECORD_SIZE = MappedStorage.RECORD_SIZE;
+
+  private HistoryStorage storage;
+  private int size;
+
+  /**
+   * Creates an empty MatchHistory.
+   */
+  public MatchHistory()
+  {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates an empty MatchHistory with room for the provided number of results before it has to grow.
+   *
+   * @param capacity the number of results to make room for.
+   */
+  public MatchHistory(final int capacity)
+  {
+    if (capacity < 0)
+    {
+      throw new IllegalArgumentException(String.format("capacity must not be negative: %s", capacity));
+    }
+
+    storage = new ArrayStorage(capacity);
+  }
+
+  private MatchHistory(final HistoryStorage storage)
+  {
+    this.storage = storage;
+  }
+
+  /**
+   * Returns an empty MatchHistory that keeps its results outside of the Java heap.
+   *
+   * @return an empty off-heap MatchHistory.
+   */
+  public static MatchHistory offHeap()
+  {
+    return offHeap(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Returns an empty MatchHistory that keeps its results outside of the Java heap, with room for the provided number
+   * of results before it has to grow.
+   *
+   * @param capacity the number of results to make room for.
+   * @return an empty off-heap MatchHistory.
+   */
+  public static MatchHistory offHeap(final int capacity)
+  {
+    if (capacity < 0)
+    {
+      throw new IllegalArgumentException(String.format("capacity must not be negative: %s", capacity));
+    }
+
+    return new MatchHistory(new MappedStorage(capacity));
+  }
+
+  /**
+   * Returns a MatchHistory containing the provided results. If several results have the same time and playlist, the
+   * first one is kept.
+   *
+   * @param results the results to add.
+   * @return a MatchHistory containing the provided results.
+   */
+  public static MatchHistory of(final Iterable<MatchResult> results)
+  {
+    MatchHistory history = new MatchHistory();
+    for (MatchResult result : results)
+    {
+      history.add(result);
+    }
+
+    return history;
+  }
+
+  /**
+   * Returns an off-heap MatchHistory of the records from the position to the limit of the provided buffer, as written
+   * by {@link #writeRecords(int, ByteBuffer)}. The records are used as they are, without being copied, so they must be
+   * sorted by key and have no two results with the same key, see {@link MatchResult#getKey()}. Changes to the history
+   * are written to the buffer until the history has to grow, unless the buffer is read-only, in which case the records
+   * are copied on the first change.
+   *
+   * @param records the records of the history.
+   * @return a MatchHistory of the records.
+   */
+  public static MatchHistory wrap(final ByteBuffer records)
+  {
+    if (records.remaining() % RECORD_SIZE != 0)
+    {
+      throw new IllegalArgumentException(String.format("Not a whole number of records: %s bytes",
+                                                       records.remaining()));
+    }
+
+    MatchHistory history = new MatchHistory(new MappedStorage(records));
+    history.size = history.storage.capacity();
+    return history;
+  }
+
+  /**
+   * Returns a new, empty MatchHistory keeping its results in the same way as this history does.
+   *
+   * @return a new, empty MatchHistory.
+   */
+  public MatchHistory newHistory()
+  {
+    return new MatchHistory(storage.create(DEFAULT_CAPACITY));
+  }
+
+  /**
+   * Returns true if this history keeps its results outside of the Java heap.
+   *
+   * @return true if this history keeps its results outside of the Java heap.
+   */
+  public boolean isOffHeap()
+  {
+    return storage.isOffHeap();
+  }
+
+  /**
+   * Returns the number of results in this history.
+   *
+   * @return the number of results in this history.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns true if this history contains no results.
+   *
+   * @return true if this history contains no results.
+   */
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Returns the index of the first result at the provided time, in the same way as
+   * {@link Arrays#binarySearch(long[], long)} does.
+   *
+   * @param epochSecond the time to look for, in seconds since the epoch.
+   * @return the index of the first result at the time, if there is one, otherwise {@code (-(insertion point) - 1)}.
+   */
+  public int indexOf(final long epochSecond)
+  {
+    // no playlist is below 0, so this is where the first result at the time is, or would be inserted
+    int index = indexOfKey(MatchResult.key(epochSecond, 0));
+    if (index >= 0)
+    {
+      return index;
+    }
+
+    int insertion = -index - 1;
+    return insertion < size && storage.getEpochSecond(insertion) == epochSecond ? insertion : index;
+  }
+
+  /**
+   * Returns the index of the result at the provided time in the provided playlist, in the same way as
+   * {@link Arrays#binarySearch(long[], long)} does.
+   *
+   * @param epochSecond the time to look for, in seconds since the epoch.
+   * @param playList the playlist to look for.
+   * @return the index of the result, if there is one, otherwise {@code (-(insertion point) - 1)}.
+   */
+  public int indexOf(final long epochSecond, final int playList)
+  {
+    return indexOfKey(MatchResult.key(epochSecond, playList));
+  }
+
+  private int indexOfKey(final long key)
+  {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high)
+    {
+      int mid = (low + high) >>> 1;
+      long midKey = storage.getKey(mid);
+      if (midKey < key)
+      {
+        low = mid + 1;
+      }
+      else if (midKey > key)
+      {
+        high = mid - 1;
+      }
+      else
+      {
+        return mid;
+      }
+    }
+
+    return -(low + 1);
+  }
+
+  /**
+   * Adds a result to this history, unless there already is a result at the same time in the same playlist.
+   *
+   * @param result the result to add.
+   * @return true if the result was added.
+   */
+  public boolean add(final MatchResult result)
+  {
+    return add(result.getEpochSecond(),
+               result.getPlayList(),
+               result.getDeltaPoints(),
+               result.getRankPreGame(),
+               result.getSkillMean(),
+               result.getSkillSigma());
+  }
+
+  /**
+   * Adds a result to this history, unless there already is a result at the same time in the same playlist. Adding a
+   * result that is sorted after every other result only appends it.
+   *
+   * @param epochSecond the time of the match, in seconds since the epoch.
+   * @param playList the playlist of the match.
+   * @param deltaPoints the points gained or lost in the match.
+   * @param rankPreGame the points before the match.
+   * @param skillMean the skill mean after the match.
+   * @param skillSigma the skill sigma after the match.
+   * @return true if the result was added.
+   */
+  public boolean add(final long epochSecond, final int playList, final int deltaPoints, final int rankPreGame,
+                     final float skillMean, final float skillSigma)
+  {
+    long key = MatchResult.key(epochSecond, playList);
+    int index = size == 0 || key > storage.getKey(size - 1) ? -size - 1 : indexOfKey(key);
+    if (index >= 0)
+    {
+      return false;
+    }
+
+    insert(-index - 1, epochSecond, playList, deltaPoints, rankPreGame, skillMean, skillSigma);
+    return true;
+  }
+
+  /**
+   * Adds a result to this history, replacing any result at the same time in the same playlist.
+   *
+   * @param result the result to put.
+   */
+  public void put(final MatchResult result)
+  {
+    int index = indexOfKey(result.getKey());
+    if (index < 0)
+    {
+      add(result);
+      return;
+    }
+
+    if (storage.isReadOnly())
+    {
+      storage = storage.resize(storage.capacity(), size);
+    }
+    storage.set(index,
+                result.getEpochSecond(),
+                result.getPlayList(),
+                result.getDeltaPoints(),
+                result.getRankPreGame(),
+                result.getSkillMean(),
+                result.getSkillSigma());
+  }
+
+  /**
+   * Adds the results of the provided history that are not already present in this history, at the same time in the
+   * same playlist.
+   *
+   * @param other the history to add the results of.
+   */
+  public void addAll(final MatchHistory other)
+  {
+    merge(other, false);
+  }
+
+  /**
+   * Adds the results of the provided histories that are not already present, in a single k-way merge of this history
+   * and all of them, which takes O(n log k) for n results in k histories. Since the histories are sorted by key,
+   * results at the same time in the same playlist meet one after another, and only the first of them is kept. When
+   * several of the provided histories have such a result, the result of the first one of them is kept, just like when
+   * adding them one at a time using {@link #addAll(MatchHistory)}.
+   *
+   * @param others the histories to add the results of.
+   */
+  public void addAll(final List<MatchHistory> others)
+  {
+    List<MatchHistory> sources = new ArrayList<>(others.size() + 1);
+    int total = size;
+    if (!isEmpty())
+    {
+      sources.add(this);
+    }
+    for (MatchHistory other : others)
+    {
+      if (!other.isEmpty())
+      {
+        sources.add(other);
+        total += other.size;
+      }
+    }
+
+    if (sources.size() < 2)
+    {
+      if (!sources.isEmpty() && sources.get(0) != this)
+      {
+        merge(sources.get(0), false);
+      }
+      return;
+    }
+
+    HistoryStorage merged = storage.create(total);
+    MergeQueue queue = new MergeQueue(sources);
+    int k = 0;
+    long last = 0;
+    while (!queue.isEmpty())
+    {
+      int source = queue.peek();
+      int index = queue.cursor(source);
+      long key = queue.key(source);
+      if (k == 0 || key != last)
+      {
+        // the sources are polled in order of key, and of their position among equal keys, so the first one wins
+        merged.copy(k++, sources.get(source).storage, index);
+        last = key;
+      }
+      queue.advance();
+    }
+
+    storage = merged;
+    size = k;
+  }
+
+  /**
+   * Adds every result of the provided history, replacing any result in this history at the same time in the same
+   * playlist.
+   *
+   * @param other the history to put the results of.
+   */
+  public void putAll(final MatchHistory other)
+  {
+    merge(other, true);
+  }
+
+  /**
+   * Returns a {@link MatchResult} view of the result at the provided index. A new object is created on every call.
+   *
+   * @param index the index of the result.
+   * @return the result at the provided index.
+   */
+  public MatchResult get(final int index)
+  {
+    checkIndex(index);
+    return new MatchResult(storage.getEpochSecond(index),
+                           storage.getPlayList(index),
+                           storage.getDeltaPoints(index),
+                           storage.getRankPreGame(index),
+                           storage.getSkillMean(index),
+                           storage.getSkillSigma(index));
+  }
+
+  /**
+   * Returns the time of the result at the provided index, in seconds since the epoch.
+   *
+   * @param index the index of the result.
+   * @return the time of the result.
+   */
+  public long getEpochSecond(final int index)
+  {
+    checkIndex(index);
+    return storage.getEpochSecond(index);
+  }
+
+  /**
+   * Returns the playlist of the result at the provided index.
+   *
+   * @param index the index of the result.
+   * @return the playlist of the result.
+   */
+  public int getPlayList(final int index)
+  {
+    checkIndex(index);
+    return storage.getPlayList(index);
+  }
+
+  /**
+   * Returns the points gained or lost in the match at the provided index.
+   *
+   * @param index the index of the result.
+   * @return the points gained or lost in the match.
+   */
+  public int getDeltaPoints(final int index)
+  {
+    checkIndex(index);
+    return storage.getDeltaPoints(index);
+  }
+
+  /**
+   * Returns the points before the match at the provided index.
+   *
+   * @param index the index of the result.
+   * @return the points before the match.
+   */
+  public int getRankPreGame(final int index)
+  {
+    checkIndex(index);
+    return storage.getRankPreGame(index);
+  }
+
+  /**
+   * Returns the skill mean of the result at the provided index.
+   *
+   * @param index the index of the result.
+   * @return the skill mean of the result.
+   */
+  public float getSkillMean(final int index)
+  {
+    checkIndex(index);
+    return storage.getSkillMean(index);
+  }
+
+  /**
+   * Returns the skill sigma of the result at the provided index.
+   *
+   * @param index the index of the result.
+   * @return the skill sigma of the result.
+   */
+  public float getSkillSigma(final int index)
+  {
+    checkIndex(index);
+    return storage.getSkillSigma(index);
+  }
+
+  /**
+   * Writes as many results as fit in the provided buffer, starting with the result at the provided index. Every result
+   * is written as a record of {@link #RECORD_SIZE} bytes:
+   *
+   * <pre>
+   * long  epoch second
+   * int   delta points
+   * int   rank pre game
+   * float skill mean
+   * float skill sigma
+   * byte  playlist
+   * </pre>
+   *
+   * @param from the index of the first result to write.
+   * @param out the buffer to write the records to.
+   * @return the number of results written.
+   */
+  public int writeRecords(final int from, final ByteBuffer out)
+  {
+    if (from < 0 || from > size)
+    {
+      throw new IndexOutOfBoundsException(String.format("index: %s, size: %s", from, size));
+    }
+
+    int count = Math.min(size - from, out.remaining() / RECORD_SIZE);
+    storage.write(from, from + count, out);
+    return count;
+  }
+
+  /**
+   * Returns a new {@link SortedSet} containing every result of this history.
+   *
+   * @return a new SortedSet containing every result of this history.
+   */
+  public SortedSet<MatchResult> toSortedSet()
+  {
+    SortedSet<MatchResult> results = new TreeSet<>();
+    for (MatchResult result : this)
+    {
+      results.add(result);
+    }
+
+    return results;
+  }
+
+  /**
+   * Returns the results of this history from {@code fromEpochSecond}, inclusive, to {@code toEpochSecond}, exclusive.
+   * The results are found by binary search, so only the results in the range are visited.
+   *
+   * @param fromEpochSecond the start of the range, in seconds since the epoch.
+   * @param toEpochSecond the end of the range, in seconds since the epoch.
+   * @return the results in the range, in order of time.
+   */
+  public Iterable<MatchResult> range(final long fromEpochSecond, final long toEpochSecond)
+  {
+    return () ->
+    {
+      int start = lowerBound(fromEpochSecond);
+      return iterator(start, Math.max(start, lowerBound(toEpochSecond)));
+    };
+  }
+
+  @Override
+  public Iterator<MatchResult> iterator()
+  {
+    return iterator(0, -1);
+  }
+
+  /**
+   * Returns an iterator over the results from the start index to the end index, or to the end of the history if the
+   * end index is negative.
+   */
+  private Iterator<MatchResult> iterator(final int start, final int end)
+  {
+    return new Iterator<MatchResult>()
+    {
+      private int index = start;
+
+      @Override
+      public boolean hasNext()
+      {
+        return index < (end < 0 ? size : Math.min(end, size));
+      }
+
+      @Override
+      public MatchResult next()
+      {
+        if (!hasNext())
+        {
+          throw new NoSuchElementException();
+        }
+
+        return get(index++);
+      }
+    };
+  }
+
+  /**
+   * Merges the provided history into this one in a single pass over both of them.
+   */
+  private void merge(final MatchHistory other, final boolean replace)
+  {
+    if (other.isEmpty())
+    {
+      return;
+    }
+
+    HistoryStorage merged = storage.create(size + other.size);
+    HistoryStorage theirs = other.storage;
+    int i = 0, j = 0, k = 0;
+    while (i < size || j < other.size)
+    {
+      long mine = i < size ? storage.getKey(i) : Long.MAX_VALUE;
+      long their = j < other.size ? theirs.getKey(j) : Long.MAX_VALUE;
+      if (j == other.size || (i < size && mine < their))
+      {
+        merged.copy(k++, storage, i++);
+      }
+      else if (i == size || their < mine)
+      {
+        merged.copy(k++, theirs, j++);
+      }
+      else
+      {
+        if (replace)
+        {
+          merged.copy(k++, theirs, j);
+        }
+        else
+        {
+          merged.copy(k++, storage, i);
+        }
+        i++;
+        j++;
+      }
+    }
+
+    storage = merged;
+    size = k;
+  }
+
+  /**
+   * A binary heap of the histories being merged by {@link MatchHistory#addAll(List)}, ordered by the key of the
+   * current result of every history, and by the position of the history when the keys are equal.
+   */
+  private static class MergeQueue
+  {
+    private final List<MatchHistory> sources;
+    private final int[] cursors;
+    /** The key of the current result of every history. */
+    private final long[] keys;
+    private final int[] heap;
+    private int size;
+
+    private MergeQueue(final List<MatchHistory> sources)
+    {
+      this.sources = sources;
+      this.cursors = new int[sources.size()];
+      this.keys = new long[sources.size()];
+      this.heap = new int[sources.size()];
+      for (int i = 0; i < heap.length; i++)
+      {
+        keys[i] = sources.get(i).storage.getKey(0);
+        heap[size++] = i;
+      }
+      for (int i = size / 2 - 1; i >= 0; i--)
+      {
+        siftDown(i);
+      }
+    }
+
+    private boolean isEmpty()
+    {
+      return size == 0;
+    }
+
+    /**
+     * Returns the history with the first current result.
+     */
+    private int peek()
+    {
+      return heap[0];
+    }
+
+    private int cursor(final int source)
+    {
+      return cursors[source];
+    }
+
+    private long key(final int source)
+    {
+      return keys[source];
+    }
+
+    /**
+     * Moves past the current result of the history returned by {@link #peek()}.
+     */
+    private void advance()
+    {
+      int source = heap[0];
+      MatchHistory history = sources.get(source);
+      if (++cursors[source] == history.size)
+      {
+        heap[0] = heap[--size];
+      }
+      else
+      {
+        keys[source] = history.storage.getKey(cursors[source]);
+      }
+      siftDown(0);
+    }
+
+    private void siftDown(int i)
+    {
+      while (true)
+      {
+        int smallest = i;
+        int left = 2 * i + 1;
+        int right = left + 1;
+        if (left < size && less(heap[left], heap[smallest]))
+        {
+          smallest = left;
+        }
+        if (right < size && less(heap[right], heap[smallest]))
+        {
+          smallest = right;
+        }
+        if (smallest == i)
+        {
+          return;
+        }
+
+        int swapped = heap[i];
+        heap[i] = heap[smallest];
+        heap[smallest] = swapped;
+        i = smallest;
+      }
+    }
+
+    private boolean less(final int a, final int b)
+    {
+      return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+    }
+  }
+
+  /**
+   * Returns the index of the first result at or after the provided time, found by binary search. The results from
+   * {@code lowerBound(from)} up to {@code lowerBound(to)} are the results from {@code from}, inclusive, to {@code to},
+   * exclusive.
+   *
+   * @param epochSecond the time to look for, in seconds since the epoch.
+   * @return the index of the first result at or after the time, or the size of this history if there is none.
+   */
+  public int lowerBound(final long epochSecond)
+  {
+    // the key of a time this far from the epoch would overflow, so it is before or after every result
+    if (epochSecond > Long.MAX_VALUE >> 8)
+    {
+      return size;
+    }
+    if (epochSecond < Long.MIN_VALUE >> 8)
+    {
+      return 0;
+    }
+
+    int index = indexOf(epochSecond);
+    return index < 0 ? -index - 1 : index;
+  }
+
+  private void insert(final int index, final long epochSecond, final int playList, final int deltaPoints,
+                      final int rankPreGame, final float skillMean, final float skillSigma)
+  {
+    if (size == storage.capacity() || storage.isReadOnly())
+    {
+      grow();
+    }
+
+    if (index < size)
+    {
+      storage.move(index, index + 1, size - index);
+    }
+
+    size++;
+    storage.set(index, epochSecond, playList, deltaPoints, rankPreGame, skillMean, skillSigma);
+  }
+
+  private void grow()
+  {
+    if (storage.isOffHeap() && size == MappedStorage.MAX_CAPACITY)
+    {
+      throw new IllegalStateException("off-heap history is full");
+    }
+
+    int capacity = storage.capacity();
+    capacity = Math.max(DEFAULT_CAPACITY, capacity + (capacity >> 1));
+    if (storage.isOffHeap())
+    {
+      capacity = Math.min(capacity, MappedStorage.MAX_CAPACITY);
+    }
+    storage = storage.resize(capacity, size);
+  }
+
+  private void checkIndex(final int index)
+  {
+    if (index < 0 || index >= size)
+    {
+      throw new IndexOutOfBoundsException(String.format("index: %s, size: %s", index, size));
+    }
+  }
+
+  @Override
+  public int hashCode()
+  {
+    int result = 1;
+    for (int i = 0; i < size; i++)
+    {
+      result = 31 * result + get(i).hashCode();
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    MatchHistory other = (MatchHistory) obj;
+    if (size != other.size) return false;
+    for (int i = 0; i < size; i++)
+    {
+      if (!get(i).equals(other.get(i))) return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%s results", size);
+  }
+}
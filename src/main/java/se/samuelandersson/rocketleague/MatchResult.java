@@ -1,12 +1,17 @@
 package se.samuelandersson.rocketleague;
 
 import org.joda.time.DateTime;
+import org.joda.time.chrono.ISOChronology;
 
 /**
  * This class provides data about the conclusion of a match, such as points gained/lossed, which playlist and the points
  * at the time of the match. It implements the {@link Comparable} interface, which allows it to be sorted
- * using the {@link DateTime} property of the result. Worth noting regarding the unranked playlist is that it is the
+ * using the {@link DateTime} property of the result, and by its playlist when the times are equal, see
+ * {@link #getKey()}. Worth noting regarding the unranked playlist is that it is the
  * same playlist for all four modes and rating changes applies across all of them.
+ * <p>
+ * The time is kept as seconds since the epoch rather than as a DateTime, since a DateTime would take up more memory
+ * than the rest of the result. A DateTime is created every time {@link #getTime()} is called.
  * 
  * @author Samuel Andersson
  */
@@ -23,7 +28,7 @@ public class MatchResult implements Comparable<MatchResult>
   private int deltaPoints;
   private float skillMean;
   private float skillSigma;
-  private DateTime time;
+  private long time;
 
   public MatchResult(DateTime time, int playList, int deltaPoints, int rankPreGame)
   {
@@ -55,6 +60,20 @@ public class MatchResult implements Comparable<MatchResult>
     init(time, MatchResult.getPlaylist(playList), deltaPoints, rankPreGame, skillMean, skillSigma);
   }
 
+  /**
+   * Creates a MatchResult from values that have already been validated, such as the ones kept by a
+   * {@link MatchHistory}.
+   */
+  MatchResult(long epochSecond, int playList, int deltaPoints, int rankPreGame, float skillMean, float skillSigma)
+  {
+    this.time = epochSecond;
+    this.playList = playList;
+    this.deltaPoints = deltaPoints;
+    this.rankPreGame = rankPreGame;
+    this.skillMean = skillMean;
+    this.skillSigma = skillSigma;
+  }
+
   private void init(DateTime time, int playList, int deltaPoints, int rankPreGame, float skillMean, float skillSigma)
   {
     if (time == null)
@@ -62,12 +81,14 @@ public class MatchResult implements Comparable<MatchResult>
       throw new NullPointerException("Time cannot be null");
     }
     // Exclude millis
-    this.time = new DateTime(time.getYear(),
-                             time.getMonthOfYear(),
-                             time.getDayOfMonth(),
-                             time.getHourOfDay(),
-                             time.getMinuteOfHour(),
-                             time.getSecondOfMinute());
+    long millis = ISOChronology.getInstance().getDateTimeMillis(time.getYear(),
+                                                                time.getMonthOfYear(),
+                                                                time.getDayOfMonth(),
+                                                                time.getHourOfDay(),
+                                                                time.getMinuteOfHour(),
+                                                                time.getSecondOfMinute(),
+                                                                0);
+    this.time = millis / 1000;
 
     if (!isValidPlayList(playList))
     {
@@ -87,10 +108,44 @@ public class MatchResult implements Comparable<MatchResult>
    * @return the time when the match was concluded.
    */
   public DateTime getTime()
+  {
+    return new DateTime(time * 1000);
+  }
+
+  /**
+   * Returns the time when the match was concluded, in seconds since the epoch.
+   * 
+   * @return the time when the match was concluded, in seconds since the epoch.
+   */
+  public long getEpochSecond()
   {
     return time;
   }
 
+  /**
+   * Returns the key of this result, see {@link #key(long, int)}.
+   * 
+   * @return the key of this result.
+   */
+  public long getKey()
+  {
+    return key(time, playList);
+  }
+
+  /**
+   * Returns a key identifying a match by its time and playlist, packed into a long: the time in seconds since the epoch
+   * in the high bits and the playlist in the lowest byte. Keys are ordered by time first and playlist second, so
+   * results sorted by key are sorted by time as well.
+   * 
+   * @param epochSecond the time of the match, in seconds since the epoch.
+   * @param playList the playlist of the match.
+   * @return the key of the match.
+   */
+  public static long key(final long epochSecond, final int playList)
+  {
+    return epochSecond << 8 | playList & 0xFF;
+  }
+
   /**
    * Returns the playlist for the match.
    * 
@@ -271,7 +326,7 @@ public class MatchResult implements Comparable<MatchResult>
     result = prime * result + rankPreGame;
     result = prime * result + Float.floatToIntBits(skillMean);
     result = prime * result + Float.floatToIntBits(skillSigma);
-    result = prime * result + ((time == null) ? 0 : time.hashCode());
+    result = prime * result + (int) (time ^ (time >>> 32));
     return result;
   }
 
@@ -287,27 +342,14 @@ public class MatchResult implements Comparable<MatchResult>
     if (rankPreGame != other.rankPreGame) return false;
     if (Float.floatToIntBits(skillMean) != Float.floatToIntBits(other.skillMean)) return false;
     if (Float.floatToIntBits(skillSigma) != Float.floatToIntBits(other.skillSigma)) return false;
-    if (time == null)
-    {
-      if (other.time != null) return false;
-    }
-    else if (!time.equals(other.time)) return false;
+    if (time != other.time) return false;
     return true;
   }
 
   @Override
   public int compareTo(final MatchResult other)
   {
-    if (getTime().isBefore(other.getTime()))
-    {
-      return -1;
-    }
-    if (getTime().isAfter(other.getTime()))
-    {
-      return 1;
-    }
-
-    return 0;
+    return Long.compare(getKey(), other.getKey());
   }
 
 }
\ No newline at end of file
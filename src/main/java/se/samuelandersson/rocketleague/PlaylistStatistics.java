@@ -0,0 +1,368 @@
+package se.samuelandersson.rocketleague;
+
+/**
+ * Aggregates the match results of a playlist: the win rate, the streaks, the average delta points, the peak and the
+ * current rank, and how the skill mean and sigma have changed. The statistics are kept in {@link ScannedFiles}, and
+ * every scan adds the new results to them, in the order they were played, instead of going through every previous
+ * result again. Adding the results one scan at a time gives exactly the same statistics as adding them all at once.
+ * <p>
+ * A win is a result with positive delta points, see {@link MatchResult#isWin()}, anything else is a loss. Results
+ * without a skill mean, which is negative, do not affect the skill statistics.
+ *
+ * @author Samuel Andersson
+ */
+public class PlaylistStatistics
+{
+  private long lastEpochSecond;
+  private int matches;
+  private int wins;
+  private int currentStreak;
+  private int longestWinStreak;
+  private int longestLossStreak;
+  private long deltaPoints;
+  private int peakRank;
+  private int currentRank;
+  private float firstSkillMean = -1;
+  private float firstSkillSigma = -1;
+  private float skillMean = -1;
+  private float skillSigma = -1;
+
+  /**
+   * Creates a new PlaylistStatistics without any results.
+   */
+  public PlaylistStatistics()
+  {
+  }
+
+  /**
+   * Creates a new PlaylistStatistics with the provided values.
+   *
+   * @param lastEpochSecond the time of the latest result, in seconds since the epoch.
+   * @param matches the number of results.
+   * @param wins the number of wins.
+   * @param currentStreak the current streak, positive for wins and negative for losses.
+   * @param longestWinStreak the longest streak of wins.
+   * @param longestLossStreak the longest streak of losses.
+   * @param deltaPoints the sum of the delta points of the results.
+   * @param peakRank the highest rank after a match.
+   * @param currentRank the rank after the latest match.
+   * @param firstSkillMean the skill mean of the first result with one, or -1.
+   * @param firstSkillSigma the skill sigma of the first result with a skill mean, or -1.
+   * @param skillMean the skill mean of the latest result with one, or -1.
+   * @param skillSigma the skill sigma of the latest result with a skill mean, or -1.
+   */
+  public PlaylistStatistics(final long lastEpochSecond, final int matches, final int wins, final int currentStreak,
+                            final int longestWinStreak, final int longestLossStreak, final long deltaPoints,
+                            final int peakRank, final int currentRank, final float firstSkillMean,
+                            final float firstSkillSigma, final float skillMean, final float skillSigma)
+  {
+    this.lastEpochSecond = lastEpochSecond;
+    this.matches = matches;
+    this.wins = wins;
+    this.currentStreak = currentStreak;
+    this.longestWinStreak = longestWinStreak;
+    this.longestLossStreak = longestLossStreak;
+    this.deltaPoints = deltaPoints;
+    this.peakRank = peakRank;
+    this.currentRank = currentRank;
+    this.firstSkillMean = firstSkillMean;
+    this.firstSkillSigma = firstSkillSigma;
+    this.skillMean = skillMean;
+    this.skillSigma = skillSigma;
+  }
+
+  /**
+   * Adds a result, which must not be earlier than the results already added.
+   *
+   * @param result the result to add.
+   */
+  public void add(final MatchResult result)
+  {
+    add(result.getEpochSecond(),
+        result.isWin(),
+        result.getDeltaPoints(),
+        result.getRankPostGame(),
+        result.getSkillMean(),
+        result.getSkillSigma());
+  }
+
+  /**
+   * Adds the result at the provided index of the history, just like {@link #add(MatchResult)} does, without creating a
+   * {@link MatchResult}.
+   *
+   * @param history the history of the result.
+   * @param index the index of the result.
+   */
+  public void add(final MatchHistory history, final int index)
+  {
+    final int delta = history.getDeltaPoints(index);
+    add(history.getEpochSecond(index),
+        delta > 0,
+        delta,
+        history.getRankPreGame(index) + delta,
+        history.getSkillMean(index),
+        history.getSkillSigma(index));
+  }
+
+  private void add(final long epochSecond, final boolean win, final int delta, final int rankPostGame,
+                   final float mean, final float sigma)
+  {
+    if (matches == 0 || rankPostGame > peakRank)
+    {
+      peakRank = rankPostGame;
+    }
+
+    if (win)
+    {
+      wins++;
+      currentStreak = currentStreak > 0 ? currentStreak + 1 : 1;
+      longestWinStreak = Math.max(longestWinStreak, currentStreak);
+    }
+    else
+    {
+      currentStreak = currentStreak < 0 ? currentStreak - 1 : -1;
+      longestLossStreak = Math.max(longestLossStreak, -currentStreak);
+    }
+
+    if (mean >= 0)
+    {
+      if (firstSkillMean < 0)
+      {
+        firstSkillMean = mean;
+        firstSkillSigma = sigma;
+      }
+      skillMean = mean;
+      skillSigma = sigma;
+    }
+
+    lastEpochSecond = epochSecond;
+    matches++;
+    deltaPoints += delta;
+    currentRank = rankPostGame;
+  }
+
+  /**
+   * Returns the time of the latest result, in seconds since the epoch.
+   *
+   * @return the time of the latest result, in seconds since the epoch.
+   */
+  public long getLastEpochSecond()
+  {
+    return lastEpochSecond;
+  }
+
+  /**
+   * Returns the number of results.
+   *
+   * @return the number of results.
+   */
+  public int getMatches()
+  {
+    return matches;
+  }
+
+  /**
+   * Returns the number of wins.
+   *
+   * @return the number of wins.
+   */
+  public int getWins()
+  {
+    return wins;
+  }
+
+  /**
+   * Returns the share of the results that are wins, from 0 to 1, or 0 if there are no results.
+   *
+   * @return the share of the results that are wins.
+   */
+  public double getWinRate()
+  {
+    return matches == 0 ? 0 : (double) wins / matches;
+  }
+
+  /**
+   * Returns the current streak, which is the number of wins in a row for a positive value, and the number of losses in
+   * a row for a negative value.
+   *
+   * @return the current streak, positive for wins and negative for losses.
+   */
+  public int getCurrentStreak()
+  {
+    return currentStreak;
+  }
+
+  /**
+   * Returns the longest streak of wins.
+   *
+   * @return the longest streak of wins.
+   */
+  public int getLongestWinStreak()
+  {
+    return longestWinStreak;
+  }
+
+  /**
+   * Returns the longest streak of losses.
+   *
+   * @return the longest streak of losses.
+   */
+  public int getLongestLossStreak()
+  {
+    return longestLossStreak;
+  }
+
+  /**
+   * Returns the sum of the delta points of the results.
+   *
+   * @return the sum of the delta points of the results.
+   */
+  public long getDeltaPoints()
+  {
+    return deltaPoints;
+  }
+
+  /**
+   * Returns the average delta points of the results, or 0 if there are no results.
+   *
+   * @return the average delta points of the results.
+   */
+  public double getAverageDeltaPoints()
+  {
+    return matches == 0 ? 0 : (double) deltaPoints / matches;
+  }
+
+  /**
+   * Returns the highest rank after a match.
+   *
+   * @return the highest rank after a match.
+   */
+  public int getPeakRank()
+  {
+    return peakRank;
+  }
+
+  /**
+   * Returns the rank after the latest match.
+   *
+   * @return the rank after the latest match.
+   */
+  public int getCurrentRank()
+  {
+    return currentRank;
+  }
+
+  /**
+   * Returns the skill mean of the first result with one, or -1 if there is none.
+   *
+   * @return the skill mean of the first result with one, or -1.
+   */
+  public float getFirstSkillMean()
+  {
+    return firstSkillMean;
+  }
+
+  /**
+   * Returns the skill sigma of the first result with a skill mean, or -1 if there is none.
+   *
+   * @return the skill sigma of the first result with a skill mean, or -1.
+   */
+  public float getFirstSkillSigma()
+  {
+    return firstSkillSigma;
+  }
+
+  /**
+   * Returns the skill mean of the latest result with one, or -1 if there is none.
+   *
+   * @return the skill mean of the latest result with one, or -1.
+   */
+  public float getSkillMean()
+  {
+    return skillMean;
+  }
+
+  /**
+   * Returns the skill sigma of the latest result with a skill mean, or -1 if there is none.
+   *
+   * @return the skill sigma of the latest result with a skill mean, or -1.
+   */
+  public float getSkillSigma()
+  {
+    return skillSigma;
+  }
+
+  /**
+   * Returns how much the skill mean has changed since the first result with one, or 0 if there is none.
+   *
+   * @return how much the skill mean has changed.
+   */
+  public float getSkillMeanTrend()
+  {
+    return skillMean - firstSkillMean;
+  }
+
+  /**
+   * Returns how much the skill sigma has changed since the first result with a skill mean, or 0 if there is none.
+   *
+   * @return how much the skill sigma has changed.
+   */
+  public float getSkillSigmaTrend()
+  {
+    return skillSigma - firstSkillSigma;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + (int) (lastEpochSecond ^ (lastEpochSecond >>> 32));
+    result = prime * result + matches;
+    result = prime * result + wins;
+    result = prime * result + currentStreak;
+    result = prime * result + longestWinStreak;
+    result = prime * result + longestLossStreak;
+    result = prime * result + (int) (deltaPoints ^ (deltaPoints >>> 32));
+    result = prime * result + peakRank;
+    result = prime * result + currentRank;
+    result = prime * result + Float.floatToIntBits(firstSkillMean);
+    result = prime * result + Float.floatToIntBits(firstSkillSigma);
+    result = prime * result + Float.floatToIntBits(skillMean);
+    result = prime * result + Float.floatToIntBits(skillSigma);
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    PlaylistStatistics other = (PlaylistStatistics) obj;
+    if (lastEpochSecond != other.lastEpochSecond) return false;
+    if (matches != other.matches) return false;
+    if (wins != other.wins) return false;
+    if (currentStreak != other.currentStreak) return false;
+    if (longestWinStreak != other.longestWinStreak) return false;
+    if (longestLossStreak != other.longestLossStreak) return false;
+    if (deltaPoints != other.deltaPoints) return false;
+    if (peakRank != other.peakRank) return false;
+    if (currentRank != other.currentRank) return false;
+    if (Float.floatToIntBits(firstSkillMean) != Float.floatToIntBits(other.firstSkillMean)) return false;
+    if (Float.floatToIntBits(firstSkillSigma) != Float.floatToIntBits(other.firstSkillSigma)) return false;
+    if (Float.floatToIntBits(skillMean) != Float.floatToIntBits(other.skillMean)) return false;
+    if (Float.floatToIntBits(skillSigma) != Float.floatToIntBits(other.skillSigma)) return false;
+    return true;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("lastEpochSecond=%s, matches=%s, wins=%s, currentStreak=%s, longestWinStreak=%s, "
+                         + "longestLossStreak=%s, deltaPoints=%s, peakRank=%s, currentRank=%s, firstSkillMean=%s, "
+                         + "firstSkillSigma=%s, skillMean=%s, skillSigma=%s",
+                         lastEpochSecond, matches, wins, currentStreak, longestWinStreak, longestLossStreak,
+                         deltaPoints, peakRank, currentRank, firstSkillMean, firstSkillSigma, skillMean, skillSigma);
+  }
+}
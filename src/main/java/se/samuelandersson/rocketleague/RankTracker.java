@@ -1,21 +1,36 @@
 package se.samuelandersson.rocketleague;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Locale;
 
+import org.joda.time.LocalDateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import se.samuelandersson.rocketleague.tasks.QueryTask;
 import se.samuelandersson.rocketleague.tasks.ScanTask;
+import se.samuelandersson.rocketleague.tasks.StatsTask;
+import se.samuelandersson.rocketleague.tasks.WatchTask;
+import se.samuelandersson.rocketleague.utils.CompressionUtils;
 import se.samuelandersson.rocketleague.utils.RankTrackerUtils;
 import se.samuelandersson.rocketleague.utils.RocketLeagueUtils;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.Parameters;
 
 /**
  * The main class of the RankTracker. The run method executes a scan of the Rocket League log folder and creates CSV
- * files according to what is found. Previous scans are included in the final files.
+ * files according to what is found. Previous scans are included in the final files. In watch mode it keeps running
+ * and scans again whenever the log folder changes. The {@value #QUERY_COMMAND} command writes the results of previous
+ * scans within a range of time instead, see {@link QueryCommand}, and the {@value #STATS_COMMAND} command writes the
+ * statistics of every playlist, see {@link StatsCommand}.
  * 
  * @author Samuel Andersson
  */
@@ -23,12 +38,65 @@ public class RankTracker
 {
   private static final Logger log = LoggerFactory.getLogger(RankTracker.class);
 
+  public static final String QUERY_COMMAND = "query";
+  public static final String STATS_COMMAND = "stats";
+
   @Parameter(names = { "-b", "--base" }, description = "Base folder for operations.")
   public String base = "";
 
+  @Parameter(names = { "-p", "--parallelism" }, description = "Number of log files to parse concurrently.")
+  public int parallelism = 1;
+
+  @Parameter(names = { "-w", "--watch" }, description = "Keep running and scan whenever the log folder changes.")
+  public boolean watch = false;
+
+  @Parameter(names = { "--off-heap" }, description = "Keep the match history outside of the Java heap.")
+  public boolean offHeap = false;
+
+  @Parameter(names = { "--compress" }, description = "Compress the exported CSV files using gzip.")
+  public boolean compress = false;
+
   @Parameter(names = { "-h", "--help" })
   public boolean help = false;
 
+  public QueryCommand query = new QueryCommand();
+
+  public StatsCommand stats = new StatsCommand();
+
+  /**
+   * The parameters of the {@value RankTracker#QUERY_COMMAND} command, see {@link QueryTask}.
+   */
+  @Parameters(commandDescription = "Write the results of previous scans within a range of time.")
+  public static class QueryCommand
+  {
+    @Parameter(names = { "--playlist" }, description = "Playlist of the results, like 2v2. Every playlist if omitted.")
+    public String playList;
+
+    @Parameter(names = { "--from" },
+               description = "Start of the range, inclusive, like 2015-09-26 or 2015-09-26T18:00.")
+    public String from;
+
+    @Parameter(names = { "--to" }, description = "End of the range, exclusive, like 2015-09-28.")
+    public String to;
+
+    @Parameter(names = { "--format" }, description = "Format of the results, csv or json.")
+    public String format = "csv";
+
+    @Parameter(names = { "-o", "--output" }, description = "File to write the results to. Standard output if omitted.")
+    public String output;
+  }
+
+  /**
+   * The parameters of the {@value RankTracker#STATS_COMMAND} command, see {@link StatsTask}.
+   */
+  @Parameters(commandDescription = "Write the statistics of the playlists, as of the latest scan.")
+  public static class StatsCommand
+  {
+    @Parameter(names = { "--playlist" },
+               description = "Playlist of the statistics, like 2v2. Every playlist if omitted.")
+    public String playList;
+  }
+
   public void run()
   {
     File baseFolder = new File(base).getAbsoluteFile();
@@ -38,14 +106,116 @@ public class RankTracker
       return;
     }
 
+    if (parallelism < 1)
+    {
+      log.error("Parallelism must be at least 1, was {}. Aborting scan.", parallelism);
+      return;
+    }
+
+    ScanTask.Options options = new ScanTask.Options().parallelism(parallelism).offHeap(offHeap).compress(compress);
+    if (watch)
+    {
+      log.info("Executing task [watch]");
+      WatchTask task = new WatchTask(new ScanTask(options.retainHistory(true)));
+      task.execute(RankTrackerUtils.getScannedFiles(baseFolder), baseFolder, RocketLeagueUtils.getRLFolder());
+      return;
+    }
+
     log.info("Executing task [scan]");
-    new ScanTask().execute(RankTrackerUtils.getScannedFiles(baseFolder), baseFolder, RocketLeagueUtils.getRLFolder());
+    ScanTask task = new ScanTask(options);
+    task.execute(RankTrackerUtils.getScannedFiles(baseFolder), baseFolder, RocketLeagueUtils.getRLFolder());
+  }
+
+  /**
+   * Runs the {@value #QUERY_COMMAND} command, writing the results of previous scans that match the query.
+   */
+  public void runQuery()
+  {
+    File baseFolder = new File(base).getAbsoluteFile();
+    if (!baseFolder.exists())
+    {
+      log.error("Base folder {} does not exist. Aborting query.", baseFolder.getAbsolutePath());
+      return;
+    }
+
+    int playList = query.playList == null ? -1 : MatchResult.getPlaylist(query.playList);
+    if (query.playList != null && !MatchResult.isValidPlayList(playList))
+    {
+      log.error("Unknown playlist {}. Aborting query.", query.playList);
+      return;
+    }
+
+    long from;
+    long to;
+    QueryTask.Format format;
+    try
+    {
+      from = query.from == null ? Long.MIN_VALUE : toEpochSecond(query.from);
+      to = query.to == null ? Long.MAX_VALUE : toEpochSecond(query.to);
+      format = QueryTask.Format.valueOf(query.format.toUpperCase(Locale.ROOT));
+    }
+    catch (IllegalArgumentException e)
+    {
+      log.error("Invalid query: {}. Aborting query.", e.getMessage());
+      return;
+    }
+
+    if (query.output == null)
+    {
+      // The task flushes the standard output, which is never closed
+      Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()));
+      new QueryTask(playList, from, to, format, out).execute(null, baseFolder, null);
+      return;
+    }
+
+    try (Writer out = CompressionUtils.newWriter(new File(query.output), false))
+    {
+      new QueryTask(playList, from, to, format, out).execute(null, baseFolder, null);
+    }
+    catch (IOException e)
+    {
+      log.error(String.format("Error writing the results of the query to %s", query.output), e);
+    }
+  }
+
+  /**
+   * Runs the {@value #STATS_COMMAND} command, writing the statistics kept by previous scans to the standard output.
+   */
+  public void runStats()
+  {
+    File baseFolder = new File(base).getAbsoluteFile();
+    if (!baseFolder.exists())
+    {
+      log.error("Base folder {} does not exist. Aborting stats.", baseFolder.getAbsolutePath());
+      return;
+    }
+
+    int playList = stats.playList == null ? -1 : MatchResult.getPlaylist(stats.playList);
+    if (stats.playList != null && !MatchResult.isValidPlayList(playList))
+    {
+      log.error("Unknown playlist {}. Aborting stats.", stats.playList);
+      return;
+    }
+
+    // The task flushes the standard output, which is never closed
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()));
+    new StatsTask(playList, out).execute(RankTrackerUtils.getScannedFiles(baseFolder), baseFolder, null);
+  }
+
+  /**
+   * Returns the provided date, or date and time, in the default time zone, in seconds since the epoch.
+   */
+  private static long toEpochSecond(final String time)
+  {
+    return Math.floorDiv(LocalDateTime.parse(time).toDateTime().getMillis(), 1000);
   }
 
   public static void main(String[] args) throws Exception
   {
     RankTracker tracker = new RankTracker();
     JCommander command = new JCommander(tracker);
+    command.addCommand(QUERY_COMMAND, tracker.query);
+    command.addCommand(STATS_COMMAND, tracker.stats);
     try
     {
       command.parse(args);
@@ -61,6 +231,18 @@ public class RankTracker
       return;
     }
 
+    if (QUERY_COMMAND.equals(command.getParsedCommand()))
+    {
+      tracker.runQuery();
+      return;
+    }
+
+    if (STATS_COMMAND.equals(command.getParsedCommand()))
+    {
+      tracker.runStats();
+      return;
+    }
+
     tracker.run();
   }
 }
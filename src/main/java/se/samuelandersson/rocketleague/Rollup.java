@@ -0,0 +1,259 @@
+package se.samuelandersson.rocketleague;
+
+import java.util.Locale;
+
+import org.joda.time.DateTimeConstants;
+import org.joda.time.LocalDate;
+
+/**
+ * Aggregates the match results of a playlist within a period of time, a day, a week or a month: the number of matches
+ * and wins, the net points, and the rank and the skill mean at the close of the period. A rollup of a coarser period
+ * is the rollups of the finer periods within it added together, in time order, see {@link #add(Rollup)}, which gives
+ * the same rollup as adding the results themselves.
+ * <p>
+ * The periods are in the default time zone, just like the times of the CSV files. Weeks start on Mondays.
+ *
+ * @author Samuel Andersson
+ */
+public class Rollup
+{
+  /** The periods of time that results are rolled up into. */
+  public enum Period
+  {
+    DAY, WEEK, MONTH;
+
+    /**
+     * Returns the first day of the period that the provided day is in.
+     *
+     * @param day the day.
+     * @return the first day of the period.
+     */
+    public LocalDate start(final LocalDate day)
+    {
+      switch (this)
+      {
+        case WEEK:
+          return day.withDayOfWeek(DateTimeConstants.MONDAY);
+        case MONTH:
+          return day.withDayOfMonth(1);
+        default:
+          return day;
+      }
+    }
+
+    /**
+     * Returns the first day of the period following the one that starts at the provided day.
+     *
+     * @param start the first day of a period.
+     * @return the first day of the next period.
+     */
+    public LocalDate next(final LocalDate start)
+    {
+      switch (this)
+      {
+        case WEEK:
+          return start.plusWeeks(1);
+        case MONTH:
+          return start.plusMonths(1);
+        default:
+          return start.plusDays(1);
+      }
+    }
+
+    /**
+     * Returns the name of the period, like {@code day}.
+     *
+     * @return the name of the period.
+     */
+    public String getName()
+    {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  private final LocalDate start;
+  private int matches;
+  private int wins;
+  private int deltaPoints;
+  private int closingRank;
+  private float closingSkillMean = -1;
+
+  /**
+   * Creates a new Rollup of the period starting at the provided day, without any results.
+   *
+   * @param start the first day of the period.
+   */
+  public Rollup(final LocalDate start)
+  {
+    if (start == null)
+    {
+      throw new NullPointerException("start");
+    }
+
+    this.start = start;
+  }
+
+  /**
+   * Creates a new Rollup with the provided values.
+   *
+   * @param start the first day of the period.
+   * @param matches the number of results.
+   * @param wins the number of wins.
+   * @param deltaPoints the sum of the delta points of the results.
+   * @param closingRank the rank after the latest match.
+   * @param closingSkillMean the skill mean of the latest result with one, or -1.
+   */
+  public Rollup(final LocalDate start, final int matches, final int wins, final int deltaPoints,
+                final int closingRank, final float closingSkillMean)
+  {
+    this(start);
+    this.matches = matches;
+    this.wins = wins;
+    this.deltaPoints = deltaPoints;
+    this.closingRank = closingRank;
+    this.closingSkillMean = closingSkillMean;
+  }
+
+  /**
+   * Adds the result at the provided index of the history, which must not be earlier than the results already added. A
+   * win is a result with positive delta points, see {@link MatchResult#isWin()}.
+   *
+   * @param history the history of the result.
+   * @param index the index of the result.
+   */
+  public void add(final MatchHistory history, final int index)
+  {
+    final int delta = history.getDeltaPoints(index);
+    final float mean = history.getSkillMean(index);
+    matches++;
+    if (delta > 0)
+    {
+      wins++;
+    }
+    deltaPoints += delta;
+    closingRank = history.getRankPreGame(index) + delta;
+    if (mean >= 0)
+    {
+      closingSkillMean = mean;
+    }
+  }
+
+  /**
+   * Adds a rollup of a later period, or a later part of this period, to this one.
+   *
+   * @param later the rollup to add.
+   */
+  public void add(final Rollup later)
+  {
+    if (later.matches == 0)
+    {
+      return;
+    }
+
+    matches += later.matches;
+    wins += later.wins;
+    deltaPoints += later.deltaPoints;
+    closingRank = later.closingRank;
+    if (later.closingSkillMean >= 0)
+    {
+      closingSkillMean = later.closingSkillMean;
+    }
+  }
+
+  /**
+   * Returns the first day of the period.
+   *
+   * @return the first day of the period.
+   */
+  public LocalDate getStart()
+  {
+    return start;
+  }
+
+  /**
+   * Returns the number of results.
+   *
+   * @return the number of results.
+   */
+  public int getMatches()
+  {
+    return matches;
+  }
+
+  /**
+   * Returns the number of wins.
+   *
+   * @return the number of wins.
+   */
+  public int getWins()
+  {
+    return wins;
+  }
+
+  /**
+   * Returns the sum of the delta points of the results, the net points of the period.
+   *
+   * @return the sum of the delta points of the results.
+   */
+  public int getDeltaPoints()
+  {
+    return deltaPoints;
+  }
+
+  /**
+   * Returns the rank after the latest match of the period.
+   *
+   * @return the rank after the latest match of the period.
+   */
+  public int getClosingRank()
+  {
+    return closingRank;
+  }
+
+  /**
+   * Returns the skill mean of the latest result of the period with one, or -1 if there is none.
+   *
+   * @return the skill mean of the latest result with one, or -1.
+   */
+  public float getClosingSkillMean()
+  {
+    return closingSkillMean;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + start.hashCode();
+    result = prime * result + matches;
+    result = prime * result + wins;
+    result = prime * result + deltaPoints;
+    result = prime * result + closingRank;
+    result = prime * result + Float.floatToIntBits(closingSkillMean);
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    Rollup other = (Rollup) obj;
+    if (!start.equals(other.start)) return false;
+    if (matches != other.matches) return false;
+    if (wins != other.wins) return false;
+    if (deltaPoints != other.deltaPoints) return false;
+    if (closingRank != other.closingRank) return false;
+    if (Float.floatToIntBits(closingSkillMean) != Float.floatToIntBits(other.closingSkillMean)) return false;
+    return true;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("start=%s, matches=%s, wins=%s, deltaPoints=%s, closingRank=%s, closingSkillMean=%s",
+                         start, matches, wins, deltaPoints, closingRank, closingSkillMean);
+  }
+}
@@ -1,11 +1,16 @@
 package se.samuelandersson.rocketleague;
 
+import java.util.Map;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 /**
  * This file contains a list of files that are available in the Rocket League log folder but have previously been
- * scanned by the tracker. They are written to a json file and read back every time a scan occurs.
+ * scanned by the tracker. They are written to a json file and read back every time a scan occurs. It also holds a
+ * {@link LogFileState} for the log files that can be resumed where the previous scan ended, a
+ * {@link LogFileFingerprint} for the log files that have been parsed, so that they are recognized after being renamed,
+ * a {@link Watermark} for every playlist that has been exported and the {@link PlaylistStatistics} of every playlist.
  * 
  * @author Samuel Andersson
  */
@@ -17,6 +22,10 @@ public class ScannedFiles
     final int prime = 31;
     int result = 1;
     result = prime * result + logFiles.hashCode();
+    result = prime * result + logFileStates.hashCode();
+    result = prime * result + fingerprints.hashCode();
+    result = prime * result + watermarks.hashCode();
+    result = prime * result + statistics.hashCode();
     return result;
   }
 
@@ -28,10 +37,18 @@ public class ScannedFiles
     if (getClass() != obj.getClass()) return false;
     ScannedFiles other = (ScannedFiles) obj;
     if (!logFiles.equals(other.logFiles)) return false;
+    if (!logFileStates.equals(other.logFileStates)) return false;
+    if (!fingerprints.equals(other.fingerprints)) return false;
+    if (!watermarks.equals(other.watermarks)) return false;
+    if (!statistics.equals(other.statistics)) return false;
     return true;
   }
 
   private SortedSet<String> logFiles = new TreeSet<>();
+  private Map<String, LogFileState> logFileStates = new TreeMap<>();
+  private Map<String, LogFileFingerprint> fingerprints = new TreeMap<>();
+  private Map<Integer, Watermark> watermarks = new TreeMap<>();
+  private Map<Integer, PlaylistStatistics> statistics = new TreeMap<>();
 
   /**
    * Returns the set of log files this instance contains.
@@ -42,4 +59,44 @@ public class ScannedFiles
   {
     return logFiles;
   }
+
+  /**
+   * Returns the parse states of the log files, mapped by file name.
+   * 
+   * @return the parse states of the log files, mapped by file name.
+   */
+  public Map<String, LogFileState> getLogFileStates()
+  {
+    return logFileStates;
+  }
+
+  /**
+   * Returns the fingerprints of the parsed log files, mapped by the name the file currently has.
+   * 
+   * @return the fingerprints of the parsed log files, mapped by file name.
+   */
+  public Map<String, LogFileFingerprint> getFingerprints()
+  {
+    return fingerprints;
+  }
+
+  /**
+   * Returns the watermarks of the exported playlists, mapped by playlist.
+   * 
+   * @return the watermarks of the exported playlists, mapped by playlist.
+   */
+  public Map<Integer, Watermark> getWatermarks()
+  {
+    return watermarks;
+  }
+
+  /**
+   * Returns the statistics of the exported playlists, mapped by playlist.
+   * 
+   * @return the statistics of the exported playlists, mapped by playlist.
+   */
+  public Map<Integer, PlaylistStatistics> getStatistics()
+  {
+    return statistics;
+  }
 }
\ No newline at end of file
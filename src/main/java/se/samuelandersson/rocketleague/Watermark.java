@@ -0,0 +1,74 @@
+package se.samuelandersson.rocketleague;
+
+/**
+ * Describes what has been exported for a playlist: the time of its latest match result and the number of results. The
+ * watermarks are kept in {@link ScannedFiles}, so that a scan can tell that there is nothing new to export without
+ * reading any previous results.
+ *
+ * @author Samuel Andersson
+ */
+public class Watermark
+{
+  private long lastEpochSecond;
+  private int count;
+
+  /**
+   * Creates a new Watermark.
+   *
+   * @param lastEpochSecond the time of the latest result, in seconds since the epoch.
+   * @param count the number of results.
+   */
+  public Watermark(final long lastEpochSecond, final int count)
+  {
+    this.lastEpochSecond = lastEpochSecond;
+    this.count = count;
+  }
+
+  /**
+   * Returns the time of the latest result, in seconds since the epoch.
+   *
+   * @return the time of the latest result, in seconds since the epoch.
+   */
+  public long getLastEpochSecond()
+  {
+    return lastEpochSecond;
+  }
+
+  /**
+   * Returns the number of results.
+   *
+   * @return the number of results.
+   */
+  public int getCount()
+  {
+    return count;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + (int) (lastEpochSecond ^ (lastEpochSecond >>> 32));
+    result = prime * result + count;
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    Watermark other = (Watermark) obj;
+    if (lastEpochSecond != other.lastEpochSecond) return false;
+    if (count != other.count) return false;
+    return true;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("lastEpochSecond=%s, count=%s", lastEpochSecond, count);
+  }
+}
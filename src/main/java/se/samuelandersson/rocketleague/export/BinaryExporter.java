@@ -0,0 +1,191 @@
+package se.samuelandersson.rocketleague.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.SortedSet;
+import java.util.zip.CRC32;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.MatchResultsWrapper;
+
+/**
+ * This exporter provides a way to export results to a compact binary format, which can be memory-mapped when it is
+ * read back, see {@link se.samuelandersson.rocketleague.parser.BinaryParser}. All values are big-endian. The file looks
+ * like this:
+ * <p>
+ *
+ * <pre>
+ * Header, {@link #HEADER_SIZE} bytes:
+ *   int   magic, {@link #MAGIC}
+ *   int   version, {@link #VERSION}
+ *   int   number of records
+ *   int   size of a record, {@link MatchHistory#RECORD_SIZE}
+ *   long  time of the first record, in seconds since the epoch
+ *   long  time of the last record, in seconds since the epoch
+ * Records, sorted by time, see {@link MatchHistory#writeRecords(int, ByteBuffer)}
+ * Footer, {@link #FOOTER_SIZE} bytes:
+ *   long  CRC-32 of the header and the records
+ * </pre>
+ *
+ * The file is written to a temporary file first, which then replaces the target file, so a file that was exported
+ * before is never left half written.
+ *
+ * @author Samuel Andersson
+ */
+public class BinaryExporter implements Exporter
+{
+  public static final String PREFIX = "history";
+  public static final String SUFFIX = "bin";
+
+  /** "RLMH", the first four bytes of every file. */
+  public static final int MAGIC = 0x524C4D48;
+  public static final int VERSION = 1;
+  public static final int HEADER_SIZE = 32;
+  public static final int FOOTER_SIZE = 8;
+
+  /** Size of the buffer the records are written through. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  @Override
+  public void export(final MatchResultsWrapper parser, final File file) throws IOException
+  {
+    export(parser.getResults(), file);
+  }
+
+  @Override
+  public void export(final SortedSet<MatchResult> results, final File file) throws IOException
+  {
+    export(MatchHistory.of(results), file);
+  }
+
+  @Override
+  public void export(final MatchHistory history, final File file) throws IOException
+  {
+    Path target = file.getAbsoluteFile().toPath();
+    Path temp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+    try
+    {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+      {
+        write(history, channel);
+        channel.force(false);
+      }
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    finally
+    {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Returns the bytes of the file as a string, one character per byte.
+   */
+  @Override
+  public String toString(final SortedSet<MatchResult> results)
+  {
+    if (results == null)
+    {
+      throw new NullPointerException("results");
+    }
+
+    return toString(MatchHistory.of(results));
+  }
+
+  /**
+   * Returns the bytes of the file as a string, one character per byte.
+   */
+  @Override
+  public String toString(final MatchHistory history)
+  {
+    if (history == null)
+    {
+      throw new NullPointerException("history");
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try
+    {
+      write(history, Channels.newChannel(out));
+    }
+    catch (IOException e)
+    { // A ByteArrayOutputStream does not throw
+      throw new IllegalStateException(e);
+    }
+
+    return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+  }
+
+  @Override
+  public String toString(final MatchResultsWrapper parser)
+  {
+    return toString(parser.getResults());
+  }
+
+  /**
+   * Writes the history in the binary format, computing the checksum on the way.
+   */
+  private static void write(final MatchHistory history, final WritableByteChannel channel) throws IOException
+  {
+    CRC32 crc = new CRC32();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putInt(history.size());
+    buffer.putInt(MatchHistory.RECORD_SIZE);
+    buffer.putLong(history.isEmpty() ? 0 : history.getEpochSecond(0));
+    buffer.putLong(history.isEmpty() ? 0 : history.getEpochSecond(history.size() - 1));
+
+    int written = 0;
+    do
+    {
+      written += history.writeRecords(written, buffer);
+      flush(buffer, crc, channel);
+    }
+    while (written < history.size());
+
+    buffer.putLong(crc.getValue());
+    buffer.flip();
+    writeFully(buffer, channel);
+  }
+
+  private static void flush(final ByteBuffer buffer, final CRC32 crc, final WritableByteChannel channel)
+    throws IOException
+  {
+    buffer.flip();
+    crc.update(buffer.duplicate());
+    writeFully(buffer, channel);
+    buffer.clear();
+  }
+
+  private static void writeFully(final ByteBuffer buffer, final WritableByteChannel channel) throws IOException
+  {
+    while (buffer.hasRemaining())
+    {
+      channel.write(buffer);
+    }
+  }
+
+  @Override
+  public String getPrefix()
+  {
+    return PREFIX;
+  }
+
+  @Override
+  public String getSuffix()
+  {
+    return SUFFIX;
+  }
+}
@@ -4,11 +4,21 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.SortedSet;
+import java.util.function.IntPredicate;
 import java.util.regex.Pattern;
 
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import se.samuelandersson.rocketleague.MatchHistory;
 import se.samuelandersson.rocketleague.MatchResultsWrapper;
 import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.utils.CompressionUtils;
 
 /**
  * This exporter provides a way to export results to CSV format. The header of the CSV file looks like this:
@@ -31,6 +41,8 @@ import se.samuelandersson.rocketleague.MatchResult;
  * DeltaPoints = Points gained or lossed from the match.
  *  RankPoints = Rank Points *before* the match concluded.
  * </pre>
+ * <p>
+ * The files can optionally be compressed by gzip, see {@link #CSVExporter(boolean)}.
  * 
  * @author Samuel Andersson
  */
@@ -38,6 +50,7 @@ public class CSVExporter implements Exporter
 {
   public static final String PREFIX = "results-";
   public static final String SUFFIX = "csv";
+  public static final String COMPRESSED_SUFFIX = SUFFIX + ".gz";
 
   public static final String HEADER = "Date,Time,PlayList,DeltaPoints,RankPoints";
   public static final String HEADER_WITH_MU = "Date,Time,PlayList,Mu,Sigma,DeltaPoints,RankPoints";
@@ -46,6 +59,36 @@ public class CSVExporter implements Exporter
   public static final Pattern HEADER_PATTERN = Pattern.compile(HEADER);
   public static final Pattern HEADER_WITH_MU_PATTERN = Pattern.compile(HEADER_WITH_MU);
 
+  /** Parses the Date and Time columns, the same way as {@code DateTime.toString("YYYY-MM-dd")} etc. writes them. */
+  private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormat.forPattern("YYYY-MM-dd,HH:mm:ss");
+
+  /** Size of the buffer the rows of a file are written through, in chars. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The length of the Date and Time columns of a row, including the comma between them. */
+  private static final int ROW_TIME_LENGTH = 19;
+
+  private final boolean compress;
+
+  /**
+   * Creates an exporter writing plain CSV files.
+   */
+  public CSVExporter()
+  {
+    this(false);
+  }
+
+  /**
+   * Creates an exporter that optionally compresses the files it exports using gzip, in which case the files get the
+   * {@link #COMPRESSED_SUFFIX}. Compressed files are never appended to, but rewritten.
+   * 
+   * @param compress true if the exported files should be compressed.
+   */
+  public CSVExporter(final boolean compress)
+  {
+    this.compress = compress;
+  }
+
   @Override
   public void export(final MatchResultsWrapper parser, final File file) throws IOException
   {
@@ -55,12 +98,79 @@ public class CSVExporter implements Exporter
   @Override
   public void export(final SortedSet<MatchResult> results, final File file) throws IOException
   {
-    try (BufferedWriter writer = new BufferedWriter(new FileWriter(file)))
+    export(MatchHistory.of(results), file);
+  }
+
+  @Override
+  public void export(final MatchHistory history, final File file) throws IOException
+  {
+    try (BufferedWriter writer = CompressionUtils.newWriter(file, compress))
     {
-      writer.append(toCSVString(results));
+      appendCSV(writer, history);
     }
   }
 
+  /**
+   * Appends the results that are later than the last row of the file, without rewriting the rows already in the file.
+   * A result at the time of the last row must be identical to that row, and is not appended again. If any result is
+   * earlier than the last row, or the file does not look like it was exported by this exporter, nothing is appended.
+   * Nothing is appended to a compressed file either.
+   */
+  @Override
+  public boolean append(final MatchHistory history, final File file) throws IOException
+  {
+    if (compress || CompressionUtils.isGzip(file))
+    {
+      return false;
+    }
+
+    String last;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+    {
+      if (!HEADER_WITH_MU.equals(raf.readLine()))
+      {
+        return false;
+      }
+      last = readLastLine(raf);
+    }
+
+    int start = 0;
+    if (!last.equals(HEADER_WITH_MU))
+    {
+      long epochSecond;
+      try
+      {
+        epochSecond = DATE_TIME_FORMAT.parseMillis(last.substring(0, Math.min(last.length(), ROW_TIME_LENGTH))) / 1000;
+      }
+      catch (IllegalArgumentException e)
+      {
+        return false;
+      }
+
+      // every result must be later than the last row, except for the last row itself
+      int index = history.indexOf(epochSecond);
+      if (index >= 0)
+      {
+        if (index != 0 || !last.equals(new CSVRowWriter().format(history, index).toString()))
+        {
+          return false;
+        }
+        start = 1;
+      }
+      else if (index != -1)
+      {
+        return false;
+      }
+    }
+
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true), BUFFER_SIZE))
+    {
+      writeRows(writer, history, start);
+    }
+
+    return true;
+  }
+
   @Override
   public String toString(final SortedSet<MatchResult> results)
   {
@@ -69,42 +179,141 @@ public class CSVExporter implements Exporter
       throw new NullPointerException("results");
     }
 
-    return toCSVString(results);
+    return toCSVString(MatchHistory.of(results));
+  }
+
+  @Override
+  public String toString(final MatchHistory history)
+  {
+    if (history == null)
+    {
+      throw new NullPointerException("history");
+    }
+
+    return toCSVString(history);
   }
 
   @Override
   public String toString(final MatchResultsWrapper parser)
   {
-    return toCSVString(parser.getResults());
+    return toCSVString(MatchHistory.of(parser.getResults()));
   }
 
   /**
-   * Creates a CSV string from a list of {@link MatchResult}s. See {@link CSVExporter} for information about the
+   * Creates a CSV string from a history of {@link MatchResult}s. See {@link CSVExporter} for information about the
    * CSV format.
    * 
-   * @param results The results to export.
+   * @param history The results to export.
    * @return a CSV string containing the provided results.
    */
-  private static String toCSVString(final SortedSet<MatchResult> results)
+  private static String toCSVString(final MatchHistory history)
+  {
+    StringWriter writer = new StringWriter();
+    try
+    {
+      appendCSV(writer, history);
+    }
+    catch (IOException e)
+    { // A StringWriter does not throw
+      throw new IllegalStateException(e);
+    }
+
+    return writer.toString();
+  }
+
+  /**
+   * Writes a history of {@link MatchResult}s in CSV format, one row at a time. The values are read straight from the
+   * history, without creating any MatchResult, so that a file can be written from an off-heap history without the
+   * whole file ever being held in memory.
+   * 
+   * @param history The results to export.
+   * @param out where to write the CSV.
+   * @throws IOException if the results could not be written.
+   */
+  public void write(final MatchHistory history, final Writer out) throws IOException
+  {
+    appendCSV(out, history);
+  }
+
+  /**
+   * Writes the results from index {@code from}, inclusive, to index {@code to}, exclusive, that are accepted by the
+   * provided predicate, in CSV format just like {@link #write(MatchHistory, Writer)} does. Only the results in the
+   * range are visited.
+   * 
+   * @param history the history of the results to export.
+   * @param from the index of the first result to write.
+   * @param to the index following the last result to write.
+   * @param include accepts the indexes of the results to write.
+   * @param out where to write the CSV.
+   * @return the number of results written.
+   * @throws IOException if the results could not be written.
+   */
+  public int write(final MatchHistory history, final int from, final int to, final IntPredicate include,
+                   final Writer out) throws IOException
+  {
+    String separator = System.lineSeparator();
+    CSVRowWriter row = new CSVRowWriter();
+    int written = 0;
+    out.write(HEADER_WITH_MU);
+    for (int i = from; i < to; i++)
+    {
+      if (include.test(i))
+      {
+        out.write(separator);
+        row.format(history, i).writeTo(out);
+        written++;
+      }
+    }
+
+    return written;
+  }
+
+  private static void appendCSV(final Writer out, final MatchHistory history) throws IOException
+  {
+    out.write(HEADER_WITH_MU);
+    writeRows(out, history, 0);
+  }
+
+  /**
+   * Writes the rows of the results from the provided index, every one of them preceded by a line separator. Every row
+   * is formatted into the same buffer, see {@link CSVRowWriter}.
+   */
+  private static void writeRows(final Writer out, final MatchHistory history, final int from) throws IOException
   {
-    StringBuilder sb = new StringBuilder();
-    sb.append(HEADER_WITH_MU);
-    for (MatchResult result : results)
+    String separator = System.lineSeparator();
+    CSVRowWriter row = new CSVRowWriter();
+    for (int i = from; i < history.size(); i++)
     {
-      sb.append(System.lineSeparator());
-      String date = result.getTime().toString("YYYY-MM-dd");
-      String time = result.getTime().toString("HH:mm:ss");
-      sb.append(String.format("%s,%s,%s,%s,%s,%s,%s",
-                              date,
-                              time,
-                              MatchResult.getPlaylistName(result.getPlayList()),
-                              result.getSkillMean(),
-                              result.getSkillSigma(),
-                              result.getDeltaPoints(),
-                              result.getRankPreGame()));
+      out.write(separator);
+      row.format(history, i).writeTo(out);
     }
+  }
+
+  /**
+   * Returns the line following the last line break of the file.
+   */
+  private static String readLastLine(final RandomAccessFile file) throws IOException
+  {
+    final long end = file.length();
+    for (int size = 256;; size *= 2)
+    {
+      long start = Math.max(0, end - size);
+      byte[] bytes = new byte[(int) (end - start)];
+      file.seek(start);
+      file.readFully(bytes);
+      for (int i = bytes.length - 1; i >= 0; i--)
+      {
+        if (bytes[i] == '\n')
+        {
+          return new String(bytes, i + 1, bytes.length - i - 1, Charset.defaultCharset());
+        }
+      }
 
-    return sb.toString();
+      if (start == 0)
+      {
+        return new String(bytes, Charset.defaultCharset());
+      }
+    }
   }
 
   @Override
@@ -116,6 +325,6 @@ public class CSVExporter implements Exporter
   @Override
   public String getSuffix()
   {
-    return SUFFIX;
+    return compress ? COMPRESSED_SUFFIX : SUFFIX;
   }
 }
@@ -0,0 +1,170 @@
+package se.samuelandersson.rocketleague.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import org.joda.time.DateTimeZone;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+
+/**
+ * Formats the rows of a {@link MatchHistory} in the format of {@link CSVExporter}, into a char buffer that is reused for
+ * every row. The date, the time and the integer columns are written digit by digit, so a row is formatted without
+ * creating any objects, apart from the skill columns. Those are formatted by {@link Float#toString(float)}, since the
+ * files have always held the shortest representation of the floats, which is not worth reimplementing.
+ * <p>
+ * The date and time are in the default time zone, just as {@code DateTime.toString("YYYY-MM-dd")} would write them.
+ * The zone is read once, when the writer is created. A row writer is not thread-safe.
+ *
+ * @author Samuel Andersson
+ */
+class CSVRowWriter
+{
+  private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+  /** Days from 0000-03-01 to 1970-01-01, see {@link #appendDate(long)}. */
+  private static final long DAYS_0000_TO_1970 = 719468;
+  private static final long DAYS_PER_ERA = 146097;
+
+  private final DateTimeZone zone = DateTimeZone.getDefault();
+  private char[] buffer = new char[64];
+  private int length;
+
+  /**
+   * Formats the row of the result at the provided index, replacing the row formatted before it.
+   *
+   * @param history the history of the result.
+   * @param index the index of the result.
+   * @return this row writer.
+   */
+  CSVRowWriter format(final MatchHistory history, final int index)
+  {
+    length = 0;
+    long epochSecond = history.getEpochSecond(index);
+    long local = epochSecond + zone.getOffset(epochSecond * 1000) / 1000;
+    long days = Math.floorDiv(local, SECONDS_PER_DAY);
+    long secondOfDay = Math.floorMod(local, SECONDS_PER_DAY);
+
+    appendDate(days);
+    append(',');
+    appendDigits(secondOfDay / 3600, 2);
+    append(':');
+    appendDigits(secondOfDay / 60 % 60, 2);
+    append(':');
+    appendDigits(secondOfDay % 60, 2);
+    append(',');
+    append(MatchResult.getPlaylistName(history.getPlayList(index)));
+    append(',');
+    append(Float.toString(history.getSkillMean(index)));
+    append(',');
+    append(Float.toString(history.getSkillSigma(index)));
+    append(',');
+    appendInt(history.getDeltaPoints(index));
+    append(',');
+    appendInt(history.getRankPreGame(index));
+    return this;
+  }
+
+  /**
+   * Writes the row formatted last to the provided writer.
+   *
+   * @param out the writer to write the row to.
+   * @throws IOException if the row could not be written.
+   */
+  void writeTo(final Writer out) throws IOException
+  {
+    out.write(buffer, 0, length);
+  }
+
+  /**
+   * Returns the row formatted last.
+   */
+  @Override
+  public String toString()
+  {
+    return new String(buffer, 0, length);
+  }
+
+  /**
+   * Appends the date of the provided number of days since the epoch, in the proleptic Gregorian calendar. The days are
+   * counted from the first of March in year 0 instead, so that the leap day is the last day of a year, and then split
+   * into eras of 400 years, which all have the same number of days.
+   */
+  private void appendDate(final long days)
+  {
+    long shifted = days + DAYS_0000_TO_1970;
+    long era = Math.floorDiv(shifted, DAYS_PER_ERA);
+    long dayOfEra = shifted - era * DAYS_PER_ERA;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+    int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+    // The year of era, as Joda writes YYYY, so year 0 is 1 BC
+    appendDigits(year > 0 ? year : 1 - year, 4);
+    append('-');
+    appendDigits(month, 2);
+    append('-');
+    appendDigits(day, 2);
+  }
+
+  private void appendInt(final int value)
+  {
+    if (value < 0)
+    {
+      append('-');
+      appendDigits(-(long) value, 1);
+    }
+    else
+    {
+      appendDigits(value, 1);
+    }
+  }
+
+  /**
+   * Appends a value that is not negative, padded with zeros to at least the provided number of digits.
+   */
+  private void appendDigits(final long value, final int minDigits)
+  {
+    int digits = 1;
+    for (long rest = value / 10; rest > 0; rest /= 10)
+    {
+      digits++;
+    }
+    digits = Math.max(digits, minDigits);
+
+    ensureCapacity(digits);
+    long rest = value;
+    for (int i = length + digits - 1; i >= length; i--)
+    {
+      buffer[i] = (char) ('0' + rest % 10);
+      rest /= 10;
+    }
+    length += digits;
+  }
+
+  private void append(final char c)
+  {
+    ensureCapacity(1);
+    buffer[length++] = c;
+  }
+
+  private void append(final String s)
+  {
+    ensureCapacity(s.length());
+    s.getChars(0, s.length(), buffer, length);
+    length += s.length();
+  }
+
+  private void ensureCapacity(final int count)
+  {
+    if (length + count > buffer.length)
+    {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+    }
+  }
+}
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.SortedSet;
 
+import se.samuelandersson.rocketleague.MatchHistory;
 import se.samuelandersson.rocketleague.MatchResultsWrapper;
 import se.samuelandersson.rocketleague.MatchResult;
 
@@ -32,6 +33,34 @@ public interface Exporter
    */
   public void export(SortedSet<MatchResult> results, File file) throws IOException;
 
+  /**
+   * Exports a history of results into a given file. Unless overridden, the history is copied into a
+   * {@link SortedSet} which is exported using {@link #export(SortedSet, File)}.
+   * 
+   * @param history the results to export.
+   * @param file the file to export into.
+   * @throws IOException if an error happens when writing the file.
+   */
+  public default void export(MatchHistory history, File file) throws IOException
+  {
+    export(history.toSortedSet(), file);
+  }
+
+  /**
+   * Appends a history of results to a file that was previously exported into, instead of rewriting the whole file.
+   * Unless overridden, nothing is appended and false is returned.
+   * 
+   * @param history the results to append.
+   * @param file the file to append to.
+   * @return true if the results were appended, false if the file has to be rewritten using
+   *         {@link #export(MatchHistory, File)}.
+   * @throws IOException if an error happens when reading or writing the file.
+   */
+  public default boolean append(MatchHistory history, File file) throws IOException
+  {
+    return false;
+  }
+
   /**
    * Returns a string of the results in the format this formatter provides.
    * 
@@ -40,6 +69,18 @@ public interface Exporter
    */
   public String toString(SortedSet<MatchResult> results);
 
+  /**
+   * Returns a string of the history in the format this formatter provides. Unless overridden, the history is copied
+   * into a {@link SortedSet} which is passed to {@link #toString(SortedSet)}.
+   * 
+   * @param history the results to create a string from.
+   * @return a string of the results in the format this formatter provides.
+   */
+  public default String toString(MatchHistory history)
+  {
+    return toString(history.toSortedSet());
+  }
+
   /**
    * Returns a string of the results from the parser in the format this formatter provides.
    * 
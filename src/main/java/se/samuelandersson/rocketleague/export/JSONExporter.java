@@ -0,0 +1,166 @@
+package se.samuelandersson.rocketleague.export;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.SortedSet;
+import java.util.function.IntPredicate;
+
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.MatchResultsWrapper;
+import se.samuelandersson.rocketleague.utils.CompressionUtils;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * This exporter provides a way to export results to JSON. The results are written as an array of objects, one per
+ * result, with the same values as the columns of {@link CSVExporter}:
+ * <p>
+ *
+ * <pre>
+ * [
+ *   { "time": "2015-09-24T19:34:25+02:00", "playList": "2v2", "mu": 40.6359, "sigma": 2.4849, "deltaPoints": 8,
+ *     "rankPoints": 711 }
+ * ]
+ * </pre>
+ *
+ * The time is in the default time zone. The results are written one at a time, straight from the history.
+ *
+ * @author Samuel Andersson
+ */
+public class JSONExporter implements Exporter
+{
+  public static final String PREFIX = "results-";
+  public static final String SUFFIX = "json";
+
+  private static final DateTimeFormatter TIME_FORMAT = ISODateTimeFormat.dateTimeNoMillis();
+
+  @Override
+  public void export(final MatchResultsWrapper parser, final File file) throws IOException
+  {
+    export(parser.getResults(), file);
+  }
+
+  @Override
+  public void export(final SortedSet<MatchResult> results, final File file) throws IOException
+  {
+    export(MatchHistory.of(results), file);
+  }
+
+  @Override
+  public void export(final MatchHistory history, final File file) throws IOException
+  {
+    try (BufferedWriter writer = CompressionUtils.newWriter(file, false))
+    {
+      write(history, writer);
+    }
+  }
+
+  @Override
+  public String toString(final SortedSet<MatchResult> results)
+  {
+    if (results == null)
+    {
+      throw new NullPointerException("results");
+    }
+
+    return toString(MatchHistory.of(results));
+  }
+
+  @Override
+  public String toString(final MatchHistory history)
+  {
+    if (history == null)
+    {
+      throw new NullPointerException("history");
+    }
+
+    StringWriter writer = new StringWriter();
+    try
+    {
+      write(history, writer);
+    }
+    catch (IOException e)
+    { // A StringWriter does not throw
+      throw new IllegalStateException(e);
+    }
+
+    return writer.toString();
+  }
+
+  @Override
+  public String toString(final MatchResultsWrapper parser)
+  {
+    return toString(parser.getResults());
+  }
+
+  /**
+   * Writes a history of {@link MatchResult}s in JSON format. The writer is flushed, but not closed.
+   *
+   * @param history the results to export.
+   * @param out where to write the JSON.
+   * @throws IOException if the results could not be written.
+   */
+  public void write(final MatchHistory history, final Writer out) throws IOException
+  {
+    write(history, 0, history.size(), i -> true, out);
+  }
+
+  /**
+   * Writes the results from index {@code from}, inclusive, to index {@code to}, exclusive, that are accepted by the
+   * provided predicate, in JSON format just like {@link #write(MatchHistory, Writer)} does. Only the results in the
+   * range are visited.
+   *
+   * @param history the history of the results to export.
+   * @param from the index of the first result to write.
+   * @param to the index following the last result to write.
+   * @param include accepts the indexes of the results to write.
+   * @param out where to write the JSON.
+   * @return the number of results written.
+   * @throws IOException if the results could not be written.
+   */
+  public int write(final MatchHistory history, final int from, final int to, final IntPredicate include,
+                   final Writer out) throws IOException
+  {
+    JsonWriter writer = new JsonWriter(out);
+    int written = 0;
+    writer.beginArray();
+    for (int i = from; i < to; i++)
+    {
+      if (include.test(i))
+      {
+        writer.beginObject();
+        writer.name("time").value(TIME_FORMAT.print(history.getEpochSecond(i) * 1000));
+        writer.name("playList").value(MatchResult.getPlaylistName(history.getPlayList(i)));
+        writer.name("mu").value(Float.valueOf(history.getSkillMean(i)));
+        writer.name("sigma").value(Float.valueOf(history.getSkillSigma(i)));
+        writer.name("deltaPoints").value(history.getDeltaPoints(i));
+        writer.name("rankPoints").value(history.getRankPreGame(i));
+        writer.endObject();
+        written++;
+      }
+    }
+    writer.endArray();
+    writer.flush();
+
+    return written;
+  }
+
+  @Override
+  public String getPrefix()
+  {
+    return PREFIX;
+  }
+
+  @Override
+  public String getSuffix()
+  {
+    return SUFFIX;
+  }
+}
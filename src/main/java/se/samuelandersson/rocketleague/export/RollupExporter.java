@@ -0,0 +1,201 @@
+package se.samuelandersson.rocketleague.export;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.SortedSet;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.MatchResultsWrapper;
+import se.samuelandersson.rocketleague.Rollup;
+import se.samuelandersson.rocketleague.Rollup.Period;
+import se.samuelandersson.rocketleague.utils.CompressionUtils;
+import se.samuelandersson.rocketleague.utils.RollupUtils;
+
+/**
+ * This exporter provides a way to export the {@link Rollup}s of results, one row per day, week or month, to CSV format.
+ * The header of the CSV file looks like this:
+ * <p>
+ *
+ * <pre>
+ * Date,Matches,Wins,NetPoints,Rank,Mu
+ * </pre>
+ * <p>
+ *
+ * <pre>
+ *      Date = First day of the period.
+ *   Matches = Number of matches.
+ *      Wins = Number of matches won.
+ * NetPoints = Points gained or lost in the period.
+ *      Rank = Rank Points after the last match of the period.
+ *        Mu = Skill mean after the last match of the period with one, or -1.
+ * </pre>
+ *
+ * The results are expected to be of a single playlist, like the parts exported by
+ * {@link se.samuelandersson.rocketleague.utils.RankTrackerUtils#exportFiles(MatchHistory, Exporter, java.io.File)}.
+ * The rollups can be read back by {@link se.samuelandersson.rocketleague.parser.RollupParser}.
+ *
+ * @author Samuel Andersson
+ */
+public class RollupExporter implements Exporter
+{
+  public static final String PREFIX = "rollup-";
+  public static final String SUFFIX = "csv";
+
+  public static final String HEADER = "Date,Matches,Wins,NetPoints,Rank,Mu";
+
+  private final Period period;
+
+  /**
+   * Creates an exporter of the rollups of the provided period.
+   *
+   * @param period the period to roll the results up into.
+   */
+  public RollupExporter(final Period period)
+  {
+    if (period == null)
+    {
+      throw new NullPointerException("period");
+    }
+
+    this.period = period;
+  }
+
+  /**
+   * Returns the period the results are rolled up into.
+   *
+   * @return the period the results are rolled up into.
+   */
+  public Period getPeriod()
+  {
+    return period;
+  }
+
+  @Override
+  public void export(final MatchResultsWrapper parser, final File file) throws IOException
+  {
+    export(parser.getResults(), file);
+  }
+
+  @Override
+  public void export(final SortedSet<MatchResult> results, final File file) throws IOException
+  {
+    export(MatchHistory.of(results), file);
+  }
+
+  @Override
+  public void export(final MatchHistory history, final File file) throws IOException
+  {
+    export(getRollups(history), file);
+  }
+
+  /**
+   * Exports rollups, which must be sorted by time, into a given file.
+   *
+   * @param rollups the rollups to export.
+   * @param file the file to export into.
+   * @throws IOException if an error happens when writing the file.
+   */
+  public void export(final Collection<Rollup> rollups, final File file) throws IOException
+  {
+    try (BufferedWriter writer = CompressionUtils.newWriter(file, false))
+    {
+      write(rollups, writer);
+    }
+  }
+
+  @Override
+  public String toString(final SortedSet<MatchResult> results)
+  {
+    if (results == null)
+    {
+      throw new NullPointerException("results");
+    }
+
+    return toString(MatchHistory.of(results));
+  }
+
+  @Override
+  public String toString(final MatchHistory history)
+  {
+    if (history == null)
+    {
+      throw new NullPointerException("history");
+    }
+
+    StringWriter writer = new StringWriter();
+    try
+    {
+      write(getRollups(history), writer);
+    }
+    catch (IOException e)
+    { // A StringWriter does not throw
+      throw new IllegalStateException(e);
+    }
+
+    return writer.toString();
+  }
+
+  @Override
+  public String toString(final MatchResultsWrapper parser)
+  {
+    return toString(parser.getResults());
+  }
+
+  /**
+   * Writes rollups, which must be sorted by time, in CSV format. The writer is not flushed.
+   *
+   * @param rollups the rollups to write.
+   * @param out where to write the CSV.
+   * @throws IOException if the rollups could not be written.
+   */
+  public void write(final Collection<Rollup> rollups, final Writer out) throws IOException
+  {
+    out.write(HEADER);
+    for (Rollup rollup : rollups)
+    {
+      out.write(System.lineSeparator());
+      out.write(rollup.getStart().toString());
+      out.write(',');
+      out.write(Integer.toString(rollup.getMatches()));
+      out.write(',');
+      out.write(Integer.toString(rollup.getWins()));
+      out.write(',');
+      out.write(Integer.toString(rollup.getDeltaPoints()));
+      out.write(',');
+      out.write(Integer.toString(rollup.getClosingRank()));
+      out.write(',');
+      out.write(Float.toString(rollup.getClosingSkillMean()));
+    }
+  }
+
+  /**
+   * Returns the rollups of the results of the history, rolled up into days first and into the period of this exporter
+   * from the days.
+   */
+  private Collection<Rollup> getRollups(final MatchHistory history)
+  {
+    if (history == null)
+    {
+      throw new NullPointerException("history");
+    }
+
+    return RollupUtils.rollUp(RollupUtils.getDays(history, 0, history.size(), -1), period).values();
+  }
+
+  @Override
+  public String getPrefix()
+  {
+    return PREFIX + period.getName() + "-";
+  }
+
+  @Override
+  public String getSuffix()
+  {
+    return SUFFIX;
+  }
+}
@@ -0,0 +1,239 @@
+package se.samuelandersson.rocketleague.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.export.BinaryExporter;
+
+/**
+ * A binary parser accepts files that were exported using {@link BinaryExporter}.
+ * <p>
+ * The file is memory-mapped, and the records are used as they are by the {@link MatchHistory} returned by
+ * {@link #load(File)}, so loading a file does not decode any of its results. The file is only read through once, to
+ * verify its checksum, unless that is skipped, see {@link #load(File, boolean)}. A file can also be read into a history
+ * of the caller's choosing, without keeping it mapped, see {@link #read(File, MatchHistory)}.
+ *
+ * @author Samuel Andersson
+ */
+public class BinaryParser implements Parser
+{
+  private static final Logger log = LoggerFactory.getLogger(BinaryParser.class);
+
+  /** The number of records read at a time by {@link #read(File, MatchHistory)}. */
+  private static final int CHUNK_RECORDS = 4096;
+
+  @Override
+  public void parse(final File file, final Consumer<MatchResult> consumer)
+  {
+    MatchHistory history;
+    try
+    {
+      history = load(file);
+    }
+    catch (IOException e)
+    {
+      log.error(String.format("An error occured when parsing binary file: [%s]", file.getName()), e);
+      return;
+    }
+
+    history.forEach(consumer);
+  }
+
+  /**
+   * Loads the history of a file exported by {@link BinaryExporter}. The history is backed by a read-only mapping of
+   * the file, and is copied the first time it is changed, so changes to the history are never written to the file.
+   *
+   * @param file the file to load.
+   * @return the history of the file.
+   * @throws IOException if the file could not be read or is not a valid history file.
+   */
+  public MatchHistory load(final File file) throws IOException
+  {
+    return load(file, true);
+  }
+
+  /**
+   * Loads the history of a file exported by {@link BinaryExporter}, like {@link #load(File)} does, but optionally
+   * without verifying the checksum. Without the checksum nothing but the header of the file is read when loading it,
+   * and only the records that are used are read from then on. The header is always verified.
+   *
+   * @param file the file to load.
+   * @param verify true if the checksum of the file should be verified.
+   * @return the history of the file.
+   * @throws IOException if the file could not be read or is not a valid history file.
+   */
+  public MatchHistory load(final File file, final boolean verify) throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      long length = channel.size();
+      if (length < BinaryExporter.HEADER_SIZE + BinaryExporter.FOOTER_SIZE || length > Integer.MAX_VALUE)
+      {
+        throw new IOException(String.format("Invalid length of %s: %s bytes", file.getName(), length));
+      }
+
+      ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, length);
+      int count = checkHeader(file, buffer, length);
+      int end = BinaryExporter.HEADER_SIZE + count * MatchHistory.RECORD_SIZE;
+      if (verify)
+      {
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = buffer.duplicate();
+        checked.limit(end);
+        crc.update(checked);
+        if (crc.getValue() != buffer.getLong(end))
+        {
+          throw new IOException(String.format("Checksum mismatch in %s", file.getName()));
+        }
+      }
+
+      ByteBuffer content = buffer.duplicate();
+      content.position(BinaryExporter.HEADER_SIZE);
+      content.limit(end);
+      MatchHistory history = MatchHistory.wrap(content);
+      checkTimeRange(file, buffer, history);
+      return history;
+    }
+  }
+
+  /**
+   * Reads the results of a file exported by {@link BinaryExporter} into the provided history, rather than mapping the
+   * file like {@link #load(File)} does. The file is read a chunk of records at a time and closed before this returns,
+   * so it can be replaced right away, and the results are kept however the provided history keeps them. The checksum
+   * is always verified.
+   *
+   * @param file the file to read.
+   * @param history the empty history to read the results into.
+   * @return the provided history.
+   * @throws IOException if the file could not be read or is not a valid history file.
+   */
+  public MatchHistory read(final File file, final MatchHistory history) throws IOException
+  {
+    if (!history.isEmpty())
+    {
+      throw new IllegalArgumentException(String.format("history must be empty: %s", history));
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      long length = channel.size();
+      if (length < BinaryExporter.HEADER_SIZE + BinaryExporter.FOOTER_SIZE || length > Integer.MAX_VALUE)
+      {
+        throw new IOException(String.format("Invalid length of %s: %s bytes", file.getName(), length));
+      }
+
+      ByteBuffer header = ByteBuffer.allocate(BinaryExporter.HEADER_SIZE);
+      readFully(file, channel, header, 0);
+      int count = checkHeader(file, header, length);
+      CRC32 crc = new CRC32();
+      crc.update(header.array());
+
+      ByteBuffer chunk = ByteBuffer.allocate(CHUNK_RECORDS * MatchHistory.RECORD_SIZE);
+      long position = BinaryExporter.HEADER_SIZE;
+      int added = 0;
+      while (added < count)
+      {
+        int records = Math.min(CHUNK_RECORDS, count - added);
+        chunk.clear();
+        chunk.limit(records * MatchHistory.RECORD_SIZE);
+        readFully(file, channel, chunk, position);
+        crc.update(chunk.array(), 0, chunk.limit());
+        position += chunk.limit();
+
+        chunk.flip();
+        MatchHistory part = MatchHistory.wrap(chunk);
+        for (int i = 0; i < records; i++)
+        {
+          history.add(part.getEpochSecond(i),
+                      part.getPlayList(i),
+                      part.getDeltaPoints(i),
+                      part.getRankPreGame(i),
+                      part.getSkillMean(i),
+                      part.getSkillSigma(i));
+        }
+        added += records;
+      }
+
+      ByteBuffer footer = ByteBuffer.allocate(BinaryExporter.FOOTER_SIZE);
+      readFully(file, channel, footer, position);
+      if (crc.getValue() != footer.getLong(0))
+      {
+        throw new IOException(String.format("Checksum mismatch in %s", file.getName()));
+      }
+
+      checkTimeRange(file, header, history);
+      return history;
+    }
+  }
+
+  /**
+   * Verifies the header at the start of the provided buffer, and returns the number of records of the file.
+   */
+  private static int checkHeader(final File file, final ByteBuffer header, final long length) throws IOException
+  {
+    if (header.getInt(0) != BinaryExporter.MAGIC)
+    {
+      throw new IOException(String.format("%s is not a history file", file.getName()));
+    }
+
+    int version = header.getInt(4);
+    if (version != BinaryExporter.VERSION)
+    {
+      throw new IOException(String.format("Unsupported version of %s: %s", file.getName(), version));
+    }
+
+    int count = header.getInt(8);
+    int recordSize = header.getInt(12);
+    long records = BinaryExporter.HEADER_SIZE + (long) count * MatchHistory.RECORD_SIZE;
+    if (count < 0 || recordSize != MatchHistory.RECORD_SIZE || records + BinaryExporter.FOOTER_SIZE != length)
+    {
+      throw new IOException(String.format("Invalid header of %s: %s records of %s bytes in %s bytes",
+                                          file.getName(),
+                                          count,
+                                          recordSize,
+                                          length));
+    }
+
+    return count;
+  }
+
+  /**
+   * Verifies that the first and last results of the history are at the times given by the header.
+   */
+  private static void checkTimeRange(final File file, final ByteBuffer header, final MatchHistory history)
+      throws IOException
+  {
+    int count = history.size();
+    if (count > 0 && (history.getEpochSecond(0) != header.getLong(16)
+        || history.getEpochSecond(count - 1) != header.getLong(24)))
+    {
+      throw new IOException(String.format("Time range of %s does not match its records", file.getName()));
+    }
+  }
+
+  private static void readFully(final File file, final FileChannel channel, final ByteBuffer buffer,
+                                final long position) throws IOException
+  {
+    long offset = position;
+    while (buffer.hasRemaining())
+    {
+      int read = channel.read(buffer, offset);
+      if (read < 0)
+      {
+        throw new IOException(String.format("Unexpected end of %s", file.getName()));
+      }
+      offset += read;
+    }
+  }
+}
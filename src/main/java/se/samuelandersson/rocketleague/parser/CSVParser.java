@@ -2,21 +2,24 @@ package se.samuelandersson.rocketleague.parser;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.regex.Matcher;
+import java.util.function.Consumer;
 
-import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import se.samuelandersson.rocketleague.MatchResult;
 import se.samuelandersson.rocketleague.export.CSVExporter;
+import se.samuelandersson.rocketleague.utils.CompressionUtils;
 
 /**
  * A CSV parser accepts CSV files that were exported using {@link CSVExporter}.
+ * <p>
+ * The header of the file decides how its rows are decoded, see {@link RowDecoder}. Besides the headers written by the
+ * exporter, any header naming the required columns is accepted. Rows in the exact format written by the exporter are
+ * decoded by a {@link CSVRowTokenizer}.
+ * <p>
+ * Files compressed by gzip are decompressed while they are parsed, see {@link CompressionUtils}.
  * 
  * @author Samuel Andersson
  */
@@ -24,128 +27,107 @@ public class CSVParser implements Parser
 {
   private static final Logger log = LoggerFactory.getLogger(CSVParser.class);
 
+  private final boolean tokenize;
+
   private File file;
+  private RowDecoder decoder;
+  private ParseStatistics statistics = new ParseStatistics();
+
+  /**
+   * Creates a new CSVParser.
+   */
+  public CSVParser()
+  {
+    this(true);
+  }
+
+  /**
+   * Creates a new CSVParser, optionally without the {@link CSVRowTokenizer}, in which case every row is split into its
+   * values before being decoded.
+   * 
+   * @param tokenize true if rows in the format written by {@link CSVExporter} should be decoded by the tokenizer.
+   */
+  CSVParser(final boolean tokenize)
+  {
+    this.tokenize = tokenize;
+  }
 
   @Override
-  public SortedSet<MatchResult> parse(final File file)
+  public void parse(final File file, final Consumer<MatchResult> consumer)
   {
     this.file = file;
+    this.statistics = new ParseStatistics();
 
-    SortedSet<MatchResult> matchResult = new TreeSet<>();
-    try (BufferedReader br = new BufferedReader(new FileReader(file)))
+    try (BufferedReader br = CompressionUtils.newReader(file))
     {
       String str = br.readLine();
       if (!parseHeader(str))
       {
-        return matchResult;
+        return;
       }
       while ((str = br.readLine()) != null)
       {
-        parseResult(matchResult, str);
+        parseResult(consumer, str);
       }
     }
     catch (IOException e)
     {
       log.error(String.format("An error occured when parsing CSV file: [%s]", file.getName()), e);
     }
+    finally
+    {
+      decoder = null;
+    }
 
-    return matchResult;
+    log.debug("Parsed {}: {}", file.getName(), statistics);
   }
 
   private boolean parseHeader(final String line)
   {
-    if (!CSVExporter.HEADER_PATTERN.matcher(line).matches())
+    if (line == null)
     {
-      if (!CSVExporter.HEADER_WITH_MU_PATTERN.matcher(line).matches())
-      {
-        log.warn(String.format("Invalid header in %s. File not parsed. \"%s\"", file.getName(), line));
-        return false;
-      }
+      return false;
+    }
+
+    decoder = RowDecoder.forHeader(line, tokenize);
+    if (decoder == null)
+    {
+      log.warn(String.format("Invalid header in %s. File not parsed. \"%s\"", file.getName(), line));
+      return false;
     }
 
     return true;
   }
 
-  private void parseResult(SortedSet<MatchResult> matchResult, final String line)
+  /**
+   * Returns the statistics of the latest parse.
+   * 
+   * @return the statistics of the latest parse.
+   */
+  public ParseStatistics getStatistics()
   {
-    Matcher regularMatch = CSVExporter.ROW_PATTERN.matcher(line);
-    Matcher muMatch = CSVExporter.ROW_WITH_MU_PATTERN.matcher(line);
-
-    if (regularMatch.matches())
-    {
-      parseResultWithoutMu(regularMatch, matchResult, line);
-    }
-    else if (muMatch.matches())
-    {
-      parseResultWithMu(muMatch, matchResult, line);
-    }
-    else
-    {
-      log.warn(String.format("Invalid format in %s. Entry not used. \"%s\"", file.getName(), line));
-    }
+    return statistics;
   }
 
-  private void parseResultWithoutMu(Matcher match, SortedSet<MatchResult> matchResult, final String line)
+  private void parseResult(final Consumer<MatchResult> consumer, final String line)
   {
-    String date = match.group("date");
-    String time = match.group("time");
+    MatchResult result;
     try
     {
-      DateTime dateTime = new DateTime(date + "T" + time);
-      String playlistStr = match.group("playlist");
-      try
-      {
-        int playlist = Integer.parseInt(playlistStr);
-        if (MatchResult.isValidPlayList(playlist))
-        {
-          playlistStr = MatchResult.getPlaylistName(playlist);
-        }
-      }
-      catch (NumberFormatException e)
-      { //Ignore
-      }
-      int delta = Integer.parseInt(match.group("delta"));
-      int points = Integer.parseInt(match.group("points"));
-
-      MatchResult result = new MatchResult(dateTime, playlistStr, delta, points);
-      matchResult.add(result);
+      result = decoder.decode(line, statistics);
     }
     catch (Exception e)
     {
       log.warn(String.format("Could not parse row in %s. \"%s\"", file.getName(), line));
+      return;
     }
-  }
 
-  private void parseResultWithMu(Matcher match, SortedSet<MatchResult> matchResult, final String line)
-  {
-    String date = match.group("date");
-    String time = match.group("time");
-    try
+    if (result == null)
     {
-      DateTime dateTime = new DateTime(date + "T" + time);
-      String playlistStr = match.group("playlist");
-      try
-      {
-        int playlist = Integer.parseInt(playlistStr);
-        if (MatchResult.isValidPlayList(playlist))
-        {
-          playlistStr = MatchResult.getPlaylistName(playlist);
-        }
-      }
-      catch (NumberFormatException e)
-      { //Ignore
-      }
-      float mu = match.group("mu") == null ? -1 : Float.parseFloat(match.group("mu"));
-      float sigma = match.group("sigma") == null ? -1 : Float.parseFloat(match.group("sigma"));
-      int delta = Integer.parseInt(match.group("delta"));
-      int points = Integer.parseInt(match.group("points"));
-
-      MatchResult result = new MatchResult(dateTime, playlistStr, delta, points, mu, sigma);
-      matchResult.add(result);
-    }
-    catch (Exception e)
-    {
-      log.warn(String.format("Could not parse row in %s. \"%s\"", file.getName(), line));
+      log.warn(String.format("Invalid format in %s. Entry not used. \"%s\"", file.getName(), line));
+      return;
     }
+
+    consumer.accept(result);
   }
 }
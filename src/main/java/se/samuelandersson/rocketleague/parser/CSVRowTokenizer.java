@@ -0,0 +1,264 @@
+package se.samuelandersson.rocketleague.parser;
+
+import org.joda.time.DateTime;
+
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.export.CSVExporter;
+
+/**
+ * Decodes rows in the exact format that {@link CSVExporter} writes them in, that is
+ *
+ * <pre>
+ * 2015-09-16,22:54:46,1v1,28.6374,2.4856,-10,735
+ * </pre>
+ *
+ * The fields are read in place from the line and the numbers are computed from their digits, so apart from the
+ * {@link MatchResult} itself nothing is allocated for a row. Any row that deviates from the format, even in ways that
+ * {@link CSVExporter#ROW_WITH_MU_PATTERN} would accept, is rejected so that it can be handled by a {@link RowDecoder}
+ * instead. Whenever a row is accepted, the result is the same as the RowDecoder would have returned.
+ *
+ * @author Samuel Andersson
+ */
+class CSVRowTokenizer
+{
+  /** Powers of ten that are exactly representable as a float. */
+  private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f,
+      1e10f };
+
+  /** Largest integer value that is exactly representable as a float. */
+  private static final long MAX_EXACT_FLOAT_MANTISSA = 1 << 24;
+
+  private static final int[] PLAYLISTS = { MatchResult.RANKED_1V1, MatchResult.RANKED_2V2,
+      MatchResult.SOLO_RANKED_3V3, MatchResult.RANKED_3V3, MatchResult.UNRANKED };
+  private static final String[] PLAYLIST_NAMES = new String[PLAYLISTS.length];
+
+  static
+  {
+    for (int i = 0; i < PLAYLISTS.length; i++)
+    {
+      PLAYLIST_NAMES[i] = MatchResult.getPlaylistName(PLAYLISTS[i]);
+    }
+  }
+
+  private String line;
+  private int position;
+  private boolean valid;
+
+  /**
+   * Decodes a row written by {@link CSVExporter}.
+   *
+   * @param line the row to decode.
+   * @return the MatchResult of the row, or {@code null} if the row is not in the exact format written by CSVExporter.
+   */
+  MatchResult decode(final String line)
+  {
+    this.line = line;
+    this.position = 0;
+    this.valid = true;
+
+    int year = digits(4);
+    expect('-');
+    int month = digits(2);
+    expect('-');
+    int day = digits(2);
+    expect(',');
+    int hour = digits(2);
+    expect(':');
+    int minute = digits(2);
+    expect(':');
+    int second = digits(2);
+    expect(',');
+    int playList = playList();
+    expect(',');
+    float mu = decimal();
+    expect(',');
+    float sigma = decimal();
+    expect(',');
+    int deltaPoints = integer();
+    expect(',');
+    int rankPoints = integer();
+
+    if (!valid || position != line.length())
+    {
+      return null;
+    }
+
+    DateTime time;
+    try
+    {
+      time = new DateTime(year, month, day, hour, minute, second, 0);
+    }
+    catch (IllegalArgumentException e)
+    { // Out of range or skipped by a daylight saving transition, leave it to the RowDecoder
+      return null;
+    }
+
+    return new MatchResult(time, playList, deltaPoints, rankPoints, mu, sigma);
+  }
+
+  private void expect(final char c)
+  {
+    if (valid && position < line.length() && line.charAt(position) == c)
+    {
+      position++;
+    }
+    else
+    {
+      valid = false;
+    }
+  }
+
+  /**
+   * Decodes exactly {@code count} digits.
+   */
+  private int digits(final int count)
+  {
+    if (!valid || position + count > line.length())
+    {
+      valid = false;
+      return 0;
+    }
+
+    int value = 0;
+    for (int i = 0; i < count; i++)
+    {
+      char c = line.charAt(position++);
+      if (!isDigit(c))
+      {
+        valid = false;
+        return 0;
+      }
+      value = value * 10 + (c - '0');
+    }
+
+    return value;
+  }
+
+  /**
+   * Decodes one of the playlist names written by {@link MatchResult#getPlaylistName(int)}.
+   */
+  private int playList()
+  {
+    if (!valid)
+    {
+      return 0;
+    }
+
+    int end = line.indexOf(',', position);
+    int length = (end < 0 ? line.length() : end) - position;
+    for (int i = 0; i < PLAYLIST_NAMES.length; i++)
+    {
+      if (PLAYLIST_NAMES[i].length() == length && line.regionMatches(position, PLAYLIST_NAMES[i], 0, length))
+      {
+        position += length;
+        return PLAYLISTS[i];
+      }
+    }
+
+    valid = false;
+    return 0;
+  }
+
+  /**
+   * Decodes an optionally negative int, the way {@link Integer#parseInt(String)} would.
+   */
+  private int integer()
+  {
+    if (!valid)
+    {
+      return 0;
+    }
+
+    boolean minus = position < line.length() && line.charAt(position) == '-';
+    int start = minus ? ++position : position;
+    long limit = minus ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+    long value = 0;
+    while (position < line.length() && isDigit(line.charAt(position)))
+    {
+      value = value * 10 + (line.charAt(position++) - '0');
+      if (value > limit)
+      {
+        valid = false;
+        return 0;
+      }
+    }
+
+    if (position == start)
+    {
+      valid = false;
+      return 0;
+    }
+
+    return (int) (minus ? -value : value);
+  }
+
+  /**
+   * Decodes an optionally negative "digits.digits" value, the way {@link Float#parseFloat(String)} would. Values that
+   * can be computed exactly in float precision are computed directly, any other value is handed to parseFloat.
+   */
+  private float decimal()
+  {
+    if (!valid)
+    {
+      return 0;
+    }
+
+    final int start = position;
+    boolean minus = position < line.length() && line.charAt(position) == '-';
+    if (minus)
+    {
+      position++;
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int scale = -1;
+    boolean exact = true;
+    while (position < line.length())
+    {
+      char c = line.charAt(position);
+      if (c == '.' && scale < 0)
+      {
+        if (digits == 0)
+        {
+          break;
+        }
+        scale = 0;
+      }
+      else if (isDigit(c))
+      {
+        if (exact)
+        {
+          mantissa = mantissa * 10 + (c - '0');
+          exact = mantissa < MAX_EXACT_FLOAT_MANTISSA;
+        }
+        digits++;
+        scale += scale < 0 ? 0 : 1;
+      }
+      else
+      {
+        break;
+      }
+      position++;
+    }
+
+    if (digits == 0 || scale < 1)
+    {
+      valid = false;
+      return 0;
+    }
+
+    if (exact && scale < FLOAT_POWERS_OF_TEN.length)
+    {
+      float value = mantissa / FLOAT_POWERS_OF_TEN[scale];
+      return minus ? -value : value;
+    }
+
+    return Float.parseFloat(line.substring(start, position));
+  }
+
+  private static boolean isDigit(final char c)
+  {
+    return c >= '0' && c <= '9';
+  }
+}
@@ -2,10 +2,8 @@ package se.samuelandersson.rocketleague.parser;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -14,9 +12,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.utils.CompressionUtils;
 
 /**
- * A LogFileParser accepts Rocket League log files for extracting {@link MatchResult}s.
+ * A LogFileParser accepts Rocket League log files for extracting {@link MatchResult}s. Log files compressed by gzip are
+ * decompressed while they are parsed, see {@link CompressionUtils}.
  * 
  * @author Samuel Andersson
  */
@@ -27,49 +27,70 @@ public class LogFileParser implements Parser
   public static final Pattern RANKPOINTS_PATTERN = Pattern.compile("\\[(?<time>\\d+\\.\\d+)\\] RankPoints\\: ClientSetSkill Playlist=(?<playlist>\\d+) Mu=(?<mu>\\d+\\.\\d+) Sigma=(?<sigma>\\d+\\.\\d+) DeltaRankPoints=(?<minus>-?)(?<delta>\\d+) RankPoints=(?<points>\\d+)");
   public static final Pattern LOGSTART_PATTERN = Pattern.compile("Log\\: Log file open, (?<month>\\d+)/(?<day>\\d+)/(?<year>\\d+) (?<hour>\\d+)\\:(?<minute>\\d+)\\:(?<second>\\d+)");
 
+  /** Literal that every line matching {@link #RANKPOINTS_PATTERN} contains. */
+  public static final String RANKPOINTS_MARKER = "RankPoints: ClientSetSkill";
+  /** Literal that every line matching {@link #LOGSTART_PATTERN} starts with. */
+  public static final String LOGSTART_PREFIX = "Log: Log file open, ";
+
   private DateTime logStart;
+  private ParseStatistics statistics = new ParseStatistics();
 
   @Override
-  public SortedSet<MatchResult> parse(File file)
+  public void parse(final File file, final Consumer<MatchResult> consumer)
   {
-    SortedSet<MatchResult> matchResults = new TreeSet<>();
+    resetStatistics();
 
-    try (BufferedReader br = new BufferedReader(new FileReader(file)))
+    try (BufferedReader br = CompressionUtils.newReader(file))
     {
       String str;
       while ((str = br.readLine()) != null)
       {
-        if (logStart == null)
+        if (logStart == null && str.startsWith(LOGSTART_PREFIX))
         {
           Matcher logStartMatch = LOGSTART_PATTERN.matcher(str);
-          if (logStartMatch.matches())
+          if (!logStartMatch.matches())
           {
-            try
-            {
-              determineLogStart(logStartMatch);
-            }
-            catch (Exception e)
-            {
-              log.error("Error determining log start: {}", e.getMessage());
-              return matchResults;
-            }
+            statistics.patternRejected();
+            continue;
           }
-        }
 
-        Matcher matchRank = RANKPOINTS_PATTERN.matcher(str);
-        if (matchRank.matches())
-        {
-          if (logStart == null)
+          statistics.accepted();
+          try
           {
-            log.error("Log start was not determined before encountering match result.");
-            return matchResults;
+            determineLogStart(logStartMatch);
           }
-
-          MatchResult result = createMatchResult(matchRank);
-          if (result != null)
+          catch (Exception e)
           {
-            matchResults.add(result);
+            log.error("Error determining log start: {}", e.getMessage());
+            return;
           }
+          continue;
+        }
+
+        if (!isRankPointsCandidate(str))
+        {
+          statistics.prefilterRejected();
+          continue;
+        }
+
+        Matcher matchRank = RANKPOINTS_PATTERN.matcher(str);
+        if (!matchRank.matches())
+        {
+          statistics.patternRejected();
+          continue;
+        }
+
+        statistics.accepted();
+        if (logStart == null)
+        {
+          log.error("Log start was not determined before encountering match result.");
+          return;
+        }
+
+        MatchResult result = createMatchResult(matchRank);
+        if (result != null)
+        {
+          consumer.accept(result);
         }
       }
     }
@@ -78,7 +99,19 @@ public class LogFileParser implements Parser
       log.error(String.format("An error occured when parsing log file: [%s]", file.getName()), e);
     }
 
-    return matchResults;
+    log.debug("Parsed {}: {}", file.getName(), statistics);
+  }
+
+  /**
+   * Returns true if the provided line could match {@link #RANKPOINTS_PATTERN}. This is a cheap literal check that lets
+   * the parser skip the pattern for the engine noise making up most of a log file.
+   * 
+   * @param line the line to check.
+   * @return true if the line starts with '[' and contains the {@link #RANKPOINTS_MARKER}.
+   */
+  protected static boolean isRankPointsCandidate(final String line)
+  {
+    return line.startsWith("[") && line.indexOf(RANKPOINTS_MARKER) > 0;
   }
 
   /**
@@ -185,4 +218,33 @@ public class LogFileParser implements Parser
   {
     return logStart;
   }
+
+  /**
+   * Sets the time which the logger were initialized at, for parsing parts of a log file whose log start is already
+   * known.
+   * 
+   * @param logStart the time which the logger were initialized at.
+   */
+  protected void setLogStart(final DateTime logStart)
+  {
+    this.logStart = logStart;
+  }
+
+  /**
+   * Returns the statistics of the latest parse.
+   * 
+   * @return the statistics of the latest parse.
+   */
+  public ParseStatistics getStatistics()
+  {
+    return statistics;
+  }
+
+  /**
+   * Replaces the statistics with a new, empty instance. Called at the start of every parse.
+   */
+  protected void resetStatistics()
+  {
+    statistics = new ParseStatistics();
+  }
 }
@@ -0,0 +1,816 @@
+package se.samuelandersson.rocketleague.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.zip.CRC32;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.samuelandersson.rocketleague.LogFileFingerprint;
+import se.samuelandersson.rocketleague.LogFileState;
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.utils.CompressionUtils;
+
+/**
+ * A MappedLogFileParser accepts the same Rocket League log files as {@link LogFileParser}, but memory maps the file and
+ * works directly on the raw bytes instead of decoding every line into a String. The file is searched for the
+ * {@link #RANKPOINTS_MARKER} and only the lines containing it are examined. The numeric fields of those lines are
+ * decoded straight from the buffer.
+ * <p>
+ * The lines are matched against the same grammar as {@link LogFileParser#RANKPOINTS_PATTERN}, so both parsers return
+ * the same results for the same file. Since lines without the marker are never visited once the log start is known,
+ * the {@link ParseStatistics} of this parser only count the lines that were actually examined.
+ * <p>
+ * Large files can be parsed concurrently, see {@link #MappedLogFileParser(int)}. The file is then split into chunks
+ * aligned to line starts after the log start has been determined, and every chunk is parsed using that log start.
+ * <p>
+ * A log file that keeps growing can be parsed incrementally, see {@link #parse(File, LogFileState)}, and a log file that
+ * has been renamed can be recognized by its content, see {@link #fingerprint(File)}.
+ * <p>
+ * A log file compressed by gzip can not be mapped, so it is parsed line by line by {@link LogFileParser} instead, in
+ * full every time.
+ *
+ * @author Samuel Andersson
+ */
+public class MappedLogFileParser extends LogFileParser
+{
+  private static final Logger log = LoggerFactory.getLogger(MappedLogFileParser.class);
+
+  private static final byte[] MARKER = ascii(RANKPOINTS_MARKER);
+  private static final byte[] LOGSTART_PREFIX_BYTES = ascii(LOGSTART_PREFIX);
+  private static final byte[] PLAYLIST = ascii("] " + RANKPOINTS_MARKER + " Playlist=");
+  private static final byte[] MU = ascii(" Mu=");
+  private static final byte[] SIGMA = ascii(" Sigma=");
+  private static final byte[] DELTA = ascii(" DeltaRankPoints=");
+  private static final byte[] POINTS = ascii(" RankPoints=");
+  private static final int[] MARKER_SKIP = createSkipTable(MARKER);
+
+  /** Powers of ten that are exactly representable as a float. */
+  private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f,
+      1e10f };
+
+  /** Largest integer value that is exactly representable as a float. */
+  private static final long MAX_EXACT_FLOAT_MANTISSA = 1 << 24;
+
+  /** Number of bytes at the beginning of the file used for recognizing it when resuming a parse. */
+  public static final int CHECKSUM_LENGTH = 4096;
+
+  /** Number of bytes at the beginning of the file used for recognizing it by its fingerprint. */
+  public static final int FINGERPRINT_LENGTH = 64 * 1024;
+
+  /** Files smaller than twice this size are never split into chunks. */
+  public static final int DEFAULT_MIN_CHUNK_SIZE = 8 * 1024 * 1024;
+
+  private final int parallelism;
+  private final int minChunkSize;
+
+  /** The state of the file as of the latest parse. */
+  private LogFileState state;
+
+  /** The fingerprint of the file as of the latest parse. */
+  private LogFileFingerprint fingerprint;
+
+  /** The position following the last decoded number. */
+  private int position;
+
+  /** Set when the last decoded integer did not fit in an int. */
+  private boolean overflow;
+
+  /**
+   * Creates a parser that parses the whole file on the calling thread.
+   */
+  public MappedLogFileParser()
+  {
+    this(1);
+  }
+
+  /**
+   * Creates a parser that splits large files into up to {@code parallelism} chunks that are parsed concurrently.
+   * 
+   * @param parallelism the maximum number of chunks to parse concurrently.
+   */
+  public MappedLogFileParser(final int parallelism)
+  {
+    this(parallelism, DEFAULT_MIN_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a parser that splits files into up to {@code parallelism} chunks that are parsed concurrently, none of them
+   * smaller than {@code minChunkSize} bytes.
+   * 
+   * @param parallelism the maximum number of chunks to parse concurrently.
+   * @param minChunkSize the minimum size of a chunk, in bytes.
+   */
+  public MappedLogFileParser(final int parallelism, final int minChunkSize)
+  {
+    if (parallelism < 1)
+    {
+      throw new IllegalArgumentException(String.format("parallelism must be at least 1: %s", parallelism));
+    }
+    if (minChunkSize < 1)
+    {
+      throw new IllegalArgumentException(String.format("minChunkSize must be at least 1: %s", minChunkSize));
+    }
+
+    this.parallelism = parallelism;
+    this.minChunkSize = minChunkSize;
+  }
+
+  @Override
+  public void parse(final File file, final Consumer<MatchResult> consumer)
+  {
+    parse(file, null, consumer);
+  }
+
+  /**
+   * Parses the part of the file that was not parsed when the provided state was recorded, see
+   * {@link #parse(File, LogFileState, Consumer)}.
+   * 
+   * @param file the file to parse.
+   * @param previous the state recorded by a previous parse of the file, or {@code null}.
+   * @return a set of the MatchResults found in the parsed part of the file.
+   */
+  public SortedSet<MatchResult> parse(final File file, final LogFileState previous)
+  {
+    SortedSet<MatchResult> matchResults = new TreeSet<>();
+    parse(file, previous, matchResults::add);
+    return matchResults;
+  }
+
+  /**
+   * Parses the part of the file that was not parsed when the provided state was recorded. If the state is
+   * {@code null}, or if the file no longer starts with the content the state was recorded from, the whole file is
+   * parsed. The state describing the file after this parse is available through {@link #getState()}, and the
+   * fingerprint of the parsed content through {@link #getFingerprint()}. A compressed file is always parsed in full, and
+   * has neither.
+   * 
+   * @param file the file to parse.
+   * @param previous the state recorded by a previous parse of the file, or {@code null}.
+   * @param consumer the consumer that receives the MatchResults found in the parsed part of the file.
+   */
+  public void parse(final File file, final LogFileState previous, final Consumer<MatchResult> consumer)
+  {
+    resetStatistics();
+    state = null;
+    fingerprint = null;
+    // the log start of a previously parsed file must not be used for this one
+    setLogStart(null);
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      if (CompressionUtils.isGzip(file))
+      {
+        log.info("{} is compressed, parsing it line by line instead.", file.getName());
+        super.parse(file, consumer);
+        return;
+      }
+
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE)
+      {
+        log.info("{} is too large to be mapped, parsing it line by line instead.", file.getName());
+        super.parse(file, consumer);
+        return;
+      }
+
+      ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+      int start = 0;
+      if (previous != null && isResumable(buffer, (int) size, previous))
+      {
+        log.info("Resuming {} at byte {}", file.getName(), previous.getOffset());
+        setLogStart(new DateTime(previous.getLogStart()));
+        start = (int) previous.getOffset();
+      }
+
+      parse(buffer, start, (int) size, consumer);
+
+      if (getLogStart() != null)
+      {
+        int offset = Math.max(start, findLastLineStart(buffer, (int) size));
+        state = new LogFileState(offset, getLogStart().getMillis(), checksum(buffer, offset));
+      }
+      fingerprint = fingerprint(buffer, (int) size);
+    }
+    catch (IOException e)
+    {
+      log.error(String.format("An error occured when parsing log file: [%s]", file.getName()), e);
+    }
+
+    log.debug("Parsed {}: {}", file.getName(), getStatistics());
+  }
+
+  /**
+   * Returns the state of the file as of the latest parse, to be handed to {@link #parse(File, LogFileState)} the next
+   * time the file is parsed. The offset of the state is the start of the last line of the file, since that line may
+   * still be in the process of being written.
+   * 
+   * @return the state of the file, or {@code null} if the latest parse did not determine the log start.
+   */
+  public LogFileState getState()
+  {
+    return state;
+  }
+
+  /**
+   * Returns the fingerprint of the content parsed by the latest parse. Since it is taken from the same mapping of the
+   * file as the results, it describes exactly the content the results were found in, even if the file has grown since.
+   * 
+   * @return the fingerprint of the file, or {@code null} if the latest parse could not determine it.
+   */
+  public LogFileFingerprint getFingerprint()
+  {
+    return fingerprint;
+  }
+
+  /**
+   * Returns the fingerprint of the provided file, without parsing anything but the log start from it. The fingerprint
+   * equals the one {@link #getFingerprint()} returns after parsing the same content, so a file that has been renamed
+   * since it was parsed can be recognized by comparing the two.
+   * 
+   * @param file the file to take the fingerprint of.
+   * @return the fingerprint of the file, or {@code null} if the file is missing, compressed, or has no log start within
+   *         the first {@link #FINGERPRINT_LENGTH} bytes.
+   */
+  public static LogFileFingerprint fingerprint(final File file)
+  {
+    if (!file.isFile())
+    {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      if (CompressionUtils.isGzip(file))
+      {
+        return null;
+      }
+
+      long size = channel.size();
+      return fingerprint(channel.map(MapMode.READ_ONLY, 0, Math.min(size, FINGERPRINT_LENGTH)), size);
+    }
+    catch (IOException e)
+    {
+      log.error(String.format("An error occured when reading the fingerprint of log file: [%s]", file.getName()), e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the fingerprint of a file of the provided size, whose beginning is in the buffer. The log start is looked
+   * for within the first {@link #FINGERPRINT_LENGTH} bytes only, by a parser of its own, so that the fingerprint only
+   * depends on the beginning of the file and its size.
+   */
+  private static LogFileFingerprint fingerprint(final ByteBuffer buffer, final long size)
+  {
+    int end = (int) Math.min(size, FINGERPRINT_LENGTH);
+    MappedLogFileParser header = new MappedLogFileParser();
+    header.parseHeader(buffer, 0, end);
+    if (header.getLogStart() == null)
+    {
+      return null;
+    }
+
+    return new LogFileFingerprint(header.getLogStart().getMillis(), size, crc(buffer, end));
+  }
+
+  /**
+   * Returns true if the provided buffer still starts with the content the state was recorded from.
+   */
+  private static boolean isResumable(final ByteBuffer buffer, final int size, final LogFileState state)
+  {
+    return state.getOffset() > 0 && state.getOffset() <= size
+           && checksum(buffer, (int) state.getOffset()) == state.getPrefixChecksum();
+  }
+
+  /**
+   * Returns the checksum of the first {@link #CHECKSUM_LENGTH} bytes of the buffer, or fewer if {@code end} is less
+   * than that.
+   */
+  private static long checksum(final ByteBuffer buffer, final int end)
+  {
+    return crc(buffer, Math.min(end, CHECKSUM_LENGTH));
+  }
+
+  /**
+   * Returns the CRC-32 of the first {@code length} bytes of the buffer.
+   */
+  private static long crc(final ByteBuffer buffer, final int length)
+  {
+    ByteBuffer prefix = buffer.duplicate();
+    prefix.position(0);
+    prefix.limit(length);
+
+    CRC32 crc = new CRC32();
+    crc.update(prefix);
+    return crc.getValue();
+  }
+
+  /**
+   * Returns the start of the line that the buffer ends with, or {@code end} if the buffer ends with a line terminator.
+   */
+  private static int findLastLineStart(final ByteBuffer buffer, final int end)
+  {
+    return findLineStart(buffer, end, 0);
+  }
+
+  /**
+   * Parses the lines found between {@code start} and {@code end} in the provided buffer and adds any found
+   * {@link MatchResult}s to the provided consumer. Until the log start has been determined every line is examined, after
+   * that only lines containing the {@link #RANKPOINTS_MARKER} are. If the remaining part is large enough it is split
+   * into chunks that are parsed concurrently.
+   *
+   * @param buffer the buffer containing the log file.
+   * @param start the position of the first byte to parse.
+   * @param end the position following the last byte to parse.
+   * @param consumer the consumer that receives the found results.
+   */
+  protected void parse(final ByteBuffer buffer, final int start, final int end, final Consumer<MatchResult> consumer)
+  {
+    int pos = parseHeader(buffer, start, end);
+    if (pos < 0)
+    {
+      return;
+    }
+
+    int chunks = (int) Math.min(parallelism, ((long) end - pos) / minChunkSize);
+    if (chunks < 2)
+    {
+      parseRange(buffer, pos, end, consumer);
+    }
+    else
+    {
+      parseChunks(buffer, pos, end, chunks, consumer);
+    }
+  }
+
+  /**
+   * Examines the lines from {@code start} until the log start has been determined.
+   *
+   * @param buffer the buffer containing the log file.
+   * @param start the position of the first byte to parse.
+   * @param end the position following the last byte to parse.
+   * @return the position of the line following the log start, or -1 if parsing should not continue.
+   */
+  protected int parseHeader(final ByteBuffer buffer, final int start, final int end)
+  {
+    int pos = start;
+    while (getLogStart() == null && pos < end)
+    {
+      int lineEnd = findLineEnd(buffer, pos, end);
+      if (startsWith(buffer, pos, lineEnd, LOGSTART_PREFIX_BYTES))
+      {
+        Matcher logStartMatch = LOGSTART_PATTERN.matcher(decode(buffer, pos, lineEnd));
+        if (logStartMatch.matches())
+        {
+          getStatistics().accepted();
+          try
+          {
+            determineLogStart(logStartMatch);
+          }
+          catch (Exception e)
+          {
+            log.error("Error determining log start: {}", e.getMessage());
+            return -1;
+          }
+        }
+        else
+        {
+          getStatistics().patternRejected();
+        }
+      }
+      else if (isRankPointsLine(buffer, pos, lineEnd))
+      {
+        getStatistics().accepted();
+        log.error("Log start was not determined before encountering match result.");
+        return -1;
+      }
+      else
+      {
+        getStatistics().prefilterRejected();
+      }
+
+      pos = lineEnd + 1;
+    }
+
+    return pos;
+  }
+
+  /**
+   * Hands the results of all lines containing the {@link #RANKPOINTS_MARKER} between {@code start} and {@code end} to
+   * the provided consumer. The log start must have been determined before calling this method.
+   *
+   * @param buffer the buffer containing the log file.
+   * @param start the position of the first byte to parse, at the start of a line.
+   * @param end the position following the last byte to parse.
+   * @param consumer the consumer that receives the found results.
+   */
+  protected void parseRange(final ByteBuffer buffer, final int start, final int end,
+                            final Consumer<MatchResult> consumer)
+  {
+    int pos = start;
+    while (pos < end)
+    {
+      int marker = indexOfMarker(buffer, pos, end);
+      if (marker < 0)
+      {
+        return;
+      }
+
+      int lineStart = findLineStart(buffer, marker, pos);
+      int lineEnd = findLineEnd(buffer, marker, end);
+      if (isRankPointsLine(buffer, lineStart, lineEnd))
+      {
+        getStatistics().accepted();
+        MatchResult result = createMatchResult(buffer, lineStart, lineEnd);
+        if (result != null)
+        {
+          consumer.accept(result);
+        }
+      }
+      else
+      {
+        getStatistics().patternRejected();
+      }
+
+      pos = lineEnd + 1;
+    }
+  }
+
+  /**
+   * Splits the range between {@code start} and {@code end} into chunks aligned to line starts and parses them
+   * concurrently, each one with its own parser sharing this parser's log start. The results of the chunks are handed to
+   * the consumer in file order, so the outcome is the same as parsing the range in one go.
+   */
+  private void parseChunks(final ByteBuffer buffer, final int start, final int end, final int chunks,
+                           final Consumer<MatchResult> consumer)
+  {
+    final DateTime logStart = getLogStart();
+    final int chunkSize = (end - start) / chunks;
+    ExecutorService executor = Executors.newFixedThreadPool(chunks);
+    try
+    {
+      List<MappedLogFileParser> workers = new ArrayList<>();
+      List<Future<List<MatchResult>>> futures = new ArrayList<>();
+      int chunkStart = start;
+      for (int i = 0; i < chunks && chunkStart < end; i++)
+      {
+        final int from = chunkStart;
+        final int to = i == chunks - 1 ? end : findChunkEnd(buffer, from, chunkSize, end);
+        final MappedLogFileParser worker = new MappedLogFileParser();
+        worker.setLogStart(logStart);
+        workers.add(worker);
+        futures.add(executor.submit(() -> {
+          List<MatchResult> chunkResults = new ArrayList<>();
+          worker.parseRange(buffer.duplicate(), from, to, chunkResults::add);
+          return chunkResults;
+        }));
+        chunkStart = to;
+      }
+
+      for (int i = 0; i < futures.size(); i++)
+      {
+        futures.get(i).get().forEach(consumer);
+        getStatistics().add(workers.get(i).getStatistics());
+      }
+    }
+    catch (InterruptedException e)
+    {
+      log.error("Interrupted while parsing log file.");
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e)
+    {
+      log.error("Error when parsing chunk of log file.", e.getCause());
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the position of the line start following {@code chunkSize} bytes after {@code start}, or {@code end} if
+   * there is none.
+   */
+  private static int findChunkEnd(final ByteBuffer buffer, final int start, final int chunkSize, final int end)
+  {
+    int boundary = (int) Math.min(end, (long) start + chunkSize);
+    return Math.min(end, findLineEnd(buffer, boundary, end) + 1);
+  }
+
+  /**
+   * Returns true if the line between {@code start} and {@code end} matches {@link LogFileParser#RANKPOINTS_PATTERN}.
+   *
+   * @param buffer the buffer containing the line.
+   * @param start the position of the first byte of the line.
+   * @param end the position following the last byte of the line.
+   * @return true if the line is a rank points line.
+   */
+  protected boolean isRankPointsLine(final ByteBuffer buffer, final int start, final int end)
+  {
+    int pos = start;
+    if (pos >= end || buffer.get(pos) != '[')
+    {
+      return false;
+    }
+
+    pos = skipDecimal(buffer, pos + 1, end);
+    pos = expect(buffer, pos, end, PLAYLIST);
+    pos = skipDigits(buffer, pos, end);
+    pos = expect(buffer, pos, end, MU);
+    pos = skipDecimal(buffer, pos, end);
+    pos = expect(buffer, pos, end, SIGMA);
+    pos = skipDecimal(buffer, pos, end);
+    pos = expect(buffer, pos, end, DELTA);
+    if (pos >= 0 && pos < end && buffer.get(pos) == '-')
+    {
+      pos++;
+    }
+    pos = skipDigits(buffer, pos, end);
+    pos = expect(buffer, pos, end, POINTS);
+    pos = skipDigits(buffer, pos, end);
+
+    return pos == end;
+  }
+
+  /**
+   * Creates a {@link MatchResult} from a line that has been verified by
+   * {@link #isRankPointsLine(ByteBuffer, int, int)}. The values are decoded the same way as
+   * {@link LogFileParser#createMatchResult(Matcher)} does it.
+   *
+   * @param buffer the buffer containing the line.
+   * @param start the position of the first byte of the line.
+   * @param end the position following the last byte of the line.
+   * @return a MatchResult based on the line, or null, if some values in the line are invalid or if the playlist is not
+   *         valid.
+   */
+  protected MatchResult createMatchResult(final ByteBuffer buffer, final int start, final int end)
+  {
+    int seconds = decodeInt(buffer, start + 1, end);
+    DateTime time = overflow ? new DateTime(0) : getLogStart().plusSeconds(seconds);
+
+    int pos = skipDecimal(buffer, start + 1, end) + PLAYLIST.length;
+    int playList = decodeInt(buffer, pos, end);
+    boolean invalid = overflow;
+
+    float mu = decodeFloat(buffer, position + MU.length, end);
+    float sigma = decodeFloat(buffer, position + SIGMA.length, end);
+
+    pos = position + DELTA.length;
+    boolean minus = buffer.get(pos) == '-';
+    int deltaPoints = decodeInt(buffer, minus ? pos + 1 : pos, end) * (minus ? -1 : 1);
+    invalid |= overflow;
+
+    int rankPoints = decodeInt(buffer, position + POINTS.length, end);
+    invalid |= overflow;
+
+    if (invalid)
+    {
+      log.warn("Error when parsing number for match result: {}", decode(buffer, start, end));
+      return null;
+    }
+
+    if (!MatchResult.isValidPlayList(playList))
+    {
+      return null;
+    }
+
+    return new MatchResult(time, playList, deltaPoints, rankPoints, mu, sigma);
+  }
+
+  /**
+   * Decodes the run of digits starting at {@code start}. Sets {@link #position} to the position following the last
+   * digit and {@link #overflow} if the value does not fit in an int.
+   */
+  private int decodeInt(final ByteBuffer buffer, final int start, final int end)
+  {
+    long value = 0;
+    overflow = false;
+    int pos = start;
+    while (pos < end && isDigit(buffer.get(pos)))
+    {
+      value = value * 10 + (buffer.get(pos++) - '0');
+      if (value > Integer.MAX_VALUE)
+      {
+        overflow = true;
+        value = Integer.MAX_VALUE;
+      }
+    }
+    position = pos;
+
+    return (int) value;
+  }
+
+  /**
+   * Decodes the "digits.digits" value starting at {@code start} and sets {@link #position} to the position following
+   * it. Values that can be computed exactly in float precision are computed directly, any other value is handed to
+   * {@link Float#parseFloat(String)}, so the result is always the same as that method would return.
+   */
+  private float decodeFloat(final ByteBuffer buffer, final int start, final int end)
+  {
+    long mantissa = 0;
+    int scale = 0;
+    boolean fraction = false;
+    boolean exact = true;
+    int pos = start;
+    while (pos < end)
+    {
+      byte b = buffer.get(pos);
+      if (b == '.' && !fraction)
+      {
+        fraction = true;
+      }
+      else if (isDigit(b))
+      {
+        mantissa = mantissa * 10 + (b - '0');
+        exact &= mantissa < MAX_EXACT_FLOAT_MANTISSA;
+        scale += fraction ? 1 : 0;
+      }
+      else
+      {
+        break;
+      }
+      pos++;
+    }
+    position = pos;
+
+    if (exact && scale < FLOAT_POWERS_OF_TEN.length)
+    {
+      return mantissa / FLOAT_POWERS_OF_TEN[scale];
+    }
+
+    return Float.parseFloat(decode(buffer, start, pos));
+  }
+
+  private static int skipDecimal(final ByteBuffer buffer, final int start, final int end)
+  {
+    int pos = skipDigits(buffer, start, end);
+    if (pos < 0 || pos >= end || buffer.get(pos) != '.')
+    {
+      return -1;
+    }
+
+    return skipDigits(buffer, pos + 1, end);
+  }
+
+  /**
+   * Returns the position following a non-empty run of digits starting at {@code start}, or -1 if there are no digits
+   * there.
+   */
+  private static int skipDigits(final ByteBuffer buffer, final int start, final int end)
+  {
+    if (start < 0)
+    {
+      return -1;
+    }
+
+    int pos = start;
+    while (pos < end && isDigit(buffer.get(pos)))
+    {
+      pos++;
+    }
+
+    return pos == start ? -1 : pos;
+  }
+
+  /**
+   * Returns the position following {@code expected} if the bytes at {@code start} equals it, otherwise -1.
+   */
+  private static int expect(final ByteBuffer buffer, final int start, final int end, final byte[] expected)
+  {
+    if (start < 0 || !startsWith(buffer, start, end, expected))
+    {
+      return -1;
+    }
+
+    return start + expected.length;
+  }
+
+  private static boolean startsWith(final ByteBuffer buffer, final int start, final int end, final byte[] expected)
+  {
+    if (end - start < expected.length)
+    {
+      return false;
+    }
+
+    for (int i = 0; i < expected.length; i++)
+    {
+      if (buffer.get(start + i) != expected[i])
+      {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the position of the first occurrence of the {@link #RANKPOINTS_MARKER} between {@code start} and
+   * {@code end}, or -1 if it could not be found. This is a Boyer-Moore-Horspool search, so most positions in the buffer
+   * are never examined.
+   */
+  protected static int indexOfMarker(final ByteBuffer buffer, final int start, final int end)
+  {
+    final int lastIndex = MARKER.length - 1;
+    final byte lastByte = MARKER[lastIndex];
+    int pos = start;
+    while (pos + lastIndex < end)
+    {
+      byte b = buffer.get(pos + lastIndex);
+      if (b == lastByte && startsWith(buffer, pos, end, MARKER))
+      {
+        return pos;
+      }
+      pos += MARKER_SKIP[b & 0xff];
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns the position of the first line terminator at or after {@code pos}, or {@code end} if there is none. Both
+   * '\n' and '\r' are treated as terminators, just like {@link java.io.BufferedReader#readLine()} does.
+   */
+  protected static int findLineEnd(final ByteBuffer buffer, final int pos, final int end)
+  {
+    for (int i = pos; i < end; i++)
+    {
+      byte b = buffer.get(i);
+      if (b == '\n' || b == '\r')
+      {
+        return i;
+      }
+    }
+
+    return end;
+  }
+
+  /**
+   * Returns the position of the first byte of the line containing {@code pos}, searching no further back than
+   * {@code start}.
+   */
+  protected static int findLineStart(final ByteBuffer buffer, final int pos, final int start)
+  {
+    for (int i = pos - 1; i >= start; i--)
+    {
+      byte b = buffer.get(i);
+      if (b == '\n' || b == '\r')
+      {
+        return i + 1;
+      }
+    }
+
+    return start;
+  }
+
+  private static boolean isDigit(final byte b)
+  {
+    return b >= '0' && b <= '9';
+  }
+
+  private static String decode(final ByteBuffer buffer, final int start, final int end)
+  {
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++)
+    {
+      bytes[i] = buffer.get(start + i);
+    }
+
+    return new String(bytes, StandardCharsets.ISO_8859_1);
+  }
+
+  private static int[] createSkipTable(final byte[] pattern)
+  {
+    int[] skip = new int[256];
+    Arrays.fill(skip, pattern.length);
+    for (int i = 0; i < pattern.length - 1; i++)
+    {
+      skip[pattern[i] & 0xff] = pattern.length - 1 - i;
+    }
+
+    return skip;
+  }
+
+  private static byte[] ascii(final String str)
+  {
+    return str.getBytes(StandardCharsets.US_ASCII);
+  }
+}
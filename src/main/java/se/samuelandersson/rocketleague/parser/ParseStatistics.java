@@ -0,0 +1,92 @@
+package se.samuelandersson.rocketleague.parser;
+
+/**
+ * Counts how the lines of a parsed file were handled. Every line a parser looks at is first checked by a cheap literal
+ * prefilter, and only the lines passing it are matched against the full pattern. A line thus ends up in exactly one of
+ * three buckets: rejected by the prefilter, rejected by the pattern, or accepted.
+ *
+ * @author Samuel Andersson
+ */
+public class ParseStatistics
+{
+  private long lines;
+  private long prefilterRejected;
+  private long patternRejected;
+  private long accepted;
+
+  void prefilterRejected()
+  {
+    lines++;
+    prefilterRejected++;
+  }
+
+  void patternRejected()
+  {
+    lines++;
+    patternRejected++;
+  }
+
+  void accepted()
+  {
+    lines++;
+    accepted++;
+  }
+
+  void add(final ParseStatistics other)
+  {
+    lines += other.lines;
+    prefilterRejected += other.prefilterRejected;
+    patternRejected += other.patternRejected;
+    accepted += other.accepted;
+  }
+
+  /**
+   * Returns the number of lines that were examined.
+   *
+   * @return the number of lines that were examined.
+   */
+  public long getLines()
+  {
+    return lines;
+  }
+
+  /**
+   * Returns the number of lines that were rejected by the prefilter without running the pattern.
+   *
+   * @return the number of lines that were rejected by the prefilter.
+   */
+  public long getPrefilterRejected()
+  {
+    return prefilterRejected;
+  }
+
+  /**
+   * Returns the number of lines that passed the prefilter but did not match the pattern.
+   *
+   * @return the number of lines that passed the prefilter but did not match the pattern.
+   */
+  public long getPatternRejected()
+  {
+    return patternRejected;
+  }
+
+  /**
+   * Returns the number of lines that matched the pattern.
+   *
+   * @return the number of lines that matched the pattern.
+   */
+  public long getAccepted()
+  {
+    return accepted;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%s lines, %s rejected by prefilter, %s rejected by pattern, %s accepted",
+                         lines,
+                         prefilterRejected,
+                         patternRejected,
+                         accepted);
+  }
+}
@@ -2,6 +2,8 @@ package se.samuelandersson.rocketleague.parser;
 
 import java.io.File;
 import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 import se.samuelandersson.rocketleague.MatchResult;
 
@@ -15,9 +17,25 @@ public interface Parser
 {
   /**
    * Parses a file and returns a {@link SortedSet} containing the {@link MatchResult}s that was extracted from the file.
+   * If the file contains several results with the same time and playlist, the first one is kept.
    * 
    * @param file the file to parse.
    * @return a set of MatchResults.
    */
-  SortedSet<MatchResult> parse(File file);
+  default SortedSet<MatchResult> parse(File file)
+  {
+    SortedSet<MatchResult> results = new TreeSet<>();
+    parse(file, results::add);
+    return results;
+  }
+
+  /**
+   * Parses a file and hands every {@link MatchResult} extracted from it to the provided consumer as soon as it has been
+   * decoded, in the order they appear in the file. Nothing is collected by the parser itself, so the consumer decides
+   * how much of the file is kept in memory.
+   * 
+   * @param file the file to parse.
+   * @param consumer the consumer that receives the MatchResults.
+   */
+  void parse(File file, Consumer<MatchResult> consumer);
 }
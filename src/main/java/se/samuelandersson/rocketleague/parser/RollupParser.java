@@ -0,0 +1,76 @@
+package se.samuelandersson.rocketleague.parser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.joda.time.LocalDate;
+
+import se.samuelandersson.rocketleague.Rollup;
+import se.samuelandersson.rocketleague.export.RollupExporter;
+import se.samuelandersson.rocketleague.utils.CompressionUtils;
+
+/**
+ * A rollup parser accepts CSV files that were exported using {@link RollupExporter}. Unlike the other parsers, it reads
+ * {@link Rollup}s rather than match results, so it is not a {@link Parser}.
+ *
+ * @author Samuel Andersson
+ */
+public class RollupParser
+{
+  /**
+   * Loads the rollups of a file exported by {@link RollupExporter}.
+   *
+   * @param file the file to load.
+   * @return the rollups of the file, mapped by the first day of their period.
+   * @throws IOException if the file could not be read or is not a valid rollup file.
+   */
+  public SortedMap<LocalDate, Rollup> load(final File file) throws IOException
+  {
+    SortedMap<LocalDate, Rollup> rollups = new TreeMap<>();
+    try (BufferedReader reader = CompressionUtils.newReader(file))
+    {
+      if (!RollupExporter.HEADER.equals(reader.readLine()))
+      {
+        throw new IOException(String.format("Not a rollup file: %s", file.getName()));
+      }
+
+      String line;
+      while ((line = reader.readLine()) != null)
+      {
+        if (!line.isEmpty())
+        {
+          Rollup rollup = parseRow(line);
+          rollups.put(rollup.getStart(), rollup);
+        }
+      }
+    }
+
+    return rollups;
+  }
+
+  private static Rollup parseRow(final String line) throws IOException
+  {
+    String[] values = line.split(",");
+    if (values.length != 6)
+    {
+      throw new IOException(String.format("Invalid rollup row: %s", line));
+    }
+
+    try
+    {
+      return new Rollup(LocalDate.parse(values[0]),
+                        Integer.parseInt(values[1]),
+                        Integer.parseInt(values[2]),
+                        Integer.parseInt(values[3]),
+                        Integer.parseInt(values[4]),
+                        Float.parseFloat(values[5]));
+    }
+    catch (IllegalArgumentException e)
+    {
+      throw new IOException(String.format("Invalid rollup row: %s", line), e);
+    }
+  }
+}
@@ -0,0 +1,240 @@
+package se.samuelandersson.rocketleague.parser;
+
+import org.joda.time.DateTime;
+
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.export.CSVExporter;
+
+/**
+ * Decodes the rows of a CSV file according to the column layout given by its header. The layout is worked out once per
+ * file by {@link #forHeader(String, boolean)}, which maps the columns by name, so the columns may come in any order
+ * and columns that are not recognized are ignored. The "Mu" and "Sigma" columns are optional, every other column of
+ * {@link CSVExporter#HEADER_WITH_MU} is required.
+ * <p>
+ * A row must have exactly one non-empty value per column, just like {@link CSVExporter#ROW_WITH_MU_PATTERN} requires.
+ * The values are split at the commas without using any pattern. A row that does not fit the header but has the number
+ * of values of either layout written by the exporter is decoded in that layout instead, as files that mix the layouts
+ * have always been accepted. A row without the "Mu" and "Sigma" columns gets -1 for both of them.
+ *
+ * @author Samuel Andersson
+ */
+class RowDecoder
+{
+  private static final String DATE = "Date";
+  private static final String TIME = "Time";
+  private static final String PLAYLIST = "PlayList";
+  private static final String MU = "Mu";
+  private static final String SIGMA = "Sigma";
+  private static final String DELTA = "DeltaPoints";
+  private static final String POINTS = "RankPoints";
+
+  private final int columns;
+  private final int date;
+  private final int time;
+  private final int playList;
+  private final int mu;
+  private final int sigma;
+  private final int deltaPoints;
+  private final int rankPoints;
+  private final CSVRowTokenizer tokenizer;
+  private final boolean lenient;
+
+  /** The decoders of the exporter layouts, created when a row does not fit the header. */
+  private RowDecoder layout;
+  private RowDecoder layoutWithMu;
+
+  /** The position following each value of the row being decoded. */
+  private final int[] ends;
+
+  private RowDecoder(final String[] names, final CSVRowTokenizer tokenizer, final boolean lenient)
+  {
+    this.columns = names.length;
+    this.date = indexOf(names, DATE);
+    this.time = indexOf(names, TIME);
+    this.playList = indexOf(names, PLAYLIST);
+    this.mu = indexOf(names, MU);
+    this.sigma = indexOf(names, SIGMA);
+    this.deltaPoints = indexOf(names, DELTA);
+    this.rankPoints = indexOf(names, POINTS);
+    this.tokenizer = tokenizer;
+    this.lenient = lenient;
+    this.ends = new int[columns];
+  }
+
+  /**
+   * Returns a decoder for the rows following the provided header.
+   *
+   * @param header the first line of the file.
+   * @param tokenize true if rows in the format written by {@link CSVExporter} should be decoded by a
+   *          {@link CSVRowTokenizer}, when the header is {@link CSVExporter#HEADER_WITH_MU}.
+   * @return a decoder for the rows, or {@code null} if the header lacks any of the required columns.
+   */
+  static RowDecoder forHeader(final String header, final boolean tokenize)
+  {
+    String[] names = header.split(",", -1);
+    for (int i = 0; i < names.length; i++)
+    {
+      names[i] = names[i].trim();
+    }
+
+    boolean exported = header.equals(CSVExporter.HEADER_WITH_MU);
+    RowDecoder decoder = new RowDecoder(names, tokenize && exported ? new CSVRowTokenizer() : null, true);
+    if (decoder.date < 0 || decoder.time < 0 || decoder.playList < 0 || decoder.deltaPoints < 0
+        || decoder.rankPoints < 0)
+    {
+      return null;
+    }
+
+    return decoder;
+  }
+
+  /**
+   * Decodes a row and counts it in the provided statistics. A row without one value per column, that does not fit either
+   * layout written by the exporter either, is rejected by the prefilter. A row with an empty value is rejected by the
+   * pattern.
+   *
+   * @param line the row to decode.
+   * @param statistics the statistics to count the row in.
+   * @return the MatchResult of the row, or {@code null} if the row does not fit the layout.
+   * @throws Exception if a value of the row could not be converted.
+   */
+  MatchResult decode(final String line, final ParseStatistics statistics) throws Exception
+  {
+    if (tokenizer != null)
+    {
+      MatchResult result = tokenizer.decode(line);
+      if (result != null)
+      {
+        statistics.accepted();
+        return result;
+      }
+    }
+
+    if (!split(line))
+    {
+      RowDecoder fallback = lenient ? getLayout(line) : null;
+      if (fallback == null)
+      {
+        statistics.prefilterRejected();
+        return null;
+      }
+
+      return fallback.decode(line, statistics);
+    }
+
+    for (int i = 0; i < columns; i++)
+    {
+      if (ends[i] == start(i))
+      {
+        statistics.patternRejected();
+        return null;
+      }
+    }
+
+    statistics.accepted();
+
+    DateTime dateTime = new DateTime(value(line, date) + "T" + value(line, time));
+    String playlistStr = value(line, playList);
+    try
+    {
+      int playlist = Integer.parseInt(playlistStr);
+      if (MatchResult.isValidPlayList(playlist))
+      {
+        playlistStr = MatchResult.getPlaylistName(playlist);
+      }
+    }
+    catch (NumberFormatException e)
+    { //Ignore
+    }
+    float muValue = mu < 0 ? -1 : Float.parseFloat(value(line, mu));
+    float sigmaValue = sigma < 0 ? -1 : Float.parseFloat(value(line, sigma));
+    int delta = Integer.parseInt(value(line, deltaPoints));
+    int points = Integer.parseInt(value(line, rankPoints));
+
+    return new MatchResult(dateTime, playlistStr, delta, points, muValue, sigmaValue);
+  }
+
+  /**
+   * Records where each value of the line ends. Returns false if the line does not have one value per column.
+   */
+  private boolean split(final String line)
+  {
+    int column = 0;
+    for (int i = 0; i < line.length(); i++)
+    {
+      if (line.charAt(i) == ',')
+      {
+        if (column == columns - 1)
+        {
+          return false;
+        }
+        ends[column++] = i;
+      }
+    }
+
+    if (column != columns - 1)
+    {
+      return false;
+    }
+
+    ends[column] = line.length();
+    return true;
+  }
+
+  /**
+   * Returns the decoder of the exporter layout with as many values as the line has, or {@code null} if there is none.
+   */
+  private RowDecoder getLayout(final String line)
+  {
+    int values = 1;
+    for (int i = 0; i < line.length(); i++)
+    {
+      if (line.charAt(i) == ',')
+      {
+        values++;
+      }
+    }
+
+    if (values == 5)
+    {
+      if (layout == null)
+      {
+        layout = new RowDecoder(CSVExporter.HEADER.split(","), null, false);
+      }
+      return layout;
+    }
+    else if (values == 7)
+    {
+      if (layoutWithMu == null)
+      {
+        layoutWithMu = new RowDecoder(CSVExporter.HEADER_WITH_MU.split(","), null, false);
+      }
+      return layoutWithMu;
+    }
+
+    return null;
+  }
+
+  private int start(final int column)
+  {
+    return column == 0 ? 0 : ends[column - 1] + 1;
+  }
+
+  private String value(final String line, final int column)
+  {
+    return line.substring(start(column), ends[column]);
+  }
+
+  private static int indexOf(final String[] names, final String name)
+  {
+    for (int i = 0; i < names.length; i++)
+    {
+      if (names[i].equalsIgnoreCase(name))
+      {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+}
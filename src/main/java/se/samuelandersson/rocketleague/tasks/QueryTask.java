@@ -0,0 +1,170 @@
+package se.samuelandersson.rocketleague.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.IntPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.ScannedFiles;
+import se.samuelandersson.rocketleague.export.CSVExporter;
+import se.samuelandersson.rocketleague.export.JSONExporter;
+import se.samuelandersson.rocketleague.parser.BinaryParser;
+import se.samuelandersson.rocketleague.utils.RankTrackerUtils;
+
+/**
+ * A QueryTask writes the match results of a playlist within a range of time, from the results of previous scans. The
+ * results are read from the history file, which is memory-mapped and sorted by time, so the first and the last result
+ * of the range are found by binary search without reading the rest of the history, see
+ * {@link MatchHistory#lowerBound(long)}. The results in the range are then written one at a time, in CSV or JSON
+ * format. The checksum of the history file is not verified, since that would mean reading all of it, see
+ * {@link BinaryParser#load(File, boolean)}.
+ * <p>
+ * Without a history file, or if a CSV file has been modified after the history file was written, the CSV files are
+ * read instead, which means reading every previous result.
+ *
+ * @author Samuel Andersson
+ */
+public class QueryTask implements Task
+{
+  private static final Logger log = LoggerFactory.getLogger(QueryTask.class);
+
+  /** The formats a QueryTask writes the results in. */
+  public enum Format
+  {
+    CSV, JSON
+  }
+
+  private final int playList;
+  private final long fromEpochSecond;
+  private final long toEpochSecond;
+  private final Format format;
+  private final Writer out;
+  private int written;
+
+  /**
+   * Creates a QueryTask that writes the results of the provided playlist from {@code fromEpochSecond}, inclusive, to
+   * {@code toEpochSecond}, exclusive. Use {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE} for a range without a start
+   * or an end.
+   *
+   * @param playList the playlist of the results, or -1 for every playlist.
+   * @param fromEpochSecond the start of the range, in seconds since the epoch.
+   * @param toEpochSecond the end of the range, in seconds since the epoch.
+   * @param format the format to write the results in.
+   * @param out where to write the results. It is flushed, but not closed.
+   */
+  public QueryTask(final int playList, final long fromEpochSecond, final long toEpochSecond, final Format format,
+                   final Writer out)
+  {
+    if (format == null)
+    {
+      throw new NullPointerException("format");
+    }
+    if (out == null)
+    {
+      throw new NullPointerException("out");
+    }
+
+    this.playList = playList;
+    this.fromEpochSecond = fromEpochSecond;
+    this.toEpochSecond = toEpochSecond;
+    this.format = format;
+    this.out = out;
+  }
+
+  @Override
+  public void execute(final ScannedFiles scannedFiles, final File baseFolder, final File rlFolder)
+  {
+    final long started = System.currentTimeMillis();
+    written = 0;
+    MatchHistory history = getHistory(baseFolder);
+    if (history == null)
+    {
+      log.error("No results of previous scans found in {}. Aborting query.", baseFolder.getAbsolutePath());
+      return;
+    }
+
+    int from = history.lowerBound(fromEpochSecond);
+    int to = Math.max(from, history.lowerBound(toEpochSecond));
+    try
+    {
+      written = write(history, from, to);
+      out.flush();
+    }
+    catch (IOException e)
+    {
+      log.error("Error writing the results of the query.", e);
+      return;
+    }
+
+    log.debug("Found {} of {} results in {} ms.", written, history.size(), System.currentTimeMillis() - started);
+  }
+
+  /**
+   * Returns the number of results written by the last execution.
+   *
+   * @return the number of results written by the last execution.
+   */
+  public int getWritten()
+  {
+    return written;
+  }
+
+  /**
+   * Writes the results of the playlist from index {@code from} to index {@code to} of the history.
+   */
+  private int write(final MatchHistory history, final int from, final int to) throws IOException
+  {
+    IntPredicate include = playList < 0 ? i -> true : i -> history.getPlayList(i) == playList;
+    switch (format)
+    {
+      case JSON:
+        return new JSONExporter().write(history, from, to, include, out);
+      default:
+        return new CSVExporter().write(history, from, to, include, out);
+    }
+  }
+
+  /**
+   * Returns the results of previous scans, from the history file if it is up to date, otherwise from the CSV files.
+   * The CSV files are found and read the same way as the scan reads them, see {@link ScanTask#getCSVFolder(File)}.
+   *
+   * @param baseFolder the folder of the history file and the CSV folder.
+   * @return the results of previous scans, or {@code null} if there are none.
+   */
+  protected MatchHistory getHistory(final File baseFolder)
+  {
+    File historyFile = new File(baseFolder, RankTrackerUtils.HISTORY_FILENAME);
+    File csvFolder = ScanTask.getCSVFolder(baseFolder);
+    File[] csvFiles = csvFolder != null ? csvFolder.listFiles() : null;
+    if (csvFiles == null)
+    {
+      csvFiles = new File[0];
+    }
+
+    if (historyFile.exists() && !ScanTask.isModifiedAfter(csvFiles, historyFile))
+    {
+      try
+      {
+        return new BinaryParser().load(historyFile, false);
+      }
+      catch (IOException e)
+      {
+        log.error(String.format("Error reading history file: %s", historyFile.getAbsolutePath()), e);
+      }
+    }
+
+    if (csvFiles.length == 0)
+    {
+      return null;
+    }
+
+    log.debug("No up to date history file found, reading the CSV files instead.");
+    MatchHistory history = new MatchHistory();
+    ScanTask.readCsvFiles(csvFiles, history);
+    return history;
+  }
+}
@@ -3,20 +3,35 @@ package se.samuelandersson.rocketleague.tasks;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import se.samuelandersson.rocketleague.LogFileFingerprint;
+import se.samuelandersson.rocketleague.LogFileState;
+import se.samuelandersson.rocketleague.MatchHistory;
 import se.samuelandersson.rocketleague.MatchResult;
-import se.samuelandersson.rocketleague.MatchResultsWrapper;
+import se.samuelandersson.rocketleague.PlaylistStatistics;
+import se.samuelandersson.rocketleague.Rollup;
 import se.samuelandersson.rocketleague.ScannedFiles;
+import se.samuelandersson.rocketleague.Watermark;
 import se.samuelandersson.rocketleague.export.CSVExporter;
 import se.samuelandersson.rocketleague.parser.CSVParser;
-import se.samuelandersson.rocketleague.parser.LogFileParser;
+import se.samuelandersson.rocketleague.parser.MappedLogFileParser;
 import se.samuelandersson.rocketleague.utils.RankTrackerUtils;
 
 import com.beust.jcommander.internal.Lists;
@@ -27,13 +42,18 @@ import com.beust.jcommander.internal.Lists;
  * 
  * <p>
  * <ol>
- * <li>Import the match results from the CSV files that were created in previous scans.
+ * <li>Import the match results of previous scans, from the history file or the CSV files that were created by them.
  * <li>Scan the Rocket League log folder for new log files that has not yet been parsed.
  * <li>Parse the log files and add any new match results to the list of results.
  * <li>Export the results into different files, depending on the playlist(1v1, solo-3v3, etc)
+ * <li>Roll the results of every playlist up into days, weeks and months, see {@link Rollup}.
+ * <li>Write all results to the history file, for the next scan to import.
+ * <li>Add the new results to the {@link PlaylistStatistics} of their playlists.
  * </ol>
  *
- * Worth noting is that the Launch.log file will always be parsed.
+ * Worth noting is that the Launch.log file will always be parsed, but only the part of it that was added since the
+ * previous scan. The other log files are recognized by their {@link LogFileFingerprint}, so a file that is renamed by
+ * Rocket League is not parsed again. The log files can be parsed concurrently, see {@link Options#parallelism(int)}.
  * 
  * @author Samuel Andersson
  */
@@ -42,10 +62,48 @@ public class ScanTask implements Task
   private static final Logger log = LoggerFactory.getLogger(ScanTask.class);
 
   public static final String DEFAULT_LOGFILE = "Launch.log";
+  public static final String ROLLUP_FOLDER = "rollups";
+
+  private final int parallelism;
+  private final boolean retainHistory;
+  private final boolean offHeap;
+  private final boolean compress;
+  private boolean skipped;
+
+  private MatchHistory history;
+  private File historyFolder;
+
+  /**
+   * Creates a ScanTask with the default {@link Options}, which parses the log files one at a time.
+   */
+  public ScanTask()
+  {
+    this(new Options());
+  }
+
+  /**
+   * Creates a ScanTask with the provided options.
+   * 
+   * @param options the options of the task.
+   */
+  public ScanTask(final Options options)
+  {
+    if (options.parallelism < 1)
+    {
+      throw new IllegalArgumentException(String.format("parallelism must be at least 1: %s", options.parallelism));
+    }
+
+    this.parallelism = options.parallelism;
+    this.retainHistory = options.retainHistory;
+    this.offHeap = options.offHeap;
+    this.compress = options.compress;
+  }
 
   @Override
   public void execute(final ScannedFiles scannedFiles, final File baseFolder, final File rlFolder)
   {
+    final long started = System.currentTimeMillis();
+    skipped = false;
     File csvFolder = getCSVFolder(baseFolder);
     File logFolder = getRLLogFolder(rlFolder);
     if (logFolder == null)
@@ -56,30 +114,212 @@ public class ScanTask implements Task
 
     // read all existing match results from csv files
     File[] csvFiles = csvFolder.listFiles();
-    final SortedSet<MatchResult> results = new TreeSet<>();
 
-    // determine which log files that should be parsed.
+    // determine which log files that should be parsed. What the previous scans parsed is kept, so that the new results
+    // can be parsed again if they could not be exported.
     File[] logFiles = logFolder.listFiles();
+    SortedSet<String> parsedFiles = new TreeSet<>(scannedFiles.getLogFiles());
+    Map<String, LogFileState> states = new TreeMap<>(scannedFiles.getLogFileStates());
+    Map<String, LogFileFingerprint> fingerprints = new TreeMap<>(scannedFiles.getFingerprints());
     final List<File> filesToParse = getFilesToParse(scannedFiles, logFiles);
 
     // Set of files determined, parse them and add the results to the master list.
-    parseLogFiles(filesToParse, results);
+    Supplier<MatchHistory> histories = offHeap ? MatchHistory::offHeap : MatchHistory::new;
+    List<MatchHistory> parsed = parseLogFiles(filesToParse,
+                                              parallelism,
+                                              scannedFiles.getLogFileStates(),
+                                              scannedFiles.getFingerprints(),
+                                              histories);
+    boolean retained = history != null && csvFolder.equals(historyFolder);
+    if (parsed.stream().allMatch(MatchHistory::isEmpty)
+        && isExported(scannedFiles, baseFolder, csvFolder, csvFiles, retained)
+        && RankTrackerUtils.isCurrent(scannedFiles.getStatistics(), scannedFiles.getWatermarks()))
+    {
+      // Nothing new, and the Csv files and the statistics are just as the previous scan left them
+      skipped = true;
+      RankTrackerUtils.writeScannedFilesToFile(scannedFiles, baseFolder);
+      log.info("No new match results found, skipped reading and exporting the {} previous results. Scan took {} ms.",
+               scannedFiles.getWatermarks().values().stream().mapToInt(Watermark::getCount).sum(),
+               System.currentTimeMillis() - started);
+      return;
+    }
 
-    // Read the Csv files afterwards. Any duplicates found here will be ignored.
-    readCsvFiles(csvFiles, results);
+    // The results of every file are sorted already, so they are merged rather than added one by one
+    MatchHistory results = histories.get();
+    results.addAll(parsed);
 
-    // Split the list into multiple list and export them to different files
-    Map<Integer, SortedSet<MatchResult>> splitResults = RankTrackerUtils.separateResults(results);
+    // Read the results of previous scans, from the history kept by a previous execution, the history file or the Csv
+    // files. Just like when reading the Csv files, the results from the log files take precedence over them.
+    MatchHistory previous = retained ? history : RankTrackerUtils.getHistory(baseFolder, histories);
+    boolean exported = retained || (previous != null && !isModifiedAfter(csvFiles, getHistoryFile(baseFolder)));
 
-    // Export the results into the various files
-    RankTrackerUtils.exportFiles(splitResults, new CSVExporter(), csvFolder);
+    // Every previous result is already in the Csv files, so if the new results are later than all of them, they can
+    // just be appended to the files.
+    MatchHistory added = results;
+    boolean append = exported && !previous.isEmpty() && !added.isEmpty()
+                     && added.getEpochSecond(0) > previous.getEpochSecond(previous.size() - 1);
+    if (previous != null)
+    {
+      previous.putAll(added);
+      results = previous;
+    }
+    if (!exported)
+    {
+      // Any duplicates found here will be ignored.
+      readCsvFiles(csvFiles, results);
+    }
+
+    // Split the history into one part per playlist and export them to different files
+    boolean success = append ? RankTrackerUtils.appendFiles(results, added, new CSVExporter(compress), csvFolder)
+                             : RankTrackerUtils.exportFiles(results, new CSVExporter(compress), csvFolder);
+    if (!success)
+    {
+      // Forget the new results, so that the next scan parses them again rather than skipping past them
+      history = null;
+      scannedFiles.getLogFiles().clear();
+      scannedFiles.getLogFiles().addAll(parsedFiles);
+      scannedFiles.getLogFileStates().clear();
+      scannedFiles.getLogFileStates().putAll(states);
+      scannedFiles.getFingerprints().clear();
+      scannedFiles.getFingerprints().putAll(fingerprints);
+      log.error("Could not export the {} new match results, they will be parsed again by the next scan.", added.size());
+      return;
+    }
+
+    if (retainHistory)
+    {
+      history = results;
+      historyFolder = csvFolder;
+    }
 
-    // write list of scanned files to file
+    // Every playlist now has a file in the format asked for, so files left in the other format by scans with the other
+    // compress setting are deleted rather than read along with them.
+    Map<Integer, Watermark> watermarks = RankTrackerUtils.getWatermarks(results);
+    RankTrackerUtils.deleteFiles(new CSVExporter(!compress), watermarks.keySet(), csvFolder);
+
+    // Only the periods of the new results are rolled up again, unless the previous results may not be rolled up
+    File rollupFolder = getRollupFolder(baseFolder);
+    if (rollupFolder != null && exported)
+    {
+      RankTrackerUtils.updateRollups(results, added, watermarks.keySet(), rollupFolder);
+    }
+    else if (rollupFolder != null)
+    {
+      RankTrackerUtils.exportRollups(results, rollupFolder);
+    }
+
+    // write the history and the list of scanned files to file
+    RankTrackerUtils.writeHistoryToFile(results, baseFolder);
+    updateStatistics(scannedFiles, results, added, append);
+    scannedFiles.getWatermarks().clear();
+    scannedFiles.getWatermarks().putAll(watermarks);
     RankTrackerUtils.writeScannedFilesToFile(scannedFiles, baseFolder);
+    log.info("Scanned {} new match results, {} results in total. Scan took {} ms.",
+             added.size(),
+             results.size(),
+             System.currentTimeMillis() - started);
+  }
+
+  /**
+   * Brings the statistics of the ScannedFiles up to date with the results. If the new results are later than every
+   * previous result, and the statistics hold exactly the previous results, only the new results are added to them.
+   * Otherwise the statistics are created from all of the results again. The watermarks of the ScannedFiles must still
+   * describe the previous results.
+   * 
+   * @param scannedFiles the ScannedFiles holding the statistics and the watermarks of the previous results.
+   * @param results all of the results, including the new ones.
+   * @param added the new results.
+   * @param later true if the new results are later than every previous result.
+   */
+  protected void updateStatistics(final ScannedFiles scannedFiles, final MatchHistory results, final MatchHistory added,
+                                  final boolean later)
+  {
+    Map<Integer, PlaylistStatistics> statistics = scannedFiles.getStatistics();
+    if (later && RankTrackerUtils.isCurrent(statistics, scannedFiles.getWatermarks()))
+    {
+      RankTrackerUtils.addStatistics(statistics, added);
+      return;
+    }
+
+    statistics.clear();
+    statistics.putAll(RankTrackerUtils.getStatistics(results));
+  }
+
+  /**
+   * Returns true if the last execution exited early, since no new match results were found.
+   * 
+   * @return true if the last execution exited early.
+   */
+  public boolean isSkipped()
+  {
+    return skipped;
+  }
+
+  /**
+   * Returns true if the results of the previous scan are exported just as the {@link Watermark}s of the ScannedFiles
+   * describe them: the file and the rollups of every playlist with a watermark are present, and no CSV file has been
+   * modified after the history file was written, unless the history is retained in memory.
+   * 
+   * @param scannedFiles the ScannedFiles holding the watermarks.
+   * @param baseFolder the folder of the history file.
+   * @param csvFolder the folder of the CSV files.
+   * @param csvFiles the CSV files of previous scans.
+   * @param retained true if the history of the previous scan is retained in memory.
+   * @return true if the results of the previous scan are exported.
+   */
+  protected boolean isExported(final ScannedFiles scannedFiles, final File baseFolder, final File csvFolder,
+                               final File[] csvFiles, final boolean retained)
+  {
+    CSVExporter exporter = new CSVExporter(compress);
+    File rollupFolder = new File(baseFolder, ROLLUP_FOLDER);
+    for (Integer playList : scannedFiles.getWatermarks().keySet())
+    {
+      if (!RankTrackerUtils.getExportFile(exporter, playList, csvFolder).exists()
+          || !RankTrackerUtils.hasRollups(playList, rollupFolder))
+      {
+        return false;
+      }
+    }
+
+    return retained || !isModifiedAfter(csvFiles, getHistoryFile(baseFolder));
+  }
+
+  /**
+   * Returns true if any of the provided CSV files has been modified after the provided file, in which case the CSV
+   * files may contain results that are not in the history file.
+   * 
+   * @param csvFiles the CSV files of previous scans.
+   * @param file the file to compare with.
+   * @return true if any of the CSV files has been modified after the file.
+   */
+  protected static boolean isModifiedAfter(final File[] csvFiles, final File file)
+  {
+    for (File csvFile : csvFiles)
+    {
+      if (csvFile.isFile() && csvFile.lastModified() > file.lastModified())
+      {
+        log.info("{} was modified after {} was written", csvFile.getName(), file.getName());
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns the file that contains the history of all results, see {@link RankTrackerUtils#getHistory(File)}.
+   * 
+   * @param baseFolder the folder of the file.
+   * @return the history file.
+   */
+  protected File getHistoryFile(final File baseFolder)
+  {
+    return new File(baseFolder, RankTrackerUtils.HISTORY_FILENAME);
   }
 
   /**
    * Removes any files from the {@link ScannedFiles} instance that are not present in the provided list of log files.
+   * The parse states and the fingerprints of those files are removed as well.
    * 
    * @param scannedFiles the scannedFiles instance to remove files from.
    * @param logFiles the log files from the Rocket League log folder.
@@ -87,24 +327,34 @@ public class ScanTask implements Task
   protected void retainLogFiles(final ScannedFiles scannedFiles, final File[] logFiles)
   {
     SortedSet<String> retained = new TreeSet<>();
+    SortedSet<String> present = new TreeSet<>();
     for (File file : logFiles)
     {
       if (!file.getName().equals(DEFAULT_LOGFILE))
       {
         retained.add(file.getName());
       }
+      present.add(file.getName());
     }
     scannedFiles.getLogFiles().retainAll(retained);
+    scannedFiles.getLogFileStates().keySet().retainAll(present);
+    scannedFiles.getFingerprints().keySet().retainAll(present);
   }
 
   /**
-   * Parses a set of CSV files and adds the results to the provided {@link SortedSet}.
+   * Parses a set of CSV files and adds the results to the provided {@link MatchHistory}. Results already present in
+   * the history are ignored, as are results found in an earlier file, at the same time in the same playlist. Every file
+   * is collected into a history of its own first, and all of them are then merged into the provided history in a single
+   * pass, see {@link MatchHistory#addAll(List)}. The histories of the files are kept in the same way as the provided
+   * history, on or off the heap.
    * 
    * @param files the files to parse.
-   * @param results the result set to add the {@link MatchResult}s to.
+   * @param results the history to add the {@link MatchResult}s to.
    */
-  protected void readCsvFiles(final File[] files, final SortedSet<MatchResult> results)
+  protected static void readCsvFiles(final File[] files, final MatchHistory results)
   {
+    CSVParser parser = new CSVParser();
+    List<MatchHistory> fileResults = new ArrayList<>(files.length);
     for (File csvFile : files)
     {
       if (!csvFile.isFile())
@@ -112,14 +362,21 @@ public class ScanTask implements Task
         continue;
       }
 
-      MatchResultsWrapper parser = new MatchResultsWrapper(csvFile, new CSVParser());
-      results.addAll(parser.getResults());
+      MatchHistory fileResult = results.newHistory();
+      parser.parse(csvFile, fileResult::add);
+      fileResults.add(fileResult);
     }
+    results.addAll(fileResults);
   }
 
   /**
    * Based on the previously parsed files and the provided log files, this method determines which new files are to be
    * parsed. Generally, "Launch.log" will always be scanned.
+   * <p>
+   * Any other file is identified by its {@link LogFileFingerprint} rather than its name, since Rocket League renames
+   * the log files on every launch. A file with the fingerprint of a file parsed before is skipped, whatever its name,
+   * and its fingerprint is moved to its current name. A file that is known by name but has no fingerprint, since it was
+   * scanned before fingerprints were recorded or its fingerprint could not be taken, is skipped as well.
    * 
    * @param scannedFiles the {@link ScannedFiles} instance.
    * @param logFiles the Rocket League log files available.
@@ -127,16 +384,36 @@ public class ScanTask implements Task
    */
   protected List<File> getFilesToParse(final ScannedFiles scannedFiles, final File[] logFiles)
   {
+    // The fingerprints have to be collected before any of them is moved, as the files may have swapped names
+    Set<LogFileFingerprint> parsed = new HashSet<>(scannedFiles.getFingerprints().values());
     retainLogFiles(scannedFiles, logFiles);
+    Map<String, LogFileFingerprint> fingerprints = scannedFiles.getFingerprints();
     final List<File> filesToParse = Lists.newArrayList();
     for (File file : logFiles)
     {
       if (file.getName().equals(DEFAULT_LOGFILE))
       {
         filesToParse.add(file);
+        continue;
+      }
+
+      LogFileFingerprint fingerprint = MappedLogFileParser.fingerprint(file);
+      if (fingerprint != null && parsed.contains(fingerprint))
+      {
+        log.debug("{} has already been parsed, skipping it.", file.getName());
+        fingerprints.put(file.getName(), fingerprint);
+        scannedFiles.getLogFiles().add(file.getName());
+      }
+      else if (scannedFiles.getLogFiles().contains(file.getName()) && !fingerprints.containsKey(file.getName()))
+      {
+        if (fingerprint != null)
+        {
+          fingerprints.put(file.getName(), fingerprint);
+        }
       }
-      else if (!scannedFiles.getLogFiles().contains(file.getName()))
+      else
       {
+        // The fingerprint is replaced by the parse, from the content that is actually parsed
         filesToParse.add(file);
         scannedFiles.getLogFiles().add(file.getName());
       }
@@ -162,7 +439,8 @@ public class ScanTask implements Task
       }
       catch (IOException e)
       {
-        log.error(String.format("Error creating file for list of scanned files: %s", scannedFilesFile.getAbsolutePath()),
+        log.error(String.format("Error creating file for list of scanned files: %s",
+                                scannedFilesFile.getAbsolutePath()),
                   e);
         return null;
       }
@@ -172,25 +450,129 @@ public class ScanTask implements Task
   }
 
   /**
-   * Parses a list of Rocket League log files and adds the found {@link MatchResult}s to the provided set of results.
+   * Parses a list of Rocket League log files, up to {@code parallelism} of them concurrently, collecting the results
+   * of every file into a history of its own. Every file gets its own parser, since the parser keeps state about the
+   * file it parses. The histories are returned in the order of the files, whatever order they are parsed in, and can
+   * be merged into a single history without sorting the results again, see {@link MatchHistory#addAll(List)}. When
+   * there is only a single file to parse, that file is split into chunks that are parsed concurrently instead.
+   * <p>
+   * Only the part of each file that was added since the state provided for it was recorded is parsed, and the states
+   * are replaced with ones describing the files after this parse. The fingerprint of the content parsed from every
+   * file is recorded as well.
    * 
    * @param files the files to parse
-   * @param results the result set that any MatchResult is added to.
+   * @param parallelism the maximum number of files to parse concurrently.
+   * @param states the parse states of the files mapped by file name, or {@code null} to parse the files in full.
+   * @param fingerprints the fingerprints of the files mapped by file name, or {@code null}.
+   * @param histories creates the history of each file.
+   * @return the histories of the files that could be parsed, in the order of the files.
    */
-  protected static void parseLogFiles(final List<File> files, final SortedSet<MatchResult> results)
+  protected static List<MatchHistory> parseLogFiles(final List<File> files, final int parallelism,
+                                                    final Map<String, LogFileState> states,
+                                                    final Map<String, LogFileFingerprint> fingerprints,
+                                                    final Supplier<MatchHistory> histories)
   {
-    for (File file : files)
+    List<MatchHistory> results = new ArrayList<>(files.size());
+    if (parallelism <= 1 || files.size() <= 1)
     {
-      if (!file.isFile())
+      for (File file : files)
       {
-        continue;
+        if (file.isFile())
+        {
+          MatchHistory fileResults = histories.get();
+          MappedLogFileParser parser = parseLogFile(file, parallelism, getState(states, file), fileResults::add);
+          update(states, file.getName(), parser.getState());
+          update(fingerprints, file.getName(), parser.getFingerprint());
+          results.add(fileResults);
+        }
+      }
+      return results;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, files.size()));
+    try
+    {
+      List<Future<ParsedLogFile>> futures = new ArrayList<>();
+      for (final File file : files)
+      {
+        if (file.isFile())
+        {
+          final LogFileState previous = getState(states, file);
+          futures.add(executor.submit(() -> {
+            MatchHistory fileResults = histories.get();
+            MappedLogFileParser parser = parseLogFile(file, 1, previous, fileResults::add);
+            return new ParsedLogFile(file.getName(), fileResults, parser.getState(), parser.getFingerprint());
+          }));
+        }
+      }
+
+      for (Future<ParsedLogFile> future : futures)
+      {
+        try
+        {
+          ParsedLogFile parsed = future.get();
+          results.add(parsed.results);
+          update(states, parsed.name, parsed.state);
+          update(fingerprints, parsed.name, parsed.fingerprint);
+        }
+        catch (ExecutionException e)
+        {
+          log.error("Error when parsing log file.", e.getCause());
+        }
       }
+    }
+    catch (InterruptedException e)
+    {
+      log.error("Interrupted while parsing log files.");
+      Thread.currentThread().interrupt();
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
 
-      log.info("Parsing {}", file);
+    return results;
+  }
 
-      SortedSet<MatchResult> matchResults = new MatchResultsWrapper(file, new LogFileParser()).getResults();
-      results.addAll(matchResults);
+  private static LogFileState getState(final Map<String, LogFileState> states, final File file)
+  {
+    return states == null ? null : states.get(file.getName());
+  }
+
+  private static <T> void update(final Map<String, T> values, final String name, final T value)
+  {
+    if (values == null)
+    {
+      return;
+    }
+
+    if (value != null)
+    {
+      values.put(name, value);
     }
+    else
+    {
+      values.remove(name);
+    }
+  }
+
+  /**
+   * Parses a single Rocket League log file with a new parser.
+   * 
+   * @param file the file to parse.
+   * @param parallelism the maximum number of chunks of the file to parse concurrently.
+   * @param previous the state recorded the previous time the file was parsed, or {@code null}.
+   * @param consumer the consumer that receives the results found in the file.
+   * @return the parser, holding the new state and the fingerprint of the file.
+   */
+  private static MappedLogFileParser parseLogFile(final File file, final int parallelism, final LogFileState previous,
+                                                  final Consumer<MatchResult> consumer)
+  {
+    log.info("Parsing {}", file);
+
+    MappedLogFileParser parser = new MappedLogFileParser(parallelism);
+    parser.parse(file, previous, consumer);
+    return parser;
   }
 
   /**
@@ -200,6 +582,22 @@ public class ScanTask implements Task
    * @return the folder for exported CSV files.
    */
   protected static File getCSVFolder(final File baseFolder)
+  {
+    return getFolder(baseFolder, "csv");
+  }
+
+  /**
+   * Returns the folder for exported rollups.
+   * 
+   * @param baseFolder the folder which the rollup folder will be found or created.
+   * @return the folder for exported rollups.
+   */
+  protected static File getRollupFolder(final File baseFolder)
+  {
+    return getFolder(baseFolder, ROLLUP_FOLDER);
+  }
+
+  private static File getFolder(final File baseFolder, final String name)
   {
     if (!baseFolder.exists())
     {
@@ -207,22 +605,22 @@ public class ScanTask implements Task
       return null;
     }
 
-    final File csvFolder = new File(baseFolder, "csv");
-    if (!csvFolder.exists())
+    final File folder = new File(baseFolder, name);
+    if (!folder.exists())
     {
-      log.info("Creating csv folder: {}", csvFolder.getAbsolutePath());
+      log.info("Creating {} folder: {}", name, folder.getAbsolutePath());
       try
       {
-        Files.createDirectories(csvFolder.toPath());
+        Files.createDirectories(folder.toPath());
       }
       catch (IOException e)
       {
-        log.error("Error creating directories to CSV folder");
+        log.error(String.format("Error creating directories to %s folder", name), e);
         return null;
       }
     }
 
-    return csvFolder;
+    return folder;
   }
 
   /**
@@ -241,4 +639,89 @@ public class ScanTask implements Task
     return new File(rlFolder, "Logs");
   }
 
+  /**
+   * The outcome of parsing a single log file.
+   */
+  private static class ParsedLogFile
+  {
+    private final String name;
+    private final MatchHistory results;
+    private final LogFileState state;
+    private final LogFileFingerprint fingerprint;
+
+    private ParsedLogFile(final String name, final MatchHistory results, final LogFileState state,
+                          final LogFileFingerprint fingerprint)
+    {
+      this.name = name;
+      this.results = results;
+      this.state = state;
+      this.fingerprint = fingerprint;
+    }
+  }
+
+  /**
+   * The options of a ScanTask. Only the options that differ from their defaults have to be set, like
+   * {@code new ScanTask(new ScanTask.Options().parallelism(4).compress(true))}.
+   */
+  public static class Options
+  {
+    private int parallelism = 1;
+    private boolean retainHistory;
+    private boolean offHeap;
+    private boolean compress;
+
+    /**
+     * Sets the maximum number of log files to parse concurrently, 1 by default. The results are the same as when
+     * parsing them one at a time.
+     * 
+     * @param parallelism the maximum number of log files to parse concurrently.
+     * @return these options.
+     */
+    public Options parallelism(final int parallelism)
+    {
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Sets whether the results read from the CSV files are kept in memory after the first execution, false by default.
+     * If they are, later executions on the same base folder only parse the log files instead of reading the CSV files
+     * again.
+     * 
+     * @param retainHistory true if the results should be kept in memory between executions.
+     * @return these options.
+     */
+    public Options retainHistory(final boolean retainHistory)
+    {
+      this.retainHistory = retainHistory;
+      return this;
+    }
+
+    /**
+     * Sets whether the results are kept outside of the Java heap, false by default, see {@link MatchHistory#offHeap()}.
+     * Histories of millions of matches can then be scanned with a small heap.
+     * 
+     * @param offHeap true if the results should be kept outside of the Java heap.
+     * @return these options.
+     */
+    public Options offHeap(final boolean offHeap)
+    {
+      this.offHeap = offHeap;
+      return this;
+    }
+
+    /**
+     * Sets whether the CSV files are exported compressed by gzip, false by default, see
+     * {@link CSVExporter#CSVExporter(boolean)}. Compressed and plain CSV files are both read, whichever way they are
+     * exported.
+     * 
+     * @param compress true if the CSV files should be compressed.
+     * @return these options.
+     */
+    public Options compress(final boolean compress)
+    {
+      this.compress = compress;
+      return this;
+    }
+  }
 }
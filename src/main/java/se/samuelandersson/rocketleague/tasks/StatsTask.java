@@ -0,0 +1,149 @@
+package se.samuelandersson.rocketleague.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.PlaylistStatistics;
+import se.samuelandersson.rocketleague.ScannedFiles;
+
+/**
+ * A StatsTask writes the {@link PlaylistStatistics} of the playlists, as a table with one row per playlist:
+ * <p>
+ *
+ * <pre>
+ * PlayList   Matches   Wins WinRate Streak Longest AvgDelta   Peak   Rank       Mu  MuTrend   Sigma SigmaTrend
+ * 1v1            120     64  53.3 %    W3   W7/L5     0.85    780    742  32.1543  +4.5312  2.5011    -5.8311
+ * </pre>
+ *
+ * The statistics are kept up to date by every scan, in the {@link ScannedFiles}, so no results are read, and it takes
+ * just as long however many results there are.
+ *
+ * @author Samuel Andersson
+ */
+public class StatsTask implements Task
+{
+  private static final Logger log = LoggerFactory.getLogger(StatsTask.class);
+
+  private static final String HEADER = String.format("%-10s %7s %6s %7s %6s %7s %8s %6s %6s %8s %8s %7s %10s",
+                                                     "PlayList",
+                                                     "Matches",
+                                                     "Wins",
+                                                     "WinRate",
+                                                     "Streak",
+                                                     "Longest",
+                                                     "AvgDelta",
+                                                     "Peak",
+                                                     "Rank",
+                                                     "Mu",
+                                                     "MuTrend",
+                                                     "Sigma",
+                                                     "SigmaTrend");
+
+  private final int playList;
+  private final Writer out;
+  private int written;
+
+  /**
+   * Creates a StatsTask that writes the statistics of the provided playlist.
+   *
+   * @param playList the playlist of the statistics, or -1 for every playlist.
+   * @param out where to write the statistics. It is flushed, but not closed.
+   */
+  public StatsTask(final int playList, final Writer out)
+  {
+    if (out == null)
+    {
+      throw new NullPointerException("out");
+    }
+
+    this.playList = playList;
+    this.out = out;
+  }
+
+  @Override
+  public void execute(final ScannedFiles scannedFiles, final File baseFolder, final File rlFolder)
+  {
+    written = 0;
+    Map<Integer, PlaylistStatistics> statistics = scannedFiles.getStatistics();
+    if (statistics.isEmpty())
+    {
+      log.error("No statistics found in {}. Scan the log files first.", baseFolder.getAbsolutePath());
+      return;
+    }
+
+    try
+    {
+      out.write(HEADER);
+      for (Entry<Integer, PlaylistStatistics> entry : statistics.entrySet())
+      {
+        if (playList < 0 || entry.getKey() == playList)
+        {
+          out.write(System.lineSeparator());
+          out.write(toString(entry.getKey(), entry.getValue()));
+          written++;
+        }
+      }
+      out.write(System.lineSeparator());
+      out.flush();
+    }
+    catch (IOException e)
+    {
+      log.error("Error writing the statistics.", e);
+    }
+  }
+
+  /**
+   * Returns the number of playlists written by the last execution.
+   *
+   * @return the number of playlists written by the last execution.
+   */
+  public int getWritten()
+  {
+    return written;
+  }
+
+  /**
+   * Returns the row of the table for the statistics of a playlist.
+   *
+   * @param playList the playlist of the statistics.
+   * @param statistics the statistics to format.
+   * @return the row of the table.
+   */
+  protected static String toString(final int playList, final PlaylistStatistics statistics)
+  {
+    final boolean skill = statistics.getSkillMean() >= 0;
+    return String.format(Locale.ROOT,
+                         "%-10s %7d %6d %5.1f %% %6s %7s %8.2f %6d %6d %8s %8s %7s %10s",
+                         MatchResult.getPlaylistName(playList),
+                         statistics.getMatches(),
+                         statistics.getWins(),
+                         statistics.getWinRate() * 100,
+                         toStreak(statistics.getCurrentStreak()),
+                         "W" + statistics.getLongestWinStreak() + "/L" + statistics.getLongestLossStreak(),
+                         statistics.getAverageDeltaPoints(),
+                         statistics.getPeakRank(),
+                         statistics.getCurrentRank(),
+                         skill ? String.format(Locale.ROOT, "%.4f", statistics.getSkillMean()) : "-",
+                         skill ? String.format(Locale.ROOT, "%+.4f", statistics.getSkillMeanTrend()) : "-",
+                         skill ? String.format(Locale.ROOT, "%.4f", statistics.getSkillSigma()) : "-",
+                         skill ? String.format(Locale.ROOT, "%+.4f", statistics.getSkillSigmaTrend()) : "-");
+  }
+
+  private static String toStreak(final int streak)
+  {
+    if (streak == 0)
+    {
+      return "-";
+    }
+
+    return streak > 0 ? "W" + streak : "L" + -streak;
+  }
+}
@@ -0,0 +1,185 @@
+package se.samuelandersson.rocketleague.tasks;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.samuelandersson.rocketleague.ScannedFiles;
+
+/**
+ * A WatchTask keeps running and performs a scan every time something changes in the Rocket League log folder. The scans
+ * are performed by a {@link ScanTask}, which should retain its history between executions so that only the new content
+ * of the log files is parsed, see {@link ScanTask.Options#retainHistory(boolean)}.
+ *
+ * <p>
+ * Rocket League writes to its log continuously while running, so changes tend to come in bursts. A scan is not started
+ * until no change has been seen for the debounce period, and all changes seen until then are handled by that scan.
+ * Since the log is written to during the whole of a match, a scan is never postponed for more than
+ * {@value #MAX_DEBOUNCE_PERIODS} debounce periods after the first change of a burst.
+ *
+ * @author Samuel Andersson
+ */
+public class WatchTask implements Task
+{
+  private static final Logger log = LoggerFactory.getLogger(WatchTask.class);
+
+  public static final long DEFAULT_DEBOUNCE_MILLIS = 2000;
+
+  /** The largest number of debounce periods a scan is postponed for, counted from the first change of a burst. */
+  public static final int MAX_DEBOUNCE_PERIODS = 5;
+
+  private final ScanTask scanTask;
+  private final long debounceMillis;
+
+  private volatile WatchService watchService;
+  private volatile boolean stopped;
+  private volatile int scans;
+
+  /**
+   * Creates a WatchTask that scans using the provided task.
+   *
+   * @param scanTask the task that performs the scans.
+   */
+  public WatchTask(final ScanTask scanTask)
+  {
+    this(scanTask, DEFAULT_DEBOUNCE_MILLIS);
+  }
+
+  /**
+   * Creates a WatchTask that scans using the provided task, once no change has been seen for the debounce period, or at
+   * the latest {@value #MAX_DEBOUNCE_PERIODS} debounce periods after the first change.
+   *
+   * @param scanTask the task that performs the scans.
+   * @param debounceMillis the number of milliseconds without changes to wait for before scanning.
+   */
+  public WatchTask(final ScanTask scanTask, final long debounceMillis)
+  {
+    if (scanTask == null)
+    {
+      throw new NullPointerException("scanTask");
+    }
+
+    this.scanTask = scanTask;
+    this.debounceMillis = debounceMillis;
+  }
+
+  /**
+   * Performs a scan and then watches the Rocket League log folder, scanning again whenever it changes. Does not return
+   * until {@link #stop()} is called, the thread is interrupted or the log folder can no longer be watched.
+   */
+  @Override
+  public void execute(final ScannedFiles scannedFiles, final File baseFolder, final File rlFolder)
+  {
+    File logFolder = ScanTask.getRLLogFolder(rlFolder);
+    if (logFolder == null || !logFolder.isDirectory())
+    {
+      log.error("Error getting folder for log files. Aborting watch.");
+      return;
+    }
+
+    try (WatchService watcher = FileSystems.getDefault().newWatchService())
+    {
+      watchService = watcher;
+      logFolder.toPath().register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+
+      scan(scannedFiles, baseFolder, rlFolder);
+      log.info("Watching {} for changes", logFolder.getAbsolutePath());
+      while (!stopped)
+      {
+        WatchKey key = watcher.take();
+        int events = drain(key);
+
+        // wait until the burst of changes has settled, or has gone on for long enough
+        final long deadline = System.currentTimeMillis() + debounceMillis * MAX_DEBOUNCE_PERIODS;
+        long remaining = deadline - System.currentTimeMillis();
+        while (remaining > 0
+               && (key = watcher.poll(Math.min(debounceMillis, remaining), TimeUnit.MILLISECONDS)) != null)
+        {
+          events += drain(key);
+          remaining = deadline - System.currentTimeMillis();
+        }
+
+        if (!logFolder.isDirectory())
+        {
+          log.error("Log folder {} can no longer be watched. Aborting watch.", logFolder.getAbsolutePath());
+          return;
+        }
+
+        log.debug("{} changes in log folder", events);
+        scan(scannedFiles, baseFolder, rlFolder);
+      }
+    }
+    catch (ClosedWatchServiceException e)
+    { // stopped
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    catch (IOException e)
+    {
+      log.error(String.format("Error watching log folder: %s", logFolder.getAbsolutePath()), e);
+    }
+    finally
+    {
+      watchService = null;
+    }
+
+    log.info("Stopped watching {}", logFolder.getAbsolutePath());
+  }
+
+  /**
+   * Stops the watch. The scan in progress, if any, is allowed to finish.
+   */
+  public void stop()
+  {
+    stopped = true;
+    WatchService watcher = watchService;
+    if (watcher != null)
+    {
+      try
+      {
+        watcher.close();
+      }
+      catch (IOException e)
+      {
+        log.error("Error closing watch service.", e);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of scans performed so far.
+   *
+   * @return the number of scans performed so far.
+   */
+  public int getScans()
+  {
+    return scans;
+  }
+
+  private void scan(final ScannedFiles scannedFiles, final File baseFolder, final File rlFolder)
+  {
+    long start = System.currentTimeMillis();
+    scanTask.execute(scannedFiles, baseFolder, rlFolder);
+    scans++;
+    log.info("Scan finished in {} ms", System.currentTimeMillis() - start);
+  }
+
+  private static int drain(final WatchKey key)
+  {
+    int events = key.pollEvents().size();
+    key.reset();
+    return events;
+  }
+}
@@ -0,0 +1,117 @@
+package se.samuelandersson.rocketleague.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A utility file for reading and writing files that may be gzip compressed. Whether a file is compressed is decided by
+ * its first bytes, never by its name, so a compressed file is read just like any other file wherever these methods are
+ * used.
+ *
+ * @author Samuel Andersson
+ */
+public class CompressionUtils
+{
+  /** The first two bytes of every gzip file. */
+  private static final int GZIP_MAGIC_1 = 0x1f;
+  private static final int GZIP_MAGIC_2 = 0x8b;
+
+  /**
+   * Size of the buffers that files are read and written through. The default buffers of the gzip streams are only 512
+   * bytes, which makes them call the file system, and the inflater or deflater, far too often.
+   */
+  public static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Returns true if the provided file starts with the gzip magic bytes.
+   *
+   * @param file the file to check.
+   * @return true if the file is gzip compressed.
+   * @throws IOException if the file could not be read.
+   */
+  public static boolean isGzip(final File file) throws IOException
+  {
+    try (InputStream in = new FileInputStream(file))
+    {
+      return in.read() == GZIP_MAGIC_1 && in.read() == GZIP_MAGIC_2;
+    }
+  }
+
+  /**
+   * Returns a buffered stream of the content of the provided file, which is decompressed if the file is gzip
+   * compressed.
+   *
+   * @param file the file to read.
+   * @return a stream of the content of the file.
+   * @throws IOException if the file could not be opened.
+   */
+  public static InputStream newInputStream(final File file) throws IOException
+  {
+    InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+    try
+    {
+      in.mark(2);
+      boolean gzip = in.read() == GZIP_MAGIC_1 && in.read() == GZIP_MAGIC_2;
+      in.reset();
+      return gzip ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+    }
+    catch (IOException e)
+    {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a reader of the content of the provided file in the default charset, like a {@link java.io.FileReader}
+   * would, which is decompressed if the file is gzip compressed.
+   *
+   * @param file the file to read.
+   * @return a reader of the content of the file.
+   * @throws IOException if the file could not be opened.
+   */
+  public static BufferedReader newReader(final File file) throws IOException
+  {
+    return new BufferedReader(new InputStreamReader(newInputStream(file), Charset.defaultCharset()), BUFFER_SIZE);
+  }
+
+  /**
+   * Returns a writer to the provided file in the default charset, like a {@link java.io.FileWriter} would, which
+   * optionally compresses what is written.
+   *
+   * @param file the file to write.
+   * @param compress true if the file should be gzip compressed.
+   * @return a writer to the file.
+   * @throws IOException if the file could not be opened.
+   */
+  public static BufferedWriter newWriter(final File file, final boolean compress) throws IOException
+  {
+    OutputStream out = new FileOutputStream(file);
+    try
+    {
+      if (compress)
+      {
+        out = new GZIPOutputStream(out, BUFFER_SIZE);
+      }
+    }
+    catch (IOException e)
+    {
+      out.close();
+      throw e;
+    }
+
+    return new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()), BUFFER_SIZE);
+  }
+}
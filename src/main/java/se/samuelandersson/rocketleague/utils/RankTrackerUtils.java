@@ -1,26 +1,46 @@
 package se.samuelandersson.rocketleague.utils;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
+import org.joda.time.LocalDate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import se.samuelandersson.rocketleague.MatchHistory;
 import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.PlaylistStatistics;
+import se.samuelandersson.rocketleague.Rollup;
+import se.samuelandersson.rocketleague.Rollup.Period;
 import se.samuelandersson.rocketleague.ScannedFiles;
+import se.samuelandersson.rocketleague.Watermark;
+import se.samuelandersson.rocketleague.export.BinaryExporter;
 import se.samuelandersson.rocketleague.export.Exporter;
-
-import com.google.common.io.Files;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import se.samuelandersson.rocketleague.export.RollupExporter;
+import se.samuelandersson.rocketleague.parser.BinaryParser;
+import se.samuelandersson.rocketleague.parser.RollupParser;
 
 /**
  * A utility file for various tasks.
@@ -32,6 +52,10 @@ public class RankTrackerUtils
   private static final Logger log = LoggerFactory.getLogger(RankTrackerUtils.class);
 
   public static final String SCANNEDFILES_FILENAME = "scannedfiles.json";
+  public static final String HISTORY_FILENAME = BinaryExporter.PREFIX + "." + BinaryExporter.SUFFIX;
+
+  /** The largest number of playlists exported concurrently. */
+  private static final int EXPORT_THREADS = Runtime.getRuntime().availableProcessors();
 
   /**
    * Separates the set of results into parts based on the {@link MatchResult#getPlayList()} value.
@@ -58,38 +82,591 @@ public class RankTrackerUtils
   }
 
   /**
-   * Exports the map created in {@link #separateResults(SortedSet)} to files in the provided folder.
+   * Separates the history into parts based on the playlist of the results. The results are appended to the parts in
+   * time order, so no part has to be sorted. The parts keep their results in the same way as the history does, on or
+   * off the heap.
+   * 
+   * @param history the history to separate.
+   * @return a map with playlist integers pointing to histories of match results.
    */
-  public static void exportFiles(Map<Integer, SortedSet<MatchResult>> separated, Exporter exporter, File folder)
+  public static Map<Integer, MatchHistory> separateResults(final MatchHistory history)
+  {
+    Map<Integer, MatchHistory> returnResults = new TreeMap<>();
+
+    for (int i = 0; i < history.size(); i++)
+    {
+      final int playList = history.getPlayList(i);
+      MatchHistory part = returnResults.get(playList);
+      if (part == null)
+      {
+        part = history.newHistory();
+        returnResults.put(playList, part);
+      }
+
+      part.add(history.getEpochSecond(i),
+               playList,
+               history.getDeltaPoints(i),
+               history.getRankPreGame(i),
+               history.getSkillMean(i),
+               history.getSkillSigma(i));
+    }
+
+    return returnResults;
+  }
+
+  /**
+   * Returns the watermark of every playlist in the history: the time of its latest result and its number of results.
+   * 
+   * @param history the history to create watermarks of.
+   * @return a map with playlist integers pointing to watermarks.
+   */
+  public static Map<Integer, Watermark> getWatermarks(final MatchHistory history)
+  {
+    // a playlist is stored as a byte, so every playlist has a slot of its own
+    long[] last = new long[256];
+    int[] counts = new int[256];
+    for (int i = 0; i < history.size(); i++)
+    {
+      final int slot = history.getPlayList(i) & 0xFF;
+      last[slot] = history.getEpochSecond(i);
+      counts[slot]++;
+    }
+
+    Map<Integer, Watermark> watermarks = new TreeMap<>();
+    for (int slot = 0; slot < counts.length; slot++)
+    {
+      if (counts[slot] > 0)
+      {
+        watermarks.put((int) (byte) slot, new Watermark(last[slot], counts[slot]));
+      }
+    }
+
+    return watermarks;
+  }
+
+  /**
+   * Returns the statistics of every playlist in the history, going through every result.
+   * 
+   * @param history the history to create statistics of.
+   * @return a map with playlist integers pointing to statistics.
+   */
+  public static Map<Integer, PlaylistStatistics> getStatistics(final MatchHistory history)
+  {
+    Map<Integer, PlaylistStatistics> statistics = new TreeMap<>();
+    addStatistics(statistics, history);
+    return statistics;
+  }
+
+  /**
+   * Adds the results of the history to the statistics of their playlists, creating statistics for new playlists. The
+   * results must not be earlier than the results the statistics already hold, see {@link #isCurrent(Map, Map)}.
+   * 
+   * @param statistics the statistics to add the results to, mapped by playlist.
+   * @param history the results to add.
+   */
+  public static void addStatistics(final Map<Integer, PlaylistStatistics> statistics, final MatchHistory history)
+  {
+    for (int i = 0; i < history.size(); i++)
+    {
+      final int playList = history.getPlayList(i);
+      PlaylistStatistics playListStatistics = statistics.get(playList);
+      if (playListStatistics == null)
+      {
+        playListStatistics = new PlaylistStatistics();
+        statistics.put(playList, playListStatistics);
+      }
+
+      playListStatistics.add(history, i);
+    }
+  }
+
+  /**
+   * Returns true if the statistics hold exactly the results that the watermarks describe, meaning that the same
+   * playlists are present with the same number of results and the same latest result.
+   * 
+   * @param statistics the statistics, mapped by playlist.
+   * @param watermarks the watermarks, mapped by playlist.
+   * @return true if the statistics are up to date with the watermarks.
+   */
+  public static boolean isCurrent(final Map<Integer, PlaylistStatistics> statistics,
+                                  final Map<Integer, Watermark> watermarks)
+  {
+    if (!statistics.keySet().equals(watermarks.keySet()))
+    {
+      return false;
+    }
+
+    for (Entry<Integer, Watermark> entry : watermarks.entrySet())
+    {
+      PlaylistStatistics playListStatistics = statistics.get(entry.getKey());
+      if (playListStatistics.getMatches() != entry.getValue().getCount()
+          || playListStatistics.getLastEpochSecond() != entry.getValue().getLastEpochSecond())
+      {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the file that the results of the provided playlist are exported to by
+   * {@link #exportFiles(MatchHistory, Exporter, File)}.
+   * 
+   * @param exporter the exporter the results are exported with.
+   * @param playList the playlist.
+   * @param folder the folder the results are exported to.
+   * @return the file of the playlist.
+   */
+  public static File getExportFile(final Exporter exporter, final int playList, final File folder)
+  {
+    return new File(folder, String.format("%s%s.%s",
+                                          exporter.getPrefix(),
+                                          MatchResult.getPlaylistName(playList),
+                                          exporter.getSuffix()));
+  }
+
+  /**
+   * Deletes the files of the provided playlists that the exporter exports to in the provided folder, where they exist.
+   * A file that can not be deleted is logged.
+   * 
+   * @param exporter the exporter of the files.
+   * @param playLists the playlists of the files.
+   * @param folder the folder of the files.
+   */
+  public static void deleteFiles(final Exporter exporter, final Collection<Integer> playLists, final File folder)
+  {
+    for (int playList : playLists)
+    {
+      File file = getExportFile(exporter, playList, folder);
+      try
+      {
+        if (Files.deleteIfExists(file.toPath()))
+        {
+          log.info("Deleted {}", file.getName());
+        }
+      }
+      catch (IOException e)
+      {
+        log.error(String.format("Error deleting %s", file.getAbsolutePath()), e);
+      }
+    }
+  }
+
+  /**
+   * Separates the history using {@link #separateResults(MatchHistory)} and exports every part to a file of its own in
+   * the provided folder. The parts are exported concurrently, see {@link #exportParts(Map, Exporter, File)}.
+   * 
+   * @param history the history to export.
+   * @param exporter the exporter to export the parts with.
+   * @param folder the folder to export to.
+   * @return true if every part was exported.
+   */
+  public static boolean exportFiles(final MatchHistory history, final Exporter exporter, final File folder)
   {
     if (!folder.exists())
     {
       log.error("Folder to export to does not exist: [{}]", folder.getAbsolutePath());
-      return;
+      return false;
     }
 
-    for (Entry<Integer, SortedSet<MatchResult>> entry : separated.entrySet())
+    return exportParts(separateResults(history), exporter, folder);
+  }
+
+  /**
+   * Appends the added results to the files of their playlists in the provided folder, see
+   * {@link Exporter#append(MatchHistory, File)}, so only the added results are exported. A file that can not be
+   * appended to, because it is missing or because an added result is earlier than its last row, is rewritten using
+   * {@link #exportFiles(MatchHistory, Exporter, File)} with every result of its playlist. Files of playlists without
+   * added results are left as they are, unless they are missing.
+   * 
+   * @param history every result, including the added ones.
+   * @param added the results added since the files were last exported.
+   * @param exporter the exporter to append to the files with.
+   * @param folder the folder of the files.
+   * @return true if every file was appended to or rewritten.
+   */
+  public static boolean appendFiles(final MatchHistory history, final MatchHistory added, final Exporter exporter,
+                                    final File folder)
+  {
+    if (!folder.exists())
+    {
+      log.error("Folder to export to does not exist: [{}]", folder.getAbsolutePath());
+      return false;
+    }
+
+    // playlists whose files are missing have nothing to append to
+    Map<Integer, MatchHistory> appended = separateResults(added);
+    Set<Integer> checked = new HashSet<>(appended.keySet());
+    for (int i = 0; i < history.size(); i++)
+    {
+      final int playList = history.getPlayList(i);
+      if (checked.add(playList) && !getExportFile(exporter, playList, folder).exists())
+      {
+        appended.put(playList, null);
+      }
+    }
+
+    Map<Integer, MatchHistory> separated = null;
+    Map<Integer, MatchHistory> rewritten = new TreeMap<>();
+
+    for (Entry<Integer, MatchHistory> entry : appended.entrySet())
     {
+      File file = getExportFile(exporter, entry.getKey(), folder);
       try
       {
-        File outTemp = File.createTempFile("logparser-result-" + MatchResult.getPlaylistName(entry.getKey()), null);
-        exporter.export(entry.getValue(), outTemp);
+        if (entry.getValue() != null && file.exists() && exporter.append(entry.getValue(), file))
+        {
+          log.debug("Appended {} to {}", entry.getValue(), file.getName());
+          continue;
+        }
+      }
+      catch (IOException e)
+      {
+        log.error(String.format("Error when appending results to %s, rewriting it.", file.getName()), e);
+      }
+
+      if (separated == null)
+      {
+        separated = separateResults(history);
+      }
+      rewritten.put(entry.getKey(), separated.get(entry.getKey()));
+    }
+
+    return rewritten.isEmpty() || exportParts(rewritten, exporter, folder);
+  }
+
+  /**
+   * Separates the history using {@link #separateResults(MatchHistory)} and exports the {@link Rollup}s of every part,
+   * of every {@link Period}, to files of their own in the provided folder, see {@link RollupExporter}.
+   * 
+   * @param history the history to roll up.
+   * @param folder the folder to export to.
+   */
+  public static void exportRollups(final MatchHistory history, final File folder)
+  {
+    if (!folder.exists())
+    {
+      log.error("Folder to export to does not exist: [{}]", folder.getAbsolutePath());
+      return;
+    }
+
+    Map<Integer, MatchHistory> separated = separateResults(history);
+    for (Period period : Period.values())
+    {
+      exportParts(separated, new RollupExporter(period), folder);
+    }
+  }
+
+  /**
+   * Updates the {@link Rollup} files in the provided folder with the added results, rolling up only the periods that
+   * the added results are in. Every day with an added result is rolled up again from the results of that day in the
+   * history, which are found by binary search, and every week and month with such a day is rolled up again from the
+   * days. A missing week or month file is rolled up again from the day file, even if the playlist has no added results.
+   * The files of a playlist whose day file is missing or can not be read are exported again from every result of the
+   * playlist, see {@link #exportRollups(MatchHistory, File)}.
+   * 
+   * @param history every result, including the added ones.
+   * @param added the results added since the rollups were last updated.
+   * @param playLists the playlists of the history, like the playlists of its {@link #getWatermarks(MatchHistory)}.
+   * @param folder the folder of the files.
+   */
+  public static void updateRollups(final MatchHistory history, final MatchHistory added,
+                                   final Collection<Integer> playLists, final File folder)
+  {
+    if (!folder.exists())
+    {
+      log.error("Folder to export to does not exist: [{}]", folder.getAbsolutePath());
+      return;
+    }
 
-        File out = new File(folder, String.format("%s%s.%s",
-                                                  exporter.getPrefix(),
-                                                  MatchResult.getPlaylistName(entry.getKey()),
-                                                  exporter.getSuffix()));
-        Files.move(outTemp, out);
+    RollupExporter dayExporter = new RollupExporter(Period.DAY);
+    Map<Integer, MatchHistory> updated = separateResults(added);
+    Set<Integer> checked = new TreeSet<>(playLists);
+    checked.addAll(updated.keySet());
+    Set<Integer> rewritten = new HashSet<>();
+    for (int playList : checked)
+    {
+      MatchHistory part = updated.get(playList);
+      try
+      {
+        if (getExportFile(dayExporter, playList, folder).exists())
+        {
+          if (part != null || !hasRollups(playList, folder))
+          {
+            updateRollups(history, part != null ? part : added.newHistory(), playList, folder);
+          }
+          continue;
+        }
       }
       catch (IOException e)
       {
-        log.error(String.format("Error when exporting results to file. %s"), e);
+        log.error(String.format("Error when updating the rollups of %s, rewriting them.",
+                                MatchResult.getPlaylistName(playList)), e);
+      }
+
+      rewritten.add(playList);
+    }
+
+    if (!rewritten.isEmpty())
+    {
+      Map<Integer, MatchHistory> separated = separateResults(history);
+      separated.keySet().retainAll(rewritten);
+      for (Period period : Period.values())
+      {
+        exportParts(separated, new RollupExporter(period), folder);
       }
     }
   }
 
   /**
-   * Writes the provided ScannedFiles object to a file in the provided folder.
+   * Returns true if the rollup files of every {@link Period} of the playlist exist in the provided folder.
+   * 
+   * @param playList the playlist of the files.
+   * @param folder the folder of the files.
+   * @return true if all rollup files of the playlist exist.
+   */
+  public static boolean hasRollups(final int playList, final File folder)
+  {
+    for (Period period : Period.values())
+    {
+      if (!getExportFile(new RollupExporter(period), playList, folder).exists())
+      {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Updates the rollup files of a playlist with the added results of the playlist, see
+   * {@link #updateRollups(MatchHistory, MatchHistory, Collection, File)}. The week and month files that are missing are
+   * rolled up from the days, and the day file is only written again if there are added results.
+   */
+  private static void updateRollups(final MatchHistory history, final MatchHistory added, final int playList,
+                                    final File folder) throws IOException
+  {
+    RollupParser parser = new RollupParser();
+    RollupExporter dayExporter = new RollupExporter(Period.DAY);
+    SortedMap<LocalDate, Rollup> days = parser.load(getExportFile(dayExporter, playList, folder));
+    Set<LocalDate> touched = RollupUtils.getDays(added, 0, added.size(), -1).keySet();
+    for (LocalDate day : touched)
+    {
+      final int from = history.lowerBound(RollupUtils.toEpochSecond(day));
+      final int to = history.lowerBound(RollupUtils.toEpochSecond(day.plusDays(1)));
+      Rollup rollup = RollupUtils.getDays(history, from, to, playList).get(day);
+      if (rollup == null)
+      {
+        days.remove(day);
+      }
+      else
+      {
+        days.put(day, rollup);
+      }
+    }
+    if (!touched.isEmpty())
+    {
+      exportRollupFile(days.values(), dayExporter, playList, folder);
+    }
+
+    // the coarser periods are rolled up from the days, and only the periods that a touched day is in
+    for (Period period : new Period[] { Period.WEEK, Period.MONTH })
+    {
+      RollupExporter exporter = new RollupExporter(period);
+      File file = getExportFile(exporter, playList, folder);
+      if (!file.exists())
+      {
+        exportRollupFile(RollupUtils.rollUp(days, period).values(), exporter, playList, folder);
+        continue;
+      }
+      if (touched.isEmpty())
+      {
+        continue;
+      }
+
+      SortedMap<LocalDate, Rollup> rollups = parser.load(file);
+      for (LocalDate day : touched)
+      {
+        LocalDate start = period.start(day);
+        Rollup rollup = RollupUtils.rollUp(days, period, start);
+        if (rollup == null)
+        {
+          rollups.remove(start);
+        }
+        else
+        {
+          rollups.put(start, rollup);
+        }
+      }
+      exportRollupFile(rollups.values(), exporter, playList, folder);
+    }
+  }
+
+  /**
+   * Exports rollups to a temporary file in the provided folder, which then replaces the file of the playlist, just like
+   * {@link #exportFile(MatchHistory, int, Exporter, File)} does.
+   */
+  private static void exportRollupFile(final Collection<Rollup> rollups, final RollupExporter exporter,
+                                       final int playList, final File folder) throws IOException
+  {
+    File file = getExportFile(exporter, playList, folder);
+    Path temp = null;
+    try
+    {
+      temp = File.createTempFile("logparser-rollup-" + MatchResult.getPlaylistName(playList),
+                                 null,
+                                 getTempFolder(folder)).toPath();
+      exporter.export(rollups, temp.toFile());
+      Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    finally
+    {
+      deleteQuietly(temp);
+    }
+  }
+
+  /**
+   * Exports every part to the file of its playlist in the provided folder. The parts are exported concurrently, by at
+   * most as many threads as there are processors, so exporting them takes about as long as exporting the largest one.
+   * A part that fails to be exported is logged and does not stop the others. Ends with a summary of the export.
+   * 
+   * @return true if every part was exported.
+   */
+  private static boolean exportParts(final Map<Integer, MatchHistory> parts, final Exporter exporter, final File folder)
+  {
+    final long started = System.currentTimeMillis();
+    int exported = 0;
+    int results = 0;
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parts.size(), EXPORT_THREADS)));
+    try
+    {
+      List<Future<Boolean>> futures = new ArrayList<>(parts.size());
+      for (Entry<Integer, MatchHistory> entry : parts.entrySet())
+      {
+        futures.add(executor.submit(() -> exportFile(entry.getValue(), entry.getKey(), exporter, folder)));
+      }
+
+      int i = 0;
+      for (MatchHistory part : parts.values())
+      {
+        try
+        {
+          if (futures.get(i++).get())
+          {
+            exported++;
+            results += part.size();
+          }
+        }
+        catch (ExecutionException e)
+        {
+          log.error("Error when exporting results to file.", e.getCause());
+        }
+      }
+    }
+    catch (InterruptedException e)
+    {
+      log.error("Interrupted while exporting results to file.");
+      Thread.currentThread().interrupt();
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    if (exported < parts.size())
+    {
+      log.warn("Failed to export {} of {} playlists to {}",
+               parts.size() - exported,
+               parts.size(),
+               folder.getAbsolutePath());
+    }
+    log.info("Exported {} results in {} playlists in {} ms", results, exported, System.currentTimeMillis() - started);
+    return exported == parts.size();
+  }
+
+  /**
+   * Exports a part to a temporary file in the provided folder, which then replaces the file of the playlist, so the
+   * file is never left half written.
+   * 
+   * @return true if the part was exported.
+   */
+  private static boolean exportFile(final MatchHistory part, final int playList, final Exporter exporter,
+                                    final File folder)
+  {
+    File file = getExportFile(exporter, playList, folder);
+    Path temp = null;
+    try
+    {
+      temp = File.createTempFile("logparser-result-" + MatchResult.getPlaylistName(playList),
+                                 null,
+                                 getTempFolder(folder)).toPath();
+      exporter.export(part, temp.toFile());
+      Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      return true;
+    }
+    catch (IOException e)
+    {
+      log.error(String.format("Error when exporting results to %s", file.getName()), e);
+      return false;
+    }
+    finally
+    {
+      deleteQuietly(temp);
+    }
+  }
+
+  /**
+   * Returns the folder that files being exported to the provided folder are written to before they are moved in place.
+   * That is the parent of the folder, since the scan and the query read every file in the CSV folder, and would
+   * otherwise read a file that is still being written. The parent is on the same file system, so the files can still
+   * be moved atomically.
+   */
+  private static File getTempFolder(final File folder)
+  {
+    File parent = folder.getAbsoluteFile().getParentFile();
+    return parent != null ? parent : folder;
+  }
+
+  private static void deleteQuietly(final Path file)
+  {
+    try
+    {
+      if (file != null)
+      {
+        Files.deleteIfExists(file);
+      }
+    }
+    catch (IOException e)
+    {
+      log.warn("Could not delete temporary file {}", file);
+    }
+  }
+
+  /**
+   * Exports the map created in {@link #separateResults(SortedSet)} to files in the provided folder, concurrently, see
+   * {@link #exportParts(Map, Exporter, File)}.
+   */
+  public static void exportFiles(Map<Integer, SortedSet<MatchResult>> separated, Exporter exporter, File folder)
+  {
+    if (!folder.exists())
+    {
+      log.error("Folder to export to does not exist: [{}]", folder.getAbsolutePath());
+      return;
+    }
+
+    Map<Integer, MatchHistory> parts = new TreeMap<>();
+    for (Entry<Integer, SortedSet<MatchResult>> entry : separated.entrySet())
+    {
+      parts.put(entry.getKey(), MatchHistory.of(entry.getValue()));
+    }
+    exportParts(parts, exporter, folder);
+  }
+
+  /**
+   * Writes the provided ScannedFiles object to a file in the provided folder, see {@link ScannedFilesCodec}. The object
+   * is written to a temporary file in the folder first, which then replaces the file, so the file is never left half
+   * written.
    * 
    * @param scannedFiles the instance to save to file.
    * @param baseFolder the folder which the file will be located in.
@@ -102,16 +679,90 @@ public class RankTrackerUtils
     }
     File scannedFilesFile = new File(baseFolder, SCANNEDFILES_FILENAME);
 
-    Gson gson = new GsonBuilder().setPrettyPrinting().create();
-    try (BufferedWriter writer = new BufferedWriter(new FileWriter(scannedFilesFile)))
+    log.info("Writing list of scanned files to {}", scannedFilesFile.getAbsolutePath());
+    Path temp = null;
+    try
     {
-      log.info("Writing list of scanned files to {}", scannedFilesFile.getAbsolutePath());
-      String json = gson.toJson(scannedFiles, ScannedFiles.class);
-      writer.write(json);
+      temp = File.createTempFile("logparser-scannedfiles", null, baseFolder).toPath();
+      try (Writer writer = Files.newBufferedWriter(temp, Charset.defaultCharset()))
+      {
+        ScannedFilesCodec.write(scannedFiles, writer);
+      }
+      Files.move(temp, scannedFilesFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
     catch (IOException e)
     {
-      log.error(String.format("Error writing list of scanned files to file: %s", scannedFilesFile.getAbsolutePath()), e);
+      log.error(String.format("Error writing list of scanned files to file: %s", scannedFilesFile.getAbsolutePath()),
+                e);
+    }
+    finally
+    {
+      deleteQuietly(temp);
+    }
+  }
+
+  /**
+   * Writes the provided history to the history file in the provided folder, using a {@link BinaryExporter}.
+   * 
+   * @param history the history to save to file.
+   * @param baseFolder the folder which the file will be located in.
+   */
+  public static void writeHistoryToFile(final MatchHistory history, final File baseFolder)
+  {
+    if (history == null || baseFolder == null)
+    {
+      return;
+    }
+    File historyFile = new File(baseFolder, HISTORY_FILENAME);
+
+    try
+    {
+      log.info("Writing history of {} to {}", history, historyFile.getAbsolutePath());
+      new BinaryExporter().export(history, historyFile);
+    }
+    catch (IOException e)
+    {
+      log.error(String.format("Error writing history to file: %s", historyFile.getAbsolutePath()), e);
+    }
+  }
+
+  /**
+   * Reads the history file in the provided folder, written by {@link #writeHistoryToFile(MatchHistory, File)}, into a
+   * history kept on the Java heap. See {@link #getHistory(File, Supplier)}.
+   * 
+   * @param baseFolder the folder to look for the history file in.
+   * @return the history read from the file, or {@code null} if the file was not found or could not be read.
+   */
+  public static MatchHistory getHistory(final File baseFolder)
+  {
+    return getHistory(baseFolder, MatchHistory::new);
+  }
+
+  /**
+   * Reads the history file in the provided folder, written by {@link #writeHistoryToFile(MatchHistory, File)}, into a
+   * history from the provided supplier, see {@link BinaryParser#read(File, MatchHistory)}. The file is not kept open
+   * or mapped, so the history file can be written again while the history is in use.
+   * 
+   * @param baseFolder the folder to look for the history file in.
+   * @param histories the supplier of the history to read the results into.
+   * @return the history read from the file, or {@code null} if the file was not found or could not be read.
+   */
+  public static MatchHistory getHistory(final File baseFolder, final Supplier<MatchHistory> histories)
+  {
+    File historyFile = new File(baseFolder, HISTORY_FILENAME);
+    if (!historyFile.exists())
+    {
+      return null;
+    }
+
+    try
+    {
+      return new BinaryParser().read(historyFile, histories.get());
+    }
+    catch (IOException e)
+    {
+      log.error(String.format("Error reading history file: %s", historyFile.getAbsolutePath()), e);
+      return null;
     }
   }
 
@@ -124,32 +775,22 @@ public class RankTrackerUtils
    */
   public static ScannedFiles getScannedFiles(final File baseFolder)
   {
-    ScannedFiles scannedFiles = null;
     File scannedFilesFile = new File(baseFolder, SCANNEDFILES_FILENAME);
-    Gson gson = new GsonBuilder().create();
-    if (!scannedFilesFile.exists())
+    if (!scannedFilesFile.exists() || scannedFilesFile.length() == 0)
     {
-      scannedFiles = new ScannedFiles();
+      return new ScannedFiles();
     }
-    else
-    {
-      try
-      {
-        scannedFiles = gson.fromJson(new FileReader(scannedFilesFile), ScannedFiles.class);
-      }
-      catch (final Exception e)
-      {
-        log.error(String.format("Error parsing file for list of scanned files: %s", scannedFilesFile.getAbsolutePath()),
-                  e);
-      }
 
-      if (scannedFiles == null)
-      {
-        return new ScannedFiles();
-      }
+    try (Reader reader = Files.newBufferedReader(scannedFilesFile.toPath(), Charset.defaultCharset()))
+    {
+      return ScannedFilesCodec.read(reader);
+    }
+    catch (final Exception e)
+    {
+      log.error(String.format("Error parsing file for list of scanned files: %s", scannedFilesFile.getAbsolutePath()),
+                e);
+      return new ScannedFiles();
     }
-
-    return scannedFiles;
   }
 
 }
@@ -0,0 +1,120 @@
+package se.samuelandersson.rocketleague.utils;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.joda.time.LocalDate;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.Rollup;
+import se.samuelandersson.rocketleague.Rollup.Period;
+
+/**
+ * Rolls up match results into {@link Rollup}s. The results are only ever rolled up into days, and the weeks and
+ * months are rolled up from the days, so they never go through the results again.
+ *
+ * @author Samuel Andersson
+ */
+public class RollupUtils
+{
+  /**
+   * Returns the daily rollups of the results from index {@code from}, inclusive, to index {@code to}, exclusive, of the
+   * history, mapped by day.
+   *
+   * @param history the history of the results.
+   * @param from the index of the first result.
+   * @param to the index following the last result.
+   * @param playList the playlist of the results to roll up, or -1 for every result.
+   * @return the daily rollups, mapped by day.
+   */
+  public static SortedMap<LocalDate, Rollup> getDays(final MatchHistory history, final int from, final int to,
+                                                     final int playList)
+  {
+    SortedMap<LocalDate, Rollup> days = new TreeMap<>();
+    Rollup day = null;
+    long dayEnd = 0;
+    for (int i = from; i < to; i++)
+    {
+      if (playList >= 0 && history.getPlayList(i) != playList)
+      {
+        continue;
+      }
+
+      // the results are sorted by time, so the day only has to be looked up when the current one has ended
+      final long epochSecond = history.getEpochSecond(i);
+      if (day == null || epochSecond >= dayEnd)
+      {
+        LocalDate date = new LocalDate(epochSecond * 1000);
+        day = new Rollup(date);
+        days.put(date, day);
+        dayEnd = toEpochSecond(date.plusDays(1));
+      }
+
+      day.add(history, i);
+    }
+
+    return days;
+  }
+
+  /**
+   * Rolls up the provided daily rollups into rollups of a coarser period, mapped by the first day of the period.
+   *
+   * @param days the daily rollups, mapped by day.
+   * @param period the period to roll up into.
+   * @return the rollups of the period, mapped by the first day of the period.
+   */
+  public static SortedMap<LocalDate, Rollup> rollUp(final SortedMap<LocalDate, Rollup> days, final Period period)
+  {
+    SortedMap<LocalDate, Rollup> rollups = new TreeMap<>();
+    for (Rollup day : days.values())
+    {
+      LocalDate start = period.start(day.getStart());
+      Rollup rollup = rollups.get(start);
+      if (rollup == null)
+      {
+        rollup = new Rollup(start);
+        rollups.put(start, rollup);
+      }
+
+      rollup.add(day);
+    }
+
+    return rollups;
+  }
+
+  /**
+   * Rolls up the provided daily rollups within the period starting at the provided day.
+   *
+   * @param days the daily rollups, mapped by day.
+   * @param period the period to roll up into.
+   * @param start the first day of the period.
+   * @return the rollup of the period, or {@code null} if there are no daily rollups within it.
+   */
+  public static Rollup rollUp(final SortedMap<LocalDate, Rollup> days, final Period period, final LocalDate start)
+  {
+    SortedMap<LocalDate, Rollup> within = days.subMap(start, period.next(start));
+    if (within.isEmpty())
+    {
+      return null;
+    }
+
+    Rollup rollup = new Rollup(start);
+    for (Rollup day : within.values())
+    {
+      rollup.add(day);
+    }
+
+    return rollup;
+  }
+
+  /**
+   * Returns the start of the provided day, in the default time zone, in seconds since the epoch.
+   *
+   * @param day the day.
+   * @return the start of the day, in seconds since the epoch.
+   */
+  public static long toEpochSecond(final LocalDate day)
+  {
+    return Math.floorDiv(day.toDateTimeAtStartOfDay().getMillis(), 1000);
+  }
+}
@@ -0,0 +1,363 @@
+package se.samuelandersson.rocketleague.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map.Entry;
+
+import se.samuelandersson.rocketleague.LogFileFingerprint;
+import se.samuelandersson.rocketleague.LogFileState;
+import se.samuelandersson.rocketleague.PlaylistStatistics;
+import se.samuelandersson.rocketleague.ScannedFiles;
+import se.samuelandersson.rocketleague.Watermark;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes {@link ScannedFiles} as JSON, one token at a time, without reflection and without building the
+ * whole document in memory. The JSON is the same as Gson writes for a ScannedFiles object, so files written by either
+ * can be read by the other:
+ *
+ * <pre>
+ * {
+ *   "logFiles": [ "Launch_2.log" ],
+ *   "logFileStates": { "Launch.log": { "offset": 1034, "logStart": 1443116065000, "prefixChecksum": 2361516553 } },
+ *   "fingerprints": { "Launch_2.log": { "logStart": 1443116065000, "size": 1034, "prefixChecksum": 2361516553 } },
+ *   "watermarks": { "10": { "lastEpochSecond": 1443116165, "count": 3 } },
+ *   "statistics": { "10": { "lastEpochSecond": 1443116165, "matches": 3, "wins": 2, "currentStreak": -1, ... } }
+ * }
+ * </pre>
+ *
+ * Members that are not known are skipped, as are {@code null} values.
+ *
+ * @author Samuel Andersson
+ */
+public class ScannedFilesCodec
+{
+  private static final String LOG_FILES = "logFiles";
+  private static final String LOG_FILE_STATES = "logFileStates";
+  private static final String FINGERPRINTS = "fingerprints";
+  private static final String WATERMARKS = "watermarks";
+  private static final String STATISTICS = "statistics";
+
+  /**
+   * Reads a ScannedFiles object from the provided reader.
+   *
+   * @param in the reader to read the JSON from.
+   * @return the read ScannedFiles object.
+   * @throws IOException if the JSON could not be read, or is malformed.
+   */
+  public static ScannedFiles read(final Reader in) throws IOException
+  {
+    ScannedFiles scannedFiles = new ScannedFiles();
+    JsonReader reader = new JsonReader(in);
+    reader.beginObject();
+    while (reader.hasNext())
+    {
+      String name = reader.nextName();
+      if (reader.peek() == JsonToken.NULL)
+      {
+        reader.nextNull();
+      }
+      else if (LOG_FILES.equals(name))
+      {
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+          scannedFiles.getLogFiles().add(reader.nextString());
+        }
+        reader.endArray();
+      }
+      else if (LOG_FILE_STATES.equals(name))
+      {
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+          scannedFiles.getLogFileStates().put(reader.nextName(), readLogFileState(reader));
+        }
+        reader.endObject();
+      }
+      else if (FINGERPRINTS.equals(name))
+      {
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+          scannedFiles.getFingerprints().put(reader.nextName(), readFingerprint(reader));
+        }
+        reader.endObject();
+      }
+      else if (WATERMARKS.equals(name))
+      {
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+          String playList = reader.nextName();
+          scannedFiles.getWatermarks().put(toPlayList(playList, "watermark"), readWatermark(reader));
+        }
+        reader.endObject();
+      }
+      else if (STATISTICS.equals(name))
+      {
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+          String playList = reader.nextName();
+          scannedFiles.getStatistics().put(toPlayList(playList, "statistics"), readStatistics(reader));
+        }
+        reader.endObject();
+      }
+      else
+      {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    return scannedFiles;
+  }
+
+  /**
+   * Writes the provided ScannedFiles object to the provided writer. The JSON is not indented, since the file is hardly
+   * ever read by a person but may hold thousands of entries. The writer is flushed, but not closed.
+   *
+   * @param scannedFiles the ScannedFiles object to write.
+   * @param out the writer to write the JSON to.
+   * @throws IOException if the JSON could not be written.
+   */
+  public static void write(final ScannedFiles scannedFiles, final Writer out) throws IOException
+  {
+    JsonWriter writer = new JsonWriter(out);
+    writer.beginObject();
+
+    writer.name(LOG_FILES).beginArray();
+    for (String logFile : scannedFiles.getLogFiles())
+    {
+      writer.value(logFile);
+    }
+    writer.endArray();
+
+    writer.name(LOG_FILE_STATES).beginObject();
+    for (Entry<String, LogFileState> entry : scannedFiles.getLogFileStates().entrySet())
+    {
+      LogFileState state = entry.getValue();
+      writer.name(entry.getKey()).beginObject();
+      writer.name("offset").value(state.getOffset());
+      writer.name("logStart").value(state.getLogStart());
+      writer.name("prefixChecksum").value(state.getPrefixChecksum());
+      writer.endObject();
+    }
+    writer.endObject();
+
+    writer.name(FINGERPRINTS).beginObject();
+    for (Entry<String, LogFileFingerprint> entry : scannedFiles.getFingerprints().entrySet())
+    {
+      LogFileFingerprint fingerprint = entry.getValue();
+      writer.name(entry.getKey()).beginObject();
+      writer.name("logStart").value(fingerprint.getLogStart());
+      writer.name("size").value(fingerprint.getSize());
+      writer.name("prefixChecksum").value(fingerprint.getPrefixChecksum());
+      writer.endObject();
+    }
+    writer.endObject();
+
+    writer.name(WATERMARKS).beginObject();
+    for (Entry<Integer, Watermark> entry : scannedFiles.getWatermarks().entrySet())
+    {
+      Watermark watermark = entry.getValue();
+      writer.name(entry.getKey().toString()).beginObject();
+      writer.name("lastEpochSecond").value(watermark.getLastEpochSecond());
+      writer.name("count").value(watermark.getCount());
+      writer.endObject();
+    }
+    writer.endObject();
+
+    writer.name(STATISTICS).beginObject();
+    for (Entry<Integer, PlaylistStatistics> entry : scannedFiles.getStatistics().entrySet())
+    {
+      PlaylistStatistics statistics = entry.getValue();
+      writer.name(entry.getKey().toString()).beginObject();
+      writer.name("lastEpochSecond").value(statistics.getLastEpochSecond());
+      writer.name("matches").value(statistics.getMatches());
+      writer.name("wins").value(statistics.getWins());
+      writer.name("currentStreak").value(statistics.getCurrentStreak());
+      writer.name("longestWinStreak").value(statistics.getLongestWinStreak());
+      writer.name("longestLossStreak").value(statistics.getLongestLossStreak());
+      writer.name("deltaPoints").value(statistics.getDeltaPoints());
+      writer.name("peakRank").value(statistics.getPeakRank());
+      writer.name("currentRank").value(statistics.getCurrentRank());
+      writer.name("firstSkillMean").value(Float.valueOf(statistics.getFirstSkillMean()));
+      writer.name("firstSkillSigma").value(Float.valueOf(statistics.getFirstSkillSigma()));
+      writer.name("skillMean").value(Float.valueOf(statistics.getSkillMean()));
+      writer.name("skillSigma").value(Float.valueOf(statistics.getSkillSigma()));
+      writer.endObject();
+    }
+    writer.endObject();
+
+    writer.endObject();
+    writer.flush();
+  }
+
+  private static int toPlayList(final String playList, final String member) throws IOException
+  {
+    try
+    {
+      return Integer.parseInt(playList);
+    }
+    catch (NumberFormatException e)
+    {
+      throw new IOException(String.format("Invalid playlist of %s: %s", member, playList), e);
+    }
+  }
+
+  private static LogFileState readLogFileState(final JsonReader reader) throws IOException
+  {
+    long offset = 0;
+    long logStart = 0;
+    long prefixChecksum = 0;
+    reader.beginObject();
+    while (reader.hasNext())
+    {
+      switch (reader.nextName())
+      {
+        case "offset":
+          offset = reader.nextLong();
+          break;
+        case "logStart":
+          logStart = reader.nextLong();
+          break;
+        case "prefixChecksum":
+          prefixChecksum = reader.nextLong();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    return new LogFileState(offset, logStart, prefixChecksum);
+  }
+
+  private static LogFileFingerprint readFingerprint(final JsonReader reader) throws IOException
+  {
+    long logStart = 0;
+    long size = 0;
+    long prefixChecksum = 0;
+    reader.beginObject();
+    while (reader.hasNext())
+    {
+      switch (reader.nextName())
+      {
+        case "logStart":
+          logStart = reader.nextLong();
+          break;
+        case "size":
+          size = reader.nextLong();
+          break;
+        case "prefixChecksum":
+          prefixChecksum = reader.nextLong();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    return new LogFileFingerprint(logStart, size, prefixChecksum);
+  }
+
+  private static Watermark readWatermark(final JsonReader reader) throws IOException
+  {
+    long lastEpochSecond = 0;
+    int count = 0;
+    reader.beginObject();
+    while (reader.hasNext())
+    {
+      switch (reader.nextName())
+      {
+        case "lastEpochSecond":
+          lastEpochSecond = reader.nextLong();
+          break;
+        case "count":
+          count = reader.nextInt();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    return new Watermark(lastEpochSecond, count);
+  }
+
+  private static PlaylistStatistics readStatistics(final JsonReader reader) throws IOException
+  {
+    long lastEpochSecond = 0;
+    int matches = 0;
+    int wins = 0;
+    int currentStreak = 0;
+    int longestWinStreak = 0;
+    int longestLossStreak = 0;
+    long deltaPoints = 0;
+    int peakRank = 0;
+    int currentRank = 0;
+    float firstSkillMean = -1;
+    float firstSkillSigma = -1;
+    float skillMean = -1;
+    float skillSigma = -1;
+    reader.beginObject();
+    while (reader.hasNext())
+    {
+      switch (reader.nextName())
+      {
+        case "lastEpochSecond":
+          lastEpochSecond = reader.nextLong();
+          break;
+        case "matches":
+          matches = reader.nextInt();
+          break;
+        case "wins":
+          wins = reader.nextInt();
+          break;
+        case "currentStreak":
+          currentStreak = reader.nextInt();
+          break;
+        case "longestWinStreak":
+          longestWinStreak = reader.nextInt();
+          break;
+        case "longestLossStreak":
+          longestLossStreak = reader.nextInt();
+          break;
+        case "deltaPoints":
+          deltaPoints = reader.nextLong();
+          break;
+        case "peakRank":
+          peakRank = reader.nextInt();
+          break;
+        case "currentRank":
+          currentRank = reader.nextInt();
+          break;
+        case "firstSkillMean":
+          firstSkillMean = (float) reader.nextDouble();
+          break;
+        case "firstSkillSigma":
+          firstSkillSigma = (float) reader.nextDouble();
+          break;
+        case "skillMean":
+          skillMean = (float) reader.nextDouble();
+          break;
+        case "skillSigma":
+          skillSigma = (float) reader.nextDouble();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    return new PlaylistStatistics(lastEpochSecond, matches, wins, currentStreak, longestWinStreak, longestLossStreak,
+                                  deltaPoints, peakRank, currentRank, firstSkillMean, firstSkillSigma, skillMean,
+                                  skillSigma);
+  }
+}
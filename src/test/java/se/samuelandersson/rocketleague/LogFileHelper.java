@@ -1,6 +1,11 @@
 package se.samuelandersson.rocketleague;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
 
 public class LogFileHelper
 {
@@ -23,4 +28,19 @@ public class LogFileHelper
   {
     return new File(LogFileHelper.class.getResource("rllog/invalidLogs/" + fileName).getFile());
   }
+
+  /**
+   * Returns a gzip compressed copy of the provided file, in a temporary file with the same suffix.
+   */
+  public static File gzip(File file) throws IOException
+  {
+    String name = file.getName();
+    File compressed = File.createTempFile("ranktracker", name.substring(name.lastIndexOf('.')));
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed)))
+    {
+      Files.copy(file.toPath(), out);
+    }
+
+    return compressed;
+  }
 }
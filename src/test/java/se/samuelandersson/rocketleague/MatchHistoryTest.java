@@ -0,0 +1,525 @@
+package se.samuelandersson.rocketleague;
+
+import static org.testng.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+public class MatchHistoryTest
+{
+  private static final Logger log = LoggerFactory.getLogger(MatchHistoryTest.class);
+
+  private static final DateTime START = new DateTime(2015, 9, 16, 22, 54, 46);
+
+  private MatchResult result(int seconds, int playList, int delta)
+  {
+    return new MatchResult(START.plusSeconds(seconds), playList, delta, 700, 28.6374f, 2.4856f);
+  }
+
+  @Test
+  public void testAdd() throws Exception
+  {
+    MatchHistory history = new MatchHistory(0);
+    assertTrue(history.isEmpty());
+    assertTrue(history.add(result(20, MatchResult.RANKED_1V1, 1)));
+    assertTrue(history.add(result(0, MatchResult.RANKED_2V2, 2)));
+    assertTrue(history.add(result(10, MatchResult.UNRANKED, 3)));
+    assertTrue(history.add(result(30, MatchResult.RANKED_3V3, 4)));
+
+    // the first result at a time in a playlist is kept
+    assertFalse(history.add(result(10, MatchResult.UNRANKED, 5)));
+
+    assertEquals(history.size(), 4);
+    assertEquals(history.get(0), result(0, MatchResult.RANKED_2V2, 2));
+    assertEquals(history.get(1), result(10, MatchResult.UNRANKED, 3));
+    assertEquals(history.get(2), result(20, MatchResult.RANKED_1V1, 1));
+    assertEquals(history.get(3), result(30, MatchResult.RANKED_3V3, 4));
+    assertEquals(history.getPlayList(1), MatchResult.UNRANKED);
+    assertEquals(history.getDeltaPoints(1), 3);
+    assertEquals(history.getRankPreGame(1), 700);
+    assertEquals(history.getSkillMean(1), 28.6374f);
+    assertEquals(history.getSkillSigma(1), 2.4856f);
+    assertEquals(history.getEpochSecond(1), result(10, MatchResult.UNRANKED, 3).getEpochSecond());
+    assertEquals(history.get(1).getTime(), START.plusSeconds(10));
+
+    assertEquals(history.indexOf(history.getEpochSecond(2)), 2);
+    assertEquals(history.indexOf(history.getEpochSecond(2) + 1), -4);
+    assertEquals(history.indexOf(history.getEpochSecond(2), MatchResult.RANKED_1V1), 2);
+    assertEquals(history.indexOf(history.getEpochSecond(2), MatchResult.RANKED_2V2), -4);
+  }
+
+  @Test
+  public void testAddSameTimeOtherPlayList() throws Exception
+  {
+    MatchHistory history = new MatchHistory();
+    assertTrue(history.add(result(10, MatchResult.RANKED_3V3, 1)));
+    assertTrue(history.add(result(10, MatchResult.RANKED_1V1, 2)));
+    assertTrue(history.add(result(0, MatchResult.RANKED_1V1, 3)));
+    assertTrue(history.add(result(10, MatchResult.UNRANKED, 4)));
+    assertFalse(history.add(result(10, MatchResult.RANKED_1V1, 5)));
+
+    // results at the same time are sorted by playlist, just like in a SortedSet
+    SortedSet<MatchResult> expected = new TreeSet<>(Arrays.asList(result(10, MatchResult.RANKED_3V3, 1),
+                                                                  result(10, MatchResult.RANKED_1V1, 2),
+                                                                  result(0, MatchResult.RANKED_1V1, 3),
+                                                                  result(10, MatchResult.UNRANKED, 4)));
+    assertEquals(toList(history), new ArrayList<>(expected));
+    assertEquals(history.getPlayList(1), MatchResult.UNRANKED);
+    assertEquals(history.getPlayList(3), MatchResult.RANKED_3V3);
+
+    // indexOf finds the first result at a time
+    assertEquals(history.indexOf(history.getEpochSecond(1)), 1);
+    assertEquals(history.indexOf(history.getEpochSecond(1), MatchResult.RANKED_3V3), 3);
+    assertEquals(history.indexOf(history.getEpochSecond(1), MatchResult.RANKED_2V2), -4);
+
+    history.put(result(10, MatchResult.RANKED_1V1, 6));
+    assertEquals(history.size(), 4);
+    assertEquals(history.get(2), result(10, MatchResult.RANKED_1V1, 6));
+
+    MatchHistory other = MatchHistory.of(Arrays.asList(result(10, MatchResult.RANKED_2V2, 7),
+                                                       result(10, MatchResult.RANKED_3V3, 8)));
+    history.addAll(other);
+    assertEquals(history.size(), 5);
+    assertEquals(history.get(3), result(10, MatchResult.RANKED_2V2, 7));
+    assertEquals(history.get(4), result(10, MatchResult.RANKED_3V3, 1));
+  }
+
+  @Test
+  public void testPut() throws Exception
+  {
+    MatchHistory history = new MatchHistory();
+    history.add(result(0, MatchResult.RANKED_2V2, 1));
+    history.put(result(0, MatchResult.RANKED_2V2, 2));
+    history.put(result(-10, MatchResult.RANKED_3V3, 3));
+
+    assertEquals(history.size(), 2);
+    assertEquals(history.get(0), result(-10, MatchResult.RANKED_3V3, 3));
+    assertEquals(history.get(1), result(0, MatchResult.RANKED_2V2, 2));
+  }
+
+  @Test
+  public void testMergeSameAsSortedSet() throws Exception
+  {
+    Random random = new Random(1);
+    List<MatchResult> first = new ArrayList<>();
+    List<MatchResult> second = new ArrayList<>();
+    for (int i = 0; i < 2000; i++)
+    {
+      first.add(result(random.nextInt(5000), MatchResult.RANKED_1V1, i));
+      second.add(result(random.nextInt(5000), MatchResult.RANKED_2V2, i));
+    }
+
+    // addAll keeps the results already present, like adding to a SortedSet
+    SortedSet<MatchResult> expected = new TreeSet<>(first);
+    expected.addAll(second);
+    MatchHistory history = MatchHistory.of(first);
+    history.addAll(MatchHistory.of(second));
+    assertEquals(history.toSortedSet(), expected);
+    assertEquals(new ArrayList<>(history.toSortedSet()), toList(history));
+
+    // putAll replaces them
+    expected = new TreeSet<>(second);
+    expected.addAll(first);
+    history = MatchHistory.of(first);
+    history.putAll(MatchHistory.of(second));
+    assertEquals(toList(history), new ArrayList<>(expected));
+
+    history.addAll(new MatchHistory());
+    assertEquals(history.size(), expected.size());
+  }
+
+  @Test
+  public void testMergeManySameAsSortedSet() throws Exception
+  {
+    Random random = new Random(2);
+    int[] playLists = { MatchResult.RANKED_1V1, MatchResult.RANKED_2V2, MatchResult.RANKED_3V3, MatchResult.UNRANKED };
+    for (boolean offHeap : new boolean[] { false, true })
+    {
+      SortedSet<MatchResult> expected = new TreeSet<>();
+      MatchHistory history = offHeap ? MatchHistory.offHeap() : new MatchHistory();
+      List<MatchHistory> sources = new ArrayList<>();
+      for (int i = 0; i < 7; i++)
+      {
+        List<MatchResult> source = new ArrayList<>();
+        for (int j = 0; j < 300; j++)
+        {
+          source.add(result(random.nextInt(5000), playLists[i % playLists.length], i * 1000 + j));
+        }
+        if (i == 0)
+        {
+          // this history is merged with the others and keeps its results, like the first of them
+          history.addAll(MatchHistory.of(source));
+        }
+        else
+        {
+          sources.add(i == 3 ? new MatchHistory() : MatchHistory.of(source));
+        }
+        if (i != 3)
+        {
+          expected.addAll(source);
+        }
+      }
+
+      history.addAll(sources);
+      assertEquals(history.isOffHeap(), offHeap);
+      assertEquals(toList(history), new ArrayList<>(expected));
+    }
+  }
+
+  @Test
+  public void testMergeManyKeepsFirst() throws Exception
+  {
+    MatchHistory first = MatchHistory.of(Arrays.asList(result(0, MatchResult.RANKED_2V2, 1),
+                                                       result(10, MatchResult.RANKED_2V2, 2)));
+    MatchHistory second = MatchHistory.of(Arrays.asList(result(10, MatchResult.RANKED_2V2, 3),
+                                                        result(20, MatchResult.RANKED_2V2, 4)));
+    MatchHistory third = MatchHistory.of(Arrays.asList(result(0, MatchResult.RANKED_2V2, 5),
+                                                       result(20, MatchResult.RANKED_2V2, 6),
+                                                       result(20, MatchResult.RANKED_3V3, 7)));
+
+    MatchHistory history = new MatchHistory();
+    history.addAll(Arrays.asList(first, second, third));
+    assertEquals(toList(history),
+                 Arrays.asList(result(0, MatchResult.RANKED_2V2, 1),
+                               result(10, MatchResult.RANKED_2V2, 2),
+                               result(20, MatchResult.RANKED_2V2, 4),
+                               result(20, MatchResult.RANKED_3V3, 7)));
+
+    // the results already present are kept as well
+    history = MatchHistory.of(Arrays.asList(result(20, MatchResult.RANKED_2V2, 8)));
+    history.addAll(Arrays.asList(third, first));
+    assertEquals(toList(history),
+                 Arrays.asList(result(0, MatchResult.RANKED_2V2, 5),
+                               result(10, MatchResult.RANKED_2V2, 2),
+                               result(20, MatchResult.RANKED_2V2, 8),
+                               result(20, MatchResult.RANKED_3V3, 7)));
+
+    // a single history is just added
+    history = new MatchHistory();
+    history.addAll(Arrays.asList(new MatchHistory(), second));
+    assertEquals(history, second);
+  }
+
+  @Test
+  public void testIterator() throws Exception
+  {
+    MatchHistory history = MatchHistory.of(new ArrayList<MatchResult>());
+    assertFalse(history.iterator().hasNext());
+
+    history.add(result(0, MatchResult.RANKED_1V1, 1));
+    Iterator<MatchResult> it = history.iterator();
+    assertEquals(it.next(), result(0, MatchResult.RANKED_1V1, 1));
+    assertFalse(it.hasNext());
+    try
+    {
+      it.next();
+      fail();
+    }
+    catch (NoSuchElementException e)
+    { // Expected
+    }
+  }
+
+  @Test
+  public void testEquals() throws Exception
+  {
+    MatchHistory history = MatchHistory.of(new TreeSet<>(createResults(10)));
+    MatchHistory same = MatchHistory.of(createResults(10));
+    assertEquals(history, same);
+    assertEquals(history.hashCode(), same.hashCode());
+
+    same.put(result(0, MatchResult.RANKED_3V3, 100));
+    assertNotEquals(history, same);
+    assertNotEquals(history, null);
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void testGetOutOfBounds() throws Exception
+  {
+    MatchHistory history = new MatchHistory();
+    history.add(result(0, MatchResult.RANKED_1V1, 1));
+    history.get(1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeCapacity() throws Exception
+  {
+    new MatchHistory(-1);
+  }
+
+  @Test
+  public void testOffHeapSameAsOnHeap() throws Exception
+  {
+    Random random = new Random(2);
+    MatchHistory onHeap = new MatchHistory(0);
+    MatchHistory offHeap = MatchHistory.offHeap(0);
+    assertFalse(onHeap.isOffHeap());
+    assertTrue(offHeap.isOffHeap());
+    for (int i = 0; i < 3000; i++)
+    {
+      MatchResult result = result(random.nextInt(5000), MatchResult.RANKED_1V1 + i % 4, i);
+      assertEquals(offHeap.add(result), onHeap.add(result));
+    }
+    offHeap.put(result(10, MatchResult.RANKED_3V3, -1));
+    onHeap.put(result(10, MatchResult.RANKED_3V3, -1));
+    assertEquals(toList(offHeap), toList(onHeap));
+
+    List<MatchResult> other = createResults(200);
+    MatchHistory otherOffHeap = offHeap.newHistory();
+    assertTrue(otherOffHeap.isOffHeap());
+    for (MatchResult result : other)
+    {
+      otherOffHeap.add(result);
+    }
+    offHeap.addAll(otherOffHeap);
+    onHeap.addAll(MatchHistory.of(other));
+    assertEquals(offHeap, onHeap);
+    assertTrue(offHeap.isOffHeap());
+
+    offHeap.putAll(MatchHistory.of(other));
+    onHeap.putAll(MatchHistory.of(other));
+    assertEquals(offHeap, onHeap);
+  }
+
+  @Test
+  public void testRange() throws Exception
+  {
+    MatchHistory history = MatchHistory.offHeap();
+    for (MatchResult result : createResults(10))
+    {
+      history.add(result);
+    }
+    long first = history.getEpochSecond(0);
+
+    List<MatchResult> range = new ArrayList<>();
+    history.range(first + 60, first + 180).forEach(range::add);
+    assertEquals(range, createResults(10).subList(1, 3));
+
+    range.clear();
+    history.range(first + 61, first + 10000).forEach(range::add);
+    assertEquals(range, createResults(10).subList(2, 10));
+
+    assertFalse(history.range(first + 180, first + 60).iterator().hasNext());
+    assertFalse(history.range(first - 100, first).iterator().hasNext());
+  }
+
+  @Test
+  public void testLowerBound() throws Exception
+  {
+    MatchHistory history = MatchHistory.of(createResults(10));
+    long first = history.getEpochSecond(0);
+    assertEquals(history.lowerBound(Long.MIN_VALUE), 0);
+    assertEquals(history.lowerBound(first), 0);
+    assertEquals(history.lowerBound(first + 1), 1);
+    assertEquals(history.lowerBound(first + 60), 1);
+    assertEquals(history.lowerBound(first + 61), 2);
+    assertEquals(history.lowerBound(Long.MAX_VALUE), 10);
+    assertEquals(new MatchHistory().lowerBound(first), 0);
+
+    // the first of several results at the same time
+    history.add(first + 60, MatchResult.RANKED_3V3, 0, 0, 0f, 0f);
+    history.add(first + 60, MatchResult.UNRANKED, 0, 0, 0f, 0f);
+    assertEquals(history.lowerBound(first + 60), 1);
+    assertEquals(history.getPlayList(1), MatchResult.UNRANKED);
+    assertEquals(history.lowerBound(first + 61), 4);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeOffHeapCapacity() throws Exception
+  {
+    MatchHistory.offHeap(-1);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testAddFullOffHeap() throws Exception
+  {
+    Path file = Files.createTempFile("ranktracker-history", null);
+    try (FileChannel channel = FileChannel.open(file,
+                                                StandardOpenOption.READ,
+                                                StandardOpenOption.WRITE,
+                                                StandardOpenOption.DELETE_ON_CLOSE))
+    {
+      // a sparse file of as many records as fit in a single mapping, so it takes no room on disk
+      channel.write(ByteBuffer.allocate(1), (long) MappedStorage.MAX_CAPACITY * MatchHistory.RECORD_SIZE - 1);
+      MatchHistory history = MatchHistory.wrap(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+      assertEquals(history.size(), MappedStorage.MAX_CAPACITY);
+      history.add(result(0, MatchResult.RANKED_1V1, 1));
+    }
+  }
+
+  @Test(groups = "benchmark")
+  public void testMemoryFootprint() throws Exception
+  {
+    final int count = 1000000;
+
+    long before = usedMemory();
+    SortedSet<MatchResult> set = new TreeSet<>();
+    for (int i = 0; i < count; i++)
+    {
+      set.add(result(i * 60, MatchResult.RANKED_2V2, i % 20 - 10));
+    }
+    long setBytes = usedMemory() - before;
+    set = null;
+
+    before = usedMemory();
+    MatchHistory history = new MatchHistory();
+    for (int i = 0; i < count; i++)
+    {
+      history.add(result(i * 60, MatchResult.RANKED_2V2, i % 20 - 10));
+    }
+    long historyBytes = usedMemory() - before;
+
+    assertEquals(history.size(), count);
+    log.info(String.format("%s results: TreeSet %s bytes per result, MatchHistory %s bytes per result",
+                           count,
+                           setBytes / count,
+                           historyBytes / count));
+  }
+
+  @Test(groups = "benchmark")
+  public void testMergeManyTime() throws Exception
+  {
+    final int sources = 16;
+    final int count = 100000;
+    List<List<MatchResult>> lists = new ArrayList<>();
+    List<MatchHistory> histories = new ArrayList<>();
+    for (int i = 0; i < sources; i++)
+    {
+      List<MatchResult> list = new ArrayList<>();
+      for (int j = 0; j < count; j++)
+      {
+        list.add(result(j * sources * 60 + i * 60, MatchResult.RANKED_2V2, j % 20 - 10));
+      }
+      lists.add(list);
+      histories.add(MatchHistory.of(list));
+    }
+
+    // the best of a few rounds, so that both get compiled before being measured
+    SortedSet<MatchResult> set = null;
+    MatchHistory history = null;
+    long setTime = Long.MAX_VALUE;
+    long mergeTime = Long.MAX_VALUE;
+    for (int round = 0; round < 3; round++)
+    {
+      long started = System.nanoTime();
+      set = new TreeSet<>();
+      for (List<MatchResult> list : lists)
+      {
+        set.addAll(list);
+      }
+      setTime = Math.min(setTime, System.nanoTime() - started);
+
+      started = System.nanoTime();
+      history = new MatchHistory();
+      history.addAll(histories);
+      mergeTime = Math.min(mergeTime, System.nanoTime() - started);
+    }
+
+    assertEquals(history.size(), set.size());
+    log.info(String.format("%s sources of %s results: TreeSet.addAll %s ms, k-way merge %s ms",
+                           sources,
+                           count,
+                           setTime / 1000000,
+                           mergeTime / 1000000));
+  }
+
+  @Test(groups = "benchmark")
+  public void testDeduplicationTime() throws Exception
+  {
+    final int count = 200000;
+    int[] playLists = { MatchResult.RANKED_1V1, MatchResult.RANKED_2V2, MatchResult.RANKED_3V3, MatchResult.UNRANKED };
+
+    // every playlist has results at the same times, and every source overlaps half of the previous one
+    List<List<MatchResult>> lists = new ArrayList<>();
+    List<MatchHistory> histories = new ArrayList<>();
+    for (int i = 0; i < 8; i++)
+    {
+      List<MatchResult> list = new ArrayList<>();
+      for (int j = 0; j < count; j++)
+      {
+        list.add(result((i * count / 2 + j) / playLists.length * 60, playLists[j % playLists.length], i));
+      }
+      lists.add(list);
+      histories.add(MatchHistory.of(list));
+    }
+
+    // the best of a few rounds, so that both get compiled before being measured
+    SortedSet<MatchResult> set = null;
+    MatchHistory history = null;
+    long setTime = Long.MAX_VALUE;
+    long mergeTime = Long.MAX_VALUE;
+    for (int round = 0; round < 3; round++)
+    {
+      long started = System.nanoTime();
+      set = new TreeSet<>();
+      for (List<MatchResult> list : lists)
+      {
+        set.addAll(list);
+      }
+      setTime = Math.min(setTime, System.nanoTime() - started);
+
+      started = System.nanoTime();
+      history = new MatchHistory();
+      history.addAll(histories);
+      mergeTime = Math.min(mergeTime, System.nanoTime() - started);
+    }
+
+    assertEquals(history.size(), 9 * count / 2);
+    assertEquals(toList(history), new ArrayList<>(set));
+    log.info(String.format("%s results with duplicates: TreeSet.addAll %s ms, k-way merge on keys %s ms",
+                           8 * count,
+                           setTime / 1000000,
+                           mergeTime / 1000000));
+  }
+
+  private List<MatchResult> createResults(int count)
+  {
+    List<MatchResult> results = new ArrayList<>();
+    for (int i = 0; i < count; i++)
+    {
+      results.add(result(i * 60, MatchResult.RANKED_2V2, i % 20 - 10));
+    }
+
+    return results;
+  }
+
+  private List<MatchResult> toList(MatchHistory history)
+  {
+    List<MatchResult> list = new ArrayList<>();
+    for (MatchResult result : history)
+    {
+      list.add(result);
+    }
+
+    return list;
+  }
+
+  private static long usedMemory() throws InterruptedException
+  {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++)
+    {
+      System.gc();
+      Thread.sleep(50);
+    }
+
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -1,12 +1,17 @@
 package se.samuelandersson.rocketleague;
 
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.*;
 
 public class MatchResultTest
 {
+  private static final Logger log = LoggerFactory.getLogger(MatchResultTest.class);
+
   @Test
   public void testCreate() throws Exception
   {
@@ -80,6 +85,20 @@ public class MatchResultTest
     assertEquals(mr1, mr2);
   }
 
+  @Test
+  public void testTimeZone() throws Exception
+  {
+    // the local time of the provided DateTime is kept, just like before the time was stored in seconds
+    DateTime dt = new DateTime(2015, 1, 2, 10, 11, 12, DateTimeZone.forOffsetHours(5));
+    MatchResult mr = new MatchResult(dt, MatchResult.RANKED_1V1, 0, 0);
+    assertEquals(mr.getTime(), new DateTime(2015, 1, 2, 10, 11, 12));
+    assertEquals(mr.getEpochSecond(), new DateTime(2015, 1, 2, 10, 11, 12).getMillis() / 1000);
+
+    dt = new DateTime(1969, 12, 31, 23, 59, 59, 999);
+    mr = new MatchResult(dt, MatchResult.RANKED_1V1, 0, 0);
+    assertEquals(mr.getTime(), new DateTime(1969, 12, 31, 23, 59, 59));
+  }
+
   @Test
   public void testEquals() throws Exception
   {
@@ -127,6 +146,24 @@ public class MatchResultTest
 
     assertTrue(first.compareTo(second) < 0);
     assertTrue(second.compareTo(first) > 0);
+
+    // results at the same time are ordered by playlist
+    MatchResult other = new MatchResult(firstDt, MatchResult.RANKED_2V2, 10, 100);
+    assertTrue(first.compareTo(other) < 0);
+    assertTrue(other.compareTo(second) < 0);
+  }
+
+  @Test
+  public void testKey() throws Exception
+  {
+    MatchResult result = new MatchResult(new DateTime("2015-01-01T10:11:12"), MatchResult.RANKED_3V3, 10, 100);
+    assertEquals(result.getKey(), MatchResult.key(result.getEpochSecond(), MatchResult.RANKED_3V3));
+    assertEquals(result.getKey() >> 8, result.getEpochSecond());
+    assertEquals(result.getKey() & 0xFF, MatchResult.RANKED_3V3);
+
+    // times before the epoch keep their order
+    assertTrue(MatchResult.key(-1, MatchResult.RANKED_3V3) < MatchResult.key(0, MatchResult.UNRANKED));
+    assertTrue(MatchResult.key(-2, MatchResult.RANKED_3V3) < MatchResult.key(-1, MatchResult.UNRANKED));
   }
 
   @Test
@@ -176,4 +213,46 @@ public class MatchResultTest
     assertFalse(MatchResult.isValidPlayList(-1));
     assertFalse(MatchResult.isValidPlayList(15));
   }
+
+  @Test(groups = "benchmark")
+  public void testMemoryFootprint() throws Exception
+  {
+    final int count = 1000000;
+    DateTime start = new DateTime(2015, 1, 1, 0, 0, 0);
+
+    Object[] holder = new Object[count];
+    long before = usedMemory();
+    for (int i = 0; i < count; i++)
+    {
+      holder[i] = new MatchResult(start.plusSeconds(i), MatchResult.RANKED_2V2, 8, 700, 28.6374f, 2.4856f);
+    }
+    long resultBytes = (usedMemory() - before) / count;
+
+    // what every result used to hold on to in addition to its fields
+    holder = new Object[count];
+    before = usedMemory();
+    for (int i = 0; i < count; i++)
+    {
+      holder[i] = start.plusSeconds(i);
+    }
+    long dateTimeBytes = (usedMemory() - before) / count;
+    holder = null;
+
+    log.info(String.format("%s results: %s bytes per result, the DateTime each result used to hold is %s bytes",
+                           count,
+                           resultBytes,
+                           dateTimeBytes));
+  }
+
+  private static long usedMemory() throws InterruptedException
+  {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++)
+    {
+      System.gc();
+      Thread.sleep(50);
+    }
+
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
 }
@@ -0,0 +1,137 @@
+package se.samuelandersson.rocketleague;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+public class PlaylistStatisticsTest
+{
+  private static final long START = new DateTime("2015-01-01T00:00:00").getMillis() / 1000;
+
+  @Test
+  public void testEmpty() throws Exception
+  {
+    PlaylistStatistics statistics = new PlaylistStatistics();
+    assertEquals(statistics.getMatches(), 0);
+    assertEquals(statistics.getWinRate(), 0.0);
+    assertEquals(statistics.getAverageDeltaPoints(), 0.0);
+    assertEquals(statistics.getCurrentStreak(), 0);
+    assertEquals(statistics.getSkillMean(), -1f);
+    assertEquals(statistics.getSkillMeanTrend(), 0f);
+  }
+
+  @Test
+  public void testAdd() throws Exception
+  {
+    PlaylistStatistics statistics = new PlaylistStatistics();
+    int[] deltas = { 10, 8, -9, 0, -7, 9, 10, 11, -8 };
+    int rank = 600;
+    for (int i = 0; i < deltas.length; i++)
+    {
+      // the first results have no skill mean
+      float mean = i < 2 ? -1 : 20 + i;
+      float sigma = i < 2 ? -1 : 5 - i * 0.25f;
+      statistics.add(new MatchResult(new DateTime((START + i * 600) * 1000), MatchResult.RANKED_2V2, deltas[i], rank,
+                                     mean, sigma));
+      rank += deltas[i];
+    }
+
+    assertEquals(statistics.getMatches(), 9);
+    assertEquals(statistics.getWins(), 5);
+    assertEquals(statistics.getWinRate(), 5 / 9.0);
+    assertEquals(statistics.getDeltaPoints(), 24);
+    assertEquals(statistics.getAverageDeltaPoints(), 24 / 9.0);
+    assertEquals(statistics.getCurrentStreak(), -1);
+    assertEquals(statistics.getLongestWinStreak(), 3);
+    // a result without delta points is a loss
+    assertEquals(statistics.getLongestLossStreak(), 3);
+    assertEquals(statistics.getPeakRank(), 632);
+    assertEquals(statistics.getCurrentRank(), 624);
+    assertEquals(statistics.getLastEpochSecond(), START + 8 * 600);
+    assertEquals(statistics.getFirstSkillMean(), 22f);
+    assertEquals(statistics.getSkillMean(), 28f);
+    assertEquals(statistics.getSkillMeanTrend(), 6f);
+    assertEquals(statistics.getSkillSigma(), 3f);
+    assertEquals(statistics.getSkillSigmaTrend(), -1.5f);
+  }
+
+  @Test
+  public void testPeakRankOfLosses() throws Exception
+  {
+    PlaylistStatistics statistics = new PlaylistStatistics();
+    statistics.add(new MatchResult(new DateTime(START * 1000), MatchResult.RANKED_1V1, -10, -5));
+    statistics.add(new MatchResult(new DateTime((START + 60) * 1000), MatchResult.RANKED_1V1, -10, -15));
+    assertEquals(statistics.getPeakRank(), -15);
+    assertEquals(statistics.getCurrentRank(), -25);
+    assertEquals(statistics.getCurrentStreak(), -2);
+    assertEquals(statistics.getLongestWinStreak(), 0);
+  }
+
+  @Test
+  public void testAddFromHistory() throws Exception
+  {
+    MatchHistory history = createHistory(new Random(7), 1000);
+    PlaylistStatistics fromResults = new PlaylistStatistics();
+    PlaylistStatistics fromHistory = new PlaylistStatistics();
+    for (int i = 0; i < history.size(); i++)
+    {
+      fromResults.add(history.get(i));
+      fromHistory.add(history, i);
+    }
+
+    assertEquals(fromHistory, fromResults);
+    assertEquals(fromHistory.hashCode(), fromResults.hashCode());
+  }
+
+  @Test
+  public void testAddInParts() throws Exception
+  {
+    Random random = new Random(11);
+    MatchHistory history = createHistory(random, 1000);
+    PlaylistStatistics all = new PlaylistStatistics();
+    for (int i = 0; i < history.size(); i++)
+    {
+      all.add(history, i);
+    }
+
+    // going through the results in parts, copying the statistics in between like a scan reading them from file
+    PlaylistStatistics parts = new PlaylistStatistics();
+    for (int i = 0; i < history.size(); i++)
+    {
+      if (random.nextInt(50) == 0)
+      {
+        parts = copy(parts);
+      }
+      parts.add(history, i);
+    }
+
+    assertEquals(parts, all);
+    assertNotEquals(all, new PlaylistStatistics());
+  }
+
+  private static PlaylistStatistics copy(final PlaylistStatistics s)
+  {
+    return new PlaylistStatistics(s.getLastEpochSecond(), s.getMatches(), s.getWins(), s.getCurrentStreak(),
+                                  s.getLongestWinStreak(), s.getLongestLossStreak(), s.getDeltaPoints(),
+                                  s.getPeakRank(), s.getCurrentRank(), s.getFirstSkillMean(), s.getFirstSkillSigma(),
+                                  s.getSkillMean(), s.getSkillSigma());
+  }
+
+  private static MatchHistory createHistory(final Random random, final int count)
+  {
+    MatchHistory history = new MatchHistory();
+    int rank = 600;
+    for (int i = 0; i < count; i++)
+    {
+      int delta = random.nextInt(25) - 12;
+      history.add(START + i * 600L, MatchResult.RANKED_3V3, delta, rank, 25 + random.nextFloat() * 10,
+                  2 + random.nextFloat());
+      rank += delta;
+    }
+    return history;
+  }
+}
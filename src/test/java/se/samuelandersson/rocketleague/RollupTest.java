@@ -0,0 +1,64 @@
+package se.samuelandersson.rocketleague;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import org.joda.time.LocalDate;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.Rollup.Period;
+
+public class RollupTest
+{
+  @Test
+  public void testPeriods() throws Exception
+  {
+    // a Wednesday
+    LocalDate day = new LocalDate("2015-09-30");
+    assertEquals(Period.DAY.start(day), day);
+    assertEquals(Period.WEEK.start(day), new LocalDate("2015-09-28"));
+    assertEquals(Period.MONTH.start(day), new LocalDate("2015-09-01"));
+    assertEquals(Period.DAY.next(day), new LocalDate("2015-10-01"));
+    assertEquals(Period.WEEK.next(new LocalDate("2015-09-28")), new LocalDate("2015-10-05"));
+    assertEquals(Period.MONTH.next(new LocalDate("2015-12-01")), new LocalDate("2016-01-01"));
+    assertEquals(Period.WEEK.getName(), "week");
+  }
+
+  @Test
+  public void testAdd() throws Exception
+  {
+    MatchHistory history = new MatchHistory();
+    history.add(1443600000, MatchResult.RANKED_2V2, 9, 700, 30.5f, 3.1f);
+    history.add(1443600600, MatchResult.RANKED_2V2, -8, 709, 30.1f, 3.0f);
+    history.add(1443601200, MatchResult.RANKED_2V2, 0, 701, -1, -1);
+
+    LocalDate start = new LocalDate("2015-09-30");
+    Rollup rollup = new Rollup(start);
+    for (int i = 0; i < history.size(); i++)
+    {
+      rollup.add(history, i);
+    }
+
+    // a result without a skill mean leaves the closing skill mean as it was
+    assertEquals(rollup, new Rollup(start, 3, 1, 1, 701, 30.1f));
+    assertEquals(rollup.hashCode(), new Rollup(start, 3, 1, 1, 701, 30.1f).hashCode());
+    assertNotEquals(rollup, new Rollup(start, 3, 1, 1, 701, 30.5f));
+  }
+
+  @Test
+  public void testAddRollups() throws Exception
+  {
+    LocalDate start = new LocalDate("2015-09-28");
+    Rollup week = new Rollup(start);
+    week.add(new Rollup(start, 3, 2, 10, 720, 31.5f));
+    week.add(new Rollup(start.plusDays(1)));
+    week.add(new Rollup(start.plusDays(2), 2, 0, -18, 702, -1));
+    assertEquals(week, new Rollup(start, 5, 2, -8, 702, 31.5f));
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testNullStart() throws Exception
+  {
+    new Rollup(null);
+  }
+}
@@ -1,6 +1,7 @@
 package se.samuelandersson.rocketleague;
 
 import static org.testng.Assert.*;
+import org.joda.time.DateTime;
 import org.testng.annotations.Test;
 
 public class ScannedFilesTest
@@ -21,5 +22,41 @@ public class ScannedFilesTest
     assertEquals(data1, data1);
     assertFalse(data1.equals(""));
     assertFalse(data1.equals(null));
+
+    data1.getLogFileStates().put("Launch.log", new LogFileState(100, 1000, 10));
+    assertNotEquals(data1, data2);
+    data2.getLogFileStates().put("Launch.log", new LogFileState(100, 1000, 10));
+    assertEquals(data1, data2);
+    assertEquals(data1.hashCode(), data2.hashCode());
+    data2.getLogFileStates().put("Launch.log", new LogFileState(200, 1000, 10));
+    assertNotEquals(data1, data2);
+    data2.getLogFileStates().put("Launch.log", new LogFileState(100, 1000, 10));
+
+    data1.getFingerprints().put("Launch_2.log", new LogFileFingerprint(1000, 100, 10));
+    assertNotEquals(data1, data2);
+    data2.getFingerprints().put("Launch_2.log", new LogFileFingerprint(1000, 100, 10));
+    assertEquals(data1, data2);
+    assertEquals(data1.hashCode(), data2.hashCode());
+    data2.getFingerprints().put("Launch_2.log", new LogFileFingerprint(1000, 101, 10));
+    assertNotEquals(data1, data2);
+    data2.getFingerprints().put("Launch_2.log", new LogFileFingerprint(1000, 100, 10));
+
+    data1.getWatermarks().put(MatchResult.RANKED_1V1, new Watermark(1000, 10));
+    assertNotEquals(data1, data2);
+    data2.getWatermarks().put(MatchResult.RANKED_1V1, new Watermark(1000, 10));
+    assertEquals(data1, data2);
+    assertEquals(data1.hashCode(), data2.hashCode());
+    data2.getWatermarks().put(MatchResult.RANKED_1V1, new Watermark(1000, 11));
+    assertNotEquals(data1, data2);
+    data2.getWatermarks().put(MatchResult.RANKED_1V1, new Watermark(1000, 10));
+
+    PlaylistStatistics statistics = new PlaylistStatistics();
+    statistics.add(new MatchResult(new DateTime(1000000), MatchResult.RANKED_1V1, 10, 100));
+    data1.getStatistics().put(MatchResult.RANKED_1V1, statistics);
+    assertNotEquals(data1, data2);
+    data2.getStatistics().put(MatchResult.RANKED_1V1, new PlaylistStatistics(1000, 1, 1, 1, 1, 0, 10, 110, 110, -1, -1,
+                                                                             -1, -1));
+    assertEquals(data1, data2);
+    assertEquals(data1.hashCode(), data2.hashCode());
   }
 }
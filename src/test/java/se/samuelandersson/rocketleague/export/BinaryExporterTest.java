@@ -0,0 +1,54 @@
+package se.samuelandersson.rocketleague.export;
+
+import static org.testng.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+
+public class BinaryExporterTest
+{
+  private BinaryExporter export = new BinaryExporter();
+
+  @Test
+  public void testHeader()
+  {
+    SortedSet<MatchResult> results = new TreeSet<>();
+    results.add(new MatchResult(new DateTime("2015-01-02T10:11:12"), MatchResult.SOLO_RANKED_3V3, 10, 800, 50.1f, 2.48f));
+    results.add(new MatchResult(new DateTime("2015-01-02T00:00:00"), MatchResult.UNRANKED, -7, 600));
+
+    ByteBuffer file = ByteBuffer.wrap(export.toString(results).getBytes(StandardCharsets.ISO_8859_1));
+    assertEquals(file.capacity(), BinaryExporter.HEADER_SIZE + 2 * MatchHistory.RECORD_SIZE + BinaryExporter.FOOTER_SIZE);
+    assertEquals(file.getInt(0), BinaryExporter.MAGIC);
+    assertEquals(file.getInt(4), BinaryExporter.VERSION);
+    assertEquals(file.getInt(8), 2);
+    assertEquals(file.getInt(12), MatchHistory.RECORD_SIZE);
+    assertEquals(file.getLong(16), results.first().getEpochSecond());
+    assertEquals(file.getLong(24), results.last().getEpochSecond());
+
+    // the records are sorted by time
+    assertEquals(file.getLong(BinaryExporter.HEADER_SIZE), results.first().getEpochSecond());
+    assertEquals(file.get(BinaryExporter.HEADER_SIZE + 24), MatchResult.UNRANKED);
+    assertEquals(file.getInt(BinaryExporter.HEADER_SIZE + MatchHistory.RECORD_SIZE + 8), 10);
+  }
+
+  @Test
+  public void testEmpty()
+  {
+    String exported = export.toString(new MatchHistory());
+    assertEquals(exported.length(), BinaryExporter.HEADER_SIZE + BinaryExporter.FOOTER_SIZE);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testNullHistory()
+  {
+    export.toString((MatchHistory) null);
+  }
+}
@@ -1,31 +1,56 @@
 package se.samuelandersson.rocketleague.export;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.regex.Pattern;
 
 import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
 import se.samuelandersson.rocketleague.LogFileHelper;
+import se.samuelandersson.rocketleague.MatchHistory;
 import se.samuelandersson.rocketleague.MatchResult;
 import se.samuelandersson.rocketleague.MatchResultsWrapper;
 import se.samuelandersson.rocketleague.parser.CSVParser;
 import se.samuelandersson.rocketleague.parser.Parser;
+import se.samuelandersson.rocketleague.utils.CompressionUtils;
 
 import com.google.common.base.Joiner;
 
 public class CSVExporterTest
 {
+  private static final Logger log = LoggerFactory.getLogger(CSVExporterTest.class);
+
   private CSVExporter export = new CSVExporter();
   private Parser parser = new CSVParser();
 
+  /** The temporary files of the running test, deleted after it. */
+  private final List<File> tempFiles = new ArrayList<>();
+
+  @AfterMethod
+  public void deleteTempFiles() throws Exception
+  {
+    for (File file : tempFiles)
+    {
+      Files.deleteIfExists(file.toPath());
+    }
+    tempFiles.clear();
+  }
+
   @Test
   public void testListToString()
   {
@@ -47,6 +72,38 @@ public class CSVExporterTest
     assertEquals(exported, expected);
   }
 
+  @Test
+  public void testHistoryToString()
+  {
+    SortedSet<MatchResult> results = new TreeSet<>();
+    results.add(new MatchResult(new DateTime("2015-01-02T10:11:12"), MatchResult.SOLO_RANKED_3V3, 10, 800, 50.1f, 2.48f));
+    results.add(new MatchResult(new DateTime("2015-01-02T00:00:00"), MatchResult.UNRANKED, -7, 600));
+    results.add(new MatchResult(new DateTime("2016-12-31T23:59:59"), MatchResult.RANKED_1V1, 0, 0, 1.0E-5f, 1e7f));
+
+    String expected = CSVExporter.HEADER_WITH_MU;
+    for (MatchResult result : results)
+    {
+      expected += System.lineSeparator();
+      expected += String.format("%s,%s,%s,%s,%s,%s,%s",
+                                result.getTime().toString("YYYY-MM-dd"),
+                                result.getTime().toString("HH:mm:ss"),
+                                MatchResult.getPlaylistName(result.getPlayList()),
+                                result.getSkillMean(),
+                                result.getSkillSigma(),
+                                result.getDeltaPoints(),
+                                result.getRankPreGame());
+    }
+
+    assertEquals(export.toString(MatchHistory.of(results)), expected);
+    assertEquals(export.toString(results), expected);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testNullHistory() throws Exception
+  {
+    export.toString((MatchHistory) null);
+  }
+
   @Test
   public void testWrapperToString() throws Exception
   {
@@ -82,7 +139,7 @@ public class CSVExporterTest
   @Test
   public void testWrapperToFile() throws Exception
   {
-    File file = File.createTempFile("test-parser", "csv");
+    File file = createTempFile("test-parser", "csv");
     MatchResultsWrapper wrapper = new MatchResultsWrapper(LogFileHelper.getValidCsvLogFile("simple.csv"), parser);
 
     String expected = CSVExporter.HEADER_WITH_MU + System.lineSeparator();
@@ -93,13 +150,12 @@ public class CSVExporterTest
     String actual = Joiner.on(System.lineSeparator()).join(Files.readAllLines(file.toPath(), Charset.defaultCharset()));
 
     assertEquals(actual, expected);
-    file.delete();
   }
 
   @Test
   public void testListToFile() throws Exception
   {
-    File file = File.createTempFile("test-list", "csv");
+    File file = createTempFile("test-list", "csv");
     SortedSet<MatchResult> results = new TreeSet<>();
 
     String date = "2015-01-02";
@@ -116,21 +172,137 @@ public class CSVExporterTest
     export.export(results, file);
     String actual = Joiner.on(System.lineSeparator()).join(Files.readAllLines(file.toPath(), Charset.defaultCharset()));
     assertEquals(actual, expected);
-    file.delete();
   }
 
-  @Test(expectedExceptions = NullPointerException.class)
-  public void testNullResultsToFile() throws Exception
+  @Test
+  public void testAppend() throws Exception
+  {
+    File file = createTempFile("test-append", "csv");
+    MatchHistory history = new MatchHistory();
+    history.add(new MatchResult(new DateTime("2015-01-02T10:11:12"), MatchResult.RANKED_1V1, 10, 800, 25.6f, 3.2f));
+    history.add(new MatchResult(new DateTime("2015-01-02T10:21:12"), MatchResult.RANKED_1V1, -9, 810, 25.1f, 3.1f));
+    export.export(history, file);
+
+    // the last row is not appended again
+    MatchHistory added = new MatchHistory();
+    added.add(history.get(1));
+    added.add(new MatchResult(new DateTime("2015-01-02T10:31:12"), MatchResult.RANKED_1V1, 8, 801, 25.5f, 3.0f));
+    assertTrue(export.append(added, file));
+    history.addAll(added);
+    assertEquals(read(file), export.toString(history));
+
+    // a result earlier than the last row can not be appended
+    added = new MatchHistory();
+    added.add(new MatchResult(new DateTime("2015-01-02T10:15:00"), MatchResult.RANKED_1V1, 1, 1, 1f, 1f));
+    added.add(new MatchResult(new DateTime("2015-01-02T11:00:00"), MatchResult.RANKED_1V1, 1, 1, 1f, 1f));
+    assertFalse(export.append(added, file));
+
+    // neither can a result replacing the last row
+    added = new MatchHistory();
+    added.add(new MatchResult(history.get(2).getTime(), MatchResult.RANKED_1V1, 0, 801, 25.5f, 3.0f));
+    assertFalse(export.append(added, file));
+    assertEquals(read(file), export.toString(history));
+
+    // and a file with another header is left alone
+    Files.copy(LogFileHelper.getValidCsvLogFile("log.csv").toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    assertFalse(export.append(history, file));
+  }
+
+  @Test
+  public void testAppendHeaderOnly() throws Exception
+  {
+    File file = createTempFile("test-append", "csv");
+    export.export(new MatchHistory(), file);
+    MatchHistory history = MatchHistory.of(new CSVParser().parse(LogFileHelper.getValidCsvLogFile("simple.csv")));
+    assertTrue(export.append(history, file));
+    assertEquals(read(file), export.toString(history));
+  }
+
+  @Test
+  public void testCompressed() throws Exception
   {
-    File file = File.createTempFile("test-list", "csv");
-    try
+    CSVExporter compressed = new CSVExporter(true);
+    assertEquals(compressed.getSuffix(), "csv.gz");
+    assertEquals(export.getSuffix(), "csv");
+
+    File file = createTempFile("test-compressed", "csv.gz");
+    MatchHistory history = MatchHistory.of(parser.parse(LogFileHelper.getValidCsvLogFile("logWithMu.csv")));
+    compressed.export(history, file);
+    assertTrue(CompressionUtils.isGzip(file));
+    assertEquals(MatchHistory.of(parser.parse(file)), history);
+
+    // compressed files are rewritten instead, whichever exporter is used
+    MatchHistory added = new MatchHistory();
+    added.add(new MatchResult(new DateTime("2030-01-01T10:00:00"), MatchResult.RANKED_1V1, 8, 801, 25.5f, 3.0f));
+    assertFalse(compressed.append(added, file));
+    assertFalse(export.append(added, file));
+    assertEquals(MatchHistory.of(parser.parse(file)), history);
+  }
+
+  @Test(groups = "benchmark")
+  public void testCompressedSize() throws Exception
+  {
+    MatchHistory history = new MatchHistory();
+    long time = new DateTime("2015-01-01T00:00:00").getMillis() / 1000;
+    int points = 600;
+    for (int i = 0; i < 200000; i++)
     {
-      export.export((SortedSet<MatchResult>) null, file);
+      int delta = (i * 7919) % 21 - 10;
+      history.add(time, MatchResult.RANKED_2V2, delta, points, 25f + (i % 1000) / 100f, 2.5f + (i % 100) / 1000f);
+      time += 600 + i % 300;
+      points += delta;
     }
-    finally
+
+    File plain = createTempFile("test-size", "csv");
+    File gzip = createTempFile("test-size", "csv.gz");
+    // the best of a few rounds, so that everything gets compiled before being measured
+    long[] writeTimes = { Long.MAX_VALUE, Long.MAX_VALUE };
+    long[] readTimes = { Long.MAX_VALUE, Long.MAX_VALUE };
+    File[] files = { plain, gzip };
+    for (int round = 0; round < 3; round++)
     {
-      file.delete();
+      for (int i = 0; i < files.length; i++)
+      {
+        long started = System.nanoTime();
+        new CSVExporter(i == 1).export(history, files[i]);
+        writeTimes[i] = Math.min(writeTimes[i], System.nanoTime() - started);
+
+        started = System.nanoTime();
+        assertEquals(parser.parse(files[i]).size(), history.size());
+        readTimes[i] = Math.min(readTimes[i], System.nanoTime() - started);
+      }
     }
+
+    // the page cache can not be dropped from here, so the files are read warm
+    log.info(String.format("%s rows: plain %s bytes, written in %s ms, read in %s ms; "
+                           + "gzip %s bytes, written in %s ms, read in %s ms",
+                           history.size(),
+                           plain.length(),
+                           writeTimes[0] / 1000000,
+                           readTimes[0] / 1000000,
+                           gzip.length(),
+                           writeTimes[1] / 1000000,
+                           readTimes[1] / 1000000));
+    assertTrue(gzip.length() * 3 < plain.length());
+  }
+
+  private File createTempFile(String prefix, String suffix) throws IOException
+  {
+    File file = File.createTempFile(prefix, suffix);
+    tempFiles.add(file);
+    return file;
+  }
+
+  private String read(File file) throws Exception
+  {
+    return Joiner.on(System.lineSeparator()).join(Files.readAllLines(file.toPath(), Charset.defaultCharset()));
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testNullResultsToFile() throws Exception
+  {
+    File file = createTempFile("test-list", "csv");
+    export.export((SortedSet<MatchResult>) null, file);
   }
 
   @Test(expectedExceptions = NullPointerException.class)
@@ -0,0 +1,163 @@
+package se.samuelandersson.rocketleague.export;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+
+public class CSVRowWriterTest
+{
+  private static final Logger log = LoggerFactory.getLogger(CSVRowWriterTest.class);
+
+  private static final int[] PLAYLISTS = { MatchResult.UNRANKED, MatchResult.RANKED_1V1, MatchResult.RANKED_2V2,
+      MatchResult.SOLO_RANKED_3V3, MatchResult.RANKED_3V3 };
+
+  /**
+   * Formats a row the way the exporter used to, with a formatter and a pattern per column.
+   */
+  private static String formatted(final MatchHistory history, final int index)
+  {
+    DateTime time = new DateTime(history.getEpochSecond(index) * 1000);
+    return String.format("%s,%s,%s,%s,%s,%s,%s",
+                         time.toString("YYYY-MM-dd"),
+                         time.toString("HH:mm:ss"),
+                         MatchResult.getPlaylistName(history.getPlayList(index)),
+                         history.getSkillMean(index),
+                         history.getSkillSigma(index),
+                         history.getDeltaPoints(index),
+                         history.getRankPreGame(index));
+  }
+
+  private static MatchHistory createHistory(final Random random, final int count, final long from, final long to)
+  {
+    MatchHistory history = new MatchHistory();
+    while (history.size() < count)
+    {
+      history.add(from + (long) (random.nextDouble() * (to - from)),
+                  PLAYLISTS[random.nextInt(PLAYLISTS.length)],
+                  random.nextInt(),
+                  random.nextInt(3000) - 10,
+                  random.nextFloat() * 60,
+                  random.nextFloat() * 10);
+    }
+
+    return history;
+  }
+
+  @Test
+  public void testSameAsFormatter() throws Exception
+  {
+    Random random = new Random(1);
+    DateTimeZone defaultZone = DateTimeZone.getDefault();
+    try
+    {
+      for (String id : new String[] { "UTC", "Europe/Stockholm", "America/St_Johns", "Asia/Kathmandu" })
+      {
+        DateTimeZone.setDefault(DateTimeZone.forID(id));
+
+        // from year 1 to year 9999, including the days around every leap day in between
+        MatchHistory history = createHistory(random, 5000, -62135596800L, 253402300799L);
+        for (int year = 1; year < 10000; year += random.nextInt(40) + 1)
+        {
+          long leapDay = new DateTime(year, 2, 28, 23, 59, 59).getMillis() / 1000;
+          history.add(leapDay, MatchResult.RANKED_1V1, 0, 0, 0, 0);
+          history.add(leapDay + 24 * 60 * 60, MatchResult.RANKED_1V1, 0, 0, 0, 0);
+        }
+        history.add(0, MatchResult.RANKED_2V2, Integer.MIN_VALUE, Integer.MAX_VALUE, Float.MIN_VALUE, -1f);
+        history.add(-1, MatchResult.RANKED_2V2, -1, 0, 1e-5f, 1e7f);
+
+        CSVRowWriter row = new CSVRowWriter();
+        for (int i = 0; i < history.size(); i++)
+        {
+          assertEquals(row.format(history, i).toString(), formatted(history, i), id);
+        }
+      }
+    }
+    finally
+    {
+      DateTimeZone.setDefault(defaultZone);
+    }
+  }
+
+  @Test
+  public void testWriteTo() throws Exception
+  {
+    MatchHistory history = createHistory(new Random(2), 2, 0, 2000000000L);
+    StringBuilder out = new StringBuilder();
+    Writer writer = new Writer()
+    {
+      @Override
+      public void write(char[] cbuf, int off, int len) throws IOException
+      {
+        out.append(cbuf, off, len);
+      }
+
+      @Override
+      public void flush()
+      {
+      }
+
+      @Override
+      public void close()
+      {
+      }
+    };
+
+    CSVRowWriter row = new CSVRowWriter();
+    row.format(history, 0).writeTo(writer);
+    row.format(history, 1).writeTo(writer);
+    assertEquals(out.toString(), formatted(history, 0) + formatted(history, 1));
+  }
+
+  @Test(groups = "benchmark")
+  public void testRowsPerSecond() throws Exception
+  {
+    final int count = 200000;
+    MatchHistory history = createHistory(new Random(3), count, 0, 2000000000L);
+
+    // the best of a few rounds, so that both get compiled before being measured
+    long formatterTime = Long.MAX_VALUE;
+    long rowWriterTime = Long.MAX_VALUE;
+    long formatterLength = 0;
+    long rowWriterLength = 0;
+    for (int round = 0; round < 3; round++)
+    {
+      long started = System.nanoTime();
+      formatterLength = 0;
+      for (int i = 0; i < count; i++)
+      {
+        formatterLength += formatted(history, i).length();
+      }
+      formatterTime = Math.min(formatterTime, System.nanoTime() - started);
+
+      started = System.nanoTime();
+      rowWriterLength = 0;
+      CSVRowWriter row = new CSVRowWriter();
+      CharArrayWriter out = new CharArrayWriter();
+      for (int i = 0; i < count; i++)
+      {
+        out.reset();
+        row.format(history, i).writeTo(out);
+        rowWriterLength += out.size();
+      }
+      rowWriterTime = Math.min(rowWriterTime, System.nanoTime() - started);
+    }
+
+    assertEquals(rowWriterLength, formatterLength);
+    log.info(String.format("%s rows: formatter %s rows/s, row writer %s rows/s",
+                           count,
+                           count * 1000000000L / formatterTime,
+                           count * 1000000000L / rowWriterTime));
+  }
+}
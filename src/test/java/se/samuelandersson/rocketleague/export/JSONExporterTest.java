@@ -0,0 +1,92 @@
+package se.samuelandersson.rocketleague.export;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.ISODateTimeFormat;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class JSONExporterTest
+{
+  private JSONExporter export = new JSONExporter();
+
+  private static MatchHistory createHistory()
+  {
+    SortedSet<MatchResult> results = new TreeSet<>();
+    results.add(new MatchResult(new DateTime("2015-01-02T10:11:12"), MatchResult.SOLO_RANKED_3V3, 10, 800, 50.1f, 2.48f));
+    results.add(new MatchResult(new DateTime("2015-01-02T00:00:00"), MatchResult.UNRANKED, -7, 600));
+    results.add(new MatchResult(new DateTime("2016-12-31T23:59:59"), MatchResult.RANKED_1V1, 0, 0, 1.0E-5f, 1e7f));
+    return MatchHistory.of(results);
+  }
+
+  @Test
+  public void testHistoryToString()
+  {
+    JsonArray array = new JsonParser().parse(export.toString(createHistory())).getAsJsonArray();
+    assertEquals(array.size(), 3);
+
+    JsonObject result = array.get(1).getAsJsonObject();
+    assertEquals(result.get("time").getAsString(),
+                 ISODateTimeFormat.dateTimeNoMillis().print(new DateTime("2015-01-02T10:11:12")));
+    assertEquals(result.get("playList").getAsString(), "solo-3v3");
+    assertEquals(result.get("mu").getAsFloat(), 50.1f);
+    assertEquals(result.get("sigma").getAsFloat(), 2.48f);
+    assertEquals(result.get("deltaPoints").getAsInt(), 10);
+    assertEquals(result.get("rankPoints").getAsInt(), 800);
+
+    // the floats are written like in the Csv files
+    assertTrue(export.toString(createHistory()).contains("\"mu\":1.0E-5,"));
+    assertEquals(export.toString(new MatchHistory()), "[]");
+  }
+
+  @Test
+  public void testWriteRange() throws Exception
+  {
+    MatchHistory history = createHistory();
+    StringWriter writer = new StringWriter();
+    assertEquals(export.write(history, 1, 3, i -> history.getPlayList(i) == MatchResult.RANKED_1V1, writer), 1);
+
+    JsonArray array = new JsonParser().parse(writer.toString()).getAsJsonArray();
+    assertEquals(array.size(), 1);
+    assertEquals(array.get(0).getAsJsonObject().get("playList").getAsString(), "1v1");
+  }
+
+  @Test
+  public void testToFile() throws Exception
+  {
+    File file = File.createTempFile("test-json", ".json");
+    try
+    {
+      MatchHistory history = createHistory();
+      export.export(history, file);
+      String actual = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+      assertEquals(actual, export.toString(history));
+      assertEquals(export.getSuffix(), "json");
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testNullHistory() throws Exception
+  {
+    export.toString((MatchHistory) null);
+  }
+}
@@ -0,0 +1,84 @@
+package se.samuelandersson.rocketleague.export;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.File;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.Rollup.Period;
+import se.samuelandersson.rocketleague.parser.RollupParser;
+import se.samuelandersson.rocketleague.utils.RollupUtils;
+
+public class RollupExporterTest
+{
+  private static SortedSet<MatchResult> createResults()
+  {
+    SortedSet<MatchResult> results = new TreeSet<>();
+    results.add(new MatchResult(new DateTime("2015-09-29T10:11:12"), MatchResult.RANKED_2V2, 9, 700, 30.5f, 3.1f));
+    results.add(new MatchResult(new DateTime("2015-09-29T23:59:59"), MatchResult.RANKED_2V2, -8, 709, 30.125f, 3f));
+    results.add(new MatchResult(new DateTime("2015-10-01T00:00:00"), MatchResult.RANKED_2V2, 10, 701));
+    return results;
+  }
+
+  @Test
+  public void testToString()
+  {
+    String newLine = System.lineSeparator();
+    assertEquals(new RollupExporter(Period.DAY).toString(createResults()),
+                 RollupExporter.HEADER + newLine
+                     + "2015-09-29,2,1,1,701,30.125" + newLine
+                     + "2015-10-01,1,1,10,711,-1.0");
+    assertEquals(new RollupExporter(Period.WEEK).toString(createResults()),
+                 RollupExporter.HEADER + newLine + "2015-09-28,3,2,11,711,30.125");
+    assertEquals(new RollupExporter(Period.MONTH).toString(createResults()),
+                 RollupExporter.HEADER + newLine
+                     + "2015-09-01,2,1,1,701,30.125" + newLine
+                     + "2015-10-01,1,1,10,711,-1.0");
+    assertEquals(new RollupExporter(Period.DAY).toString(new MatchHistory()), RollupExporter.HEADER);
+  }
+
+  @Test
+  public void testToFile() throws Exception
+  {
+    File file = File.createTempFile("test-rollups", ".csv");
+    try
+    {
+      MatchHistory history = MatchHistory.of(createResults());
+      for (Period period : Period.values())
+      {
+        new RollupExporter(period).export(history, file);
+        assertEquals(new RollupParser().load(file),
+                     RollupUtils.rollUp(RollupUtils.getDays(history, 0, history.size(), -1), period));
+      }
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testPrefix()
+  {
+    assertEquals(new RollupExporter(Period.WEEK).getPrefix(), "rollup-week-");
+    assertEquals(new RollupExporter(Period.WEEK).getSuffix(), "csv");
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testNullHistory()
+  {
+    new RollupExporter(Period.DAY).toString((MatchHistory) null);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testNullPeriod()
+  {
+    new RollupExporter(null);
+  }
+}
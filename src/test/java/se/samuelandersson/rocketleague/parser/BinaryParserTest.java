@@ -0,0 +1,239 @@
+package se.samuelandersson.rocketleague.parser;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.LogFileHelper;
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.export.BinaryExporter;
+import se.samuelandersson.rocketleague.export.CSVExporter;
+
+public class BinaryParserTest
+{
+  private static final Logger log = LoggerFactory.getLogger(BinaryParserTest.class);
+
+  private BinaryParser parser = new BinaryParser();
+
+  @Test
+  public void testLoad() throws Exception
+  {
+    SortedSet<MatchResult> expected = new CSVParser().parse(LogFileHelper.getValidCsvLogFile("log.csv"));
+    File file = export(MatchHistory.of(expected));
+    try
+    {
+      MatchHistory history = parser.load(file);
+      assertTrue(history.isOffHeap());
+      assertEquals(history.toSortedSet(), expected);
+
+      // the file is mapped privately, changes are not written back
+      history.put(new MatchResult(new DateTime(expected.first().getTime()), MatchResult.RANKED_3V3, 99, 1, 2f, 3f));
+      assertEquals(parser.load(file).toSortedSet(), expected);
+      assertEquals(parser.parse(file), expected);
+
+      List<MatchResult> consumed = new ArrayList<>();
+      parser.parse(file, consumed::add);
+      assertEquals(consumed, new ArrayList<>(expected));
+    }
+    finally
+    {
+      Files.delete(file.toPath());
+    }
+  }
+
+  @Test
+  public void testLoadEmpty() throws Exception
+  {
+    File file = export(new MatchHistory());
+    try
+    {
+      assertTrue(parser.load(file).isEmpty());
+    }
+    finally
+    {
+      Files.delete(file.toPath());
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Checksum mismatch.*")
+  public void testCorrupt() throws Exception
+  {
+    File file = export(MatchHistory.of(new CSVParser().parse(LogFileHelper.getValidCsvLogFile("log.csv"))));
+    try
+    {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+      {
+        raf.seek(BinaryExporter.HEADER_SIZE + 9);
+        raf.write(42);
+      }
+      parser.load(file);
+    }
+    finally
+    {
+      Files.delete(file.toPath());
+    }
+  }
+
+  @Test
+  public void testLoadUnverified() throws Exception
+  {
+    MatchHistory expected = MatchHistory.of(new CSVParser().parse(LogFileHelper.getValidCsvLogFile("log.csv")));
+    File file = export(expected);
+    try
+    {
+      assertEquals(parser.load(file, false), expected);
+
+      // a changed record is not noticed without the checksum
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+      {
+        raf.seek(BinaryExporter.HEADER_SIZE + 9);
+        raf.write(42);
+      }
+      assertEquals(parser.load(file, false).size(), expected.size());
+    }
+    finally
+    {
+      Files.delete(file.toPath());
+    }
+  }
+
+  @Test
+  public void testRead() throws Exception
+  {
+    // more records than are read at a time
+    MatchHistory expected = new MatchHistory();
+    for (int i = 0; i < 10000; i++)
+    {
+      expected.add(i * 60L, MatchResult.RANKED_2V2, i % 20 - 10, 700 + i % 100, 28.6374f, 2.4856f);
+    }
+
+    File file = export(expected);
+    File empty = export(new MatchHistory());
+    try
+    {
+      MatchHistory onHeap = parser.read(file, new MatchHistory());
+      assertFalse(onHeap.isOffHeap());
+      assertEquals(onHeap, expected);
+
+      MatchHistory offHeap = parser.read(file, MatchHistory.offHeap());
+      assertTrue(offHeap.isOffHeap());
+      assertEquals(offHeap, expected);
+
+      assertTrue(parser.read(empty, new MatchHistory()).isEmpty());
+    }
+    finally
+    {
+      Files.delete(file.toPath());
+      Files.delete(empty.toPath());
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Checksum mismatch.*")
+  public void testReadCorrupt() throws Exception
+  {
+    File file = export(MatchHistory.of(new CSVParser().parse(LogFileHelper.getValidCsvLogFile("log.csv"))));
+    try
+    {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+      {
+        raf.seek(BinaryExporter.HEADER_SIZE + 9);
+        raf.write(42);
+      }
+      parser.read(file, new MatchHistory());
+    }
+    finally
+    {
+      Files.delete(file.toPath());
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testReadIntoNonEmptyHistory() throws Exception
+  {
+    MatchHistory history = new MatchHistory();
+    history.add(0, MatchResult.RANKED_2V2, 1, 700, -1, -1);
+    parser.read(LogFileHelper.getValidCsvLogFile("log.csv"), history);
+  }
+
+  @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".*not a history file")
+  public void testNotHistoryFile() throws Exception
+  {
+    parser.load(LogFileHelper.getValidCsvLogFile("log.csv"));
+  }
+
+  @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".*not a history file")
+  public void testNotHistoryFileUnverified() throws Exception
+  {
+    parser.load(LogFileHelper.getValidCsvLogFile("log.csv"), false);
+  }
+
+  @Test
+  public void testParseInvalid() throws Exception
+  {
+    assertTrue(parser.parse(LogFileHelper.getValidCsvLogFile("log.csv")).isEmpty());
+  }
+
+  @Test(groups = "benchmark")
+  public void testLoadTime() throws Exception
+  {
+    MatchHistory history = new MatchHistory();
+    DateTime time = new DateTime(2015, 9, 16, 22, 54, 46);
+    for (int i = 0; i < 200000; i++)
+    {
+      history.add(new MatchResult(time.plusMinutes(i), MatchResult.RANKED_2V2, i % 20 - 10, 700 + i % 100, 28.6374f, 2.4856f));
+    }
+
+    File csv = File.createTempFile("ranktracker", ".csv");
+    File binary = export(history);
+    try
+    {
+      new CSVExporter().export(history, csv);
+
+      // warm up both parsers before measuring
+      new CSVParser().parse(csv, r -> {});
+      parser.load(binary);
+
+      long start = System.nanoTime();
+      MatchHistory fromCsv = new MatchHistory();
+      new CSVParser().parse(csv, fromCsv::add);
+      long csvTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      MatchHistory loaded = parser.load(binary);
+      long binaryTime = System.nanoTime() - start;
+
+      assertEquals(loaded, fromCsv);
+      log.info(String.format("Loaded %s results: CSV %.1f ms, binary %.1f ms (%.0fx)",
+                             history.size(),
+                             csvTime / 1e6,
+                             binaryTime / 1e6,
+                             (double) csvTime / binaryTime));
+    }
+    finally
+    {
+      Files.delete(csv.toPath());
+      Files.delete(binary.toPath());
+    }
+  }
+
+  private File export(MatchHistory history) throws IOException
+  {
+    File file = File.createTempFile("history", ".bin");
+    new BinaryExporter().export(history, file);
+    return file;
+  }
+}
@@ -2,15 +2,26 @@ package se.samuelandersson.rocketleague.parser;
 
 import static org.testng.Assert.*;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.SortedSet;
+import java.util.TreeSet;
 
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 
 import se.samuelandersson.rocketleague.LogFileHelper;
 import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.export.CSVExporter;
 
 public class CSVParserTest
 {
+  private static final Logger log = LoggerFactory.getLogger(CSVParserTest.class);
+
   private final CSVParser parser = new CSVParser();
 
   @Test
@@ -22,6 +33,35 @@ public class CSVParserTest
     assertEquals(results.first().getSkillSigma(), -1f);
   }
 
+  @Test
+  public void testParseConsumer() throws Exception
+  {
+    List<MatchResult> streamed = new ArrayList<>();
+    parser.parse(LogFileHelper.getValidCsvLogFile("logWithMu.csv"), streamed::add);
+    assertEquals(streamed.size(), 2);
+    assertEquals(new TreeSet<>(streamed), parser.parse(LogFileHelper.getValidCsvLogFile("logWithMu.csv")));
+
+    streamed.clear();
+    parser.parse(LogFileHelper.getInvalidCsvLogFile("badheader.csv"), streamed::add);
+    assertTrue(streamed.isEmpty());
+  }
+
+  @Test
+  public void testParseCompressed() throws Exception
+  {
+    File file = LogFileHelper.getValidCsvLogFile("logWithMu.csv");
+    File compressed = LogFileHelper.gzip(file);
+    try
+    {
+      assertEquals(parser.parse(compressed), parser.parse(file));
+      assertEquals(parser.parse(compressed).size(), 2);
+    }
+    finally
+    {
+      compressed.delete();
+    }
+  }
+
   @Test
   public void testParseMu() throws Exception
   {
@@ -41,6 +81,24 @@ public class CSVParserTest
     assertEquals(results.first().getPlayList(), MatchResult.SOLO_RANKED_3V3);
   }
 
+  @Test
+  public void testParseMixedLayouts() throws Exception
+  {
+    for (String name : new String[] { "mixed.csv", "mixedWithMu.csv" })
+    {
+      CSVParser parser = new CSVParser();
+      SortedSet<MatchResult> results = parser.parse(LogFileHelper.getValidCsvLogFile(name));
+      assertEquals(results.size(), 2, name);
+      assertEquals(parser.getStatistics().getAccepted(), 2, name);
+      assertEquals(results.first().getRankPreGame(), 862, name);
+      assertEquals(results.first().getSkillMean(), -1f, name);
+      assertEquals(results.first().getSkillSigma(), -1f, name);
+      assertEquals(results.last().getRankPreGame(), 856, name);
+      assertEquals(results.last().getSkillMean(), 50f, name);
+      assertEquals(results.last().getSkillSigma(), 2.5f, name);
+    }
+  }
+
   @Test
   public void testParseBadFormat() throws Exception
   {
@@ -48,6 +106,20 @@ public class CSVParserTest
     assertEquals(results.size(), 0);
   }
 
+  @Test
+  public void testParseStatistics() throws Exception
+  {
+    CSVParser parser = new CSVParser();
+    parser.parse(LogFileHelper.getValidCsvLogFile("logWithMu.csv"));
+    assertEquals(parser.getStatistics().getLines(), 2);
+    assertEquals(parser.getStatistics().getAccepted(), 2);
+
+    parser.parse(LogFileHelper.getInvalidCsvLogFile("badformat.csv"));
+    assertEquals(parser.getStatistics().getLines(), 2);
+    assertEquals(parser.getStatistics().getPrefilterRejected(), 2);
+    assertEquals(parser.getStatistics().getAccepted(), 0);
+  }
+
   @Test
   public void testParseBadHeader() throws Exception
   {
@@ -75,4 +147,53 @@ public class CSVParserTest
     SortedSet<MatchResult> results = parser.parse(LogFileHelper.getInvalidCsvLogFile("playlistAsBadNumber.csv"));
     assertEquals(results.size(), 0);
   }
+
+  @Test
+  public void testParseWithoutTokenizer() throws Exception
+  {
+    CSVParser parser = new CSVParser(false);
+    assertEquals(parser.parse(LogFileHelper.getValidCsvLogFile("logWithMu.csv")),
+                 this.parser.parse(LogFileHelper.getValidCsvLogFile("logWithMu.csv")));
+    assertEquals(parser.parse(LogFileHelper.getInvalidCsvLogFile("badvalues.csv")).size(), 0);
+  }
+
+  @Test(groups = "benchmark")
+  public void testThroughput() throws Exception
+  {
+    SortedSet<MatchResult> results = new TreeSet<>();
+    DateTime time = new DateTime(2015, 9, 16, 22, 54, 46);
+    for (int i = 0; i < 200000; i++)
+    {
+      results.add(new MatchResult(time.plusMinutes(i), MatchResult.RANKED_2V2, i % 20 - 10, 700 + i % 100, 28.6374f, 2.4856f));
+    }
+
+    File file = Files.createTempFile("ranktracker", ".csv").toFile();
+    try
+    {
+      new CSVExporter().export(results, file);
+
+      // warm up both variants before measuring
+      new CSVParser(false).parse(file);
+      new CSVParser().parse(file);
+
+      long start = System.nanoTime();
+      SortedSet<MatchResult> expected = new CSVParser(false).parse(file);
+      long splitTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      SortedSet<MatchResult> actual = new CSVParser().parse(file);
+      long tokenizerTime = System.nanoTime() - start;
+
+      assertEquals(actual, expected);
+      log.info(String.format("Parsed %s rows: splitting %.0f rows/s, tokenizer %.0f rows/s (%.1fx)",
+                             results.size(),
+                             results.size() / (splitTime / 1e9),
+                             results.size() / (tokenizerTime / 1e9),
+                             (double) splitTime / tokenizerTime));
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
 }
@@ -0,0 +1,113 @@
+package se.samuelandersson.rocketleague.parser;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.export.CSVExporter;
+
+public class CSVRowTokenizerTest
+{
+  private final CSVRowTokenizer tokenizer = new CSVRowTokenizer();
+
+  @Test
+  public void testDecode() throws Exception
+  {
+    MatchResult result = tokenizer.decode("2015-09-16,22:54:46,solo-3v3,28.6374,2.4856,-10,735");
+    assertNotNull(result);
+    assertEquals(result.getTime(), new DateTime(2015, 9, 16, 22, 54, 46));
+    assertEquals(result.getPlayList(), MatchResult.SOLO_RANKED_3V3);
+    assertEquals(result.getSkillMean(), 28.6374f);
+    assertEquals(result.getSkillSigma(), 2.4856f);
+    assertEquals(result.getDeltaPoints(), -10);
+    assertEquals(result.getRankPreGame(), 735);
+
+    result = tokenizer.decode("2015-01-01,00:00:00,unranked,-1.0,-1.0,0,1000");
+    assertNotNull(result);
+    assertEquals(result.getPlayList(), MatchResult.UNRANKED);
+    assertEquals(result.getSkillMean(), -1f);
+    assertEquals(result.getSkillSigma(), -1f);
+
+    result = tokenizer.decode("2015-01-01,00:00:00,1v1,28.637400001,2.4856,-2147483648,2147483647");
+    assertNotNull(result);
+    assertEquals(result.getSkillMean(), 28.637400001f);
+    assertEquals(result.getDeltaPoints(), Integer.MIN_VALUE);
+    assertEquals(result.getRankPreGame(), Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void testDecodeRejectsOtherFormats() throws Exception
+  {
+    String[] lines = { "",
+                       "Date,Time,PlayList,Mu,Sigma,DeltaPoints,RankPoints",
+                       "2015-09-16,22:54:46,1v1,-6,862",
+                       "2015-9-16,22:54:46,1v1,50.0,2.5,-6,862",
+                       "2015-09-16,22:54:46,10,50.0,2.5,-6,862",
+                       "2015-09-16,22:54:46,Ranked 1v1,50.0,2.5,-6,862",
+                       "2015-09-16,22:54:46,1v1,50,2.5,-6,862",
+                       "2015-09-16,22:54:46,1v1,.5,2.5,-6,862",
+                       "2015-09-16,22:54:46,1v1,1.0E-4,2.5,-6,862",
+                       "2015-09-16,22:54:46,1v1, 50.0,2.5,-6,862",
+                       "2015-09-16,22:54:46,1v1,50.0,2.5,+6,862",
+                       "2015-09-16,22:54:46,1v1,50.0,2.5,-6,2147483648",
+                       "2015-09-16,22:54:46,1v1,50.0,2.5,-6,862,",
+                       "2015-19-16,22:54:46,1v1,50.0,2.5,-6,862",
+                       "2015-02-30,22:54:46,1v1,50.0,2.5,-6,862",
+                       "2015-09-16,22:54:66,1v1,50.0,2.5,-6,862" };
+
+    for (String line : lines)
+    {
+      assertNull(tokenizer.decode(line), line);
+    }
+  }
+
+  @Test
+  public void testSameResultsAsRowDecoder() throws Exception
+  {
+    Random random = new Random(1);
+    SortedSet<MatchResult> results = new TreeSet<>();
+    int[] playlists = { MatchResult.UNRANKED, MatchResult.RANKED_1V1, MatchResult.RANKED_2V2,
+        MatchResult.SOLO_RANKED_3V3, MatchResult.RANKED_3V3 };
+    DateTime time = new DateTime(2015, 9, 16, 22, 54, 46);
+    for (int i = 0; i < 10000; i++)
+    {
+      time = time.plusSeconds(random.nextInt(100000));
+      float mu = i % 100 == 0 ? -1f : random.nextFloat() * (float) Math.pow(10, random.nextInt(12) - 6);
+      float sigma = random.nextFloat() * 3;
+      results.add(new MatchResult(time,
+                                  playlists[random.nextInt(playlists.length)],
+                                  random.nextInt(41) - 20,
+                                  random.nextInt(2000),
+                                  mu,
+                                  sigma));
+    }
+
+    File file = Files.createTempFile("ranktracker", ".csv").toFile();
+    try
+    {
+      new CSVExporter().export(results, file);
+
+      List<MatchResult> expected = new ArrayList<>();
+      new CSVParser(false).parse(file, expected::add);
+      List<MatchResult> actual = new ArrayList<>();
+      new CSVParser().parse(file, actual::add);
+
+      assertEquals(actual.size(), results.size());
+      assertEquals(actual, expected);
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+}
@@ -3,8 +3,11 @@ package se.samuelandersson.rocketleague.parser;
 import static org.testng.Assert.*;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -266,6 +269,40 @@ public class LogFileParserTest
     assertEquals(result.size(), 0);
   }
 
+  @Test(groups = "parse")
+  public void testParseConsumer() throws Exception
+  {
+    File ranked = LogFileHelper.getValidRLLogFile("ranked.log");
+    List<MatchResult> streamed = new ArrayList<>();
+    getParserWithoutLogStart().parse(ranked, streamed::add);
+
+    // the results are streamed in file order, which for a log file is chronological
+    assertEquals(new ArrayList<>(new TreeSet<>(streamed)), streamed);
+    assertEquals(new TreeSet<>(streamed), getParserWithoutLogStart().parse(ranked));
+  }
+
+  @Test(groups = "parse")
+  public void testParseStatistics() throws Exception
+  {
+    LogFileParser parser = getParserWithoutLogStart();
+    parser.parse(LogFileHelper.getValidRLLogFile("ranked.log"));
+
+    ParseStatistics statistics = parser.getStatistics();
+    assertEquals(statistics.getLines(), 19);
+    assertEquals(statistics.getPrefilterRejected(), 10);
+    assertEquals(statistics.getPatternRejected(), 0);
+    assertEquals(statistics.getAccepted(), 9);
+  }
+
+  @Test
+  public void testIsRankPointsCandidate() throws Exception
+  {
+    assertTrue(LogFileParser.isRankPointsCandidate("[1004.89] RankPoints: ClientSetSkill Playlist=10 Mu=28.6374"));
+    assertFalse(LogFileParser.isRankPointsCandidate("[1004.89] Log: Log file closed, 09/24/15 20:36:44"));
+    assertFalse(LogFileParser.isRankPointsCandidate("RankPoints: ClientSetSkill Playlist=10 Mu=28.6374"));
+    assertFalse(LogFileParser.isRankPointsCandidate(""));
+  }
+
   @Test(groups = "parse")
   public void testParseBadLogStart() throws Exception
   {
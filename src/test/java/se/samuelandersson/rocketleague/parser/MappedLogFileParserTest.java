@@ -0,0 +1,461 @@
+package se.samuelandersson.rocketleague.parser;
+
+import static org.testng.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.LogFileFingerprint;
+import se.samuelandersson.rocketleague.LogFileHelper;
+import se.samuelandersson.rocketleague.LogFileState;
+import se.samuelandersson.rocketleague.MatchResult;
+
+public class MappedLogFileParserTest
+{
+  private static final Logger log = LoggerFactory.getLogger(MappedLogFileParserTest.class);
+
+  private void assertSameResults(File file)
+  {
+    assertSameResults(file, new MappedLogFileParser());
+  }
+
+  private void assertSameResults(File file, MappedLogFileParser parser)
+  {
+    SortedSet<MatchResult> expected = new LogFileParser().parse(file);
+    SortedSet<MatchResult> actual = parser.parse(file);
+
+    assertEquals(actual.size(), expected.size());
+    Iterator<MatchResult> it = actual.iterator();
+    for (MatchResult result : expected)
+    {
+      assertEquals(it.next(), result);
+    }
+  }
+
+  @Test(groups = "parse")
+  public void testParse() throws Exception
+  {
+    MappedLogFileParser parser = new MappedLogFileParser();
+    SortedSet<MatchResult> result = parser.parse(LogFileHelper.getValidRLLogFile("ranked.log"));
+    assertEquals(result.size(), 8);
+    // only the log start and the lines containing the marker are examined
+    assertEquals(parser.getStatistics().getLines(), 9);
+    assertEquals(parser.getStatistics().getAccepted(), 9);
+
+    assertSameResults(LogFileHelper.getValidRLLogFile("ranked.log"));
+    assertSameResults(LogFileHelper.getValidRLLogFile("unranked.log"));
+    assertSameResults(LogFileHelper.getValidRLLogFile("mixed.log"));
+    assertSameResults(LogFileHelper.getValidRLLogFile("empty.log"));
+  }
+
+  @Test(groups = "parse")
+  public void testParseInvalid() throws Exception
+  {
+    assertEquals(new MappedLogFileParser().parse(LogFileHelper.getInvalidRLLogFile("badlogstart.log")).size(), 0);
+    assertEquals(new MappedLogFileParser().parse(LogFileHelper.getInvalidRLLogFile("missinglogstart.log")).size(), 0);
+    assertEquals(new MappedLogFileParser().parse(LogFileHelper.getInvalidRLLogFile("badranked.log")).size(), 0);
+  }
+
+  @Test(groups = "parse")
+  public void testParseReused() throws Exception
+  {
+    // a parser used for several files determines the log start of every file by itself
+    MappedLogFileParser parser = new MappedLogFileParser();
+    SortedSet<MatchResult> expected = parser.parse(LogFileHelper.getValidRLLogFile("ranked.log"));
+    assertEquals(parser.parse(LogFileHelper.getInvalidRLLogFile("missinglogstart.log")).size(), 0);
+    assertNull(parser.getState());
+    assertEquals(parser.parse(LogFileHelper.getValidRLLogFile("ranked.log")), expected);
+  }
+
+  @Test(groups = "parse")
+  public void testParseMissingFile() throws Exception
+  {
+    assertEquals(new MappedLogFileParser().parse(new File("does-not-exist.log")).size(), 0);
+  }
+
+  @Test(groups = "parse")
+  public void testParseLineEndings() throws Exception
+  {
+    String bigInt = String.valueOf(Integer.MAX_VALUE) + "0";
+    File file = createLogFile("\r\n",
+                              "Init: WinSock: version 1.1 (2.2), MaxSocks=32767, MaxUdp=65467",
+                              "[0001.00] RankPoints: ClientSetSkill Playlist=10 Mu=28.6374 Sigma=2.4856 DeltaRankPoints=-10 RankPoints=735",
+                              "[0002.00] RankPoints: ClientSetSkill Playlist=11 Mu=1.23456789012 Sigma=2.4856 DeltaRankPoints=4 RankPoints=735",
+                              "[0003.00] RankPoints: ClientSetSkill Playlist=9 Mu=28.6374 Sigma=2.4856 DeltaRankPoints=4 RankPoints=735",
+                              "[0004.00] RankPoints: ClientSetSkill Playlist=12 Mu=28.6374 Sigma=2.4856 DeltaRankPoints=4 RankPoints=" + bigInt,
+                              "[0005.00] RankPoints: ClientSetSkill Playlist=12 Mu=28.6374 Sigma=2.4856 DeltaRankPoints=4 RankPoints=1 trailing",
+                              "noise [0006.00] RankPoints: ClientSetSkill Playlist=12 Mu=28.6374 Sigma=2.4856 DeltaRankPoints=4 RankPoints=1",
+                              "[0007.00] RankPoints: ClientSetSkill Playlist=13 Mu=28.6374 Sigma=2.4856 DeltaRankPoints=0004 RankPoints=0100\r[0008.00] RankPoints: ClientSetSkill Playlist=0 Mu=8 Sigma=2.4856 DeltaRankPoints=4 RankPoints=1",
+                              "[" + bigInt + ".00] RankPoints: ClientSetSkill Playlist=13 Mu=28.6374 Sigma=2.4856 DeltaRankPoints=4 RankPoints=1");
+    try
+    {
+      SortedSet<MatchResult> results = new MappedLogFileParser().parse(file);
+      assertEquals(results.size(), 4);
+      assertEquals(results.first().getTime().getYear(), 1970);
+      assertSameResults(file);
+      assertSameResults(file, new MappedLogFileParser(4, 16));
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test(groups = "parse")
+  public void testParseConsumer() throws Exception
+  {
+    File file = createLargeLogFile(20000);
+    try
+    {
+      List<MatchResult> expected = new ArrayList<>();
+      new LogFileParser().parse(file, expected::add);
+
+      List<MatchResult> sequential = new ArrayList<>();
+      new MappedLogFileParser().parse(file, sequential::add);
+      assertEquals(sequential, expected);
+
+      // the chunks are parsed concurrently, but their results are still streamed in file order
+      List<MatchResult> chunked = new ArrayList<>();
+      new MappedLogFileParser(4, 1024).parse(file, chunked::add);
+      assertEquals(chunked, expected);
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test(groups = "parse")
+  public void testParseChunked() throws Exception
+  {
+    File file = createLargeLogFile(20000);
+    try
+    {
+      MappedLogFileParser sequential = new MappedLogFileParser();
+      MappedLogFileParser chunked = new MappedLogFileParser(4, 1024);
+      assertEquals(chunked.parse(file), sequential.parse(file));
+      assertEquals(chunked.getStatistics().getAccepted(), sequential.getStatistics().getAccepted());
+
+      assertSameResults(file, new MappedLogFileParser(3, 1));
+      assertSameResults(LogFileHelper.getValidRLLogFile("ranked.log"), new MappedLogFileParser(4, 1));
+      assertSameResults(LogFileHelper.getInvalidRLLogFile("missinglogstart.log"), new MappedLogFileParser(4, 1));
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test(groups = "parse")
+  public void testParseResume() throws Exception
+  {
+    File file = createLogFile("\n", rankPoints(1, 10), rankPoints(2, 11));
+    try
+    {
+      MappedLogFileParser parser = new MappedLogFileParser();
+      assertEquals(parser.parse(file).size(), 2);
+      LogFileState state = parser.getState();
+      assertNotNull(state);
+      // the last line could still be in the process of being written, so it is parsed again when resuming
+      assertEquals(state.getOffset(), file.length() - rankPoints(2, 11).length());
+
+      appendToFile(file, "\n" + rankPoints(3, 12) + "\n");
+      parser = new MappedLogFileParser();
+      SortedSet<MatchResult> results = parser.parse(file, state);
+      assertEquals(results.size(), 2);
+      assertEquals(results.last().getPlayList(), 12);
+      assertEquals(parser.getStatistics().getLines(), 2);
+      assertEquals(parser.getState().getOffset(), file.length());
+      assertEquals(parser.getState().getLogStart(), state.getLogStart());
+
+      SortedSet<MatchResult> all = new MappedLogFileParser().parse(file);
+      assertEquals(all.last(), results.last());
+
+      parser = new MappedLogFileParser();
+      assertEquals(parser.parse(file, parser.getState()).size(), 3);
+      assertEquals(new MappedLogFileParser().parse(file, parser.getState()).size(), 0);
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test(groups = "parse")
+  public void testParseCompressed() throws Exception
+  {
+    for (String name : new String[] { "ranked.log", "mixed.log" })
+    {
+      File file = LogFileHelper.getValidRLLogFile(name);
+      File compressed = LogFileHelper.gzip(file);
+      try
+      {
+        MappedLogFileParser parser = new MappedLogFileParser();
+        assertEquals(parser.parse(compressed, (LogFileState) null), new MappedLogFileParser().parse(file));
+        assertNull(parser.getState());
+        assertEquals(new LogFileParser().parse(compressed), new LogFileParser().parse(file));
+      }
+      finally
+      {
+        compressed.delete();
+      }
+    }
+  }
+
+  @Test(groups = "parse")
+  public void testParseResumeReplacedFile() throws Exception
+  {
+    File file = createLogFile("\n", rankPoints(1, 10), rankPoints(2, 11), "");
+    try
+    {
+      MappedLogFileParser parser = new MappedLogFileParser();
+      parser.parse(file);
+      LogFileState state = parser.getState();
+
+      try (BufferedWriter writer = new BufferedWriter(new FileWriter(file)))
+      {
+        writer.write("Log: Log file open, 09/25/15 10:00:00\n");
+        writer.write(rankPoints(5, 10) + "\n");
+        writer.write(rankPoints(6, 11) + "\n");
+        writer.write(rankPoints(7, 12) + "\n");
+      }
+
+      parser = new MappedLogFileParser();
+      SortedSet<MatchResult> results = parser.parse(file, state);
+      assertEquals(results.size(), 3);
+      assertEquals(results.first().getTime().getDayOfMonth(), 25);
+      assertNotEquals(parser.getState().getPrefixChecksum(), state.getPrefixChecksum());
+
+      // a state past the end of the file can't be resumed either
+      file.delete();
+      file = createLogFile("\n", rankPoints(1, 10));
+      assertEquals(new MappedLogFileParser().parse(file, parser.getState()).size(), 1);
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testFingerprint() throws Exception
+  {
+    File file = createLogFile("\n", rankPoints(1, 10), rankPoints(2, 11), "");
+    File renamed = new File(file.getPath() + ".renamed");
+    try
+    {
+      MappedLogFileParser parser = new MappedLogFileParser();
+      parser.parse(file);
+      LogFileFingerprint fingerprint = parser.getFingerprint();
+      assertNotNull(fingerprint);
+      assertEquals(fingerprint.getSize(), file.length());
+      assertEquals(fingerprint.getLogStart(), parser.getLogStart().getMillis());
+      assertEquals(MappedLogFileParser.fingerprint(file), fingerprint);
+
+      // the name does not matter, only the content
+      Files.copy(file.toPath(), renamed.toPath());
+      assertEquals(MappedLogFileParser.fingerprint(renamed), fingerprint);
+
+      // but a file that has grown is another file
+      Files.write(renamed.toPath(), (rankPoints(3, 12) + "\n").getBytes(), StandardOpenOption.APPEND);
+      assertNotEquals(MappedLogFileParser.fingerprint(renamed), fingerprint);
+      parser.parse(renamed, parser.getState());
+      assertEquals(parser.getFingerprint(), MappedLogFileParser.fingerprint(renamed));
+
+      // as is a file with another log start
+      Files.write(renamed.toPath(), Files.readAllBytes(file.toPath()));
+      assertEquals(MappedLogFileParser.fingerprint(renamed), fingerprint);
+      byte[] bytes = Files.readAllBytes(file.toPath());
+      bytes[new String(bytes).indexOf("19:34:25") + 7]++;
+      Files.write(renamed.toPath(), bytes);
+      assertNotEquals(MappedLogFileParser.fingerprint(renamed).getLogStart(), fingerprint.getLogStart());
+    }
+    finally
+    {
+      file.delete();
+      renamed.delete();
+    }
+  }
+
+  @Test
+  public void testNoFingerprint() throws Exception
+  {
+    assertNull(MappedLogFileParser.fingerprint(new File("missing.log")));
+
+    // without a log start, and compressed
+    File file = createLogFile("\n", rankPoints(1, 10));
+    File noLogStart = createLogFile("\n");
+    Files.write(noLogStart.toPath(), "Init: Engine initialized\n".getBytes());
+    File compressed = LogFileHelper.gzip(file);
+    try
+    {
+      assertNotNull(MappedLogFileParser.fingerprint(file));
+      assertNull(MappedLogFileParser.fingerprint(noLogStart));
+      assertNull(MappedLogFileParser.fingerprint(compressed));
+
+      MappedLogFileParser parser = new MappedLogFileParser();
+      parser.parse(compressed);
+      assertNull(parser.getFingerprint());
+    }
+    finally
+    {
+      file.delete();
+      noLogStart.delete();
+      compressed.delete();
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadParallelism() throws Exception
+  {
+    new MappedLogFileParser(0);
+  }
+
+  @Test(groups = "benchmark")
+  public void testChunkedThroughput() throws Exception
+  {
+    File file = createLargeLogFile(500000);
+    try
+    {
+      int parallelism = Runtime.getRuntime().availableProcessors();
+      new MappedLogFileParser().parse(file);
+      new MappedLogFileParser(parallelism, 1024 * 1024).parse(file);
+
+      long start = System.nanoTime();
+      SortedSet<MatchResult> expected = new MappedLogFileParser().parse(file);
+      long sequentialTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      SortedSet<MatchResult> actual = new MappedLogFileParser(parallelism, 1024 * 1024).parse(file);
+      long chunkedTime = System.nanoTime() - start;
+
+      assertEquals(actual, expected);
+
+      double megabytes = file.length() / (1024.0 * 1024.0);
+      log.info(String.format("Parsed %.1f MB: 1 thread %.1f MB/s, %s threads %.1f MB/s (%.1fx)",
+                             megabytes,
+                             megabytes / (sequentialTime / 1e9),
+                             parallelism,
+                             megabytes / (chunkedTime / 1e9),
+                             (double) sequentialTime / chunkedTime));
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test(groups = "benchmark")
+  public void testThroughput() throws Exception
+  {
+    File file = createLargeLogFile(500000);
+    try
+    {
+      // warm up both parsers before measuring
+      new LogFileParser().parse(file);
+      new MappedLogFileParser().parse(file);
+
+      long start = System.nanoTime();
+      SortedSet<MatchResult> expected = new LogFileParser().parse(file);
+      long lineTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      SortedSet<MatchResult> actual = new MappedLogFileParser().parse(file);
+      long mappedTime = System.nanoTime() - start;
+
+      assertEquals(actual, expected);
+
+      double megabytes = file.length() / (1024.0 * 1024.0);
+      log.info(String.format("Parsed %.1f MB: LogFileParser %.1f MB/s, MappedLogFileParser %.1f MB/s (%.1fx)",
+                             megabytes,
+                             megabytes / (lineTime / 1e9),
+                             megabytes / (mappedTime / 1e9),
+                             (double) lineTime / mappedTime));
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  private String rankPoints(int seconds, int playlist)
+  {
+    return String.format("[%04d.00] RankPoints: ClientSetSkill Playlist=%d Mu=28.6374 Sigma=2.4856 DeltaRankPoints=-10 RankPoints=735",
+                         seconds,
+                         playlist);
+  }
+
+  private void appendToFile(File file, String str) throws Exception
+  {
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true)))
+    {
+      writer.write(str);
+    }
+  }
+
+  private File createLogFile(String lineSeparator, String... lines) throws Exception
+  {
+    File file = Files.createTempFile("ranktracker", ".log").toFile();
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(file)))
+    {
+      writer.write("Log: Log file open, 09/24/15 19:34:25");
+      for (String line : lines)
+      {
+        writer.write(lineSeparator);
+        writer.write(line);
+      }
+    }
+
+    return file;
+  }
+
+  /**
+   * Creates a log file where most of the lines are engine noise, like a real Rocket League log.
+   */
+  static File createLargeLogFile(int lines) throws Exception
+  {
+    Random random = new Random(lines);
+    File file = Files.createTempFile("ranktracker", ".log").toFile();
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(file)))
+    {
+      writer.write("Log: Log file open, 09/24/15 19:34:25");
+      for (int i = 0; i < lines; i++)
+      {
+        writer.newLine();
+        String time = String.format("[%04d.%02d]", i / 10, i % 100);
+        if (random.nextInt(1000) == 0)
+        {
+          writer.write(String.format("%s RankPoints: ClientSetSkill Playlist=%d Mu=%d.%04d Sigma=2.%04d DeltaRankPoints=%d RankPoints=%d",
+                                     time,
+                                     10 + random.nextInt(4),
+                                     20 + random.nextInt(30),
+                                     random.nextInt(10000),
+                                     random.nextInt(10000),
+                                     random.nextInt(30) - 15,
+                                     500 + random.nextInt(1000)));
+        }
+        else
+        {
+          writer.write(String.format("%s Log: ScriptLog: (TAGame.GFxData_Settings_TA) Engine event %d, Actor=TAGame.Car_TA_%d",
+                                     time,
+                                     random.nextInt(),
+                                     i));
+        }
+      }
+    }
+
+    return file;
+  }
+}
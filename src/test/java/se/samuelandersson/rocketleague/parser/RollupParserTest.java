@@ -0,0 +1,70 @@
+package se.samuelandersson.rocketleague.parser;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import org.joda.time.LocalDate;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.Rollup;
+import se.samuelandersson.rocketleague.export.RollupExporter;
+
+public class RollupParserTest
+{
+  private static File createFile(final String content) throws IOException
+  {
+    File file = File.createTempFile("test-rollups", ".csv");
+    Files.write(file.toPath(), content.getBytes(Charset.defaultCharset()));
+    return file;
+  }
+
+  @Test
+  public void testLoad() throws Exception
+  {
+    String newLine = System.lineSeparator();
+    File file = createFile(RollupExporter.HEADER + newLine + "2015-09-29,2,1,1,701,30.125" + newLine
+                           + "2015-10-01,1,1,10,711,-1.0" + newLine);
+    try
+    {
+      LocalDate day = new LocalDate("2015-09-29");
+      assertEquals(new RollupParser().load(file).size(), 2);
+      assertEquals(new RollupParser().load(file).get(day), new Rollup(day, 2, 1, 1, 701, 30.125f));
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testNotRollupFile() throws Exception
+  {
+    File file = createFile("Date,Time,PlayList,DeltaPoints,RankPoints");
+    try
+    {
+      new RollupParser().load(file);
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testInvalidRow() throws Exception
+  {
+    File file = createFile(RollupExporter.HEADER + System.lineSeparator() + "2015-09-29,2,one,1,701,30.125");
+    try
+    {
+      new RollupParser().load(file);
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package se.samuelandersson.rocketleague.parser;
+
+import static org.testng.Assert.*;
+
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.export.CSVExporter;
+
+public class RowDecoderTest
+{
+  @Test
+  public void testExportedHeaders() throws Exception
+  {
+    ParseStatistics statistics = new ParseStatistics();
+    RowDecoder decoder = RowDecoder.forHeader(CSVExporter.HEADER, true);
+    MatchResult result = decoder.decode("2015-09-16,22:54:46,3v3,-6,862", statistics);
+    assertEquals(result.getTime(), new DateTime(2015, 9, 16, 22, 54, 46));
+    assertEquals(result.getPlayList(), MatchResult.RANKED_3V3);
+    assertEquals(result.getSkillMean(), -1f);
+    assertEquals(result.getSkillSigma(), -1f);
+    assertEquals(result.getDeltaPoints(), -6);
+    assertEquals(result.getRankPreGame(), 862);
+
+    // a row that does not fit the header is decoded in the other layout written by the exporter
+    result = decoder.decode("2015-09-16,22:54:46,3v3,50.0,2.5,-6,862", statistics);
+    assertEquals(result.getSkillMean(), 50f);
+    assertEquals(result.getSkillSigma(), 2.5f);
+    assertEquals(result.getRankPreGame(), 862);
+    assertNull(decoder.decode("2015-09-16,22:54:46,3v3,-6", statistics));
+
+    decoder = RowDecoder.forHeader(CSVExporter.HEADER_WITH_MU, false);
+    result = decoder.decode("2015-09-16,22:54:46,12,50.0,2.5,-6,862", statistics);
+    assertEquals(result.getPlayList(), MatchResult.SOLO_RANKED_3V3);
+    assertEquals(result.getSkillMean(), 50f);
+    assertEquals(result.getSkillSigma(), 2.5f);
+    result = decoder.decode("2015-09-16,22:54:46,3v3,-6,862", statistics);
+    assertEquals(result.getSkillMean(), -1f);
+    assertEquals(result.getSkillSigma(), -1f);
+    assertEquals(result.getDeltaPoints(), -6);
+    assertNull(decoder.decode("2015-09-16,22:54:46,3v3,,2.5,-6,862", statistics));
+    assertNull(decoder.decode("2015-09-16,22:54:46,3v3,,862", statistics));
+
+    assertEquals(statistics.getAccepted(), 4);
+    assertEquals(statistics.getPrefilterRejected(), 1);
+    assertEquals(statistics.getPatternRejected(), 2);
+  }
+
+  @Test
+  public void testColumnsByName() throws Exception
+  {
+    ParseStatistics statistics = new ParseStatistics();
+    RowDecoder decoder = RowDecoder.forHeader("rankpoints, Comment ,Sigma,Date,Time,DeltaPoints,PlayList,Mu", true);
+    MatchResult result = decoder.decode("862,close one,2.5,2015-09-16,22:54:46,-6,1v1,50.0", statistics);
+    assertEquals(result.getTime(), new DateTime(2015, 9, 16, 22, 54, 46));
+    assertEquals(result.getPlayList(), MatchResult.RANKED_1V1);
+    assertEquals(result.getSkillMean(), 50f);
+    assertEquals(result.getSkillSigma(), 2.5f);
+    assertEquals(result.getDeltaPoints(), -6);
+    assertEquals(result.getRankPreGame(), 862);
+
+    decoder = RowDecoder.forHeader("Date,Time,PlayList,Mu,DeltaPoints,RankPoints", true);
+    result = decoder.decode("2015-09-16,22:54:46,1v1,50.0,-6,862", statistics);
+    assertEquals(result.getSkillMean(), 50f);
+    assertEquals(result.getSkillSigma(), -1f);
+  }
+
+  @Test
+  public void testMissingColumns() throws Exception
+  {
+    assertNull(RowDecoder.forHeader("So,Bad,Header,Omg", true));
+    assertNull(RowDecoder.forHeader("Date,Time,PlayList,DeltaPoints", true));
+    assertNull(RowDecoder.forHeader("2015-09-16,22:54:46,1v1,-6,862", true));
+    assertNull(RowDecoder.forHeader("", true));
+  }
+
+  @Test(expectedExceptions = NumberFormatException.class)
+  public void testInvalidValue() throws Exception
+  {
+    RowDecoder.forHeader(CSVExporter.HEADER, true).decode("2015-09-16,22:54:46,1v1,-6,RankPoints",
+                                                          new ParseStatistics());
+  }
+}
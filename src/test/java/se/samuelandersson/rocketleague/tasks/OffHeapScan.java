@@ -0,0 +1,20 @@
+package se.samuelandersson.rocketleague.tasks;
+
+import java.io.File;
+
+import se.samuelandersson.rocketleague.ScannedFiles;
+
+/**
+ * Runs an off-heap {@link ScanTask} on the folders given as arguments. Used by {@link ScanTaskTest} to scan in a JVM
+ * of its own, with a small heap.
+ *
+ * @author Samuel Andersson
+ */
+public class OffHeapScan
+{
+  public static void main(String[] args)
+  {
+    ScanTask task = new ScanTask(new ScanTask.Options().offHeap(true));
+    task.execute(new ScannedFiles(), new File(args[0]), new File(args[1]));
+  }
+}
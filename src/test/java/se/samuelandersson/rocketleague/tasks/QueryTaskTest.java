@@ -0,0 +1,218 @@
+package se.samuelandersson.rocketleague.tasks;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.ScannedFiles;
+import se.samuelandersson.rocketleague.export.CSVExporter;
+import se.samuelandersson.rocketleague.parser.BinaryParser;
+import se.samuelandersson.rocketleague.tasks.QueryTask.Format;
+import se.samuelandersson.rocketleague.utils.RankTrackerUtils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+public class QueryTaskTest
+{
+  private static final Logger log = LoggerFactory.getLogger(QueryTaskTest.class);
+
+  private static final long START = new DateTime("2015-01-01T00:00:00").getMillis() / 1000;
+
+  /** The temporary folders of the running test, deleted after it. */
+  private final List<File> tempFolders = new ArrayList<>();
+
+  @AfterMethod
+  public void deleteTempFolders() throws Exception
+  {
+    for (File folder : tempFolders)
+    {
+      deleteFolderTree(folder);
+    }
+    tempFolders.clear();
+  }
+
+  @Test
+  public void testQueryRange() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    RankTrackerUtils.writeHistoryToFile(createHistory(), baseFolder);
+
+    // every hour, alternating between the playlists: 1v1 at even hours and 2v2 at odd hours
+    StringWriter out = new StringWriter();
+    QueryTask task = new QueryTask(MatchResult.RANKED_1V1, START + 3600 * 10, START + 3600 * 20, Format.CSV, out);
+    task.execute(new ScannedFiles(), baseFolder, null);
+
+    assertEquals(task.getWritten(), 5);
+    BufferedReader reader = new BufferedReader(new StringReader(out.toString()));
+    assertTrue(reader.readLine().startsWith("Date,Time,PlayList"));
+    for (int hour = 10; hour < 20; hour += 2)
+    {
+      String line = reader.readLine();
+      assertTrue(line.contains(",1v1,"), line);
+      assertTrue(line.endsWith("," + hour), line);
+    }
+    assertEquals(reader.readLine(), null);
+  }
+
+  @Test
+  public void testQueryAllPlaylists() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    RankTrackerUtils.writeHistoryToFile(createHistory(), baseFolder);
+
+    StringWriter out = new StringWriter();
+    QueryTask task = new QueryTask(-1, Long.MIN_VALUE, Long.MAX_VALUE, Format.JSON, out);
+    task.execute(new ScannedFiles(), baseFolder, null);
+
+    assertEquals(task.getWritten(), 100);
+    JsonArray array = new JsonParser().parse(out.toString()).getAsJsonArray();
+    assertEquals(array.size(), 100);
+    assertEquals(array.get(0).getAsJsonObject().get("playList").getAsString(), "1v1");
+    assertEquals(array.get(1).getAsJsonObject().get("playList").getAsString(), "2v2");
+    assertEquals(array.get(99).getAsJsonObject().get("rankPoints").getAsInt(), 99);
+
+    // an empty range
+    out = new StringWriter();
+    task = new QueryTask(-1, START + 3600 * 200, START + 3600 * 100, Format.JSON, out);
+    task.execute(new ScannedFiles(), baseFolder, null);
+
+    assertEquals(task.getWritten(), 0);
+    assertEquals(new JsonParser().parse(out.toString()).getAsJsonArray().size(), 0);
+  }
+
+  @Test
+  public void testQueryCSVFiles() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    MatchHistory history = createHistory();
+    File csvFolder = new File(baseFolder, "csv");
+    Files.createDirectories(csvFolder.toPath());
+    new CSVExporter().export(history, new File(csvFolder, "results.csv"));
+
+    StringWriter out = new StringWriter();
+    QueryTask task = new QueryTask(MatchResult.RANKED_2V2, START, START + 3600 * 10, Format.JSON, out);
+    task.execute(new ScannedFiles(), baseFolder, null);
+    assertEquals(task.getWritten(), 5);
+
+    // a history file older than the CSV files is not used
+    RankTrackerUtils.writeHistoryToFile(new MatchHistory(), baseFolder);
+    File historyFile = new File(baseFolder, RankTrackerUtils.HISTORY_FILENAME);
+    assertTrue(historyFile.setLastModified(0));
+    assertEquals(new QueryTask(-1, START, START + 3600 * 10, Format.CSV, new StringWriter()).getHistory(baseFolder)
+        .size(), history.size());
+  }
+
+  @Test
+  public void testQueryNoResults() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    StringWriter out = new StringWriter();
+    QueryTask task = new QueryTask(-1, Long.MIN_VALUE, Long.MAX_VALUE, Format.CSV, out);
+    task.execute(new ScannedFiles(), baseFolder, null);
+
+    assertEquals(task.getWritten(), 0);
+    assertEquals(out.toString(), "");
+  }
+
+  @Test(groups = "benchmark")
+  public void testQueryLargeHistory() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    final int count = 1_000_000;
+    MatchHistory history = new MatchHistory(count);
+    for (int i = 0; i < count; i++)
+    {
+      history.add(START + i * 60L, i % 2 == 0 ? MatchResult.RANKED_1V1 : MatchResult.RANKED_2V2, 0, i, 25f, 8f);
+    }
+    RankTrackerUtils.writeHistoryToFile(history, baseFolder);
+    File historyFile = new File(baseFolder, RankTrackerUtils.HISTORY_FILENAME);
+
+    long bestQuery = Long.MAX_VALUE;
+    long bestLoad = Long.MAX_VALUE;
+    for (int round = 0; round < 3; round++)
+    {
+      long started = System.nanoTime();
+      StringWriter out = new StringWriter();
+      QueryTask task = new QueryTask(MatchResult.RANKED_1V1, START + 60L * 500_000, START + 60L * 501_000,
+                                     Format.CSV, out);
+      task.execute(new ScannedFiles(), baseFolder, null);
+      bestQuery = Math.min(bestQuery, System.nanoTime() - started);
+      assertEquals(task.getWritten(), 500);
+
+      started = System.nanoTime();
+      MatchHistory loaded = new BinaryParser().load(historyFile);
+      bestLoad = Math.min(bestLoad, System.nanoTime() - started);
+      assertEquals(loaded.size(), count);
+    }
+
+    log.info("Querying 1000 of {} results took {} ms, verifying and loading all of them took {} ms", count,
+             bestQuery / 1_000_000, bestLoad / 1_000_000);
+  }
+
+  /**
+   * Returns a history with a result every hour, alternating between 1v1 and 2v2, with the hour as the rank points.
+   */
+  private static MatchHistory createHistory()
+  {
+    MatchHistory history = new MatchHistory();
+    for (int hour = 0; hour < 100; hour++)
+    {
+      history.add(START + 3600L * hour, hour % 2 == 0 ? MatchResult.RANKED_1V1 : MatchResult.RANKED_2V2, 1, hour, 25f,
+                  8f);
+    }
+    return history;
+  }
+
+  private File createBaseFolder() throws Exception
+  {
+    File folder = Files.createTempDirectory("temp").toFile();
+    tempFolders.add(folder);
+    return folder;
+  }
+
+  private void deleteFolderTree(File folder) throws Exception
+  {
+    Files.walkFileTree(folder.toPath(), new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+      {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException
+      {
+        if (exc == null)
+        {
+          Files.delete(dir);
+          return FileVisitResult.CONTINUE;
+        }
+
+        throw exc;
+      }
+    });
+  }
+}
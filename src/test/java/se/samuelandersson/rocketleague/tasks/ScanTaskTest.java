@@ -2,31 +2,51 @@ package se.samuelandersson.rocketleague.tasks;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
-import java.util.TreeSet;
-
+import java.util.TreeMap;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 import org.testng.collections.Lists;
 
 import se.samuelandersson.rocketleague.LogFileHelper;
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.LogFileState;
 import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.PlaylistStatistics;
 import se.samuelandersson.rocketleague.ScannedFiles;
+import se.samuelandersson.rocketleague.export.CSVExporter;
+import se.samuelandersson.rocketleague.parser.CSVParser;
+import se.samuelandersson.rocketleague.parser.MappedLogFileParser;
+import se.samuelandersson.rocketleague.utils.RankTrackerUtils;
 import se.samuelandersson.rocketleague.utils.RocketLeagueUtils;
 
 public class ScanTaskTest
 {
+  private static final Logger log = LoggerFactory.getLogger(ScanTaskTest.class);
+
   @Test
   public void testDefaultLogFile() throws Exception
   {
@@ -45,6 +65,8 @@ public class ScanTaskTest
     assertEquals(scannedFiles.getLogFiles().size(), 2);
     assertTrue(scannedFiles.getLogFiles().contains("log1.log"));
     assertTrue(scannedFiles.getLogFiles().contains("log2.log"));
+    assertEquals(scannedFiles.getLogFileStates().size(), 1);
+    assertTrue(scannedFiles.getLogFileStates().containsKey(ScanTask.DEFAULT_LOGFILE));
   }
 
   @Test
@@ -133,13 +155,16 @@ public class ScanTaskTest
     Path path2 = Files.copy(csv2.toPath(), new File(baseFolder, csv2.getName()).toPath());
 
     File[] files = baseFolder.listFiles();
-    SortedSet<MatchResult> results = new TreeSet<>();
+    MatchHistory results = new MatchHistory();
 
-    ScanTask task = new ScanTask();
-    task.readCsvFiles(files, results);
+    ScanTask.readCsvFiles(files, results);
 
     assertEquals(results.size(), 3);
 
+    MatchHistory offHeap = MatchHistory.offHeap();
+    ScanTask.readCsvFiles(files, offHeap);
+    assertEquals(offHeap, results);
+
     // cleanup
     Files.delete(path1);
     Files.delete(path2);
@@ -160,9 +185,9 @@ public class ScanTaskTest
     Path path2 = Files.copy(log2.toPath(), new File(baseFolder, log2.getName()).toPath());
 
     List<File> files = Lists.newArrayList(baseFolder.listFiles());
-    SortedSet<MatchResult> results = new TreeSet<>();
+    MatchHistory results = new MatchHistory();
 
-    ScanTask.parseLogFiles(files, results);
+    results.addAll(ScanTask.parseLogFiles(files, 1, null, null, MatchHistory::new));
 
     assertEquals(results.size(), 15);
 
@@ -172,6 +197,41 @@ public class ScanTaskTest
     Files.delete(baseFolder.toPath());
   }
 
+  @Test
+  public void testParseLogFilesParallel() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    try
+    {
+      for (String name : new String[] { "ranked.log", "mixed.log", "unranked.log", "empty.log" })
+      {
+        File log = LogFileHelper.getValidRLLogFile(name);
+        Files.copy(log.toPath(), new File(baseFolder, log.getName()).toPath());
+      }
+      Files.createDirectory(new File(baseFolder, "folder").toPath());
+
+      List<File> files = Lists.newArrayList(baseFolder.listFiles());
+      MatchHistory sequential = new MatchHistory();
+      sequential.addAll(ScanTask.parseLogFiles(files, 1, null, null, MatchHistory::new));
+
+      MatchHistory parallel = new MatchHistory();
+      parallel.addAll(ScanTask.parseLogFiles(files, 4, null, null, MatchHistory::new));
+
+      assertEquals(parallel.size(), sequential.size());
+      assertEquals(parallel, sequential);
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadParallelism() throws Exception
+  {
+    new ScanTask(new ScanTask.Options().parallelism(0));
+  }
+
   @Test
   public void testExecute() throws Exception
   {
@@ -213,6 +273,490 @@ public class ScanTaskTest
     }
   }
 
+  @Test
+  public void testExecuteResume() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    File rlFolder = createBaseFolder();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      File launchLog = new File(logFolder, ScanTask.DEFAULT_LOGFILE);
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(), launchLog.toPath());
+
+      ScanTask task = new ScanTask();
+      ScannedFiles scannedFiles = new ScannedFiles();
+      task.execute(scannedFiles, baseFolder, rlFolder);
+
+      LogFileState state = scannedFiles.getLogFileStates().get(ScanTask.DEFAULT_LOGFILE);
+      assertNotNull(state);
+      assertEquals(state.getOffset(), launchLog.length());
+
+      String line = "[4300.00] RankPoints: ClientSetSkill Playlist=11 Mu=40.6359 Sigma=2.4849 DeltaRankPoints=8 RankPoints=719";
+      Files.write(launchLog.toPath(), (line + System.lineSeparator()).getBytes(), StandardOpenOption.APPEND);
+
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertEquals(scannedFiles.getLogFileStates().get(ScanTask.DEFAULT_LOGFILE).getOffset(), launchLog.length());
+
+      File csv = new File(new File(baseFolder, "csv"), "results-2v2.csv");
+      List<String> lines = Files.readAllLines(csv.toPath(), Charset.defaultCharset());
+      assertEquals(lines.size(), 3);
+      assertTrue(lines.get(2).endsWith(",8,719"));
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  @Test
+  public void testExecuteFailedExport() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    File rlFolder = createBaseFolder();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(),
+                 new File(logFolder, ScanTask.DEFAULT_LOGFILE).toPath());
+
+      // a folder in place of the file of the playlist cannot be replaced by the export
+      File csv = new File(new File(baseFolder, "csv"), "results-2v2.csv");
+      Files.createDirectories(new File(csv, "blocked").toPath());
+
+      ScanTask task = new ScanTask(new ScanTask.Options().retainHistory(true));
+      ScannedFiles scannedFiles = new ScannedFiles();
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertNull(scannedFiles.getLogFileStates().get(ScanTask.DEFAULT_LOGFILE));
+      assertFalse(task.getHistoryFile(baseFolder).exists());
+
+      // the results are parsed again once they can be exported
+      deleteFolderTree(csv);
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertNotNull(scannedFiles.getLogFileStates().get(ScanTask.DEFAULT_LOGFILE));
+      assertEquals(Files.readAllLines(csv.toPath(), Charset.defaultCharset()).size(), 2);
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  @Test
+  public void testExecuteSwitchCompression() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    File rlFolder = createBaseFolder();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(),
+                 new File(logFolder, ScanTask.DEFAULT_LOGFILE).toPath());
+
+      ScannedFiles scannedFiles = new ScannedFiles();
+      new ScanTask().execute(scannedFiles, baseFolder, rlFolder);
+      File csvFolder = new File(baseFolder, "csv");
+      File plain = new File(csvFolder, "results-2v2." + CSVExporter.SUFFIX);
+      File compressed = new File(csvFolder, "results-2v2." + CSVExporter.COMPRESSED_SUFFIX);
+      SortedSet<MatchResult> results = new CSVParser().parse(plain);
+
+      // the files of the other format are replaced, rather than read along with the new ones
+      new ScanTask(new ScanTask.Options().compress(true)).execute(scannedFiles, baseFolder, rlFolder);
+      assertFalse(plain.exists());
+      assertEquals(new CSVParser().parse(compressed), results);
+
+      new ScanTask().execute(scannedFiles, baseFolder, rlFolder);
+      assertFalse(compressed.exists());
+      assertEquals(new CSVParser().parse(plain), results);
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  @Test
+  public void testExecuteRotatedLogs() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    File rlFolder = createBaseFolder();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      File launchLog = new File(logFolder, ScanTask.DEFAULT_LOGFILE);
+      File launch2 = new File(logFolder, "Launch_2.log");
+      File launch3 = new File(logFolder, "Launch_3.log");
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(), launchLog.toPath());
+
+      ScanTask task = new ScanTask();
+      ScannedFiles scannedFiles = new ScannedFiles();
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertNotNull(scannedFiles.getFingerprints().get(ScanTask.DEFAULT_LOGFILE));
+
+      // the game is launched again, the parsed log is only renamed
+      Files.move(launchLog.toPath(), launch2.toPath());
+      Files.copy(LogFileHelper.getValidRLLogFile("mixed.log").toPath(), launchLog.toPath());
+      List<File> files = task.getFilesToParse(scannedFiles, logFolder.listFiles());
+      assertEquals(files, Lists.newArrayList(launchLog));
+      assertEquals(scannedFiles.getFingerprints().get("Launch_2.log"), MappedLogFileParser.fingerprint(launch2));
+      task.execute(scannedFiles, baseFolder, rlFolder);
+
+      // and again, but this time the log got a result after it was scanned
+      String line = "[4300.00] RankPoints: ClientSetSkill Playlist=11 Mu=40.6359 Sigma=2.4849 DeltaRankPoints=8 RankPoints=719";
+      Files.write(launchLog.toPath(), (line + System.lineSeparator()).getBytes(), StandardOpenOption.APPEND);
+      Files.move(launch2.toPath(), launch3.toPath());
+      Files.move(launchLog.toPath(), launch2.toPath());
+      Files.copy(LogFileHelper.getValidRLLogFile("unranked.log").toPath(), launchLog.toPath());
+      files = task.getFilesToParse(scannedFiles, logFolder.listFiles());
+      assertEquals(files.size(), 2);
+      assertTrue(files.contains(launchLog));
+      assertTrue(files.contains(launch2));
+      assertNotEquals(scannedFiles.getFingerprints().get("Launch_2.log"), MappedLogFileParser.fingerprint(launch2));
+      assertEquals(scannedFiles.getFingerprints().get("Launch_3.log"), MappedLogFileParser.fingerprint(launch3));
+
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertEquals(scannedFiles.getFingerprints().get("Launch_2.log"), MappedLogFileParser.fingerprint(launch2));
+      File csv = new File(new File(baseFolder, "csv"), "results-2v2.csv");
+      assertTrue(Files.readAllLines(csv.toPath(), Charset.defaultCharset()).stream().anyMatch(l -> l.endsWith(",8,719")));
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  @Test
+  public void testExecuteWithoutNewResults() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    File rlFolder = createBaseFolder();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      File launchLog = new File(logFolder, ScanTask.DEFAULT_LOGFILE);
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(), launchLog.toPath());
+
+      ScanTask task = new ScanTask();
+      ScannedFiles scannedFiles = new ScannedFiles();
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertFalse(task.isSkipped());
+      int count = scannedFiles.getWatermarks().get(MatchResult.RANKED_1V1).getCount();
+
+      // nothing new in the log, so the Csv files are not even read
+      File csv = new File(new File(baseFolder, "csv"), "results-1v1.csv");
+      assertTrue(csv.setLastModified(0));
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertTrue(task.isSkipped());
+      assertEquals(csv.lastModified(), 0);
+
+      String line = "[4300.00] RankPoints: ClientSetSkill Playlist=10 Mu=40.6359 Sigma=2.4849 DeltaRankPoints=8 RankPoints=719";
+      Files.write(launchLog.toPath(), (line + System.lineSeparator()).getBytes(), StandardOpenOption.APPEND);
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertFalse(task.isSkipped());
+      assertEquals(scannedFiles.getWatermarks().get(MatchResult.RANKED_1V1).getCount(), count + 1);
+      assertEquals(scannedFiles.getStatistics().get(MatchResult.RANKED_1V1).getCurrentRank(), 727);
+
+      // a missing file is exported again
+      Files.delete(csv.toPath());
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertFalse(task.isSkipped());
+      assertTrue(csv.exists());
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  @Test
+  public void testExecuteStatistics() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    File rlFolder = createBaseFolder();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      File launchLog = new File(logFolder, ScanTask.DEFAULT_LOGFILE);
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(), launchLog.toPath());
+
+      ScanTask task = new ScanTask();
+      ScannedFiles scannedFiles = new ScannedFiles();
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertEquals(scannedFiles.getStatistics(), RankTrackerUtils.getStatistics(RankTrackerUtils.getHistory(baseFolder)));
+
+      // every scan adds its results to the statistics, which end up just as if they were created from all results
+      int rank = 719;
+      for (int i = 0; i < 5; i++)
+      {
+        int delta = i % 3 == 2 ? -9 : 8;
+        String line = String.format("[%d.00] RankPoints: ClientSetSkill Playlist=%d Mu=40.6359 Sigma=2.4849 "
+                                    + "DeltaRankPoints=%d RankPoints=%d",
+                                    4300 + i * 100,
+                                    i % 2 == 0 ? MatchResult.RANKED_1V1 : MatchResult.RANKED_2V2,
+                                    delta,
+                                    rank);
+        rank += delta;
+        Files.write(launchLog.toPath(), (line + System.lineSeparator()).getBytes(), StandardOpenOption.APPEND);
+        task.execute(scannedFiles, baseFolder, rlFolder);
+        assertFalse(task.isSkipped());
+        assertEquals(scannedFiles.getStatistics(),
+                     RankTrackerUtils.getStatistics(RankTrackerUtils.getHistory(baseFolder)));
+      }
+
+      // statistics that are missing, like in the ScannedFiles of an older version, are created even without new results
+      ScannedFiles read = RankTrackerUtils.getScannedFiles(baseFolder);
+      assertEquals(read, scannedFiles);
+      Map<Integer, PlaylistStatistics> expected = new TreeMap<>(read.getStatistics());
+      read.getStatistics().clear();
+      task.execute(read, baseFolder, rlFolder);
+      assertFalse(task.isSkipped());
+      assertEquals(read.getStatistics(), expected);
+      task.execute(read, baseFolder, rlFolder);
+      assertTrue(task.isSkipped());
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  @Test
+  public void testExecuteRollups() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    File rlFolder = createBaseFolder();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      File launchLog = new File(logFolder, ScanTask.DEFAULT_LOGFILE);
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(), launchLog.toPath());
+
+      ScanTask task = new ScanTask();
+      ScannedFiles scannedFiles = new ScannedFiles();
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      File rollupFolder = new File(baseFolder, ScanTask.ROLLUP_FOLDER);
+      File days = new File(rollupFolder, "rollup-day-1v1.csv");
+      assertTrue(days.exists());
+      assertTrue(new File(rollupFolder, "rollup-week-1v1.csv").exists());
+      assertTrue(new File(rollupFolder, "rollup-month-1v1.csv").exists());
+
+      // a new result is rolled up into the existing files
+      String line = "[4300.00] RankPoints: ClientSetSkill Playlist=10 Mu=40.6359 Sigma=2.4849 "
+                    + "DeltaRankPoints=8 RankPoints=719";
+      Files.write(launchLog.toPath(), (line + System.lineSeparator()).getBytes(), StandardOpenOption.APPEND);
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      List<String> rows = Files.readAllLines(days.toPath(), Charset.defaultCharset());
+      assertTrue(rows.get(rows.size() - 1).endsWith(",727,40.6359"), rows.get(rows.size() - 1));
+      String rolledUp = new String(Files.readAllBytes(days.toPath()), Charset.defaultCharset());
+
+      // missing rollups are exported again even without new results
+      Files.delete(days.toPath());
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertFalse(task.isSkipped());
+      assertEquals(new String(Files.readAllBytes(days.toPath()), Charset.defaultCharset()), rolledUp);
+
+      // and so are the weeks, from the days
+      File weeks = new File(rollupFolder, "rollup-week-1v1.csv");
+      byte[] weekRows = Files.readAllBytes(weeks.toPath());
+      Files.delete(weeks.toPath());
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertFalse(task.isSkipped());
+      assertEquals(Files.readAllBytes(weeks.toPath()), weekRows);
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  @Test
+  public void testExecuteRetainHistory() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    File rlFolder = createBaseFolder();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(), new File(logFolder, "ranked.log").toPath());
+
+      ScanTask task = new ScanTask(new ScanTask.Options().retainHistory(true));
+      ScannedFiles scannedFiles = new ScannedFiles();
+      task.execute(scannedFiles, baseFolder, rlFolder);
+
+      // the history is kept in memory, so the deleted file is exported again without being read
+      File csv = new File(new File(baseFolder, "csv"), "results-1v1.csv");
+      List<String> lines = Files.readAllLines(csv.toPath(), Charset.defaultCharset());
+      Files.delete(csv.toPath());
+
+      task.execute(scannedFiles, baseFolder, rlFolder);
+      assertEquals(Files.readAllLines(csv.toPath(), Charset.defaultCharset()), lines);
+
+      // without retaining the history or the history file, the deleted file is gone for good
+      Files.delete(csv.toPath());
+      Files.delete(new File(baseFolder, RankTrackerUtils.HISTORY_FILENAME).toPath());
+      new ScanTask().execute(scannedFiles, baseFolder, rlFolder);
+      assertFalse(csv.exists());
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  @Test
+  public void testExecuteHistoryFile() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    File rlFolder = createBaseFolder();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(), new File(logFolder, "ranked.log").toPath());
+
+      ScannedFiles scannedFiles = new ScannedFiles();
+      new ScanTask().execute(scannedFiles, baseFolder, rlFolder);
+      File historyFile = new File(baseFolder, RankTrackerUtils.HISTORY_FILENAME);
+      assertTrue(historyFile.exists());
+
+      // the results of previous scans are read from the history file, so the deleted file is exported again
+      File csv = new File(new File(baseFolder, "csv"), "results-1v1.csv");
+      List<String> lines = Files.readAllLines(csv.toPath(), Charset.defaultCharset());
+      Files.delete(csv.toPath());
+      new ScanTask().execute(scannedFiles, baseFolder, rlFolder);
+      assertEquals(Files.readAllLines(csv.toPath(), Charset.defaultCharset()), lines);
+
+      // a CSV file modified after the history file was written is read as well
+      File imported = new File(new File(baseFolder, "csv"), "imported.csv");
+      Files.copy(LogFileHelper.getValidCsvLogFile("simple.csv").toPath(), imported.toPath());
+      assertTrue(imported.setLastModified(historyFile.lastModified() + 2000));
+      new ScanTask().execute(scannedFiles, baseFolder, rlFolder);
+      MatchHistory history = RankTrackerUtils.getHistory(baseFolder);
+      for (MatchResult result : new CSVParser().parse(imported))
+      {
+        assertTrue(history.indexOf(result.getEpochSecond()) >= 0);
+      }
+
+      // an invalid history file is ignored
+      Files.write(historyFile.toPath(), new byte[] { 1, 2, 3 });
+      Files.delete(csv.toPath());
+      new ScanTask().execute(scannedFiles, baseFolder, rlFolder);
+      assertFalse(csv.exists());
+      for (MatchResult result : RankTrackerUtils.getHistory(baseFolder))
+      {
+        assertTrue(result.getPlayList() != MatchResult.RANKED_1V1);
+      }
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  @Test
+  public void testExecuteOffHeap() throws Exception
+  {
+    File baseFolder = createBaseFolder();
+    File rlFolder = createBaseFolder();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(), new File(logFolder, "ranked.log").toPath());
+
+      new ScanTask().execute(new ScannedFiles(), baseFolder, rlFolder);
+      File csv = new File(new File(baseFolder, "csv"), "results-1v1.csv");
+      List<String> lines = Files.readAllLines(csv.toPath(), Charset.defaultCharset());
+      Files.delete(csv.toPath());
+
+      new ScanTask(new ScanTask.Options().offHeap(true)).execute(new ScannedFiles(), baseFolder, rlFolder);
+      assertEquals(Files.readAllLines(csv.toPath(), Charset.defaultCharset()), lines);
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  // starts a JVM of its own and takes several seconds, so it is only run when the offheap group is asked for
+  @Test(groups = "offheap")
+  public void testExecuteOffHeapSmallHeap() throws Exception
+  {
+    final int count = 3000000;
+    final int[] playLists = { MatchResult.RANKED_1V1, MatchResult.RANKED_2V2, MatchResult.SOLO_RANKED_3V3,
+        MatchResult.RANKED_3V3 };
+
+    File baseFolder = createBaseFolder();
+    File rlFolder = createBaseFolder();
+    try
+    {
+      Files.createDirectory(new File(rlFolder, "Logs").toPath());
+      File csvFolder = new File(baseFolder, "csv");
+      Files.createDirectory(csvFolder.toPath());
+
+      // several million matches, far more than fit in a 64 MB heap as objects
+      DateTimeFormatter format = DateTimeFormat.forPattern("yyyy-MM-dd,HH:mm:ss").withZoneUTC();
+      long start = new DateTime(2015, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+      File imported = new File(csvFolder, "imported.csv");
+      try (BufferedWriter writer = Files.newBufferedWriter(imported.toPath(), Charset.defaultCharset()))
+      {
+        writer.append(CSVExporter.HEADER_WITH_MU);
+        for (int i = 0; i < count; i++)
+        {
+          writer.newLine();
+          format.printTo(writer, start + i * 60000L);
+          writer.append(',').append(MatchResult.getPlaylistName(playLists[i % playLists.length]));
+          writer.append(",28.6374,2.4856,").append(Integer.toString(i % 20 - 10)).append(",700");
+        }
+      }
+
+      long before = System.currentTimeMillis();
+      Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                                           "-Xmx64m",
+                                           "-Duser.timezone=UTC",
+                                           "-cp",
+                                           System.getProperty("java.class.path"),
+                                           OffHeapScan.class.getName(),
+                                           baseFolder.getPath(),
+                                           rlFolder.getPath()).inheritIO().start();
+      assertEquals(process.waitFor(), 0);
+      log.info(String.format("Scanned %s results with a 64 MB heap in %s ms",
+                             count,
+                             System.currentTimeMillis() - before));
+
+      int exported = 0;
+      for (int playList : playLists)
+      {
+        File csv = new File(csvFolder, "results-" + MatchResult.getPlaylistName(playList) + ".csv");
+        exported += Files.readAllLines(csv.toPath(), Charset.defaultCharset()).size() - 1;
+      }
+      assertEquals(exported, count);
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
   @Test
   public void testExecuteBadLogFolder() throws Exception
   {
@@ -266,6 +810,8 @@ public class ScanTaskTest
     scannedFiles.getLogFiles().add("log1.log");
     scannedFiles.getLogFiles().add("log2.log");
     scannedFiles.getLogFiles().add("log3.log");
+    scannedFiles.getLogFileStates().put(ScanTask.DEFAULT_LOGFILE, new LogFileState(100, 1000, 10));
+    scannedFiles.getLogFileStates().put("log3.log", new LogFileState(100, 1000, 10));
     return scannedFiles;
   }
 }
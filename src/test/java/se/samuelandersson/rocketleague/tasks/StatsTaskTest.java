@@ -0,0 +1,70 @@
+package se.samuelandersson.rocketleague.tasks;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringWriter;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.PlaylistStatistics;
+import se.samuelandersson.rocketleague.ScannedFiles;
+
+public class StatsTaskTest
+{
+  private static ScannedFiles createScannedFiles()
+  {
+    ScannedFiles scannedFiles = new ScannedFiles();
+    scannedFiles.getStatistics().put(MatchResult.RANKED_1V1, new PlaylistStatistics(1443116165, 120, 64, 3, 7, 5, 102,
+                                                                                    780, 742, 27.6231f, 8.3322f,
+                                                                                    32.1543f, 2.5011f));
+    scannedFiles.getStatistics().put(MatchResult.UNRANKED, new PlaylistStatistics(1443116265, 4, 0, -4, 0, 4, 0, 0, 0,
+                                                                                  -1, -1, -1, -1));
+    return scannedFiles;
+  }
+
+  @Test
+  public void testExecute() throws Exception
+  {
+    StringWriter out = new StringWriter();
+    StatsTask task = new StatsTask(-1, out);
+    task.execute(createScannedFiles(), new File("."), null);
+
+    assertEquals(task.getWritten(), 2);
+    String[] lines = out.toString().split(System.lineSeparator());
+    assertEquals(lines.length, 3);
+    assertTrue(lines[0].startsWith("PlayList   Matches   Wins WinRate Streak Longest AvgDelta"));
+    assertEquals(lines[2], "1v1            120     64  53.3 %     W3   W7/L5     0.85    780    742  32.1543  +4.5312"
+                           + "  2.5011    -5.8311");
+    assertTrue(lines[1].startsWith("unranked         4      0   0.0 %     L4   W0/L4     0.00      0      0        -"),
+               lines[1]);
+
+    // the columns line up with the header
+    assertEquals(lines[1].length(), lines[0].length());
+    assertEquals(lines[2].length(), lines[0].length());
+  }
+
+  @Test
+  public void testExecutePlayList() throws Exception
+  {
+    StringWriter out = new StringWriter();
+    StatsTask task = new StatsTask(MatchResult.UNRANKED, out);
+    task.execute(createScannedFiles(), new File("."), null);
+
+    assertEquals(task.getWritten(), 1);
+    assertEquals(out.toString().split(System.lineSeparator()).length, 2);
+  }
+
+  @Test
+  public void testExecuteNoStatistics() throws Exception
+  {
+    StringWriter out = new StringWriter();
+    StatsTask task = new StatsTask(-1, out);
+    task.execute(new ScannedFiles(), new File("."), null);
+
+    assertEquals(task.getWritten(), 0);
+    assertEquals(out.toString(), "");
+  }
+}
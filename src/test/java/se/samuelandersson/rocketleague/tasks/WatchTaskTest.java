@@ -0,0 +1,169 @@
+package se.samuelandersson.rocketleague.tasks;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.LogFileHelper;
+import se.samuelandersson.rocketleague.ScannedFiles;
+
+public class WatchTaskTest
+{
+  @Test(timeOut = 30000)
+  public void testWatch() throws Exception
+  {
+    File baseFolder = Files.createTempDirectory("temp").toFile();
+    File rlFolder = Files.createTempDirectory("temp").toFile();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      File launchLog = new File(logFolder, ScanTask.DEFAULT_LOGFILE);
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(), launchLog.toPath());
+
+      final WatchTask task = new WatchTask(new ScanTask(new ScanTask.Options().retainHistory(true)), 200);
+      final ScannedFiles scannedFiles = new ScannedFiles();
+      Thread thread = new Thread(() -> task.execute(scannedFiles, baseFolder, rlFolder));
+      thread.start();
+      try
+      {
+        waitForScans(task, 1);
+        File csv = new File(new File(baseFolder, "csv"), "results-2v2.csv");
+        assertEquals(Files.readAllLines(csv.toPath(), Charset.defaultCharset()).size(), 2);
+
+        String line = "[4300.00] RankPoints: ClientSetSkill Playlist=11 Mu=40.6359 Sigma=2.4849 "
+                      + "DeltaRankPoints=8 RankPoints=719";
+        Files.write(launchLog.toPath(), (line + System.lineSeparator()).getBytes(), StandardOpenOption.APPEND);
+
+        waitForScans(task, 2);
+        List<String> lines = Files.readAllLines(csv.toPath(), Charset.defaultCharset());
+        assertEquals(lines.size(), 3);
+        assertTrue(lines.get(2).endsWith(",8,719"));
+      }
+      finally
+      {
+        task.stop();
+        thread.join();
+      }
+
+      assertFalse(thread.isAlive());
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void testWatchContinuousChanges() throws Exception
+  {
+    File baseFolder = Files.createTempDirectory("temp").toFile();
+    File rlFolder = Files.createTempDirectory("temp").toFile();
+    try
+    {
+      File logFolder = new File(rlFolder, "Logs");
+      Files.createDirectory(logFolder.toPath());
+      File launchLog = new File(logFolder, ScanTask.DEFAULT_LOGFILE);
+      Files.copy(LogFileHelper.getValidRLLogFile("ranked.log").toPath(), launchLog.toPath());
+
+      final WatchTask task = new WatchTask(new ScanTask(new ScanTask.Options().retainHistory(true)), 200);
+      final ScannedFiles scannedFiles = new ScannedFiles();
+      Thread thread = new Thread(() -> task.execute(scannedFiles, baseFolder, rlFolder));
+      thread.start();
+      try
+      {
+        waitForScans(task, 1);
+
+        // the log keeps changing more often than the debounce period, but is still scanned
+        String line = "[4300.00] Log: still playing" + System.lineSeparator();
+        long stop = System.currentTimeMillis() + 200 * WatchTask.MAX_DEBOUNCE_PERIODS * 4;
+        while (task.getScans() < 2 && System.currentTimeMillis() < stop)
+        {
+          Files.write(launchLog.toPath(), line.getBytes(), StandardOpenOption.APPEND);
+          Thread.sleep(50);
+        }
+        assertTrue(task.getScans() >= 2);
+      }
+      finally
+      {
+        task.stop();
+        thread.join();
+      }
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+      deleteFolderTree(rlFolder);
+    }
+  }
+
+  @Test
+  public void testWatchMissingLogFolder() throws Exception
+  {
+    File baseFolder = Files.createTempDirectory("temp").toFile();
+    try
+    {
+      WatchTask task = new WatchTask(new ScanTask(new ScanTask.Options().retainHistory(true)), 200);
+      task.execute(new ScannedFiles(), baseFolder, null);
+      task.execute(new ScannedFiles(), baseFolder, baseFolder);
+      assertEquals(task.getScans(), 0);
+    }
+    finally
+    {
+      deleteFolderTree(baseFolder);
+    }
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testNullScanTask() throws Exception
+  {
+    new WatchTask(null);
+  }
+
+  private void waitForScans(WatchTask task, int scans) throws Exception
+  {
+    while (task.getScans() < scans)
+    {
+      Thread.sleep(50);
+    }
+  }
+
+  private void deleteFolderTree(File folder) throws Exception
+  {
+    Files.walkFileTree(folder.toPath(), new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+      {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException
+      {
+        if (exc == null)
+        {
+          Files.delete(dir);
+          return FileVisitResult.CONTINUE;
+        }
+
+        throw exc;
+      }
+    });
+  }
+}
@@ -0,0 +1,111 @@
+package se.samuelandersson.rocketleague.utils;
+
+import static org.testng.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import org.testng.annotations.Test;
+
+public class CompressionUtilsTest
+{
+  private static final String CONTENT = "Date,Time,PlayList" + System.lineSeparator() + "2015-01-01,00:00:00,1v1";
+
+  @Test
+  public void testWriteAndRead() throws Exception
+  {
+    for (boolean compress : new boolean[] { false, true })
+    {
+      File file = File.createTempFile("test-compression", ".txt");
+      try
+      {
+        try (BufferedWriter writer = CompressionUtils.newWriter(file, compress))
+        {
+          writer.write(CONTENT);
+        }
+
+        assertEquals(CompressionUtils.isGzip(file), compress);
+        try (BufferedReader reader = CompressionUtils.newReader(file))
+        {
+          assertEquals(reader.readLine(), "Date,Time,PlayList");
+          assertEquals(reader.readLine(), "2015-01-01,00:00:00,1v1");
+          assertNull(reader.readLine());
+        }
+      }
+      finally
+      {
+        file.delete();
+      }
+    }
+  }
+
+  @Test
+  public void testDetectedByContent() throws Exception
+  {
+    // the name says nothing about the content
+    File compressed = File.createTempFile("test-compression", ".csv");
+    File plain = File.createTempFile("test-compression", ".gz");
+    try
+    {
+      try (OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed)))
+      {
+        out.write(CONTENT.getBytes(Charset.defaultCharset()));
+      }
+      Files.write(plain.toPath(), CONTENT.getBytes(Charset.defaultCharset()));
+
+      assertTrue(CompressionUtils.isGzip(compressed));
+      assertFalse(CompressionUtils.isGzip(plain));
+      for (File file : new File[] { compressed, plain })
+      {
+        try (InputStream in = CompressionUtils.newInputStream(file))
+        {
+          byte[] bytes = new byte[CONTENT.length() + 1];
+          int read = 0;
+          for (int n; (n = in.read(bytes, read, bytes.length - read)) > 0;)
+          {
+            read += n;
+          }
+          assertEquals(new String(bytes, 0, read, Charset.defaultCharset()), CONTENT);
+        }
+      }
+    }
+    finally
+    {
+      compressed.delete();
+      plain.delete();
+    }
+  }
+
+  @Test
+  public void testShortFiles() throws Exception
+  {
+    File file = File.createTempFile("test-compression", ".txt");
+    try
+    {
+      assertFalse(CompressionUtils.isGzip(file));
+      try (InputStream in = CompressionUtils.newInputStream(file))
+      {
+        assertEquals(in.read(), -1);
+      }
+
+      Files.write(file.toPath(), new byte[] { 0x1f });
+      assertFalse(CompressionUtils.isGzip(file));
+      try (InputStream in = CompressionUtils.newInputStream(file))
+      {
+        assertEquals(in.read(), 0x1f);
+        assertEquals(in.read(), -1);
+      }
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+}
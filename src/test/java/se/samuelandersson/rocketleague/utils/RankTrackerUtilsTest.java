@@ -7,27 +7,59 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.joda.time.DateTime;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import se.samuelandersson.rocketleague.LogFileFingerprint;
+import se.samuelandersson.rocketleague.LogFileState;
+import se.samuelandersson.rocketleague.MatchHistory;
 import se.samuelandersson.rocketleague.MatchResult;
 import se.samuelandersson.rocketleague.MatchResultsWrapper;
+import se.samuelandersson.rocketleague.PlaylistStatistics;
 import se.samuelandersson.rocketleague.ScannedFiles;
+import se.samuelandersson.rocketleague.Watermark;
+import se.samuelandersson.rocketleague.export.CSVExporter;
 import se.samuelandersson.rocketleague.export.Exporter;
 
 public class RankTrackerUtilsTest
 {
+  /** The temporary folders and files of the running test, deleted after it. */
+  private final List<File> tempFiles = new ArrayList<>();
+
+  @AfterMethod
+  public void deleteTempFiles() throws Exception
+  {
+    for (File file : tempFiles)
+    {
+      if (file.exists())
+      {
+        deleteFolderTree(file);
+      }
+    }
+    tempFiles.clear();
+  }
+
   @Test
   public void testSeparateResults() throws Exception
   {
@@ -46,6 +78,297 @@ public class RankTrackerUtilsTest
     }
   }
 
+  @Test
+  public void testSeparateHistory() throws Exception
+  {
+    SortedSet<MatchResult> results = createResults();
+
+    Map<Integer, MatchHistory> separated = RankTrackerUtils.separateResults(MatchHistory.of(results));
+    Map<Integer, SortedSet<MatchResult>> expected = RankTrackerUtils.separateResults(results);
+
+    assertEquals(separated.keySet(), expected.keySet());
+    for (Entry<Integer, MatchHistory> entry : separated.entrySet())
+    {
+      assertEquals(entry.getValue().toSortedSet(), expected.get(entry.getKey()));
+    }
+  }
+
+  @Test
+  public void testExportHistory() throws Exception
+  {
+    DummyExporter exporter = new DummyExporter();
+    File folder = createTempFolder();
+
+    RankTrackerUtils.exportFiles(MatchHistory.of(createResults()), exporter, folder);
+
+    List<String> files = Lists.newArrayList(folder.list());
+    assertEquals(files.size(), 4);
+    assertTrue(files.contains("results-1v1.txt"));
+    assertTrue(files.contains("results-2v2.txt"));
+    assertTrue(files.contains("results-3v3.txt"));
+    assertTrue(files.contains("results-solo-3v3.txt"));
+    assertEquals(exporter.exported, 8);
+  }
+
+  @Test
+  public void testAppendFiles() throws Exception
+  {
+    CSVExporter exporter = new CSVExporter();
+    File folder = createTempFolder();
+    MatchHistory history = MatchHistory.of(createResults());
+    RankTrackerUtils.exportFiles(history, exporter, folder);
+    Files.delete(new File(folder, "results-3v3.csv").toPath());
+
+    MatchHistory added = new MatchHistory();
+    added.add(new MatchResult(new DateTime(8000), MatchResult.RANKED_1V1, 1, 12));
+    added.add(new MatchResult(new DateTime(-1000), MatchResult.RANKED_2V2, 2, 11));
+    history.addAll(added);
+    RankTrackerUtils.appendFiles(history, added, exporter, folder);
+
+    // appended, rewritten since the added result is out of order, recreated and left alone
+    Map<Integer, MatchHistory> separated = RankTrackerUtils.separateResults(history);
+    for (int playList : new int[] { MatchResult.RANKED_1V1, MatchResult.RANKED_2V2, MatchResult.RANKED_3V3,
+        MatchResult.SOLO_RANKED_3V3 })
+    {
+      File file = new File(folder, "results-" + MatchResult.getPlaylistName(playList) + ".csv");
+      String actual = Joiner.on(System.lineSeparator()).join(Files.readAllLines(file.toPath(), Charset.defaultCharset()));
+      assertEquals(actual, exporter.toString(separated.get(playList)));
+    }
+    assertEquals(separated.get(MatchResult.RANKED_2V2).size(), 3);
+  }
+
+  @Test
+  public void testExportFilesFailure() throws Exception
+  {
+    File folder = createTempFolder();
+    MatchHistory history = MatchHistory.of(createResults());
+    CSVExporter exporter = new CSVExporter();
+    RankTrackerUtils.exportFiles(history, exporter, folder);
+    File file = new File(folder, "results-2v2.csv");
+    String before = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+
+    // a playlist that fails keeps its previous file, while the others are exported anyway
+    history.add(new MatchResult(new DateTime(8000), MatchResult.RANKED_2V2, 1, 12));
+    history.add(new MatchResult(new DateTime(9000), MatchResult.RANKED_1V1, 1, 12));
+    RankTrackerUtils.exportFiles(history, new CSVExporter()
+    {
+      @Override
+      public void export(MatchHistory history, File file) throws IOException
+      {
+        if (history.getPlayList(0) == MatchResult.RANKED_2V2)
+        {
+          throw new IOException("Failed to export 2v2");
+        }
+        super.export(history, file);
+      }
+    }, folder);
+
+    Map<Integer, MatchHistory> separated = RankTrackerUtils.separateResults(history);
+    assertEquals(new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset()), before);
+    File other = new File(folder, "results-1v1.csv");
+    assertEquals(new String(Files.readAllBytes(other.toPath()), Charset.defaultCharset()),
+                 exporter.toString(separated.get(MatchResult.RANKED_1V1)));
+
+    // no temporary file is left behind
+    assertEquals(folder.list().length, 4);
+  }
+
+  @Test
+  public void testExportFilesOutsideFolder() throws Exception
+  {
+    File baseFolder = createTempFolder();
+    File folder = new File(baseFolder, "csv");
+    Files.createDirectory(folder.toPath());
+
+    // the files are written next to the folder, so that nothing reading the folder sees them half written
+    List<File> written = new ArrayList<>();
+    assertTrue(RankTrackerUtils.exportFiles(MatchHistory.of(createResults()), new CSVExporter()
+    {
+      @Override
+      public void export(MatchHistory history, File file) throws IOException
+      {
+        synchronized (written)
+        {
+          written.add(file);
+        }
+        super.export(history, file);
+      }
+    }, folder));
+
+    assertEquals(written.size(), 4);
+    for (File file : written)
+    {
+      assertEquals(file.getParentFile(), baseFolder);
+      assertFalse(file.exists());
+    }
+    assertEquals(folder.list().length, 4);
+    assertEquals(baseFolder.list().length, 1);
+  }
+
+  @Test
+  public void testGetWatermarks() throws Exception
+  {
+    Map<Integer, Watermark> watermarks = RankTrackerUtils.getWatermarks(MatchHistory.of(createResults()));
+    assertEquals(watermarks.size(), 4);
+    assertEquals(watermarks.get(MatchResult.RANKED_1V1), new Watermark(1, 2));
+    assertEquals(watermarks.get(MatchResult.SOLO_RANKED_3V3), new Watermark(7, 2));
+    assertTrue(RankTrackerUtils.getWatermarks(new MatchHistory()).isEmpty());
+  }
+
+  @Test
+  public void testGetStatistics() throws Exception
+  {
+    MatchHistory history = MatchHistory.of(createResults());
+    Map<Integer, PlaylistStatistics> statistics = RankTrackerUtils.getStatistics(history);
+    assertEquals(statistics.keySet(), RankTrackerUtils.getWatermarks(history).keySet());
+    assertEquals(statistics.get(MatchResult.RANKED_2V2).getMatches(), 2);
+    assertEquals(statistics.get(MatchResult.RANKED_2V2).getCurrentStreak(), 2);
+    assertEquals(statistics.get(MatchResult.RANKED_2V2).getPeakRank(), 14);
+    assertEquals(statistics.get(MatchResult.RANKED_2V2).getLastEpochSecond(), 3);
+    assertTrue(RankTrackerUtils.isCurrent(statistics, RankTrackerUtils.getWatermarks(history)));
+    assertTrue(RankTrackerUtils.getStatistics(new MatchHistory()).isEmpty());
+  }
+
+  @Test
+  public void testAddStatistics() throws Exception
+  {
+    // results of every playlist, with some of them at the same time
+    Random random = new Random(3);
+    MatchHistory history = new MatchHistory();
+    int[] playLists = { MatchResult.RANKED_1V1, MatchResult.RANKED_2V2, MatchResult.RANKED_3V3, MatchResult.UNRANKED };
+    for (int i = 0; i < 5000; i++)
+    {
+      history.add(1443116065L + i / 2 * 60, playLists[random.nextInt(playLists.length)], random.nextInt(21) - 10,
+                  500 + random.nextInt(500), 20 + random.nextFloat() * 20, 2 + random.nextFloat() * 5);
+    }
+
+    // adding the results one part at a time must give exactly what going through all of them gives
+    Map<Integer, PlaylistStatistics> expected = RankTrackerUtils.getStatistics(history);
+    Map<Integer, PlaylistStatistics> statistics = new TreeMap<>();
+    MatchHistory added = new MatchHistory();
+    for (int from = 0; from < history.size();)
+    {
+      int to = Math.min(history.size(), from + 1 + random.nextInt(200));
+      MatchHistory part = new MatchHistory();
+      for (int i = from; i < to; i++)
+      {
+        part.add(history.get(i));
+      }
+
+      assertTrue(RankTrackerUtils.isCurrent(statistics, RankTrackerUtils.getWatermarks(added)));
+      RankTrackerUtils.addStatistics(statistics, part);
+      added.addAll(part);
+      from = to;
+    }
+
+    assertEquals(statistics, expected);
+  }
+
+  @Test
+  public void testUpdateRollups() throws Exception
+  {
+    Random random = new Random(9);
+    MatchHistory previous = RollupUtilsTest.createHistory(random);
+    MatchHistory all = previous.newHistory();
+    all.addAll(previous);
+
+    // later results, and a few results among the previous ones
+    MatchHistory added = new MatchHistory();
+    long last = previous.getEpochSecond(previous.size() - 1);
+    for (int i = 0; i < 500; i++)
+    {
+      added.add(last + 1 + random.nextInt(60 * 60 * 24 * 40), MatchResult.RANKED_2V2, random.nextInt(21) - 10, 700,
+                25f, 2.5f);
+    }
+    for (int i = 0; i < 10; i++)
+    {
+      added.add(previous.getEpochSecond(random.nextInt(previous.size())) + 1, MatchResult.RANKED_1V1, 10, 500, -1, -1);
+    }
+    added.add(last + 60, MatchResult.RANKED_3V3, 5, 800, 30f, 2f);
+    all.putAll(added);
+
+    File updated = createTempFolder();
+    File exported = createTempFolder();
+    RankTrackerUtils.exportRollups(previous, updated);
+    // a missing or broken file is exported again from all results
+    new File(updated, "rollup-month-1v1.csv").delete();
+    Files.write(new File(updated, "rollup-day-2v2.csv").toPath(), "broken".getBytes(Charset.defaultCharset()));
+
+    RankTrackerUtils.updateRollups(all, added, RankTrackerUtils.getWatermarks(all).keySet(), updated);
+    RankTrackerUtils.exportRollups(all, exported);
+
+    // the updated rollups are exactly the rollups of all results
+    assertEquals(updated.list().length, 9);
+    for (String name : exported.list())
+    {
+      assertEquals(new String(Files.readAllBytes(new File(updated, name).toPath()), Charset.defaultCharset()),
+                   new String(Files.readAllBytes(new File(exported, name).toPath()), Charset.defaultCharset()),
+                   name);
+    }
+  }
+
+  @Test
+  public void testUpdateRollupsOfNewDays() throws Exception
+  {
+    MatchHistory history = RollupUtilsTest.createHistory(new Random(10));
+    File folder = createTempFolder();
+    RankTrackerUtils.exportRollups(history, folder);
+    File days = new File(folder, "rollup-day-1v1.csv");
+    File months = new File(folder, "rollup-month-1v1.csv");
+    String before = new String(Files.readAllBytes(months.toPath()), Charset.defaultCharset());
+
+    // a result on a day of its own in the last month only changes the rows of that day and month
+    MatchHistory added = new MatchHistory();
+    long last = history.getEpochSecond(history.size() - 1);
+    added.add(last + 1, MatchResult.RANKED_1V1, 10, 1000, 35f, 2f);
+    history.putAll(added);
+    RankTrackerUtils.updateRollups(history, added, RankTrackerUtils.getWatermarks(history).keySet(), folder);
+
+    List<String> dayRows = Files.readAllLines(days.toPath(), Charset.defaultCharset());
+    assertTrue(dayRows.get(dayRows.size() - 1).endsWith(",1010,35.0"), dayRows.get(dayRows.size() - 1));
+    List<String> monthRows = Files.readAllLines(months.toPath(), Charset.defaultCharset());
+    assertTrue(before.startsWith(Joiner.on(System.lineSeparator()).join(monthRows.subList(0, monthRows.size() - 1))));
+    assertTrue(monthRows.get(monthRows.size() - 1).endsWith(",1010,35.0"));
+  }
+
+  @Test
+  public void testUpdateRollupsMissingPeriod() throws Exception
+  {
+    MatchHistory history = RollupUtilsTest.createHistory(new Random(11));
+    File folder = createTempFolder();
+    RankTrackerUtils.exportRollups(history, folder);
+    File weeks = new File(folder, "rollup-week-1v1.csv");
+    File months = new File(folder, "rollup-month-2v2.csv");
+    byte[] weekRows = Files.readAllBytes(weeks.toPath());
+    byte[] monthRows = Files.readAllBytes(months.toPath());
+
+    // the missing files are rolled up from the day files, although the playlists have no new results
+    Files.delete(weeks.toPath());
+    Files.delete(months.toPath());
+    RankTrackerUtils.updateRollups(history, new MatchHistory(), RankTrackerUtils.getWatermarks(history).keySet(),
+                                   folder);
+    assertEquals(Files.readAllBytes(weeks.toPath()), weekRows);
+    assertEquals(Files.readAllBytes(months.toPath()), monthRows);
+    assertEquals(folder.list().length, 6);
+  }
+
+  @Test
+  public void testIsCurrent() throws Exception
+  {
+    MatchHistory history = MatchHistory.of(createResults());
+    Map<Integer, PlaylistStatistics> statistics = RankTrackerUtils.getStatistics(history);
+    Map<Integer, Watermark> watermarks = RankTrackerUtils.getWatermarks(history);
+    assertTrue(RankTrackerUtils.isCurrent(new TreeMap<>(), new TreeMap<>()));
+    assertFalse(RankTrackerUtils.isCurrent(new TreeMap<>(), watermarks));
+
+    watermarks.put(MatchResult.RANKED_1V1, new Watermark(1, 3));
+    assertFalse(RankTrackerUtils.isCurrent(statistics, watermarks));
+    watermarks.put(MatchResult.RANKED_1V1, new Watermark(2, 2));
+    assertFalse(RankTrackerUtils.isCurrent(statistics, watermarks));
+    watermarks.put(MatchResult.RANKED_1V1, new Watermark(1, 2));
+    assertTrue(RankTrackerUtils.isCurrent(statistics, watermarks));
+  }
+
   private SortedSet<MatchResult> createResults()
   {
     SortedSet<MatchResult> results = new TreeSet<>();
@@ -70,7 +393,7 @@ public class RankTrackerUtilsTest
   {
     DummyExporter exporter = new DummyExporter();
     SortedSet<MatchResult> results = createResults();
-    File folder = Files.createTempDirectory("ranktracker").toFile();
+    File folder = createTempFolder();
 
     Map<Integer, SortedSet<MatchResult>> separated = RankTrackerUtils.separateResults(results);
 
@@ -89,19 +412,41 @@ public class RankTrackerUtilsTest
   {
     DummyExporter exporter = new DummyExporter();
     SortedSet<MatchResult> results = createResults();
-    File folder = Files.createTempDirectory("ranktracker").toFile();
+    File folder = createTempFolder();
     Files.delete(folder.toPath());
 
     Map<Integer, SortedSet<MatchResult>> separated = RankTrackerUtils.separateResults(results);
     RankTrackerUtils.exportFiles(separated, exporter, folder);
   }
 
+  @Test
+  public void testGetHistory() throws Exception
+  {
+    File baseFolder = createTempFolder();
+    MatchHistory history = MatchHistory.of(createResults());
+    assertNull(RankTrackerUtils.getHistory(baseFolder));
+
+    RankTrackerUtils.writeHistoryToFile(history, baseFolder);
+    MatchHistory onHeap = RankTrackerUtils.getHistory(baseFolder);
+    assertFalse(onHeap.isOffHeap());
+    assertEquals(onHeap, history);
+    MatchHistory offHeap = RankTrackerUtils.getHistory(baseFolder, MatchHistory::offHeap);
+    assertTrue(offHeap.isOffHeap());
+    assertEquals(offHeap, history);
+
+    // the file is not held on to, so it can be replaced while the histories are in use
+    onHeap.add(new MatchResult(new DateTime(8000), MatchResult.RANKED_2V2, 1, 12));
+    RankTrackerUtils.writeHistoryToFile(onHeap, baseFolder);
+    assertEquals(RankTrackerUtils.getHistory(baseFolder), onHeap);
+    assertEquals(offHeap, history);
+  }
+
   @Test
   public void testWriteMetaDataToFileNullArgs() throws Exception
   {
     RankTrackerUtils.writeScannedFilesToFile(null, null);
     RankTrackerUtils.writeScannedFilesToFile(new ScannedFiles(), null);
-    RankTrackerUtils.writeScannedFilesToFile(null, Files.createTempFile(null, null).toFile());
+    RankTrackerUtils.writeScannedFilesToFile(null, createTempFile());
   }
 
   @Test
@@ -109,7 +454,8 @@ public class RankTrackerUtilsTest
   {
     ScannedFiles metaData = new ScannedFiles();
     metaData.getLogFiles().add("log1.log");
-    File baseFolder = Files.createTempDirectory(null).toFile();
+    metaData.getFingerprints().put("log1.log", new LogFileFingerprint(1443116065000L, 1034, 3735928559L));
+    File baseFolder = createTempFolder();
     File scannedFilesFile = new File(baseFolder, RankTrackerUtils.SCANNEDFILES_FILENAME);
     assertFalse(scannedFilesFile.exists());
 
@@ -126,24 +472,32 @@ public class RankTrackerUtilsTest
   public void testScannedFiles() throws Exception
   {
     {
-      File baseFolder = Files.createTempDirectory(null).toFile();
+      File baseFolder = createTempFolder();
       ScannedFiles data = RankTrackerUtils.getScannedFiles(baseFolder);
       assertNotNull(data);
       assertTrue(data.getLogFiles().isEmpty());
     }
     {
-      File baseFolder = Files.createTempDirectory(null).toFile();
+      File baseFolder = createTempFolder();
       ScannedFiles scannedFiles = new ScannedFiles();
       scannedFiles.getLogFiles().add("log1.log");
+      scannedFiles.getLogFileStates().put("Launch.log", new LogFileState(100, 1000, 10));
+      scannedFiles.getWatermarks().put(MatchResult.RANKED_2V2, new Watermark(1442436886, 12));
 
       RankTrackerUtils.writeScannedFilesToFile(scannedFiles, baseFolder);
 
       ScannedFiles data = RankTrackerUtils.getScannedFiles(baseFolder);
       assertEquals(data, scannedFiles);
+
+      // the file is replaced, and no temporary file is left behind
+      scannedFiles.getLogFiles().add("log2.log");
+      RankTrackerUtils.writeScannedFilesToFile(scannedFiles, baseFolder);
+      assertEquals(RankTrackerUtils.getScannedFiles(baseFolder), scannedFiles);
+      assertEquals(baseFolder.list(), new String[] { RankTrackerUtils.SCANNEDFILES_FILENAME });
     }
     {
-      File baseFolder = Files.createTempDirectory(null).toFile();
-      File file = Files.createTempFile(null, null).toFile();
+      File baseFolder = createTempFolder();
+      File file = createTempFile();
 
       try (BufferedWriter writer = new BufferedWriter(new FileWriter(file)))
       {
@@ -158,16 +512,58 @@ public class RankTrackerUtilsTest
     }
   }
 
+  private File createTempFolder() throws Exception
+  {
+    File folder = Files.createTempDirectory("ranktracker").toFile();
+    tempFiles.add(folder);
+    return folder;
+  }
+
+  private File createTempFile() throws Exception
+  {
+    File file = Files.createTempFile("ranktracker", null).toFile();
+    tempFiles.add(file);
+    return file;
+  }
+
+  private void deleteFolderTree(File folder) throws Exception
+  {
+    Files.walkFileTree(folder.toPath(), new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+      {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException
+      {
+        if (exc == null)
+        {
+          Files.delete(dir);
+          return FileVisitResult.CONTINUE;
+        }
+
+        throw exc;
+      }
+    });
+  }
+
   private static class DummyExporter implements Exporter
   {
+    private int exported;
+
     @Override
     public void export(MatchResultsWrapper parser, File file) throws IOException
     { // Do nothing
     }
 
     @Override
-    public void export(SortedSet<MatchResult> results, File file) throws IOException
-    { // Do nothing
+    public synchronized void export(SortedSet<MatchResult> results, File file) throws IOException
+    {
+      exported += results.size();
     }
 
     @Override
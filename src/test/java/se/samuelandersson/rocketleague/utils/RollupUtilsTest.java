@@ -0,0 +1,109 @@
+package se.samuelandersson.rocketleague.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.joda.time.LocalDate;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.MatchHistory;
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.Rollup;
+import se.samuelandersson.rocketleague.Rollup.Period;
+
+public class RollupUtilsTest
+{
+  private static final long START = RollupUtils.toEpochSecond(new LocalDate("2015-09-01"));
+
+  /**
+   * Returns a history of about 200 days, with results of two playlists every 20 minutes on average.
+   */
+  static MatchHistory createHistory(final Random random)
+  {
+    MatchHistory history = new MatchHistory();
+    int[] ranks = new int[256];
+    long epochSecond = START;
+    for (int i = 0; i < 15000; i++)
+    {
+      epochSecond += random.nextInt(40 * 60);
+      int playList = random.nextBoolean() ? MatchResult.RANKED_1V1 : MatchResult.RANKED_2V2;
+      int delta = random.nextInt(21) - 10;
+      float mean = random.nextInt(10) == 0 ? -1 : 20 + random.nextFloat() * 20;
+      history.add(epochSecond, playList, delta, 600 + ranks[playList], mean, mean < 0 ? -1 : 2.5f);
+      ranks[playList] += delta;
+    }
+
+    return history;
+  }
+
+  @Test
+  public void testGetDays() throws Exception
+  {
+    MatchHistory history = createHistory(new Random(5));
+    SortedMap<LocalDate, Rollup> days = RollupUtils.getDays(history, 0, history.size(), MatchResult.RANKED_1V1);
+
+    // the same as rolling up every result by itself
+    SortedMap<LocalDate, Rollup> expected = new TreeMap<>();
+    int matches = 0;
+    for (int i = 0; i < history.size(); i++)
+    {
+      if (history.getPlayList(i) == MatchResult.RANKED_1V1)
+      {
+        LocalDate day = new LocalDate(history.getEpochSecond(i) * 1000);
+        expected.putIfAbsent(day, new Rollup(day));
+        expected.get(day).add(history, i);
+        matches++;
+      }
+    }
+    assertEquals(days, expected);
+    assertEquals(days.values().stream().mapToInt(Rollup::getMatches).sum(), matches);
+
+    // every playlist
+    assertEquals(RollupUtils.getDays(history, 0, history.size(), -1).values().stream().mapToInt(Rollup::getMatches)
+        .sum(), history.size());
+    assertTrue(RollupUtils.getDays(history, 10, 10, -1).isEmpty());
+  }
+
+  @Test
+  public void testRollUp() throws Exception
+  {
+    MatchHistory history = createHistory(new Random(6));
+    SortedMap<LocalDate, Rollup> days = RollupUtils.getDays(history, 0, history.size(), MatchResult.RANKED_2V2);
+    for (Period period : Period.values())
+    {
+      // the same as rolling up the results of every period by themselves
+      SortedMap<LocalDate, Rollup> expected = new TreeMap<>();
+      for (int i = 0; i < history.size(); i++)
+      {
+        if (history.getPlayList(i) == MatchResult.RANKED_2V2)
+        {
+          LocalDate start = period.start(new LocalDate(history.getEpochSecond(i) * 1000));
+          expected.putIfAbsent(start, new Rollup(start));
+          expected.get(start).add(history, i);
+        }
+      }
+
+      SortedMap<LocalDate, Rollup> rollups = RollupUtils.rollUp(days, period);
+      assertEquals(rollups, expected);
+      for (Rollup rollup : rollups.values())
+      {
+        assertEquals(RollupUtils.rollUp(days, period, rollup.getStart()), rollup);
+      }
+    }
+
+    assertNull(RollupUtils.rollUp(days, Period.MONTH, new LocalDate("2014-01-01")));
+  }
+
+  @Test
+  public void testToEpochSecond() throws Exception
+  {
+    LocalDate day = new LocalDate("2015-09-30");
+    assertEquals(RollupUtils.toEpochSecond(day), day.toDateTimeAtStartOfDay().getMillis() / 1000);
+    assertEquals(new LocalDate(RollupUtils.toEpochSecond(day) * 1000), day);
+  }
+}
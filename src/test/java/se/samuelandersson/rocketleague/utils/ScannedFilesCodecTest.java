@@ -0,0 +1,146 @@
+package se.samuelandersson.rocketleague.utils;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import se.samuelandersson.rocketleague.LogFileFingerprint;
+import se.samuelandersson.rocketleague.LogFileState;
+import se.samuelandersson.rocketleague.MatchResult;
+import se.samuelandersson.rocketleague.PlaylistStatistics;
+import se.samuelandersson.rocketleague.ScannedFiles;
+import se.samuelandersson.rocketleague.Watermark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+
+public class ScannedFilesCodecTest
+{
+  private static final Logger log = LoggerFactory.getLogger(ScannedFilesCodecTest.class);
+
+  private static ScannedFiles createScannedFiles(final int logFiles)
+  {
+    ScannedFiles scannedFiles = new ScannedFiles();
+    for (int i = 2; i < logFiles + 2; i++)
+    {
+      String name = "Launch_" + i + ".log";
+      scannedFiles.getLogFiles().add(name);
+      scannedFiles.getFingerprints().put(name, new LogFileFingerprint(1443116065000L + i, 1034L * i, 4294967295L - i));
+    }
+    scannedFiles.getLogFileStates().put("Launch.log", new LogFileState(1034, 1443116065000L, 2361516553L));
+    scannedFiles.getWatermarks().put(MatchResult.RANKED_1V1, new Watermark(1443116165, 3));
+    scannedFiles.getWatermarks().put(MatchResult.RANKED_3V3, new Watermark(1443116265, 30));
+    scannedFiles.getStatistics().put(MatchResult.RANKED_1V1, new PlaylistStatistics(1443116165, 3, 2, -1, 2, 1, 8, 719,
+                                                                                    711, 40.6359f, 2.4849f, 41.1f,
+                                                                                    2.3012f));
+    scannedFiles.getStatistics().put(MatchResult.RANKED_3V3, new PlaylistStatistics(1443116265, 30, 0, -30, 0, 30,
+                                                                                    -300, 500, 200, -1, -1, -1, -1));
+    return scannedFiles;
+  }
+
+  private static String write(final ScannedFiles scannedFiles) throws IOException
+  {
+    StringWriter writer = new StringWriter();
+    ScannedFilesCodec.write(scannedFiles, writer);
+    return writer.toString();
+  }
+
+  @Test
+  public void testWriteAndRead() throws Exception
+  {
+    for (ScannedFiles scannedFiles : new ScannedFiles[] { new ScannedFiles(), createScannedFiles(3) })
+    {
+      assertEquals(ScannedFilesCodec.read(new StringReader(write(scannedFiles))), scannedFiles);
+    }
+  }
+
+  @Test
+  public void testSameAsGson() throws Exception
+  {
+    ScannedFiles scannedFiles = createScannedFiles(3);
+    Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    assertEquals(ScannedFilesCodec.read(new StringReader(gson.toJson(scannedFiles))), scannedFiles);
+    assertEquals(gson.fromJson(write(scannedFiles), ScannedFiles.class), scannedFiles);
+
+    // written the same way, the JSON is the same as well
+    assertEquals(gson.toJson(new JsonParser().parse(write(scannedFiles))), gson.toJson(scannedFiles));
+  }
+
+  @Test
+  public void testSkipsUnknownMembers() throws Exception
+  {
+    String json = "{ \"version\": [ 1, { \"a\": null } ], \"logFiles\": [ \"log1.log\" ], \"logFileStates\": null,"
+                  + " \"watermarks\": { \"10\": { \"count\": 3, \"lastEpochSecond\": 1000, \"extra\": \"x\" } } }";
+    ScannedFiles expected = new ScannedFiles();
+    expected.getLogFiles().add("log1.log");
+    expected.getWatermarks().put(MatchResult.RANKED_1V1, new Watermark(1000, 3));
+    assertEquals(ScannedFilesCodec.read(new StringReader(json)), expected);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testMalformed() throws Exception
+  {
+    ScannedFilesCodec.read(new StringReader("{ \"logFiles\": [ \"log1.log\" "));
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testBadPlaylist() throws Exception
+  {
+    ScannedFilesCodec.read(new StringReader("{ \"watermarks\": { \"1v1\": { \"count\": 3 } } }"));
+  }
+
+  @Test(groups = "benchmark")
+  public void testLargeState() throws Exception
+  {
+    final int count = 100000;
+    ScannedFiles scannedFiles = createScannedFiles(count);
+    File baseFolder = Files.createTempDirectory(null).toFile();
+    File file = new File(baseFolder, RankTrackerUtils.SCANNEDFILES_FILENAME);
+    try
+    {
+      // the best of a few rounds, so that everything gets compiled before being measured
+      Gson gson = new GsonBuilder().setPrettyPrinting().create();
+      long writeTime = Long.MAX_VALUE;
+      long readTime = Long.MAX_VALUE;
+      long gsonTime = Long.MAX_VALUE;
+      for (int round = 0; round < 3; round++)
+      {
+        long started = System.nanoTime();
+        RankTrackerUtils.writeScannedFilesToFile(scannedFiles, baseFolder);
+        writeTime = Math.min(writeTime, System.nanoTime() - started);
+
+        started = System.nanoTime();
+        assertEquals(RankTrackerUtils.getScannedFiles(baseFolder).getFingerprints().size(), count);
+        readTime = Math.min(readTime, System.nanoTime() - started);
+
+        // the way the file used to be written and read
+        started = System.nanoTime();
+        String json = gson.toJson(scannedFiles, ScannedFiles.class);
+        assertEquals(new Gson().fromJson(json, ScannedFiles.class).getFingerprints().size(), count);
+        gsonTime = Math.min(gsonTime, System.nanoTime() - started);
+      }
+
+      log.info(String.format("%s log files, %s bytes: written in %s ms, read in %s ms, with reflection %s ms",
+                             count,
+                             file.length(),
+                             writeTime / 1000000,
+                             readTime / 1000000,
+                             gsonTime / 1000000));
+      assertEquals(RankTrackerUtils.getScannedFiles(baseFolder), scannedFiles);
+    }
+    finally
+    {
+      file.delete();
+      baseFolder.delete();
+    }
+  }
+}